@@ -0,0 +1,488 @@
+package com.okdori.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * ExcelRowWriterProcessor
+ *
+ * Generates {@code com.okdori.resource.schema.GeneratedRowWriter} of each class having @ExcelColumn.
+ * Generated writer calls getters (or non private fields) directly and resolves cell styles at compile time,
+ * so rendering does not need reflection. Classes which can not be accessed without reflection are skipped
+ * with a warning, and are rendered with reflection at runtime.
+ *
+ * Writers are registered in META-INF/services, so the processor is declared aggregating for incremental
+ * compilation of gradle.
+ *
+ * Usage with gradle
+ * <pre>
+ * annotationProcessor 'com.github.okdori.excel-lib:excel-lib-processor:${version}'
+ * </pre>
+ */
+@SupportedAnnotationTypes(ExcelRowWriterProcessor.EXCEL_COLUMN)
+public class ExcelRowWriterProcessor extends AbstractProcessor {
+
+	static final String EXCEL_COLUMN = "com.okdori.ExcelColumn";
+	private static final String DEFAULT_HEADER_STYLE = "com.okdori.DefaultHeaderStyle";
+	private static final String DEFAULT_BODY_STYLE = "com.okdori.DefaultBodyStyle";
+	private static final String EXCEL_AGGREGATE = "com.okdori.ExcelAggregate";
+	private static final String NO_EXCEL_CELL_STYLE = "com.okdori.style.NoExcelCellStyle";
+	private static final String GENERATED_ROW_WRITER = "com.okdori.resource.schema.GeneratedRowWriter";
+	private static final String CELL_VALUE_WRITER = "com.okdori.resource.schema.CellValueWriter";
+	private static final String EXCEL_SCHEMA_BUILDER = "com.okdori.resource.schema.ExcelSchemaBuilder";
+	private static final String GENERATED_CLASS_SUFFIX = "_ExcelRowWriter";
+	private static final Set<String> LOMBOK_GETTERS = new LinkedHashSet<>(
+			Arrays.asList("lombok.Getter", "lombok.Data", "lombok.Value"));
+
+	private Elements elements;
+	private Types types;
+	private Filer filer;
+	private Messager messager;
+	private final Set<String> generatedClassNames = new LinkedHashSet<>();
+
+	@Override
+	public synchronized void init(ProcessingEnvironment processingEnv) {
+		super.init(processingEnv);
+		this.elements = processingEnv.getElementUtils();
+		this.types = processingEnv.getTypeUtils();
+		this.filer = processingEnv.getFiler();
+		this.messager = processingEnv.getMessager();
+	}
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		if (roundEnv.processingOver()) {
+			writeServiceFile();
+			return false;
+		}
+
+		TypeElement excelColumn = elements.getTypeElement(EXCEL_COLUMN);
+		if (excelColumn == null) {
+			return false;
+		}
+
+		Set<TypeElement> renderedTypes = new LinkedHashSet<>();
+		for (Element element : roundEnv.getElementsAnnotatedWith(excelColumn)) {
+			if (element.getKind() == ElementKind.FIELD) {
+				renderedTypes.add((TypeElement) element.getEnclosingElement());
+			}
+		}
+
+		for (TypeElement renderedType : renderedTypes) {
+			try {
+				generate(renderedType);
+			} catch (SkipException e) {
+				messager.printMessage(Diagnostic.Kind.NOTE,
+						String.format("%s is rendered with reflection: %s", renderedType, e.getMessage()), renderedType);
+			} catch (IOException e) {
+				messager.printMessage(Diagnostic.Kind.ERROR, e.getMessage(), renderedType);
+			}
+		}
+		return false;
+	}
+
+	private void generate(TypeElement renderedType) throws IOException {
+		validateAccessible(renderedType);
+		List<Column> columns = collectColumns(renderedType);
+
+		String packageName = elements.getPackageOf(renderedType).getQualifiedName().toString();
+		String binaryName = elements.getBinaryName(renderedType).toString();
+		String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1))
+				+ GENERATED_CLASS_SUFFIX;
+		String qualifiedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+		String typeName = types.erasure(renderedType.asType()).toString();
+
+		try (PrintWriter out = new PrintWriter(filer.createSourceFile(qualifiedName, renderedType).openWriter())) {
+			if (!packageName.isEmpty()) {
+				out.printf("package %s;%n%n", packageName);
+			}
+			out.printf("public final class %s implements %s<%s> {%n%n", simpleName, GENERATED_ROW_WRITER, typeName);
+
+			out.printf("\t@Override%n");
+			out.printf("\tpublic Class<%s> getType() {%n", typeName);
+			out.printf("\t\treturn %s.class;%n", typeName);
+			out.printf("\t}%n%n");
+
+			out.printf("\t@Override%n");
+			out.printf("\tpublic void defineColumns(%s builder) {%n", EXCEL_SCHEMA_BUILDER);
+			for (Column column : columns) {
+				out.printf("\t\tbuilder.column(%s, %s, %s.class, %s, %s);%n", literal(column.name),
+						literal(column.headerName), column.typeName, column.headerStyle, column.bodyStyle);
+				if (!column.aggregates.isEmpty()) {
+					out.printf("\t\tbuilder.aggregates(%s);%n", String.join(", ", column.aggregates));
+				}
+			}
+			out.printf("\t}%n%n");
+
+			out.printf("\t@Override%n");
+			out.printf("\tpublic void write(%s data, %s writer) {%n", typeName, CELL_VALUE_WRITER);
+			for (int i = 0; i < columns.size(); i++) {
+				out.printf("\t\t%s;%n", columns.get(i).writeStatement(String.valueOf(i)));
+			}
+			out.printf("\t}%n%n");
+
+			out.printf("\t@Override%n");
+			out.printf("\tpublic void writeColumn(%s data, int sourceIndex, int columnIndex, %s writer) {%n",
+					typeName, CELL_VALUE_WRITER);
+			out.printf("\t\tswitch (sourceIndex) {%n");
+			for (int i = 0; i < columns.size(); i++) {
+				out.printf("\t\t\tcase %d:%n", i);
+				out.printf("\t\t\t\t%s;%n", columns.get(i).writeStatement("columnIndex"));
+				out.printf("\t\t\t\treturn;%n");
+			}
+			out.printf("\t\t\tdefault:%n");
+			out.printf("\t\t\t\tthrow new IndexOutOfBoundsException(String.valueOf(sourceIndex));%n");
+			out.printf("\t\t}%n");
+			out.printf("\t}%n%n");
+
+			out.printf("}%n");
+		}
+		generatedClassNames.add(qualifiedName);
+	}
+
+	private void validateAccessible(TypeElement renderedType) {
+		Element element = renderedType;
+		while (element.getKind().isClass() || element.getKind().isInterface()) {
+			TypeElement typeElement = (TypeElement) element;
+			if (typeElement.getModifiers().contains(Modifier.PRIVATE)) {
+				throw new SkipException("private class");
+			}
+			if (typeElement.getNestingKind() == NestingKind.MEMBER && !typeElement.getModifiers().contains(Modifier.STATIC)) {
+				throw new SkipException("inner class is not static");
+			}
+			if (typeElement.getNestingKind() == NestingKind.LOCAL || typeElement.getNestingKind() == NestingKind.ANONYMOUS) {
+				throw new SkipException("local class");
+			}
+			element = element.getEnclosingElement();
+		}
+	}
+
+	/**
+	 * Same order as SuperClassReflectionUtils.getAllFields, fields of super class first
+	 */
+	private List<Column> collectColumns(TypeElement renderedType) {
+		List<TypeElement> classes = new ArrayList<>();
+		TypeElement current = renderedType;
+		while (current != null && !current.getQualifiedName().contentEquals(Object.class.getName())) {
+			classes.add(current);
+			TypeMirror superclass = current.getSuperclass();
+			current = superclass.getKind() == TypeKind.DECLARED
+					? (TypeElement) ((DeclaredType) superclass).asElement() : null;
+		}
+
+		AnnotationMirror classHeaderStyle = findClassStyle(classes, DEFAULT_HEADER_STYLE);
+		AnnotationMirror classBodyStyle = findClassStyle(classes, DEFAULT_BODY_STYLE);
+
+		Collections.reverse(classes);
+		List<Column> columns = new ArrayList<>();
+		for (TypeElement clazz : classes) {
+			for (VariableElement field : ElementFilter.fieldsIn(clazz.getEnclosedElements())) {
+				AnnotationMirror excelColumn = findAnnotation(field, EXCEL_COLUMN);
+				if (excelColumn == null) {
+					continue;
+				}
+				if (field.getModifiers().contains(Modifier.STATIC)) {
+					throw new SkipException(String.format("static field %s", field.getSimpleName()));
+				}
+				columns.add(new Column(
+						field.getSimpleName().toString(),
+						(String) value(excelColumn, "headerName"),
+						types.erasure(field.asType()).toString(),
+						styleExpression(field, (AnnotationMirror) value(excelColumn, "headerStyle"), classHeaderStyle),
+						styleExpression(field, (AnnotationMirror) value(excelColumn, "bodyStyle"), classBodyStyle),
+						aggregates(excelColumn),
+						accessor(renderedType, clazz, field),
+						isNumericPrimitive(field.asType())));
+			}
+		}
+		return columns;
+	}
+
+	private AnnotationMirror findClassStyle(List<TypeElement> classes, String annotationName) {
+		for (TypeElement clazz : classes) {
+			AnnotationMirror annotation = findAnnotation(clazz, annotationName);
+			if (annotation != null) {
+				return (AnnotationMirror) value(annotation, "style");
+			}
+		}
+		return null;
+	}
+
+	private String styleExpression(VariableElement field, AnnotationMirror fieldStyle, AnnotationMirror classStyle) {
+		AnnotationMirror appliedStyle = fieldStyle;
+		TypeElement styleClass = styleClass(fieldStyle);
+		if (styleClass.getQualifiedName().contentEquals(NO_EXCEL_CELL_STYLE) && classStyle != null) {
+			appliedStyle = classStyle;
+			styleClass = styleClass(classStyle);
+		}
+
+		String styleClassName = types.erasure(styleClass.asType()).toString();
+		if (styleClass.getKind() != ElementKind.ENUM) {
+			return String.format("new %s()", styleClassName);
+		}
+
+		String enumName = (String) value(appliedStyle, "enumName");
+		for (Element enclosed : styleClass.getEnclosedElements()) {
+			if (enclosed.getKind() == ElementKind.ENUM_CONSTANT && enclosed.getSimpleName().contentEquals(enumName)) {
+				return String.format("%s.%s", styleClassName, enumName);
+			}
+		}
+		messager.printMessage(Diagnostic.Kind.ERROR,
+				String.format("Enum %s does not name %s", styleClassName, enumName), field);
+		return String.format("%s.valueOf(%s)", styleClassName, literal(enumName));
+	}
+
+	private TypeElement styleClass(AnnotationMirror excelColumnStyle) {
+		TypeMirror styleType = (TypeMirror) value(excelColumnStyle, "excelCellStyleClass");
+		return (TypeElement) types.asElement(styleType);
+	}
+
+	private List<String> aggregates(AnnotationMirror excelColumn) {
+		List<String> aggregates = new ArrayList<>();
+		for (Object aggregate : (List<?>) value(excelColumn, "aggregates")) {
+			VariableElement constant = (VariableElement) ((AnnotationValue) aggregate).getValue();
+			aggregates.add(String.format("%s.%s", EXCEL_AGGREGATE, constant.getSimpleName()));
+		}
+		return aggregates;
+	}
+
+	private String accessor(TypeElement renderedType, TypeElement declaringClass, VariableElement field) {
+		String fieldName = field.getSimpleName().toString();
+		String capitalized = Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
+		boolean isBoolean = field.asType().getKind() == TypeKind.BOOLEAN;
+		List<String> getterNames = isBoolean
+				? Arrays.asList("is" + capitalized, "get" + capitalized)
+				: Collections.singletonList("get" + capitalized);
+
+		for (ExecutableElement method : ElementFilter.methodsIn(elements.getAllMembers(renderedType))) {
+			if (getterNames.contains(method.getSimpleName().toString()) && method.getParameters().isEmpty()
+					&& isAccessible(method, renderedType)) {
+				return String.format("data.%s()", method.getSimpleName());
+			}
+		}
+
+		if (hasLombokGetter(field) || hasLombokGetter(declaringClass)) {
+			return String.format("data.%s()", getterNames.get(0));
+		}
+
+		if (isAccessible(field, declaringClass)) {
+			return String.format("data.%s", fieldName);
+		}
+		throw new SkipException(String.format("field %s has no accessible getter", fieldName));
+	}
+
+	private boolean isAccessible(Element member, TypeElement accessedType) {
+		Set<Modifier> modifiers = member.getModifiers();
+		if (modifiers.contains(Modifier.PRIVATE)) {
+			return false;
+		}
+		if (modifiers.contains(Modifier.PUBLIC)) {
+			return true;
+		}
+		TypeElement declaringType = (TypeElement) member.getEnclosingElement();
+		return elements.getPackageOf(declaringType).equals(elements.getPackageOf(accessedType));
+	}
+
+	private boolean hasLombokGetter(Element element) {
+		for (String lombokGetter : LOMBOK_GETTERS) {
+			if (findAnnotation(element, lombokGetter) != null) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean isNumericPrimitive(TypeMirror type) {
+		switch (type.getKind()) {
+			case BYTE:
+			case SHORT:
+			case INT:
+			case LONG:
+			case FLOAT:
+			case DOUBLE:
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	private AnnotationMirror findAnnotation(Element element, String annotationName) {
+		for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+			TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+			if (annotationType.getQualifiedName().contentEquals(annotationName)) {
+				return annotation;
+			}
+		}
+		return null;
+	}
+
+	private Object value(AnnotationMirror annotation, String name) {
+		Map<? extends ExecutableElement, ? extends AnnotationValue> values
+				= elements.getElementValuesWithDefaults(annotation);
+		for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : values.entrySet()) {
+			if (entry.getKey().getSimpleName().contentEquals(name)) {
+				return entry.getValue().getValue();
+			}
+		}
+		throw new IllegalStateException(String.format("%s has no %s", annotation, name));
+	}
+
+	/**
+	 * Writes generated writers of every round, and writers registered by previous compilations
+	 * whose classes still exist, so incremental compilation of some classes keeps other entries
+	 */
+	private void writeServiceFile() {
+		if (generatedClassNames.isEmpty()) {
+			return;
+		}
+		String serviceFileName = "META-INF/services/" + GENERATED_ROW_WRITER;
+		Set<String> classNames = new LinkedHashSet<>();
+		for (String registeredClassName : readServiceFile(serviceFileName)) {
+			if (elements.getTypeElement(registeredClassName) != null) {
+				classNames.add(registeredClassName);
+			}
+		}
+		classNames.addAll(generatedClassNames);
+		try {
+			FileObject serviceFile = filer.createResource(StandardLocation.CLASS_OUTPUT, "", serviceFileName);
+			try (Writer writer = serviceFile.openWriter()) {
+				for (String className : classNames) {
+					writer.write(className);
+					writer.write("\n");
+				}
+			}
+		} catch (IOException e) {
+			messager.printMessage(Diagnostic.Kind.ERROR, e.getMessage());
+		}
+	}
+
+	private List<String> readServiceFile(String serviceFileName) {
+		List<String> classNames = new ArrayList<>();
+		try {
+			FileObject serviceFile = filer.getResource(StandardLocation.CLASS_OUTPUT, "", serviceFileName);
+			try (BufferedReader reader = new BufferedReader(serviceFile.openReader(true))) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					int commentIndex = line.indexOf('#');
+					String className = (commentIndex < 0 ? line : line.substring(0, commentIndex)).trim();
+					if (!className.isEmpty()) {
+						classNames.add(className);
+					}
+				}
+			}
+		} catch (IOException | IllegalArgumentException e) {
+			// no service file written by previous compilation
+		}
+		return classNames;
+	}
+
+	private static String literal(String value) {
+		StringBuilder builder = new StringBuilder("\"");
+		for (char c : value.toCharArray()) {
+			switch (c) {
+				case '"':
+					builder.append("\\\"");
+					break;
+				case '\\':
+					builder.append("\\\\");
+					break;
+				case '\n':
+					builder.append("\\n");
+					break;
+				case '\r':
+					builder.append("\\r");
+					break;
+				case '\t':
+					builder.append("\\t");
+					break;
+				default:
+					if (c < 0x20 || c > 0x7e) {
+						builder.append(String.format("\\u%04x", (int) c));
+					} else {
+						builder.append(c);
+					}
+			}
+		}
+		return builder.append('"').toString();
+	}
+
+	private static final class Column {
+
+		private final String name;
+		private final String headerName;
+		private final String typeName;
+		private final String headerStyle;
+		private final String bodyStyle;
+		private final List<String> aggregates;
+		private final String accessor;
+		private final boolean numericPrimitive;
+
+		private Column(String name, String headerName, String typeName, String headerStyle, String bodyStyle,
+					   List<String> aggregates, String accessor, boolean numericPrimitive) {
+			this.name = name;
+			this.headerName = headerName;
+			this.typeName = typeName;
+			this.headerStyle = headerStyle;
+			this.bodyStyle = bodyStyle;
+			this.aggregates = aggregates;
+			this.accessor = accessor;
+			this.numericPrimitive = numericPrimitive;
+		}
+
+		private String writeStatement(String columnIndex) {
+			if (numericPrimitive) {
+				return String.format("writer.writeNumber(%s, %s)", columnIndex, accessor);
+			}
+			return String.format("writer.writeValue(%s, %s)", columnIndex, accessor);
+		}
+
+	}
+
+	private static final class SkipException extends RuntimeException {
+
+		private SkipException(String message) {
+			super(message);
+		}
+
+	}
+
+}
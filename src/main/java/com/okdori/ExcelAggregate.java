@@ -0,0 +1,41 @@
+package com.okdori;
+
+/**
+ * Aggregates rendered as footer rows under the body
+ * Aggregates are accumulated while rows are rendered, so data is not read twice
+ */
+public enum ExcelAggregate {
+
+	SUM("Sum", "SUM"),
+	MIN("Min", "MIN"),
+	MAX("Max", "MAX"),
+	AVERAGE("Average", "AVERAGE"),
+	/**
+	 * Count of not null values
+	 */
+	COUNT("Count", null),
+	/**
+	 * Approximate count of distinct not null values, about 2% error
+	 */
+	DISTINCT_COUNT("Distinct Count", null);
+
+	private final String label;
+	private final String formulaFunction;
+
+	ExcelAggregate(String label, String formulaFunction) {
+		this.label = label;
+		this.formulaFunction = formulaFunction;
+	}
+
+	public String getLabel() {
+		return label;
+	}
+
+	/**
+	 * Excel function of aggregate, null if aggregate is always rendered as value
+	 */
+	public String getFormulaFunction() {
+		return formulaFunction;
+	}
+
+}
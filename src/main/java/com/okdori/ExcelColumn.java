@@ -16,4 +16,9 @@ public @interface ExcelColumn {
 
 	ExcelColumnStyle headerStyle() default @ExcelColumnStyle(excelCellStyleClass = NoExcelCellStyle.class);
 	ExcelColumnStyle bodyStyle() default @ExcelColumnStyle(excelCellStyleClass = NoExcelCellStyle.class);
+
+	/**
+	 * Aggregates of column rendered as footer rows
+	 */
+	ExcelAggregate[] aggregates() default {};
 }
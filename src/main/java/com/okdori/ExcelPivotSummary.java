@@ -0,0 +1,24 @@
+package com.okdori;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Summary sheet of rows grouped by one column and columns by another, having sums of measure column.
+ * Columns are data field names of @ExcelColumn
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ExcelPivotSummary {
+
+	String sheetName() default "Summary";
+
+	String rows();
+
+	String columns();
+
+	String measure();
+
+}
@@ -1,12 +1,27 @@
 package com.okdori.excel;
 
+import com.okdori.excel.encrypt.ExcelEncryptor;
+
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.List;
 
-public interface ExcelFile<T> {
+public interface ExcelFile<T> extends AutoCloseable {
 
 	void write(OutputStream stream) throws IOException;
 
+	/**
+	 * Writes the file protected by password, encrypted while it is written. See {@link ExcelEncryptor}
+	 */
+	default void write(OutputStream stream, String password) throws IOException {
+		new ExcelEncryptor(password).write(this, stream);
+	}
+
 	void addRows(List<T> data);
+
+	/**
+	 * Releases temp storage of the file, even if the file is not written
+	 */
+	@Override
+	void close();
 }
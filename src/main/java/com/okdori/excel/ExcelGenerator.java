@@ -1,7 +1,24 @@
 package com.okdori.excel;
 
 import com.okdori.ExcelColumn;
+import com.okdori.excel.control.ExcelExportControl;
+import com.okdori.excel.fragment.SheetFragment;
+import com.okdori.excel.fragment.SheetFragmentWriter;
+import com.okdori.excel.jfr.ExcelEvent;
+import com.okdori.excel.jfr.ExcelEvents;
+import com.okdori.excel.pipeline.CellStyler;
+import com.okdori.excel.pipeline.CellValueConverter;
+import com.okdori.excel.pipeline.ExcelPipeline;
+import com.okdori.excel.pipeline.ParallelRowPreparer;
+import com.okdori.excel.pipeline.PoiSheetRowWriter;
+import com.okdori.excel.pipeline.SheetFinalizer;
+import com.okdori.excel.storage.ExcelTempStorage;
+import com.okdori.excel.storage.TempStorageWorkbook;
 import com.okdori.resource.*;
+import com.okdori.exception.ExcelInternalException;
+import com.okdori.resource.schema.CellValueWriter;
+import com.okdori.resource.schema.ExcelSchema;
+import com.okdori.resource.schema.RowWriter;
 import com.okdori.utils.TypeUtils;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.ss.util.CellRangeAddress;
@@ -12,8 +29,8 @@ import lombok.Setter;
 import org.apache.poi.xssf.usermodel.XSSFRichTextString;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.reflect.Field;
-import java.time.LocalDate;
 import java.util.*;
 
 /**
@@ -31,8 +48,18 @@ public class ExcelGenerator {
     private static final int FLUSH_THRESHOLD = 1000;
     private static final int WINDOW_SIZE = 1000;
     private static final int DEFAULT_HEIGHT = 17;
+    // kept by each class itself, so classes of unloaded class loaders are not pinned
+    private static final ClassValue<List<FieldInfo>> CLASS_FIELD_INFOS = new ClassValue<List<FieldInfo>>() {
+        @Override
+        protected List<FieldInfo> computeValue(Class<?> clazz) {
+            return createFieldInfos(clazz);
+        }
+    };
     private String sheetName = "Sheet1";
     private SXSSFWorkbook workbook;
+    private ExcelTempStorage tempStorage = ExcelTempStorage.defaultStorage();
+    private ParallelRowPreparer rowPreparer;
+    private ExcelExportControl exportControl = ExcelExportControl.none();
 
     @Getter
     private static class FieldInfo {
@@ -58,49 +85,108 @@ public class ExcelGenerator {
         private final String sheetName;
         private final List<T> data;
         private final Class<T> clazz;
+        private final List<String> columnNames;
 
-        private SheetInfo(String sheetName, List<T> data, Class<T> clazz) {
+        private SheetInfo(String sheetName, List<T> data, Class<T> clazz, List<String> columnNames) {
             this.sheetName = sheetName;
             this.data = data;
             this.clazz = clazz;
+            this.columnNames = columnNames;
         }
 
         public static <T> SheetInfo<T> create(String sheetName, List<T> data, Class<T> clazz) {
-            return new SheetInfo<>(sheetName, data, clazz);
+            return new SheetInfo<>(sheetName, data, clazz, null);
+        }
+
+        public static <T> SheetInfo<T> create(String sheetName, List<T> data, Class<T> clazz, List<String> columnNames) {
+            return new SheetInfo<>(sheetName, data, clazz, columnNames);
         }
     }
 
+    /**
+     * Analyzes @ExcelColumn fields of class before its first export. Analysis is kept for every generator
+     */
+    public static void register(Class<?> clazz) {
+        new ExcelGenerator().analyzeClass(clazz);
+    }
+
     public Workbook generateExcel(List<?> dataList, Class<?> clazz) throws IllegalAccessException, IOException {
+        return generateExcel(dataList, clazz, null);
+    }
+
+    /**
+     * @param columnNames field names to render in given order, null renders every @ExcelColumn field
+     */
+    public Workbook generateExcel(List<?> dataList, Class<?> clazz, List<String> columnNames)
+            throws IllegalAccessException, IOException {
         initializeWorkbook(dataList);
         if (dataList.isEmpty()) {
             return this.workbook;
         }
 
-        Sheet sheet = createAndConfigureSheet();
-        ExcelRenderResource resource = prepareRenderResource(clazz);
-        List<FieldInfo> fieldInfos = analyzeClass(clazz);
-        Map<Integer, Integer> columnWidths = new HashMap<>();
-
-        processExcelGeneration(sheet, dataList, fieldInfos, resource, columnWidths);
+        try {
+            Sheet sheet = createAndConfigureSheet();
+            List<FieldInfo> fieldInfos = projectFieldInfos(clazz, columnNames);
+            ExcelRenderResource resource = prepareRenderResource(clazz, columnNames);
+            Map<Integer, Integer> columnWidths = new HashMap<>();
+
+            processExcelGeneration(sheet, dataList, fieldInfos, resource, columnWidths);
+        } catch (IllegalAccessException | IOException | RuntimeException e) {
+            this.workbook.dispose();
+            throw e;
+        }
 
         return this.workbook;
     }
 
     public Workbook generateMultiSheetExcel(List<SheetInfo<?>> sheetInfos) throws IllegalAccessException, IOException {
-        this.workbook = new SXSSFWorkbook(WINDOW_SIZE);
+        this.workbook = new TempStorageWorkbook(tempStorage, WINDOW_SIZE);
         this.workbook.setCompressTempFiles(true);
 
+        try {
+            generateSheets(sheetInfos);
+        } catch (IllegalAccessException | IOException | RuntimeException e) {
+            this.workbook.dispose();
+            throw e;
+        }
+
+        return this.workbook;
+    }
+
+    /**
+     * Writes sheets, and {@link SheetFragment}s rendered before after them, then disposes workbook
+     */
+    public void writeMultiSheetExcel(List<SheetInfo<?>> sheetInfos, List<SheetFragment> fragments,
+                                     OutputStream stream) throws IllegalAccessException, IOException {
+        generateMultiSheetExcel(sheetInfos);
+        try {
+            ExcelEvent event = ExcelEvents.write(null);
+            long rowCount = 0;
+            for (SheetInfo<?> sheetInfo : sheetInfos) {
+                rowCount += sheetInfo.getData().size();
+            }
+            event.setRowCount(rowCount);
+            SheetFragmentWriter.write(this.workbook, fragments, tempStorage, event.countBytes(exportControl.wrap(stream)));
+            event.commit();
+            exportControl.finish();
+        } finally {
+            this.workbook.dispose();
+        }
+    }
+
+    private void generateSheets(List<SheetInfo<?>> sheetInfos) throws IllegalAccessException, IOException {
         for (SheetInfo<?> config : sheetInfos) {
             String sheetName = config.getSheetName();
             List<?> dataList = config.getData();
             Class<?> clazz = config.getClazz();
+            List<String> columnNames = config.getColumnNames();
 
             this.sheetName = sheetName;
 
             if (!dataList.isEmpty()) {
                 Sheet sheet = createAndConfigureSheet();
-                ExcelRenderResource resource = prepareRenderResource(clazz);
-                List<FieldInfo> fieldInfos = analyzeClass(clazz);
+                List<FieldInfo> fieldInfos = projectFieldInfos(clazz, columnNames);
+                ExcelRenderResource resource = prepareRenderResource(clazz, columnNames);
                 Map<Integer, Integer> columnWidths = new HashMap<>();
 
                 processExcelGeneration(sheet, dataList, fieldInfos, resource, columnWidths);
@@ -108,12 +194,10 @@ public class ExcelGenerator {
                 workbook.createSheet(sheetName);
             }
         }
-
-        return this.workbook;
     }
 
     private void initializeWorkbook(List<?> dataList) {
-        this.workbook = new SXSSFWorkbook(WINDOW_SIZE);
+        this.workbook = new TempStorageWorkbook(tempStorage, WINDOW_SIZE);
         if (!dataList.isEmpty()) {
             configureWorkbook();
         }
@@ -131,51 +215,84 @@ public class ExcelGenerator {
         return workbook.createSheet(sheetName);
     }
 
-    private ExcelRenderResource prepareRenderResource(Class<?> clazz) {
+    private ExcelRenderResource prepareRenderResource(Class<?> clazz, List<String> columnNames) {
+        ExcelSchema<?> schema = ExcelSchema.of(clazz);
         return ExcelRenderResourceFactory.prepareRenderResource(
-                clazz,
+                columnNames == null ? schema : schema.project(columnNames),
                 this.workbook,
                 new DefaultDataFormatDecider()
         );
     }
 
     private List<FieldInfo> analyzeClass(Class<?> clazz) {
+        return CLASS_FIELD_INFOS.get(clazz);
+    }
+
+    private static List<FieldInfo> createFieldInfos(Class<?> clazz) {
         List<FieldInfo> fieldInfos = new ArrayList<>();
         Field[] fields = clazz.getDeclaredFields();
 
         Arrays.stream(fields)
-                .filter(this::isValidExcelField)
-                .map(this::createFieldInfo)
+                .filter(ExcelGenerator::isValidExcelField)
+                .map(ExcelGenerator::createFieldInfo)
                 .forEach(fieldInfo -> {
                     processNestedFields(fieldInfo);
                     fieldInfos.add(fieldInfo);
                 });
 
-        return fieldInfos;
+        return Collections.unmodifiableList(fieldInfos);
+    }
+
+    private List<FieldInfo> projectFieldInfos(Class<?> clazz, List<String> columnNames) {
+        List<FieldInfo> fieldInfos = analyzeClass(clazz);
+        if (columnNames == null) {
+            return fieldInfos;
+        }
+
+        Map<String, FieldInfo> fieldInfosByName = new HashMap<>();
+        for (FieldInfo fieldInfo : fieldInfos) {
+            fieldInfosByName.put(fieldInfo.field.getName(), fieldInfo);
+        }
+
+        List<FieldInfo> projectedFieldInfos = new ArrayList<>();
+        List<String> unknownColumnNames = new ArrayList<>();
+        for (String columnName : columnNames) {
+            FieldInfo fieldInfo = fieldInfosByName.get(columnName);
+            if (fieldInfo == null) {
+                unknownColumnNames.add(columnName);
+            } else {
+                projectedFieldInfos.add(fieldInfo);
+            }
+        }
+        if (!unknownColumnNames.isEmpty()) {
+            throw new IllegalArgumentException(
+                    String.format("Columns %s are not defined in class %s", unknownColumnNames, clazz.getName()));
+        }
+        return projectedFieldInfos;
     }
 
-    private boolean isValidExcelField(Field field) {
+    private static boolean isValidExcelField(Field field) {
         field.setAccessible(true);
         return field.getAnnotation(ExcelColumn.class) != null;
     }
 
-    private FieldInfo createFieldInfo(Field field) {
+    private static FieldInfo createFieldInfo(Field field) {
         ExcelColumn annotation = field.getAnnotation(ExcelColumn.class);
         return FieldInfo.create(field, annotation);
     }
 
-    private void processNestedFields(FieldInfo fieldInfo) {
+    private static void processNestedFields(FieldInfo fieldInfo) {
         if (!shouldProcessNestedFields(fieldInfo)) {
             return;
         }
 
         Arrays.stream(fieldInfo.getField().getType().getDeclaredFields())
-                .filter(this::isValidExcelField)
-                .map(this::createFieldInfo)
+                .filter(ExcelGenerator::isValidExcelField)
+                .map(ExcelGenerator::createFieldInfo)
                 .forEach(fieldInfo.getNestedFields()::add);
     }
 
-    private boolean shouldProcessNestedFields(FieldInfo fieldInfo) {
+    private static boolean shouldProcessNestedFields(FieldInfo fieldInfo) {
         return fieldInfo.getAnnotation().mergeCells() && !fieldInfo.isPrimitiveOrSimple();
     }
 
@@ -183,8 +300,33 @@ public class ExcelGenerator {
                                         ExcelRenderResource resource, Map<Integer, Integer> columnWidths
     ) throws IllegalAccessException, IOException {
         createHeaders(sheet, fieldInfos, resource, columnWidths);
-        processDataRows(sheet, dataList, fieldInfos, resource);
-        optimizeColumnWidths(sheet, fieldInfos, columnWidths);
+        boolean hasSubHeader = sheet.getLastRowNum() > 0;
+        ExcelPipeline<Object> pipeline = createPipeline(sheet, fieldInfos, resource, columnWidths);
+        exportControl.render(dataList, hasSubHeader ? 2 : 1, (rows, rowIndex) -> rowPreparer == null
+                ? pipeline.render(rows, rowIndex)
+                : rowPreparer.render(pipeline, rows, rowIndex));
+        pipeline.finish();
+    }
+
+    private ExcelPipeline<Object> createPipeline(Sheet sheet, List<FieldInfo> fieldInfos,
+                                                 ExcelRenderResource resource, Map<Integer, Integer> columnWidths) {
+        FieldColumnRowWriter extractor = new FieldColumnRowWriter(fieldInfos);
+        return ExcelPipeline.<Object>builder()
+                .extractor(extractor)
+                .converter(CellValueConverter.text())
+                .styler(CellStyler.of(resource, extractor.styleNames))
+                .writer(new PoiSheetRowWriter(() -> sheet, 0))
+                .finalizer(new SheetFinalizer() {
+                    @Override
+                    public void finish() {
+                        try {
+                            optimizeColumnWidths(sheet, fieldInfos, columnWidths);
+                        } catch (IOException e) {
+                            throw new ExcelInternalException(e.getMessage(), e);
+                        }
+                    }
+                })
+                .build();
     }
 
     private void createHeaders(Sheet sheet, List<FieldInfo> fieldInfos, ExcelRenderResource resource,
@@ -302,72 +444,12 @@ public class ExcelGenerator {
         return new XSSFRichTextString(text);
     }
 
-    private void processDataRows(Sheet sheet, List<?> dataList, List<FieldInfo> fieldInfos,
-                                 ExcelRenderResource resource) throws IllegalAccessException {
-        boolean hasSubHeader = sheet.getLastRowNum() > 0;
-        int rowCount = hasSubHeader ? 2 : 1;
-
-        for (Object dataObject : dataList) {
-            Row dataRow = sheet.createRow(rowCount);
-            int colIndex = 0;
-
-            for (FieldInfo fieldInfo : fieldInfos) {
-                if (fieldInfo.annotation.mergeCells()) {
-                    if (fieldInfo.isPrimitiveOrSimple) {
-                        createSimpleDataCell(dataRow, colIndex, fieldInfo, dataObject, resource);
-                        colIndex++;
-                    } else {
-                        colIndex = createNestedDataCells(dataRow, colIndex, fieldInfo, dataObject, resource);
-                    }
-                } else {
-                    createSimpleDataCell(dataRow, colIndex, fieldInfo, dataObject, resource);
-                    colIndex++;
-                }
-            }
-
-            rowCount++;
-        }
-    }
-
-    private void createSimpleDataCell(Row dataRow, int colIndex, FieldInfo fieldInfo,
-                                      Object dataObject, ExcelRenderResource resource) throws IllegalAccessException {
-        Cell cell = dataRow.createCell(colIndex);
-        Object value = fieldInfo.field.get(dataObject);
-
-        if (value instanceof LocalDate) {
-            cell.setCellValue(value.toString());
-        } else {
-            cell.setCellValue(value != null ? value.toString() : "");
-        }
-
-        cell.setCellStyle(resource.getCellStyle(fieldInfo.field.getName(), ExcelRenderLocation.BODY));
-    }
-
-    private int createNestedDataCells(Row dataRow, int colIndex, FieldInfo fieldInfo,
-                                      Object dataObject, ExcelRenderResource resource) throws IllegalAccessException {
-        Object nestedObject = fieldInfo.field.get(dataObject);
-
-        for (FieldInfo nestedField : fieldInfo.nestedFields) {
-            Cell cell = dataRow.createCell(colIndex);
-
-            if (nestedObject != null) {
-                Object value = nestedField.field.get(nestedObject);
-                cell.setCellValue(value != null ? value.toString() : "");
-            } else {
-                cell.setCellValue("");
-            }
-
-            cell.setCellStyle(resource.getCellStyle(fieldInfo.field.getName(), ExcelRenderLocation.BODY));
-            colIndex++;
-        }
-
-        return colIndex;
-    }
-
     private void optimizeColumnWidths(Sheet sheet, List<FieldInfo> fieldInfos,
                                       Map<Integer, Integer> columnWidths) throws IOException {
         int totalColumns = getTotalColumnCount(fieldInfos);
         SXSSFSheet sxssfSheet = (SXSSFSheet) sheet;
+        ExcelEvent event = ExcelEvents.widthFitting(sheet.getSheetName());
+        long start = System.nanoTime();
 
         int lastRowNum = sheet.getLastRowNum();
         int startRow = Math.max(2, lastRowNum - WINDOW_SIZE);
@@ -383,7 +465,7 @@ public class ExcelGenerator {
                 for (int i = 0; i < totalColumns; i++) {
                     Cell cell = row.getCell(i);
                     if (cell != null) {
-                        int width = getContentWidth(cell.toString());
+                        int width = getContentWidth(getCellText(cell));
                         maxWidths[i] = Math.max(maxWidths[i], width);
                     }
                 }
@@ -402,6 +484,10 @@ public class ExcelGenerator {
                 sheet.setColumnWidth(i, 256 * 15);
             }
         }
+        event.setColumnCount(totalColumns);
+        event.setRowCount(lastRowNum - startRow + 1);
+        event.setFittingNanos(System.nanoTime() - start);
+        event.commit();
     }
 
     private int getTotalColumnCount(List<FieldInfo> fieldInfos) {
@@ -421,22 +507,83 @@ public class ExcelGenerator {
             return 4 * 256;
         }
 
-        if (content.contains("\n")) {
-            content = Arrays.stream(content.split("\n"))
-                    .max(Comparator.comparingInt(String::length))
-                    .orElse("");
-        }
-
-        int width = 2;
-        for (char c : content.toCharArray()) {
-            if (Character.UnicodeScript.of(c) == Character.UnicodeScript.HAN ||
-                    Character.UnicodeScript.of(c) == Character.UnicodeScript.HANGUL) {
+        // width of the widest line, measured without splitting or copying content
+        int maxWidth = 0;
+        int width = 0;
+        for (int i = 0; i < content.length(); i++) {
+            char c = content.charAt(i);
+            if (c == '\n') {
+                maxWidth = Math.max(maxWidth, width);
+                width = 0;
+                continue;
+            }
+            Character.UnicodeScript script = Character.UnicodeScript.of(c);
+            if (script == Character.UnicodeScript.HAN || script == Character.UnicodeScript.HANGUL) {
                 width += 2;
             } else {
                 width += 1;
             }
         }
+        maxWidth = Math.max(maxWidth, width);
+
+        return (maxWidth + 2) * 256;
+    }
+
+    private String getCellText(Cell cell) {
+        if (cell.getCellType() == CellType.STRING) {
+            return cell.getStringCellValue();
+        }
+        return cell.toString();
+    }
+
+    /**
+     * Extract stage of ExcelGenerator.
+     * Nested fields with mergeCells are flattened to one column per nested field, styled by the parent field
+     */
+    private static class FieldColumnRowWriter implements RowWriter<Object> {
+        private final List<Field> parentFields = new ArrayList<>();
+        private final List<Field> valueFields = new ArrayList<>();
+        private final List<String> styleNames = new ArrayList<>();
+
+        private FieldColumnRowWriter(List<FieldInfo> fieldInfos) {
+            for (FieldInfo fieldInfo : fieldInfos) {
+                if (fieldInfo.annotation.mergeCells() && !fieldInfo.isPrimitiveOrSimple) {
+                    for (FieldInfo nestedField : fieldInfo.nestedFields) {
+                        addColumn(fieldInfo.field, nestedField.field, fieldInfo.field.getName());
+                    }
+                } else {
+                    addColumn(null, fieldInfo.field, fieldInfo.field.getName());
+                }
+            }
+        }
+
+        private void addColumn(Field parentField, Field valueField, String styleName) {
+            parentFields.add(parentField);
+            valueFields.add(valueField);
+            styleNames.add(styleName);
+        }
 
-        return width * 256;
+        @Override
+        public void write(Object row, CellValueWriter writer) {
+            Field currentParentField = null;
+            Object currentParent = null;
+            try {
+                for (int i = 0; i < valueFields.size(); i++) {
+                    Field parentField = parentFields.get(i);
+                    Object owner = row;
+                    if (parentField != null) {
+                        if (parentField != currentParentField) {
+                            currentParentField = parentField;
+                            currentParent = parentField.get(row);
+                        }
+                        owner = currentParent;
+                    }
+                    writer.writeValue(i, owner == null ? null : valueFields.get(i).get(owner));
+                }
+            } catch (IllegalAccessException e) {
+                throw new ExcelInternalException(e.getMessage(), e);
+            }
+        }
     }
+
 }
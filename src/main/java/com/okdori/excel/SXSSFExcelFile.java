@@ -1,32 +1,58 @@
 package com.okdori.excel;
 
-import com.okdori.exception.ExcelInternalException;
+import com.okdori.ExcelAggregate;
+import com.okdori.excel.aggregate.ExcelAggregator;
+import com.okdori.excel.control.ExcelExportControl;
+import com.okdori.excel.encrypt.ExcelEncryptor;
+import com.okdori.excel.estimate.SheetXmlSizeEstimator;
+import com.okdori.excel.jfr.ExcelEvent;
+import com.okdori.excel.jfr.ExcelEvents;
+import com.okdori.excel.pipeline.AutoSizeSheetFinalizer;
+import com.okdori.excel.pipeline.CellStyler;
+import com.okdori.excel.pipeline.CellValueConverter;
+import com.okdori.excel.pipeline.ExcelPipeline;
+import com.okdori.excel.pipeline.ParallelRowPreparer;
+import com.okdori.excel.pipeline.PoiSheetRowWriter;
+import com.okdori.excel.pipeline.SheetFinalizer;
+import com.okdori.excel.pivot.PivotSummary;
+import com.okdori.excel.storage.ExcelTempStorage;
+import com.okdori.excel.storage.TempStorageWorkbook;
+import com.okdori.exception.ExcelExportCancelledException;
+import com.okdori.exception.ExcelTempStorageQuotaException;
 import com.okdori.resource.DataFormatDecider;
 import com.okdori.resource.DefaultDataFormatDecider;
 import com.okdori.resource.ExcelRenderLocation;
 import com.okdori.resource.ExcelRenderResource;
 import com.okdori.resource.ExcelRenderResourceFactory;
+import com.okdori.resource.schema.ExcelSchema;
 import org.apache.poi.ss.SpreadsheetVersion;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellReference;
 import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.lang.reflect.Field;
 import java.util.Collections;
 import java.util.List;
 
-import static com.okdori.utils.SuperClassReflectionUtils.getField;
-
 public abstract class SXSSFExcelFile<T> implements ExcelFile<T> {
 
 	protected static final SpreadsheetVersion supplyExcelVersion = SpreadsheetVersion.EXCEL2007;
+	private static final int COLUMN_START_INDEX = 0;
 
-	protected SXSSFWorkbook wb;
+	protected TempStorageWorkbook wb;
 	protected Sheet sheet;
+	protected ExcelSchema<T> schema;
 	protected ExcelRenderResource resource;
+	protected ExcelAggregator aggregator;
+	protected ExcelPipeline<T> pipeline;
+	protected PivotSummary pivotSummary;
+
+	private boolean aggregateFormulas = false;
+	private ParallelRowPreparer rowPreparer;
+	private ExcelExportControl exportControl = ExcelExportControl.none();
 
 	/**
 	 *SXSSFExcelFile
@@ -52,14 +78,143 @@ public abstract class SXSSFExcelFile<T> implements ExcelFile<T> {
 	 * @param dataFormatDecider Custom DataFormatDecider
 	 */
 	public SXSSFExcelFile(List<T> data, Class<T> type, DataFormatDecider dataFormatDecider) {
+		this(data, ExcelSchema.of(type), dataFormatDecider);
+	}
+
+	/**
+	 * SXSSFExcelFile
+	 * @param data List Data to render excel file
+	 * @param schema Schema to be rendered. Use {@link ExcelSchema#project(List)} to select and reorder columns
+	 * @param dataFormatDecider Custom DataFormatDecider
+	 */
+	public SXSSFExcelFile(List<T> data, ExcelSchema<T> schema, DataFormatDecider dataFormatDecider) {
+		this(data, schema, dataFormatDecider, ExcelTempStorage.defaultStorage());
+	}
+
+	/**
+	 * SXSSFExcelFile
+	 * @param data List Data to render excel file
+	 * @param schema Schema to be rendered
+	 * @param dataFormatDecider Custom DataFormatDecider
+	 * @param storage Storage of rows flushed until the file is written
+	 */
+	public SXSSFExcelFile(List<T> data, ExcelSchema<T> schema, DataFormatDecider dataFormatDecider,
+						  ExcelTempStorage storage) {
+		this(data, schema, dataFormatDecider, storage, SXSSFWorkbook.DEFAULT_WINDOW_SIZE);
+	}
+
+	/**
+	 * SXSSFExcelFile
+	 * @param data List Data to render excel file
+	 * @param schema Schema to be rendered
+	 * @param dataFormatDecider Custom DataFormatDecider
+	 * @param storage Storage of rows flushed until the file is written
+	 * @param rowAccessWindowSize Rows kept in memory before they are flushed to storage
+	 */
+	public SXSSFExcelFile(List<T> data, ExcelSchema<T> schema, DataFormatDecider dataFormatDecider,
+						  ExcelTempStorage storage, int rowAccessWindowSize) {
+		this(data, schema, dataFormatDecider, storage, rowAccessWindowSize, ExcelExportControl.none());
+	}
+
+	/**
+	 * SXSSFExcelFile
+	 * @param data List Data to render excel file
+	 * @param schema Schema to be rendered
+	 * @param dataFormatDecider Custom DataFormatDecider
+	 * @param storage Storage of rows flushed until the file is written
+	 * @param rowAccessWindowSize Rows kept in memory before they are flushed to storage
+	 * @param exportControl Control of this export, also checked while data is rendered by this constructor
+	 */
+	public SXSSFExcelFile(List<T> data, ExcelSchema<T> schema, DataFormatDecider dataFormatDecider,
+						  ExcelTempStorage storage, int rowAccessWindowSize, ExcelExportControl exportControl) {
+		this.schema = schema;
+		this.exportControl = exportControl;
+		this.aggregator = ExcelAggregator.of(schema);
 		validateData(data);
-		this.wb = new SXSSFWorkbook();
-		this.resource = ExcelRenderResourceFactory.prepareRenderResource(type, wb, dataFormatDecider);
-		renderExcel(data);
+		validateTempStorage(data, schema, storage);
+		this.wb = new TempStorageWorkbook(storage, rowAccessWindowSize);
+		try {
+			this.resource = ExcelRenderResourceFactory.prepareRenderResource(schema, wb, dataFormatDecider);
+			this.pivotSummary = PivotSummary.of(schema);
+			this.pipeline = createPipeline();
+			renderExcel(data);
+		} catch (RuntimeException e) {
+			wb.dispose();
+			throw e;
+		}
+	}
+
+	/**
+	 * Renders SUM, MIN, MAX and AVERAGE footer cells as formulas having calculated value,
+	 * so Excel does not need to calculate them when file is opened. Default is false, rendered as values
+	 */
+	public void setAggregateFormulas(boolean aggregateFormulas) {
+		this.aggregateFormulas = aggregateFormulas;
+	}
+
+	/**
+	 * Prepares values of rows given to {@link #addRows(List)} on threads of rowPreparer, and writes them in order.
+	 * Rows given to constructor are rendered before this is set. Default is null, rendered by the calling thread
+	 */
+	public void setRowPreparer(ParallelRowPreparer rowPreparer) {
+		this.rowPreparer = rowPreparer;
+	}
+
+	/**
+	 * Checks cancellation and deadline of control between batches of rows given to {@link #addRows(List)}
+	 * and while the file is written, and reports progress to its listener. A cancelled file deletes its temp files.
+	 * Rows given to constructor are rendered before this is set, give control to constructor to control them.
+	 * Default is {@link ExcelExportControl#none()}
+	 */
+	public void setExportControl(ExcelExportControl exportControl) {
+		this.exportControl = exportControl;
 	}
 
 	protected void validateData(List<T> data) { }
 
+	/**
+	 * Fails if body rows from rowIndex and aggregate footer rows below them do not fit in one sheet
+	 * @param rowIndex index of first body row, header rows are above it
+	 * @param bodyRowCount count of body rows to be rendered
+	 */
+	protected void validateSheetRows(int rowIndex, int bodyRowCount) {
+		int maxRows = supplyExcelVersion.getMaxRows();
+		int footerRowCount = getFooterRowCount();
+		if ((long) rowIndex + bodyRowCount + footerRowCount > maxRows) {
+			throw new IllegalArgumentException(String.format(
+					"This concrete ExcelFile does not support over %s rows, %s body rows from row %s and %s footer rows are given",
+					maxRows, bodyRowCount, rowIndex, footerRowCount));
+		}
+	}
+
+	/**
+	 * Count of aggregate footer rows rendered below body rows of a sheet
+	 */
+	protected int getFooterRowCount() {
+		return aggregator == null ? 0 : aggregator.getFooterAggregates().size();
+	}
+
+	/**
+	 * Fails before rendering if estimated temp files of data exceed max bytes of export
+	 */
+	private void validateTempStorage(List<T> data, ExcelSchema<T> schema, ExcelTempStorage storage) {
+		if (data.isEmpty() || storage.getMaxBytesPerExport() == Long.MAX_VALUE) {
+			return;
+		}
+		long estimatedBytes = storage.estimateDiskBytes(SheetXmlSizeEstimator.estimateRowBytes(schema, data) * data.size());
+		if (estimatedBytes > storage.getMaxBytesPerExport()) {
+			throw new ExcelTempStorageQuotaException(String.format("Temp files of %s rows are estimated to %s bytes, over %s bytes",
+					data.size(), estimatedBytes, storage.getMaxBytesPerExport()));
+		}
+	}
+
+	/**
+	 * Bytes of rows written to temp files so far
+	 */
+	public long getSpilledBytes() {
+		return wb.getSpilledBytes();
+	}
+
 	protected abstract void renderExcel(List<T> data);
 
 	protected void renderHeadersWithNewSheet(Sheet sheet, int rowIndex, int columnStartIndex) {
@@ -74,39 +229,140 @@ public abstract class SXSSFExcelFile<T> implements ExcelFile<T> {
 		}
 	}
 
-	protected void renderBody(Object data, int rowIndex, int columnStartIndex) {
-		Row row = sheet.createRow(rowIndex);
-		int columnIndex = columnStartIndex;
-		for (String dataFieldName : resource.getDataFieldNames()) {
-			Cell cell = row.createCell(columnIndex++);
-			try {
-				Field field = getField(data.getClass(), (dataFieldName));
-				field.setAccessible(true);
-				cell.setCellStyle(resource.getCellStyle(dataFieldName, ExcelRenderLocation.BODY));
-				Object cellValue = field.get(data);
-				renderCellValue(cell, cellValue);
-			} catch (Exception e) {
-				throw new ExcelInternalException(e.getMessage(), e);
-			}
-			sheet.autoSizeColumn(columnIndex-1);
-			sheet.setColumnWidth(columnIndex-1, (sheet.getColumnWidth(columnIndex-1))+1024);
+	protected void renderBody(T data, int rowIndex) {
+		pipeline.render(data, rowIndex);
+	}
+
+	/**
+	 * Renders rows from rowIndex, in parallel if row preparer is set
+	 * @return index of the row after rendered rows
+	 */
+	protected int renderBody(List<T> data, int rowIndex) {
+		try {
+			return exportControl.render(data, rowIndex, (rows, index) -> rowPreparer == null
+					? pipeline.render(rows, index)
+					: rowPreparer.render(pipeline, rows, index));
+		} catch (ExcelExportCancelledException e) {
+			wb.dispose();
+			throw e;
 		}
 	}
 
-	private void renderCellValue(Cell cell, Object cellValue) {
-		if (cellValue instanceof Number) {
-			Number numberValue = (Number) cellValue;
-			cell.setCellValue(numberValue.doubleValue());
-			return;
+	/**
+	 * Pipeline rendering body rows to current sheet, created before the first row is rendered
+	 */
+	protected ExcelPipeline<T> createPipeline() {
+		return ExcelPipeline.<T>builder()
+				.extractor(schema.getRowWriter())
+				.converter(CellValueConverter.typed())
+				.styler(CellStyler.of(resource, schema.getColumnNames()))
+				.writer(new PoiSheetRowWriter(() -> sheet, COLUMN_START_INDEX))
+				.finalizer(withPivotSummary(new AutoSizeSheetFinalizer(() -> sheet, COLUMN_START_INDEX, schema.size())))
+				.aggregator(aggregator)
+				.build();
+	}
+
+	/**
+	 * Finalizer also accumulating pivot summary of schema, if it is declared
+	 */
+	protected SheetFinalizer withPivotSummary(SheetFinalizer finalizer) {
+		return pivotSummary == null ? finalizer : SheetFinalizer.of(finalizer, pivotSummary);
+	}
+
+	/**
+	 * Renders footer rows of aggregates, called once before the file is written
+	 */
+	protected void renderFooter() { }
+
+	/**
+	 * renderAggregateRows
+	 * @param rowIndex index of first footer row
+	 * @param firstBodyRowIndex index of first body row of current sheet, used by formulas
+	 * @param total true to render grand totals of completed sheets instead of current sheet
+	 * @return count of rendered rows
+	 */
+	protected int renderAggregateRows(int rowIndex, int columnStartIndex, int firstBodyRowIndex, boolean total) {
+		if (aggregator == null) {
+			return 0;
+		}
+		int lastBodyRowIndex = rowIndex - 1;
+		for (ExcelAggregate aggregate : aggregator.getFooterAggregates()) {
+			Row row = sheet.createRow(rowIndex);
+			boolean labeled = false;
+			for (int i = 0; i < schema.size(); i++) {
+				Cell cell = row.createCell(columnStartIndex + i);
+				String columnName = schema.getColumns().get(i).getName();
+				if (!aggregator.hasAggregate(i, aggregate)) {
+					cell.setCellStyle(resource.getCellStyle(columnName, ExcelRenderLocation.HEADER));
+					if (!labeled) {
+						cell.setCellValue(total ? "Total " + aggregate.getLabel() : aggregate.getLabel());
+						labeled = true;
+					}
+					continue;
+				}
+
+				cell.setCellStyle(resource.getCellStyle(columnName, ExcelRenderLocation.BODY));
+				double value = total ? aggregator.getTotalValue(i, aggregate) : aggregator.getSheetValue(i, aggregate);
+				if (aggregateFormulas && !total && aggregate.getFormulaFunction() != null
+						&& lastBodyRowIndex >= firstBodyRowIndex) {
+					String column = CellReference.convertNumToColString(columnStartIndex + i);
+					cell.setCellFormula(String.format("%s(%s%d:%s%d)", aggregate.getFormulaFunction(),
+							column, firstBodyRowIndex + 1, column, lastBodyRowIndex + 1));
+				}
+				if (!Double.isNaN(value)) {
+					cell.setCellValue(value);
+				}
+			}
+			rowIndex++;
 		}
-		cell.setCellValue(cellValue == null ? "" : cellValue.toString());
+		return aggregator.getFooterAggregates().size();
 	}
 
 	public void write(OutputStream stream) throws IOException {
-		wb.write(stream);
-		wb.close();
+		try {
+			exportControl.check();
+			pipeline.finish();
+			renderFooter();
+			if (pivotSummary != null) {
+				pivotSummary.render(wb, resource);
+			}
+			ExcelEvent event = ExcelEvents.write(schema.getType());
+			if (event.isEnabled()) {
+				event.setColumnCount(schema.size());
+				event.setRowCount(countRows());
+			}
+			wb.write(event.countBytes(exportControl.wrap(stream)));
+			event.commit();
+			wb.close();
+			exportControl.finish();
+		} finally {
+			wb.dispose();
+			stream.close();
+		}
+	}
+
+	private long countRows() {
+		long rowCount = 0;
+		for (Sheet workbookSheet : wb) {
+			rowCount += workbookSheet.getLastRowNum() + 1;
+		}
+		return rowCount;
+	}
+
+	/**
+	 * Writes the file protected by password. Encrypted package is kept in directory of storage until it is written
+	 */
+	@Override
+	public void write(OutputStream stream, String password) throws IOException {
+		new ExcelEncryptor(password, wb.getStorage()).write(this, stream);
+	}
+
+	/**
+	 * Deletes temp files of the file not written. Nothing to do after {@link #write(OutputStream)}
+	 */
+	@Override
+	public void close() {
 		wb.dispose();
-		stream.close();
 	}
 
 }
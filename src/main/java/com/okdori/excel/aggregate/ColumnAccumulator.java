@@ -0,0 +1,105 @@
+package com.okdori.excel.aggregate;
+
+import com.okdori.ExcelAggregate;
+
+/**
+ * ColumnAccumulator
+ *
+ * Primitive accumulator of one column
+ */
+final class ColumnAccumulator {
+
+	private final boolean distinct;
+	private long count;
+	private long numberCount;
+	private double sum;
+	private double min = Double.POSITIVE_INFINITY;
+	private double max = Double.NEGATIVE_INFINITY;
+	private final HyperLogLog hyperLogLog;
+
+	ColumnAccumulator(boolean distinct) {
+		this.distinct = distinct;
+		this.hyperLogLog = distinct ? new HyperLogLog() : null;
+	}
+
+	void addNumber(double value) {
+		count++;
+		numberCount++;
+		sum += value;
+		if (value < min) {
+			min = value;
+		}
+		if (value > max) {
+			max = value;
+		}
+		if (distinct) {
+			hyperLogLog.addNumber(value);
+		}
+	}
+
+	void addValue(Object value) {
+		if (value == null) {
+			return;
+		}
+		if (value instanceof Number) {
+			addNumber(((Number) value).doubleValue());
+			return;
+		}
+		count++;
+		if (distinct) {
+			hyperLogLog.addValue(value);
+		}
+	}
+
+	void merge(ColumnAccumulator other) {
+		count += other.count;
+		numberCount += other.numberCount;
+		sum += other.sum;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+		if (distinct) {
+			hyperLogLog.merge(other.hyperLogLog);
+		}
+	}
+
+	void reset() {
+		count = 0;
+		numberCount = 0;
+		sum = 0;
+		min = Double.POSITIVE_INFINITY;
+		max = Double.NEGATIVE_INFINITY;
+		if (distinct) {
+			hyperLogLog.reset();
+		}
+	}
+
+	/**
+	 * @return value of aggregate, NaN if there is no value to aggregate
+	 */
+	double get(ExcelAggregate aggregate) {
+		switch (aggregate) {
+			case COUNT:
+				return count;
+			case DISTINCT_COUNT:
+				return hyperLogLog.estimate();
+			default:
+				break;
+		}
+		if (numberCount == 0) {
+			return Double.NaN;
+		}
+		switch (aggregate) {
+			case SUM:
+				return sum;
+			case MIN:
+				return min;
+			case MAX:
+				return max;
+			case AVERAGE:
+				return sum / numberCount;
+			default:
+				throw new IllegalArgumentException(String.format("Unknown aggregate %s", aggregate));
+		}
+	}
+
+}
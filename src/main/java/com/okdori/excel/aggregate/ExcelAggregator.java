@@ -0,0 +1,117 @@
+package com.okdori.excel.aggregate;
+
+import com.okdori.ExcelAggregate;
+import com.okdori.resource.schema.ExcelColumnSchema;
+import com.okdori.resource.schema.ExcelSchema;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * ExcelAggregator
+ *
+ * Accumulates aggregates of columns while rows are rendered.
+ * Sheet accumulators are merged into total accumulators when sheet is completed,
+ * so per sheet and grand totals are calculated in one pass
+ */
+public final class ExcelAggregator {
+
+	private final List<Set<ExcelAggregate>> columnAggregates;
+	private final List<ExcelAggregate> footerAggregates;
+	private final ColumnAccumulator[] sheetAccumulators;
+	private final ColumnAccumulator[] totalAccumulators;
+	private int completedSheetCount;
+
+	private ExcelAggregator(List<Set<ExcelAggregate>> columnAggregates, List<ExcelAggregate> footerAggregates) {
+		this.columnAggregates = columnAggregates;
+		this.footerAggregates = footerAggregates;
+		this.sheetAccumulators = new ColumnAccumulator[columnAggregates.size()];
+		this.totalAccumulators = new ColumnAccumulator[columnAggregates.size()];
+		for (int i = 0; i < columnAggregates.size(); i++) {
+			Set<ExcelAggregate> aggregates = columnAggregates.get(i);
+			if (!aggregates.isEmpty()) {
+				boolean distinct = aggregates.contains(ExcelAggregate.DISTINCT_COUNT);
+				sheetAccumulators[i] = new ColumnAccumulator(distinct);
+				totalAccumulators[i] = new ColumnAccumulator(distinct);
+			}
+		}
+	}
+
+	/**
+	 * @return aggregator of schema, null if no column of schema has aggregates
+	 */
+	public static ExcelAggregator of(ExcelSchema<?> schema) {
+		List<Set<ExcelAggregate>> columnAggregates = new ArrayList<>();
+		Set<ExcelAggregate> footerAggregates = EnumSet.noneOf(ExcelAggregate.class);
+		for (ExcelColumnSchema column : schema.getColumns()) {
+			Set<ExcelAggregate> aggregates = EnumSet.noneOf(ExcelAggregate.class);
+			aggregates.addAll(column.getAggregates());
+			columnAggregates.add(aggregates);
+			footerAggregates.addAll(aggregates);
+		}
+		if (footerAggregates.isEmpty()) {
+			return null;
+		}
+		return new ExcelAggregator(columnAggregates, Collections.unmodifiableList(new ArrayList<>(footerAggregates)));
+	}
+
+	public void addNumber(int columnIndex, double value) {
+		ColumnAccumulator accumulator = sheetAccumulators[columnIndex];
+		if (accumulator != null) {
+			accumulator.addNumber(value);
+		}
+	}
+
+	public void addValue(int columnIndex, Object value) {
+		ColumnAccumulator accumulator = sheetAccumulators[columnIndex];
+		if (accumulator != null) {
+			accumulator.addValue(value);
+		}
+	}
+
+	/**
+	 * Merges current sheet into grand totals and starts next sheet
+	 */
+	public void completeSheet() {
+		for (int i = 0; i < sheetAccumulators.length; i++) {
+			if (sheetAccumulators[i] != null) {
+				totalAccumulators[i].merge(sheetAccumulators[i]);
+				sheetAccumulators[i].reset();
+			}
+		}
+		completedSheetCount++;
+	}
+
+	public int getCompletedSheetCount() {
+		return completedSheetCount;
+	}
+
+	/**
+	 * Aggregates having footer row, in order of {@link ExcelAggregate}
+	 */
+	public List<ExcelAggregate> getFooterAggregates() {
+		return footerAggregates;
+	}
+
+	public boolean hasAggregate(int columnIndex, ExcelAggregate aggregate) {
+		return columnAggregates.get(columnIndex).contains(aggregate);
+	}
+
+	/**
+	 * @return aggregate of current sheet, NaN if there is no value to aggregate
+	 */
+	public double getSheetValue(int columnIndex, ExcelAggregate aggregate) {
+		return sheetAccumulators[columnIndex].get(aggregate);
+	}
+
+	/**
+	 * @return aggregate of completed sheets, NaN if there is no value to aggregate
+	 */
+	public double getTotalValue(int columnIndex, ExcelAggregate aggregate) {
+		return totalAccumulators[columnIndex].get(aggregate);
+	}
+
+}
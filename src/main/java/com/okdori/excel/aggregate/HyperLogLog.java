@@ -0,0 +1,84 @@
+package com.okdori.excel.aggregate;
+
+import java.util.Arrays;
+
+/**
+ * HyperLogLog
+ *
+ * Approximate distinct counter with 4KB of registers, standard error is about 1.6%
+ */
+final class HyperLogLog {
+
+	private static final int PRECISION = 12;
+	private static final int REGISTER_COUNT = 1 << PRECISION;
+	private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTER_COUNT);
+
+	private final byte[] registers = new byte[REGISTER_COUNT];
+
+	void addNumber(double value) {
+		addHash(mix(Double.doubleToLongBits(value == 0.0 ? 0.0 : value)));
+	}
+
+	void addValue(Object value) {
+		if (value instanceof CharSequence) {
+			addHash(mix(hash((CharSequence) value)));
+			return;
+		}
+		addHash(mix(value.hashCode()));
+	}
+
+	void merge(HyperLogLog other) {
+		for (int i = 0; i < REGISTER_COUNT; i++) {
+			if (other.registers[i] > registers[i]) {
+				registers[i] = other.registers[i];
+			}
+		}
+	}
+
+	void reset() {
+		Arrays.fill(registers, (byte) 0);
+	}
+
+	long estimate() {
+		double sum = 0;
+		int zeroRegisters = 0;
+		for (byte register : registers) {
+			sum += 1.0 / (1L << register);
+			if (register == 0) {
+				zeroRegisters++;
+			}
+		}
+		double estimate = ALPHA * REGISTER_COUNT * REGISTER_COUNT / sum;
+		if (estimate <= 2.5 * REGISTER_COUNT && zeroRegisters > 0) {
+			estimate = REGISTER_COUNT * Math.log((double) REGISTER_COUNT / zeroRegisters);
+		}
+		return Math.round(estimate);
+	}
+
+	private void addHash(long hash) {
+		int index = (int) (hash >>> (Long.SIZE - PRECISION));
+		int rank = Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1;
+		if (rank > registers[index]) {
+			registers[index] = (byte) rank;
+		}
+	}
+
+	private static long hash(CharSequence value) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < value.length(); i++) {
+			hash ^= value.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	private static long mix(long hash) {
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
+}
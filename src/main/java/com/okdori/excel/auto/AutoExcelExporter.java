@@ -0,0 +1,181 @@
+package com.okdori.excel.auto;
+
+import com.okdori.excel.ExcelFile;
+import com.okdori.excel.aggregate.ExcelAggregator;
+import com.okdori.excel.compact.CompactOneSheetExcelFile;
+import com.okdori.excel.control.ExcelExportControl;
+import com.okdori.excel.estimate.ExportCost;
+import com.okdori.excel.estimate.ExportCostEstimator;
+import com.okdori.excel.estimate.ExportMemoryEstimator;
+import com.okdori.excel.multiplesheet.MultiSheetExcelFile;
+import com.okdori.excel.onesheet.OneSheetExcelFile;
+import com.okdori.excel.storage.ExcelTempStorage;
+import com.okdori.resource.DataFormatDecider;
+import com.okdori.resource.DefaultDataFormatDecider;
+import com.okdori.resource.schema.ExcelSchema;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * AutoExcelExporter
+ *
+ * Picks excel file, row access window size and sync or async path of each export from its {@link ExportCost}.
+ * - engine : {@link ExcelEngine#MULTI_SHEET} if rows and aggregate footer rows do not fit in one sheet,
+ *   {@link ExcelEngine#COMPACT} for many or wide rows, otherwise {@link ExcelEngine#ONE_SHEET}
+ * - window size : default window of SXSSF, shrunk until peak memory fits in max memory bytes
+ * - async : rendered on executor if render time is over max sync millis
+ *
+ * Stateless and immutable, one instance can be shared by every request
+ */
+public final class AutoExcelExporter {
+
+	private static final long MAX_SHEET_ROWS = SpreadsheetVersion.EXCEL2007.getMaxRows() - 1;
+	private static final long COMPACT_MIN_ROWS = 100_000;
+	private static final int COMPACT_MIN_COLUMNS = 50;
+	private static final int MIN_WINDOW_SIZE = 10;
+	private static final long DEFAULT_MAX_MEMORY_BYTES = 256L * 1024 * 1024;
+	private static final long DEFAULT_MAX_SYNC_MILLIS = 2000;
+
+	private final ExportCostEstimator estimator;
+	private final Executor executor;
+	private final ExcelTempStorage tempStorage;
+	private final DataFormatDecider dataFormatDecider;
+	private final long maxMemoryBytes;
+	private final long maxSyncMillis;
+
+	/**
+	 * Uses estimator calibrated on this host, 256MB of memory and 2 seconds of synchronous render
+	 * @param executor Executor of async exports
+	 */
+	public AutoExcelExporter(Executor executor) {
+		this(ExportCostEstimator.calibrated(), executor, ExcelTempStorage.defaultStorage(),
+				new DefaultDataFormatDecider(), DEFAULT_MAX_MEMORY_BYTES, DEFAULT_MAX_SYNC_MILLIS);
+	}
+
+	/**
+	 * @param maxMemoryBytes Max peak memory of one export, window size is shrunk to fit in it
+	 * @param maxSyncMillis Exports estimated to take longer are rendered on executor
+	 */
+	public AutoExcelExporter(ExportCostEstimator estimator, Executor executor, ExcelTempStorage tempStorage,
+							 DataFormatDecider dataFormatDecider, long maxMemoryBytes, long maxSyncMillis) {
+		if (maxMemoryBytes <= 0 || maxSyncMillis < 0) {
+			throw new IllegalArgumentException(String.format("Wrong maxMemoryBytes %s or maxSyncMillis %s",
+					maxMemoryBytes, maxSyncMillis));
+		}
+		this.estimator = estimator;
+		this.executor = executor;
+		this.tempStorage = tempStorage;
+		this.dataFormatDecider = dataFormatDecider;
+		this.maxMemoryBytes = maxMemoryBytes;
+		this.maxSyncMillis = maxSyncMillis;
+	}
+
+	public <T> ExcelExportPlan plan(ExcelSchema<T> schema, List<T> data) {
+		return plan(schema, data, data.size());
+	}
+
+	/**
+	 * @param sample Rows like the exported rows, such as first page of them
+	 * @param rowCount Expected count of exported rows
+	 */
+	public <T> ExcelExportPlan plan(ExcelSchema<T> schema, List<T> sample, long rowCount) {
+		ExcelAggregator aggregator = ExcelAggregator.of(schema);
+		int footerRows = aggregator == null ? 0 : aggregator.getFooterAggregates().size();
+		ExcelEngine engine;
+		if (rowCount > MAX_SHEET_ROWS - footerRows) {
+			engine = ExcelEngine.MULTI_SHEET;
+		} else if (rowCount >= COMPACT_MIN_ROWS || schema.size() >= COMPACT_MIN_COLUMNS) {
+			engine = ExcelEngine.COMPACT;
+		} else {
+			engine = ExcelEngine.ONE_SHEET;
+		}
+
+		int windowSize = SXSSFWorkbook.DEFAULT_WINDOW_SIZE;
+		ExportCost cost = estimator.estimate(engine, schema, sample, rowCount, windowSize);
+		if (cost.getPeakMemoryBytes() > maxMemoryBytes) {
+			long windowBytes = maxMemoryBytes - ExportMemoryEstimator.estimateFixedBytes(schema, rowCount);
+			long windowRowBytes = ExportMemoryEstimator.estimateWindowRowBytes(schema, sample);
+			windowSize = (int) Math.max(MIN_WINDOW_SIZE, Math.min(windowSize, windowBytes / windowRowBytes));
+			cost = estimator.estimate(engine, schema, sample, rowCount, windowSize);
+		}
+		return new ExcelExportPlan(engine, windowSize, cost.getRenderMillis() > maxSyncMillis, cost);
+	}
+
+	/**
+	 * Creates excel file of plan, having data rendered
+	 */
+	public <T> ExcelFile<T> create(ExcelExportPlan plan, ExcelSchema<T> schema, List<T> data) {
+		return create(plan, schema, data, ExcelExportControl.none());
+	}
+
+	/**
+	 * Creates excel file of plan, having data rendered under control
+	 */
+	public <T> ExcelFile<T> create(ExcelExportPlan plan, ExcelSchema<T> schema, List<T> data,
+								   ExcelExportControl exportControl) {
+		switch (plan.getEngine()) {
+			case COMPACT:
+				return new CompactOneSheetExcelFile<>(data, schema, dataFormatDecider, tempStorage,
+						plan.getRowAccessWindowSize(), exportControl);
+			case MULTI_SHEET:
+				return new MultiSheetExcelFile<>(data, schema, dataFormatDecider, tempStorage,
+						plan.getRowAccessWindowSize(), exportControl);
+			default:
+				return new OneSheetExcelFile<>(data, schema, dataFormatDecider, tempStorage,
+						plan.getRowAccessWindowSize(), exportControl);
+		}
+	}
+
+	public <T> CompletableFuture<ExcelExportPlan> export(List<T> data, Class<T> type, OutputStream stream)
+			throws IOException {
+		return export(data, ExcelSchema.of(type), stream);
+	}
+
+	/**
+	 * Renders data by its plan and writes it to stream. Stream is closed after written.
+	 * Synchronous export is written before this returns, and async export when returned future completes
+	 */
+	public <T> CompletableFuture<ExcelExportPlan> export(List<T> data, ExcelSchema<T> schema, OutputStream stream)
+			throws IOException {
+		return export(data, schema, stream, ExcelExportControl.none());
+	}
+
+	/**
+	 * Renders data by its plan under control and writes it to stream. Cancelled async export completes
+	 * returned future exceptionally
+	 */
+	public <T> CompletableFuture<ExcelExportPlan> export(List<T> data, ExcelSchema<T> schema, OutputStream stream,
+														ExcelExportControl exportControl) throws IOException {
+		ExcelExportPlan plan = plan(schema, data);
+		if (!plan.isAsync()) {
+			write(plan, schema, data, stream, exportControl);
+			return CompletableFuture.completedFuture(plan);
+		}
+
+		CompletableFuture<ExcelExportPlan> future = new CompletableFuture<>();
+		executor.execute(() -> {
+			// any failure, including errors and failures of closing the file, completes the future
+			try {
+				write(plan, schema, data, stream, exportControl);
+				future.complete(plan);
+			} catch (Throwable e) {
+				future.completeExceptionally(e);
+			}
+		});
+		return future;
+	}
+
+	private <T> void write(ExcelExportPlan plan, ExcelSchema<T> schema, List<T> data, OutputStream stream,
+						   ExcelExportControl exportControl) throws IOException {
+		try (ExcelFile<T> excelFile = create(plan, schema, data, exportControl)) {
+			excelFile.write(stream);
+		}
+	}
+
+}
@@ -0,0 +1,29 @@
+package com.okdori.excel.auto;
+
+import com.okdori.excel.compact.CompactOneSheetExcelFile;
+import com.okdori.excel.multiplesheet.MultiSheetExcelFile;
+import com.okdori.excel.onesheet.OneSheetExcelFile;
+
+/**
+ * ExcelEngine
+ *
+ * Excel file chosen by {@link AutoExcelExporter}
+ */
+public enum ExcelEngine {
+
+	/**
+	 * {@link OneSheetExcelFile}, rows fit in one sheet
+	 */
+	ONE_SHEET,
+
+	/**
+	 * {@link CompactOneSheetExcelFile}, rows fit in one sheet but are many or wide
+	 */
+	COMPACT,
+
+	/**
+	 * {@link MultiSheetExcelFile}, rows do not fit in one sheet
+	 */
+	MULTI_SHEET
+
+}
@@ -0,0 +1,55 @@
+package com.okdori.excel.auto;
+
+import com.okdori.excel.estimate.ExportCost;
+
+/**
+ * ExcelExportPlan
+ *
+ * Engine, row access window size and sync or async path chosen by {@link AutoExcelExporter} from cost of export
+ */
+public final class ExcelExportPlan {
+
+	private final ExcelEngine engine;
+	private final int rowAccessWindowSize;
+	private final boolean async;
+	private final ExportCost cost;
+
+	ExcelExportPlan(ExcelEngine engine, int rowAccessWindowSize, boolean async, ExportCost cost) {
+		this.engine = engine;
+		this.rowAccessWindowSize = rowAccessWindowSize;
+		this.async = async;
+		this.cost = cost;
+	}
+
+	public ExcelEngine getEngine() {
+		return engine;
+	}
+
+	/**
+	 * Row access window size of SXSSF, or body rows encoded in buffers before flush for {@link ExcelEngine#COMPACT}
+	 */
+	public int getRowAccessWindowSize() {
+		return rowAccessWindowSize;
+	}
+
+	/**
+	 * Whether export is rendered on executor instead of the calling thread
+	 */
+	public boolean isAsync() {
+		return async;
+	}
+
+	/**
+	 * Cost estimated with window size of the plan
+	 */
+	public ExportCost getCost() {
+		return cost;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("ExcelExportPlan(engine=%s, rowAccessWindowSize=%s, async=%s, cost=%s)",
+				engine, rowAccessWindowSize, async, cost);
+	}
+
+}
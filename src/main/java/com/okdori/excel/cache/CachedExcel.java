@@ -0,0 +1,67 @@
+package com.okdori.excel.cache;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+
+/**
+ * CachedExcel
+ *
+ * Finished workbook in {@link ExcelResultCache}. ETag is hash of the workbook bytes.
+ * Workbook is pinned in cache, so it is not evicted until {@link #writeTo(OutputStream)} or {@link #close()} releases it
+ */
+public final class CachedExcel implements Closeable {
+
+	private final ExcelResultCache.Entry entry;
+	private final ExcelResultCache cache;
+	private boolean released;
+
+	CachedExcel(ExcelResultCache.Entry entry, ExcelResultCache cache) {
+		this.entry = entry;
+		this.cache = cache;
+	}
+
+	public File getFile() {
+		return entry.getFile();
+	}
+
+	public String getETag() {
+		return entry.getETag();
+	}
+
+	public long getLength() {
+		return entry.getLength();
+	}
+
+	ExcelResultCache.Entry getEntry() {
+		return entry;
+	}
+
+	/**
+	 * Copies workbook to stream and releases it. Stream is not closed
+	 */
+	public void writeTo(OutputStream stream) throws IOException {
+		if (released) {
+			throw new IOException("Cached workbook is already released");
+		}
+		try {
+			Files.copy(entry.getFile().toPath(), stream);
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Releases workbook without writing it, so it can be evicted. Can be called more than once
+	 */
+	@Override
+	public void close() throws IOException {
+		if (!released) {
+			released = true;
+			cache.release(entry);
+		}
+	}
+
+}
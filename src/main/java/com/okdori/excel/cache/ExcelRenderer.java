@@ -0,0 +1,16 @@
+package com.okdori.excel.cache;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * ExcelRenderer
+ *
+ * Renders workbook of a cache miss, such as {@code stream -> new OneSheetExcelFile<>(data, type).write(stream)}
+ */
+@FunctionalInterface
+public interface ExcelRenderer {
+
+	void render(OutputStream stream) throws IOException;
+
+}
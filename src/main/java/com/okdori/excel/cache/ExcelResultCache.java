@@ -0,0 +1,408 @@
+package com.okdori.excel.cache;
+
+import com.okdori.excel.control.ExcelExportControl;
+import com.okdori.excel.multiplesheet.MultiSheetExcelFile;
+import com.okdori.excel.storage.ExcelTempFile;
+import com.okdori.excel.storage.ExcelTempStorage;
+import com.okdori.excel.xlsx.DeterministicXlsx;
+import com.okdori.exception.ExcelInternalException;
+import com.okdori.resource.DefaultDataFormatDecider;
+import com.okdori.resource.schema.CellValueWriter;
+import com.okdori.resource.schema.ExcelSchema;
+import com.okdori.resource.schema.RowWriter;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ExcelResultCache
+ *
+ * - keeps finished workbooks in a local directory, keyed by caller key and fingerprint of data
+ * - least recently used workbooks are deleted when total size is over maxBytes
+ * - concurrent requests of the same key and fingerprint share one render
+ * - workbooks are rewritten by {@link DeterministicXlsx}, so the same data always has the same ETag
+ *
+ * Workbooks already in the directory are loaded when cache is created, in order of their last use.
+ * Workbook of a returned {@link CachedExcel} is not evicted until it is written or closed
+ */
+public final class ExcelResultCache {
+
+	private static final String FILE_SUFFIX = ".xlsx";
+	private static final String TEMP_SUFFIX = ".tmp";
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final Path directory;
+	private final long maxBytes;
+	private final ExcelTempStorage storage;
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private final ConcurrentMap<String, CompletableFuture<Entry>> rendering = new ConcurrentHashMap<>();
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong renderCount = new AtomicLong();
+	private final AtomicLong coalescedCount = new AtomicLong();
+	private long totalBytes;
+
+	public ExcelResultCache(File directory, long maxBytes) throws IOException {
+		this(directory, maxBytes, ExcelTempStorage.defaultStorage());
+	}
+
+	/**
+	 * @param storage Storage of sheets and intermediate files of renders, charged to its limits
+	 */
+	public ExcelResultCache(File directory, long maxBytes, ExcelTempStorage storage) throws IOException {
+		if (maxBytes <= 0) {
+			throw new IllegalArgumentException(String.format("maxBytes must be positive, but %s", maxBytes));
+		}
+		this.directory = Files.createDirectories(directory.toPath());
+		this.maxBytes = maxBytes;
+		this.storage = storage;
+		load();
+	}
+
+	/**
+	 * Returns cached workbook of key and fingerprint, or renders it with renderer.
+	 * While a workbook is rendered, other calls of the same key and fingerprint wait for it instead of rendering again.
+	 * Returned workbook is pinned until it is written or closed
+	 * @param dataFingerprint Anything changing when data changes, such as {@link #fingerprint(ExcelSchema, List)}
+	 */
+	public CachedExcel get(String key, String dataFingerprint, ExcelRenderer renderer) throws IOException {
+		String name = sha256(key + '\u0000' + dataFingerprint);
+		while (true) {
+			CachedExcel cached = find(name);
+			if (cached != null) {
+				hitCount.incrementAndGet();
+				return cached;
+			}
+
+			CompletableFuture<Entry> future = new CompletableFuture<>();
+			CompletableFuture<Entry> running = rendering.putIfAbsent(name, future);
+			if (running == null) {
+				return render(name, renderer, future);
+			}
+			coalescedCount.incrementAndGet();
+			cached = pin(name, await(running));
+			if (cached != null) {
+				return cached;
+			}
+			// workbook of the render was evicted before it was pinned here
+		}
+	}
+
+	private CachedExcel render(String name, ExcelRenderer renderer, CompletableFuture<Entry> future)
+			throws IOException {
+		try {
+			// another render could have finished between find and putIfAbsent
+			CachedExcel cached = find(name);
+			if (cached == null) {
+				renderCount.incrementAndGet();
+				cached = add(name, render(name, renderer));
+			} else {
+				hitCount.incrementAndGet();
+			}
+			future.complete(cached.getEntry());
+			return cached;
+		} catch (IOException | RuntimeException | Error e) {
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			rendering.remove(name, future);
+		}
+	}
+
+	/**
+	 * Returns cached workbook of data, rendered by {@link MultiSheetExcelFile} on a miss
+	 */
+	public <T> CachedExcel get(String key, ExcelSchema<T> schema, List<T> data) throws IOException {
+		return get(key, schema, data, ExcelExportControl.none());
+	}
+
+	/**
+	 * Returns cached workbook of data, rendered by {@link MultiSheetExcelFile} under control on a miss.
+	 * Calls waiting for a cancelled render fail with its exception, and nothing is cached
+	 */
+	public <T> CachedExcel get(String key, ExcelSchema<T> schema, List<T> data, ExcelExportControl exportControl)
+			throws IOException {
+		return get(key, fingerprint(schema, data),
+				stream -> new MultiSheetExcelFile<>(data, schema, new DefaultDataFormatDecider(),
+						storage, SXSSFWorkbook.DEFAULT_WINDOW_SIZE, exportControl)
+						.write(stream));
+	}
+
+	/**
+	 * Hash of columns and every value of data, in order
+	 */
+	public static <T> String fingerprint(ExcelSchema<T> schema, List<? extends T> data) {
+		MessageDigest digest = newDigest();
+		update(digest, schema.getColumnNames().toString());
+		update(digest, String.valueOf(data.size()));
+		RowWriter<T> rowWriter = schema.getRowWriter();
+		CellValueWriter valueWriter = new CellValueWriter() {
+			@Override
+			public void writeNumber(int columnIndex, double value) {
+				update(digest, columnIndex + "#" + Double.doubleToLongBits(value));
+			}
+
+			@Override
+			public void writeValue(int columnIndex, Object value) {
+				update(digest, value == null
+						? columnIndex + "-"
+						: columnIndex + value.getClass().getName() + ":" + value);
+			}
+		};
+		for (T row : data) {
+			rowWriter.write(row, valueWriter);
+			update(digest, "\n");
+		}
+		return toHex(digest.digest());
+	}
+
+	/**
+	 * Count of calls returning a cached workbook without waiting for a render
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	public long getRenderCount() {
+		return renderCount.get();
+	}
+
+	/**
+	 * Count of calls waiting for a render of another call
+	 */
+	public long getCoalescedCount() {
+		return coalescedCount.get();
+	}
+
+	public synchronized long getTotalBytes() {
+		return totalBytes;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Pins workbook of name, and touches its file so order of use is kept when cache is loaded again
+	 */
+	private synchronized CachedExcel find(String name) {
+		Entry entry = entries.get(name);
+		if (entry == null) {
+			return null;
+		}
+		if (!entry.file.exists()) {
+			entries.remove(name);
+			totalBytes -= entry.length;
+			return null;
+		}
+		entry.file.setLastModified(System.currentTimeMillis());
+		entry.pins++;
+		return new CachedExcel(entry, this);
+	}
+
+	/**
+	 * Pins workbook rendered by another call, unless it was evicted already
+	 */
+	private synchronized CachedExcel pin(String name, Entry entry) {
+		if (entries.get(name) != entry) {
+			return null;
+		}
+		entry.pins++;
+		return new CachedExcel(entry, this);
+	}
+
+	synchronized void release(Entry entry) throws IOException {
+		entry.pins--;
+		if (entry.pins == 0) {
+			evict();
+		}
+	}
+
+	private synchronized CachedExcel add(String name, Entry entry) throws IOException {
+		put(name, entry);
+		// workbook just added is pinned, so it is kept even if it is over maxBytes alone
+		entry.pins++;
+		CachedExcel cached = new CachedExcel(entry, this);
+		evict();
+		return cached;
+	}
+
+	private void put(String name, Entry entry) {
+		Entry replaced = entries.put(name, entry);
+		if (replaced != null) {
+			totalBytes -= replaced.length;
+		}
+		totalBytes += entry.length;
+	}
+
+	private void evict() throws IOException {
+		Iterator<Entry> iterator = entries.values().iterator();
+		while (totalBytes > maxBytes && iterator.hasNext()) {
+			Entry eldest = iterator.next();
+			if (eldest.pins > 0) {
+				continue;
+			}
+			iterator.remove();
+			totalBytes -= eldest.length;
+			Files.deleteIfExists(eldest.file.toPath());
+		}
+	}
+
+	private Entry render(String name, ExcelRenderer renderer) throws IOException {
+		// rewritten workbook becomes the cached file, so it is created next to it for the atomic move
+		Path rewritten = Files.createTempFile(directory, name, TEMP_SUFFIX);
+		try (ExcelTempFile rendered = ExcelTempFile.create(storage, "excel-cache")) {
+			try (OutputStream stream = rendered.openStream()) {
+				renderer.render(stream);
+			}
+			MessageDigest digest = newDigest();
+			try (FileOutputStream file = new FileOutputStream(rewritten.toFile())) {
+				OutputStream stream = new BufferedOutputStream(new DigestOutputStream(file, digest));
+				DeterministicXlsx.rewrite(rendered.getFile(), stream);
+				stream.flush();
+				file.getFD().sync();
+			}
+			Path target = directory.resolve(name + FILE_SUFFIX);
+			Files.move(rewritten, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			return new Entry(target.toFile(), toHex(digest.digest()), Files.size(target));
+		} finally {
+			Files.deleteIfExists(rewritten);
+		}
+	}
+
+	private void load() throws IOException {
+		List<Path> files = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+			for (Path file : stream) {
+				String fileName = file.getFileName().toString();
+				if (fileName.endsWith(TEMP_SUFFIX)) {
+					// left by a render which did not finish
+					Files.deleteIfExists(file);
+				} else if (fileName.endsWith(FILE_SUFFIX)) {
+					files.add(file);
+				}
+			}
+		}
+		files.sort(Comparator.comparingLong(file -> file.toFile().lastModified()));
+		for (Path file : files) {
+			String fileName = file.getFileName().toString();
+			String name = fileName.substring(0, fileName.length() - FILE_SUFFIX.length());
+			put(name, new Entry(file.toFile(), hash(file), Files.size(file)));
+			evict();
+		}
+	}
+
+	private static Entry await(CompletableFuture<Entry> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for render of the same workbook");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw new IOException(cause.getMessage(), cause);
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new ExcelInternalException(cause.getMessage(), cause);
+		}
+	}
+
+	private static String hash(Path file) throws IOException {
+		MessageDigest digest = newDigest();
+		byte[] buffer = new byte[8192];
+		try (InputStream stream = Files.newInputStream(file)) {
+			for (int read = stream.read(buffer); read != -1; read = stream.read(buffer)) {
+				digest.update(buffer, 0, read);
+			}
+		}
+		return toHex(digest.digest());
+	}
+
+	private static String sha256(String value) {
+		MessageDigest digest = newDigest();
+		update(digest, value);
+		return toHex(digest.digest());
+	}
+
+	private static void update(MessageDigest digest, String value) {
+		digest.update(value.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new ExcelInternalException(e.getMessage(), e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		char[] chars = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+			chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * Workbook in directory, with count of returned {@link CachedExcel} not released yet
+	 */
+	static final class Entry {
+
+		private final File file;
+		private final String eTag;
+		private final long length;
+		private int pins;
+
+		Entry(File file, String eTag, long length) {
+			this.file = file;
+			this.eTag = eTag;
+			this.length = length;
+		}
+
+		File getFile() {
+			return file;
+		}
+
+		String getETag() {
+			return eTag;
+		}
+
+		long getLength() {
+			return length;
+		}
+
+	}
+
+}
@@ -0,0 +1,149 @@
+package com.okdori.excel.columnar;
+
+import com.okdori.excel.SXSSFExcelFile;
+import com.okdori.excel.compact.CompactRowBuffer;
+import com.okdori.excel.compact.MaxLengthSheetFinalizer;
+import com.okdori.excel.control.ExcelExportControl;
+import com.okdori.excel.pipeline.CellStyler;
+import com.okdori.excel.pipeline.CellValueConverter;
+import com.okdori.excel.pipeline.ExcelPipeline;
+import com.okdori.excel.pipeline.ParallelRowPreparer;
+import com.okdori.excel.storage.ExcelTempStorage;
+import com.okdori.resource.DataFormatDecider;
+import com.okdori.resource.DefaultDataFormatDecider;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * ColumnarExcelFile
+ *
+ * - support one sheet rendering of {@link ExcelColumns}, written by the compact engine
+ * - rows are read from arrays of columns by one {@link ColumnarRow} moved over them,
+ *   so no object is created for a row or a number
+ * - rows can be prepared by {@link #setRowPreparer(ParallelRowPreparer)}, each chunk moving a row of its own
+ * - more columns of the same keys and types can be added by {@link #addColumns(ExcelColumns)}
+ */
+public final class ColumnarExcelFile extends SXSSFExcelFile<ColumnarRow> {
+
+	private static final int ROW_START_INDEX = 0;
+	private static final int COLUMN_START_INDEX = 0;
+	private static final int WINDOW_SIZE = 1000;
+
+	private final ExcelColumns columns;
+	// not initialized here, because renderExcel is called by super constructor before field initializers
+	private int currentRowIndex;
+
+	public ColumnarExcelFile(ExcelColumns columns) {
+		this(columns, new DefaultDataFormatDecider(), ExcelTempStorage.defaultStorage());
+	}
+
+	public ColumnarExcelFile(ExcelColumns columns, DataFormatDecider dataFormatDecider, ExcelTempStorage storage) {
+		this(columns, dataFormatDecider, storage, ExcelExportControl.none());
+	}
+
+	/**
+	 * @param exportControl Control of this export, also checked while columns are rendered by this constructor
+	 */
+	public ColumnarExcelFile(ExcelColumns columns, DataFormatDecider dataFormatDecider, ExcelTempStorage storage,
+							 ExcelExportControl exportControl) {
+		super(Collections.emptyList(), columns.getSchema(), dataFormatDecider, storage, WINDOW_SIZE, exportControl);
+		this.columns = columns;
+		addColumns(columns);
+	}
+
+	@Override
+	protected ExcelPipeline<ColumnarRow> createPipeline() {
+		return ExcelPipeline.<ColumnarRow>builder()
+				.extractor(schema.getRowWriter())
+				.converter(CellValueConverter.typed())
+				.styler(CellStyler.of(resource, schema.getColumnNames()))
+				.writer(new CompactRowBuffer(wb, () -> (SXSSFSheet) sheet, COLUMN_START_INDEX, schema.size(),
+						wb.getRandomAccessWindowSize()))
+				.finalizer(withPivotSummary(new MaxLengthSheetFinalizer(() -> sheet, COLUMN_START_INDEX, schema.size())))
+				.aggregator(aggregator)
+				.build();
+	}
+
+	@Override
+	protected void renderExcel(List<ColumnarRow> data) {
+		// dimension of sheet is not known to SXSSF, rows are written without it
+		wb.setShouldCalculateSheetDimensions(false);
+		sheet = wb.createSheet();
+		((SXSSFSheet) sheet).trackAllColumnsForAutoSizing();
+		renderHeadersWithNewSheet(sheet, currentRowIndex++, COLUMN_START_INDEX);
+	}
+
+	/**
+	 * Renders every row of columns after rows already rendered
+	 * @param columns columns of the same keys and types as columns given to constructor
+	 */
+	public void addColumns(ExcelColumns columns) {
+		if (!columns.hasSameColumns(this.columns)) {
+			throw new IllegalArgumentException(String.format("Columns %s are not columns %s of the file",
+					columns.getSchema().getColumnNames(), schema.getColumnNames()));
+		}
+		validateSheetRows(currentRowIndex, columns.size());
+		currentRowIndex = renderBody(new MovingRowList(columns, 0, columns.size()), currentRowIndex);
+	}
+
+	/**
+	 * Renders rows of columns having the same keys and types as columns given to constructor
+	 */
+	@Override
+	public void addRows(List<ColumnarRow> data) {
+		validateSheetRows(currentRowIndex, data.size());
+		currentRowIndex = renderBody(data, currentRowIndex);
+	}
+
+	@Override
+	protected void renderFooter() {
+		currentRowIndex += renderAggregateRows(currentRowIndex, COLUMN_START_INDEX, ROW_START_INDEX + 1, false);
+	}
+
+	/**
+	 * Rows of columns from fromIndex returning the same row moved to index, valid until the next get.
+	 * Sub list has a row of its own, so chunks of {@link ParallelRowPreparer} are read on their threads
+	 */
+	private static final class MovingRowList extends AbstractList<ColumnarRow> implements RandomAccess {
+
+		private final ExcelColumns columns;
+		private final int fromIndex;
+		private final int size;
+		private final ColumnarRow row;
+
+		private MovingRowList(ExcelColumns columns, int fromIndex, int toIndex) {
+			this.columns = columns;
+			this.fromIndex = fromIndex;
+			this.size = toIndex - fromIndex;
+			this.row = new ColumnarRow(columns, fromIndex);
+		}
+
+		@Override
+		public ColumnarRow get(int index) {
+			if (index < 0 || index >= size) {
+				throw new IndexOutOfBoundsException(String.format("Row %s of %s rows", index, size));
+			}
+			row.moveTo(fromIndex + index);
+			return row;
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public List<ColumnarRow> subList(int fromIndex, int toIndex) {
+			if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+				throw new IndexOutOfBoundsException(String.format("Rows %s to %s of %s rows", fromIndex, toIndex, size));
+			}
+			return new MovingRowList(columns, this.fromIndex + fromIndex, this.fromIndex + toIndex);
+		}
+
+	}
+
+}
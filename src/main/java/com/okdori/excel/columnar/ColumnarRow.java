@@ -0,0 +1,30 @@
+package com.okdori.excel.columnar;
+
+/**
+ * ColumnarRow
+ *
+ * Row of {@link ExcelColumns} by index. {@link ColumnarExcelFile} moves one row over every index instead of creating rows
+ */
+public final class ColumnarRow {
+
+	private final ExcelColumns columns;
+	private int index;
+
+	ColumnarRow(ExcelColumns columns, int index) {
+		this.columns = columns;
+		this.index = index;
+	}
+
+	public ExcelColumns getColumns() {
+		return columns;
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	void moveTo(int index) {
+		this.index = index;
+	}
+
+}
@@ -0,0 +1,346 @@
+package com.okdori.excel.columnar;
+
+import com.okdori.ExcelAggregate;
+import com.okdori.resource.schema.CellValueWriter;
+import com.okdori.resource.schema.ExcelColumnSchema;
+import com.okdori.resource.schema.ExcelSchema;
+import com.okdori.resource.schema.ExcelSchemaBuilder;
+import com.okdori.resource.schema.RowWriter;
+import com.okdori.style.ExcelCellStyle;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * ExcelColumns
+ *
+ * Rows kept column by column, as arrays of primitives and dictionary encoded strings.
+ * Values are written by index of arrays, numbers are never boxed.
+ * Headers, styles and aggregates of columns are defined as {@link ExcelSchemaBuilder}, so columns have {@link ExcelSchema}
+ * of {@link ColumnarRow} and are rendered with the same resource as other rows
+ *
+ * <pre>
+ * ExcelColumns columns = ExcelColumns.builder()
+ *     .longs("id", "Id", ids)
+ *     .strings("region", "Region", regionCodes, regionNames)
+ *     .doubles("amount", "Amount", amounts, DefaultExcelCellStyle.BLUE_HEADER, DefaultExcelCellStyle.BODY)
+ *     .aggregates(ExcelAggregate.SUM)
+ *     .build();
+ * </pre>
+ */
+public final class ExcelColumns {
+
+	// longs up to it are exactly doubles, the number type of cells
+	private static final long MAX_EXACT_LONG = 1L << 53;
+
+	private final Column[] columns;
+	private final int size;
+	private final ExcelSchema<ColumnarRow> schema;
+
+	private ExcelColumns(Builder builder) {
+		this.columns = builder.columns.toArray(new Column[0]);
+		this.size = columns.length == 0 ? 0 : columns[0].length();
+		for (int i = 0; i < columns.length; i++) {
+			if (columns[i].length() != size) {
+				throw new IllegalArgumentException(String.format("Column %s has %s rows, but column %s has %s rows",
+						builder.keys.get(i), columns[i].length(), builder.keys.get(0), size));
+			}
+		}
+		this.schema = builder.schemaBuilder.forRowWriter(ColumnarRowWriter::new);
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	public ExcelSchema<ColumnarRow> getSchema() {
+		return schema;
+	}
+
+	/**
+	 * Count of rows
+	 */
+	public int size() {
+		return size;
+	}
+
+	public ColumnarRow row(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException(String.format("Row %s of %s rows", index, size));
+		}
+		return new ColumnarRow(this, index);
+	}
+
+	/**
+	 * Rows for any engine, such as {@code new OneSheetExcelFile<>(columns.rows(), columns.getSchema())}.
+	 * A row object is created by each get, see {@link ColumnarExcelFile} rendering without them
+	 */
+	public List<ColumnarRow> rows() {
+		return new RowList();
+	}
+
+	/**
+	 * Whether columns have the same keys and types as other, so rows of them can be rendered by schema of other
+	 */
+	public boolean hasSameColumns(ExcelColumns other) {
+		List<ExcelColumnSchema> otherColumns = other.schema.getColumns();
+		if (otherColumns.size() != columns.length) {
+			return false;
+		}
+		for (int i = 0; i < columns.length; i++) {
+			ExcelColumnSchema column = schema.getColumns().get(i);
+			if (!column.getName().equals(otherColumns.get(i).getName())
+					|| column.getType() != otherColumns.get(i).getType()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	void write(int rowIndex, int sourceIndex, int columnIndex, CellValueWriter writer) {
+		columns[sourceIndex].write(rowIndex, columnIndex, writer);
+	}
+
+	/**
+	 * Builder
+	 *
+	 * Every column should have the same count of rows
+	 */
+	public static final class Builder {
+
+		private final ExcelSchemaBuilder schemaBuilder = ExcelSchema.builder();
+		private final List<Column> columns = new ArrayList<>();
+		private final List<String> keys = new ArrayList<>();
+
+		private Builder() {
+
+		}
+
+		/**
+		 * Style applied to columns defined without header style
+		 */
+		public Builder defaultHeaderStyle(ExcelCellStyle headerStyle) {
+			schemaBuilder.defaultHeaderStyle(headerStyle);
+			return this;
+		}
+
+		/**
+		 * Style applied to columns defined without body style
+		 */
+		public Builder defaultBodyStyle(ExcelCellStyle bodyStyle) {
+			schemaBuilder.defaultBodyStyle(bodyStyle);
+			return this;
+		}
+
+		public Builder doubles(String key, String headerName, double[] values) {
+			return doubles(key, headerName, values, null, null);
+		}
+
+		public Builder doubles(String key, String headerName, double[] values,
+							   ExcelCellStyle headerStyle, ExcelCellStyle bodyStyle) {
+			return column(key, headerName, Double.class, headerStyle, bodyStyle, new DoubleColumn(values));
+		}
+
+		/**
+		 * Values are written as double, the number type of cells, so values over 2^53 are rejected instead of rounded.
+		 * Write them by {@link #strings(String, String, int[], String[])} to keep every digit
+		 */
+		public Builder longs(String key, String headerName, long[] values) {
+			return longs(key, headerName, values, null, null);
+		}
+
+		public Builder longs(String key, String headerName, long[] values,
+							 ExcelCellStyle headerStyle, ExcelCellStyle bodyStyle) {
+			for (int row = 0; row < values.length; row++) {
+				if (values[row] > MAX_EXACT_LONG || values[row] < -MAX_EXACT_LONG) {
+					throw new IllegalArgumentException(String.format("Value %s of row %s of column %s is over 2^53, "
+							+ "so it can not be written as number without losing digits", values[row], row, key));
+				}
+			}
+			return column(key, headerName, Long.class, headerStyle, bodyStyle, new LongColumn(values));
+		}
+
+		public Builder ints(String key, String headerName, int[] values) {
+			return ints(key, headerName, values, null, null);
+		}
+
+		public Builder ints(String key, String headerName, int[] values,
+							ExcelCellStyle headerStyle, ExcelCellStyle bodyStyle) {
+			return column(key, headerName, Integer.class, headerStyle, bodyStyle, new IntColumn(values));
+		}
+
+		/**
+		 * Dictionary encoded strings
+		 * @param codes index of value in dictionary for each row, -1 is null
+		 * @param dictionary distinct values
+		 */
+		public Builder strings(String key, String headerName, int[] codes, String[] dictionary) {
+			return strings(key, headerName, codes, dictionary, null, null);
+		}
+
+		public Builder strings(String key, String headerName, int[] codes, String[] dictionary,
+							   ExcelCellStyle headerStyle, ExcelCellStyle bodyStyle) {
+			for (int row = 0; row < codes.length; row++) {
+				if (codes[row] < -1 || codes[row] >= dictionary.length) {
+					throw new IllegalArgumentException(String.format("Code %s of row %s of column %s is not in dictionary of %s values",
+							codes[row], row, key, dictionary.length));
+				}
+			}
+			return column(key, headerName, String.class, headerStyle, bodyStyle, new DictionaryColumn(codes, dictionary));
+		}
+
+		/**
+		 * Aggregates of the last defined column, rendered as footer rows
+		 */
+		public Builder aggregates(ExcelAggregate... aggregates) {
+			schemaBuilder.aggregates(aggregates);
+			return this;
+		}
+
+		public ExcelColumns build() {
+			return new ExcelColumns(this);
+		}
+
+		private Builder column(String key, String headerName, Class<?> type,
+							   ExcelCellStyle headerStyle, ExcelCellStyle bodyStyle, Column column) {
+			schemaBuilder.column(key, headerName, type, headerStyle, bodyStyle);
+			columns.add(column);
+			keys.add(key);
+			return this;
+		}
+
+	}
+
+	/**
+	 * Writes rows of columns given as {@link ColumnarRow}, by index of column in columns
+	 */
+	private static final class ColumnarRowWriter implements RowWriter<ColumnarRow> {
+
+		private final int[] sourceIndexes;
+
+		private ColumnarRowWriter(List<ExcelColumnSchema> columns) {
+			this.sourceIndexes = new int[columns.size()];
+			for (int i = 0; i < sourceIndexes.length; i++) {
+				sourceIndexes[i] = columns.get(i).getIndex();
+			}
+		}
+
+		@Override
+		public void write(ColumnarRow row, CellValueWriter writer) {
+			ExcelColumns columns = row.getColumns();
+			int rowIndex = row.getIndex();
+			for (int i = 0; i < sourceIndexes.length; i++) {
+				columns.write(rowIndex, sourceIndexes[i], i, writer);
+			}
+		}
+
+	}
+
+	private final class RowList extends AbstractList<ColumnarRow> implements RandomAccess {
+
+		@Override
+		public ColumnarRow get(int index) {
+			return row(index);
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+	}
+
+	private abstract static class Column {
+
+		abstract int length();
+
+		abstract void write(int rowIndex, int columnIndex, CellValueWriter writer);
+
+	}
+
+	private static final class DoubleColumn extends Column {
+
+		private final double[] values;
+
+		private DoubleColumn(double[] values) {
+			this.values = values;
+		}
+
+		@Override
+		int length() {
+			return values.length;
+		}
+
+		@Override
+		void write(int rowIndex, int columnIndex, CellValueWriter writer) {
+			writer.writeNumber(columnIndex, values[rowIndex]);
+		}
+
+	}
+
+	private static final class LongColumn extends Column {
+
+		private final long[] values;
+
+		private LongColumn(long[] values) {
+			this.values = values;
+		}
+
+		@Override
+		int length() {
+			return values.length;
+		}
+
+		@Override
+		void write(int rowIndex, int columnIndex, CellValueWriter writer) {
+			writer.writeNumber(columnIndex, values[rowIndex]);
+		}
+
+	}
+
+	private static final class IntColumn extends Column {
+
+		private final int[] values;
+
+		private IntColumn(int[] values) {
+			this.values = values;
+		}
+
+		@Override
+		int length() {
+			return values.length;
+		}
+
+		@Override
+		void write(int rowIndex, int columnIndex, CellValueWriter writer) {
+			writer.writeNumber(columnIndex, values[rowIndex]);
+		}
+
+	}
+
+	private static final class DictionaryColumn extends Column {
+
+		private final int[] codes;
+		private final String[] dictionary;
+
+		private DictionaryColumn(int[] codes, String[] dictionary) {
+			this.codes = codes;
+			this.dictionary = dictionary;
+		}
+
+		@Override
+		int length() {
+			return codes.length;
+		}
+
+		@Override
+		void write(int rowIndex, int columnIndex, CellValueWriter writer) {
+			int code = codes[rowIndex];
+			writer.writeValue(columnIndex, code == -1 ? null : dictionary[code]);
+		}
+
+	}
+
+}
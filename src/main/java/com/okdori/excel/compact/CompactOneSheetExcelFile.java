@@ -0,0 +1,103 @@
+package com.okdori.excel.compact;
+
+import com.okdori.excel.SXSSFExcelFile;
+import com.okdori.excel.control.ExcelExportControl;
+import com.okdori.excel.pipeline.CellStyler;
+import com.okdori.excel.pipeline.CellValueConverter;
+import com.okdori.excel.pipeline.ExcelPipeline;
+import com.okdori.excel.storage.ExcelTempStorage;
+import com.okdori.resource.DataFormatDecider;
+import com.okdori.resource.DefaultDataFormatDecider;
+import com.okdori.resource.schema.ExcelSchema;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+
+import java.util.List;
+
+/**
+ * CompactOneSheetExcelFile
+ *
+ * - support one sheet rendering, like OneSheetExcelFile
+ * - body rows are written by {@link CompactRowBuffer} as write stage of {@link ExcelPipeline},
+ *   encoded and serialized to sheet xml on flush without SXSSFRow and SXSSFCell objects
+ * - header and footer rows, styles and column widths are still rendered by SXSSF
+ *
+ * Column width is calculated from the longest value of column instead of font metrics
+ */
+public final class CompactOneSheetExcelFile<T> extends SXSSFExcelFile<T> {
+
+	private static final int ROW_START_INDEX = 0;
+	private static final int COLUMN_START_INDEX = 0;
+	private static final int WINDOW_SIZE = 1000;
+	// not initialized here, because renderExcel is called by super constructor before field initializers
+	private int currentRowIndex;
+
+	public CompactOneSheetExcelFile(List<T> data, Class<T> type) {
+		this(data, ExcelSchema.of(type));
+	}
+
+	public CompactOneSheetExcelFile(List<T> data, ExcelSchema<T> schema) {
+		this(data, schema, new DefaultDataFormatDecider());
+	}
+
+	public CompactOneSheetExcelFile(List<T> data, ExcelSchema<T> schema, DataFormatDecider dataFormatDecider) {
+		this(data, schema, dataFormatDecider, ExcelTempStorage.defaultStorage());
+	}
+
+	public CompactOneSheetExcelFile(List<T> data, ExcelSchema<T> schema, DataFormatDecider dataFormatDecider,
+									ExcelTempStorage storage) {
+		this(data, schema, dataFormatDecider, storage, WINDOW_SIZE);
+	}
+
+	/**
+	 * @param rowAccessWindowSize Body rows encoded in buffers before they are flushed to storage
+	 */
+	public CompactOneSheetExcelFile(List<T> data, ExcelSchema<T> schema, DataFormatDecider dataFormatDecider,
+									ExcelTempStorage storage, int rowAccessWindowSize) {
+		this(data, schema, dataFormatDecider, storage, rowAccessWindowSize, ExcelExportControl.none());
+	}
+
+	public CompactOneSheetExcelFile(List<T> data, ExcelSchema<T> schema, DataFormatDecider dataFormatDecider,
+									ExcelTempStorage storage, int rowAccessWindowSize, ExcelExportControl exportControl) {
+		super(data, schema, dataFormatDecider, storage, rowAccessWindowSize, exportControl);
+	}
+
+	@Override
+	protected void validateData(List<T> data) {
+		validateSheetRows(ROW_START_INDEX + 1, data.size());
+	}
+
+	@Override
+	protected ExcelPipeline<T> createPipeline() {
+		return ExcelPipeline.<T>builder()
+				.extractor(schema.getRowWriter())
+				.converter(CellValueConverter.typed())
+				.styler(CellStyler.of(resource, schema.getColumnNames()))
+				.writer(new CompactRowBuffer(wb, () -> (SXSSFSheet) sheet, COLUMN_START_INDEX, schema.size(),
+						wb.getRandomAccessWindowSize()))
+				.finalizer(withPivotSummary(new MaxLengthSheetFinalizer(() -> sheet, COLUMN_START_INDEX, schema.size())))
+				.aggregator(aggregator)
+				.build();
+	}
+
+	@Override
+	protected void renderExcel(List<T> data) {
+		// dimension of sheet is not known to SXSSF, rows are written without it
+		wb.setShouldCalculateSheetDimensions(false);
+		sheet = wb.createSheet();
+		((SXSSFSheet) sheet).trackAllColumnsForAutoSizing();
+		renderHeadersWithNewSheet(sheet, currentRowIndex++, COLUMN_START_INDEX);
+		addRows(data);
+	}
+
+	@Override
+	public void addRows(List<T> data) {
+		validateSheetRows(currentRowIndex, data.size());
+		currentRowIndex = renderBody(data, currentRowIndex);
+	}
+
+	@Override
+	protected void renderFooter() {
+		currentRowIndex += renderAggregateRows(currentRowIndex, COLUMN_START_INDEX, ROW_START_INDEX + 1, false);
+	}
+
+}
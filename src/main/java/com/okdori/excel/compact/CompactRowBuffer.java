@@ -0,0 +1,386 @@
+package com.okdori.excel.compact;
+
+import com.okdori.excel.jfr.ExcelEvent;
+import com.okdori.excel.jfr.ExcelEvents;
+import com.okdori.excel.pipeline.SheetRowWriter;
+import com.okdori.excel.storage.TempStorageWorkbook;
+import com.okdori.exception.ExcelInternalException;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * CompactRowBuffer
+ *
+ * Rows encoded into two flat buffers instead of SXSSFRow and SXSSFCell objects.
+ * - cells : fixed records of column, type tag, style index and value. String value is offset and length in string arena
+ * - string arena : escaped UTF-8 bytes of strings
+ *
+ * Buffered rows are serialized straight to sheet xml, in the form SXSSF writes them.
+ * Buffers are reused after each flush, so rendering a row allocates nothing but values given by row writer.
+ * Buffers are heap buffers, not direct buffers, so memory of many concurrent exports is limited by heap
+ * and released by GC under heap pressure, instead of failing on max direct memory
+ */
+public final class CompactRowBuffer implements SheetRowWriter {
+
+	private static final int CELL_BYTES = 16;
+	private static final byte NUMBER = 1;
+	private static final byte STRING = 2;
+	private static final byte PRESERVED_STRING = 3;
+	private static final int INITIAL_ARENA_BYTES = 64 * 1024;
+	private static final int OUTPUT_BYTES = 64 * 1024;
+	// Double.toString writes integral values below it without exponent
+	private static final double MAX_PLAIN_INTEGRAL = 1e7;
+	private static final long NEGATIVE_ZERO_BITS = Double.doubleToRawLongBits(-0.0d);
+
+	private static final byte[] ROW_START = ascii("<row r=\"");
+	private static final byte[] ROW_START_END = ascii("\">\n");
+	private static final byte[] ROW_END = ascii("</row>\n");
+	private static final byte[] CELL_START = ascii("<c r=\"");
+	private static final byte[] STYLE = ascii("\" s=\"");
+	private static final byte[] NUMBER_START = ascii("\" t=\"n\"><v>");
+	private static final byte[] NUMBER_END = ascii("</v></c>");
+	private static final byte[] ERROR_START = ascii("\" t=\"e\"><v>");
+	private static final byte[] NOT_A_NUMBER = ascii("#NUM!");
+	private static final byte[] INFINITY = ascii("#DIV/0!");
+	private static final byte[] STRING_START = ascii("\" t=\"inlineStr\"><is><t>");
+	private static final byte[] PRESERVED_STRING_START = ascii("\" t=\"inlineStr\"><is><t xml:space=\"preserve\">");
+	private static final byte[] STRING_END = ascii("</t></is></c>");
+	private static final byte[] ZERO_FRACTION = ascii(".0");
+
+	private final TempStorageWorkbook workbook;
+	private final Supplier<SXSSFSheet> sheet;
+	private final byte[][] columnReferences;
+	private final int[] rowNumbers;
+	private final int[] rowEnds;
+	private final byte[] output = new byte[OUTPUT_BYTES];
+
+	private byte[][] styles = new byte[64][];
+	private ByteBuffer cells;
+	private ByteBuffer arena;
+	// reads arena without creating a view per string
+	private ByteBuffer arenaReader;
+	private int rowCount;
+	private int cellCount;
+	private int arenaSize;
+	private int outputSize;
+	private OutputStream stream;
+
+	/**
+	 * CompactRowBuffer
+	 * @param workbook workbook of sheet, rows are flushed to its sheet data stream
+	 * @param sheet sheet of rows
+	 * @param columnStartIndex sheet column index of first column
+	 * @param columnCount count of columns
+	 * @param windowSize rows buffered before flush
+	 */
+	public CompactRowBuffer(TempStorageWorkbook workbook, Supplier<SXSSFSheet> sheet,
+							int columnStartIndex, int columnCount, int windowSize) {
+		this.workbook = workbook;
+		this.sheet = sheet;
+		this.columnReferences = new byte[columnCount][];
+		for (int i = 0; i < columnCount; i++) {
+			columnReferences[i] = ascii(CellReference.convertNumToColString(columnStartIndex + i));
+		}
+		this.rowNumbers = new int[windowSize];
+		this.rowEnds = new int[windowSize];
+		this.cells = ByteBuffer.allocate(Math.max(1, windowSize * columnCount) * CELL_BYTES);
+		this.arena = ByteBuffer.allocate(INITIAL_ARENA_BYTES);
+		this.arenaReader = arena.duplicate();
+	}
+
+	@Override
+	public void beginRow(int rowIndex) {
+		rowNumbers[rowCount] = rowIndex + 1;
+		rowEnds[rowCount] = cellCount;
+	}
+
+	@Override
+	public void writeNumber(int columnIndex, double value, CellStyle style) {
+		int position = putCell(columnIndex, NUMBER, style);
+		cells.putLong(position + 8, Double.doubleToRawLongBits(value));
+	}
+
+	@Override
+	public void writeString(int columnIndex, String value, CellStyle style) {
+		int length = value.length();
+		boolean preserved = length > 0
+				&& (Character.isWhitespace(value.charAt(0)) || Character.isWhitespace(value.charAt(length - 1)));
+		int position = putCell(columnIndex, preserved ? PRESERVED_STRING : STRING, style);
+		int offset = arenaSize;
+		for (int i = 0; i < length; i++) {
+			char c = value.charAt(i);
+			if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+				putCodePoint(Character.toCodePoint(c, value.charAt(++i)));
+			} else {
+				putEscapedChar(c);
+			}
+		}
+		cells.putLong(position + 8, ((long) offset << 32) | (arenaSize - offset));
+	}
+
+	@Override
+	public void endRow() {
+		rowEnds[rowCount++] = cellCount;
+		if (rowCount == rowNumbers.length) {
+			flush();
+		}
+	}
+
+	@Override
+	public void finish() {
+		flush();
+	}
+
+	private void flush() {
+		SXSSFSheet currentSheet = sheet.get();
+		ExcelEvent event = ExcelEvents.flush(currentSheet.getSheetName());
+		event.setRowCount(rowCount);
+		try (OutputStream stream = event.countBytes(workbook.getSheetDataStream(currentSheet))) {
+			writeTo(stream);
+			event.commit();
+		} catch (IOException e) {
+			throw new ExcelInternalException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Serializes buffered rows to stream and empties buffer
+	 */
+	private void writeTo(OutputStream stream) throws IOException {
+		this.stream = stream;
+		int cellIndex = 0;
+		for (int row = 0; row < rowCount; row++) {
+			int rowNumber = rowNumbers[row];
+			writeBytes(ROW_START);
+			writeInt(rowNumber);
+			writeBytes(ROW_START_END);
+			for (; cellIndex < rowEnds[row]; cellIndex++) {
+				writeCell(cellIndex * CELL_BYTES, rowNumber);
+			}
+			writeBytes(ROW_END);
+		}
+		flushOutput();
+		this.stream = null;
+		rowCount = 0;
+		cellCount = 0;
+		arenaSize = 0;
+	}
+
+	private void writeCell(int position, int rowNumber) throws IOException {
+		int columnIndex = cells.getInt(position);
+		byte tag = cells.get(position + 4);
+		short styleIndex = cells.getShort(position + 6);
+		long value = cells.getLong(position + 8);
+
+		writeBytes(CELL_START);
+		writeBytes(columnReferences[columnIndex]);
+		writeInt(rowNumber);
+		if (styleIndex != 0) {
+			writeBytes(STYLE);
+			writeBytes(styleBytes(styleIndex));
+		}
+		if (tag == NUMBER) {
+			double number = Double.longBitsToDouble(value);
+			if (Double.isNaN(number) || Double.isInfinite(number)) {
+				// error cell like Cell#setCellValue(double), as xml has no number for them
+				writeBytes(ERROR_START);
+				writeBytes(Double.isNaN(number) ? NOT_A_NUMBER : INFINITY);
+			} else {
+				writeBytes(NUMBER_START);
+				writeDouble(number);
+			}
+			writeBytes(NUMBER_END);
+			return;
+		}
+		writeBytes(tag == PRESERVED_STRING ? PRESERVED_STRING_START : STRING_START);
+		writeArena((int) (value >>> 32), (int) value);
+		writeBytes(STRING_END);
+	}
+
+	private int putCell(int columnIndex, byte tag, CellStyle style) {
+		int position = cellCount * CELL_BYTES;
+		if (position + CELL_BYTES > cells.capacity()) {
+			cells = grow(cells, position, position + CELL_BYTES);
+		}
+		cells.putInt(position, columnIndex);
+		cells.put(position + 4, tag);
+		cells.putShort(position + 6, style == null ? 0 : style.getIndex());
+		cellCount++;
+		return position;
+	}
+
+	/**
+	 * Escapes like SXSSF, characters not allowed in xml are replaced by '?'
+	 */
+	private void putEscapedChar(char c) {
+		switch (c) {
+			case '<':
+				putAscii("&lt;");
+				return;
+			case '>':
+				putAscii("&gt;");
+				return;
+			case '&':
+				putAscii("&amp;");
+				return;
+			case '"':
+				putAscii("&quot;");
+				return;
+			case '\n':
+				putAscii("&#xa;");
+				return;
+			case '\r':
+				putAscii("&#xd;");
+				return;
+			case '\t':
+				putAscii("&#x9;");
+				return;
+			case '\u00a0':
+				putAscii("&#xa0;");
+				return;
+			default:
+				if (c < ' ' || c >= '\ufffe' || Character.isSurrogate(c)) {
+					putByte((byte) '?');
+					return;
+				}
+				putCodePoint(c);
+		}
+	}
+
+	private void putCodePoint(int codePoint) {
+		if (codePoint < 0x80) {
+			putByte((byte) codePoint);
+		} else if (codePoint < 0x800) {
+			putByte((byte) (0xC0 | (codePoint >> 6)));
+			putByte((byte) (0x80 | (codePoint & 0x3F)));
+		} else if (codePoint < 0x10000) {
+			putByte((byte) (0xE0 | (codePoint >> 12)));
+			putByte((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+			putByte((byte) (0x80 | (codePoint & 0x3F)));
+		} else {
+			putByte((byte) (0xF0 | (codePoint >> 18)));
+			putByte((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+			putByte((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+			putByte((byte) (0x80 | (codePoint & 0x3F)));
+		}
+	}
+
+	private void putAscii(String value) {
+		for (int i = 0; i < value.length(); i++) {
+			putByte((byte) value.charAt(i));
+		}
+	}
+
+	private void putByte(byte b) {
+		if (arenaSize == arena.capacity()) {
+			arena = grow(arena, arenaSize, arenaSize + 1);
+			arenaReader = arena.duplicate();
+		}
+		arena.put(arenaSize++, b);
+	}
+
+	private static ByteBuffer grow(ByteBuffer buffer, int size, int required) {
+		int capacity = buffer.capacity();
+		while (capacity < required) {
+			capacity *= 2;
+		}
+		ByteBuffer grown = ByteBuffer.allocate(capacity);
+		ByteBuffer used = buffer.duplicate();
+		used.position(0);
+		used.limit(size);
+		grown.put(used);
+		grown.clear();
+		return grown;
+	}
+
+	private byte[] styleBytes(short styleIndex) {
+		int index = styleIndex & 0xFFFF;
+		if (index >= styles.length) {
+			styles = Arrays.copyOf(styles, Math.max(index + 1, styles.length * 2));
+		}
+		if (styles[index] == null) {
+			styles[index] = ascii(String.valueOf(index));
+		}
+		return styles[index];
+	}
+
+	private void writeDouble(double value) throws IOException {
+		if (value == Math.rint(value) && Math.abs(value) < MAX_PLAIN_INTEGRAL
+				&& Double.doubleToRawLongBits(value) != NEGATIVE_ZERO_BITS) {
+			long integral = (long) value;
+			if (integral < 0) {
+				writeByte((byte) '-');
+				integral = -integral;
+			}
+			writeInt((int) integral);
+			writeBytes(ZERO_FRACTION);
+			return;
+		}
+		String text = Double.toString(value);
+		for (int i = 0; i < text.length(); i++) {
+			writeByte((byte) text.charAt(i));
+		}
+	}
+
+	private void writeInt(int value) throws IOException {
+		if (outputSize + 10 > output.length) {
+			flushOutput();
+		}
+		int digits = 1;
+		for (int rest = value; rest >= 10; rest /= 10) {
+			digits++;
+		}
+		for (int i = outputSize + digits - 1; i >= outputSize; i--) {
+			output[i] = (byte) ('0' + value % 10);
+			value /= 10;
+		}
+		outputSize += digits;
+	}
+
+	private void writeArena(int offset, int length) throws IOException {
+		while (length > 0) {
+			if (outputSize == output.length) {
+				flushOutput();
+			}
+			int copied = Math.min(length, output.length - outputSize);
+			arenaReader.position(offset);
+			arenaReader.get(output, outputSize, copied);
+			outputSize += copied;
+			offset += copied;
+			length -= copied;
+		}
+	}
+
+	private void writeBytes(byte[] bytes) throws IOException {
+		if (outputSize + bytes.length > output.length) {
+			flushOutput();
+		}
+		System.arraycopy(bytes, 0, output, outputSize, bytes.length);
+		outputSize += bytes.length;
+	}
+
+	private void writeByte(byte b) throws IOException {
+		if (outputSize == output.length) {
+			flushOutput();
+		}
+		output[outputSize++] = b;
+	}
+
+	private void flushOutput() throws IOException {
+		stream.write(output, 0, outputSize);
+		outputSize = 0;
+	}
+
+	private static byte[] ascii(String value) {
+		return value.getBytes(StandardCharsets.US_ASCII);
+	}
+
+}
@@ -0,0 +1,76 @@
+package com.okdori.excel.compact;
+
+import com.okdori.excel.jfr.ExcelEvent;
+import com.okdori.excel.jfr.ExcelEvents;
+import com.okdori.excel.pipeline.SheetFinalizer;
+import org.apache.poi.ss.usermodel.Sheet;
+
+import java.util.function.Supplier;
+
+/**
+ * MaxLengthSheetFinalizer
+ *
+ * Widens columns to the longest value written to them, counted in characters instead of font metrics
+ */
+public final class MaxLengthSheetFinalizer implements SheetFinalizer {
+
+	private static final int MAX_COLUMN_WIDTH = 255 * 256;
+	private static final int EXTRA_WIDTH = 1024;
+	// Double.toString writes integral values below it without exponent
+	private static final double MAX_PLAIN_INTEGRAL = 1e7;
+	private static final int MAX_NUMBER_LENGTH = 12;
+
+	private final Supplier<Sheet> sheet;
+	private final int columnStartIndex;
+	private final int[] maxLengths;
+
+	public MaxLengthSheetFinalizer(Supplier<Sheet> sheet, int columnStartIndex, int columnCount) {
+		this.sheet = sheet;
+		this.columnStartIndex = columnStartIndex;
+		this.maxLengths = new int[columnCount];
+	}
+
+	@Override
+	public void onNumber(int columnIndex, double value) {
+		updateLength(columnIndex, numberLength(value));
+	}
+
+	@Override
+	public void onString(int columnIndex, String value) {
+		updateLength(columnIndex, value.length());
+	}
+
+	@Override
+	public void finish() {
+		Sheet currentSheet = sheet.get();
+		ExcelEvent event = ExcelEvents.widthFitting(currentSheet.getSheetName());
+		long start = System.nanoTime();
+		for (int i = 0; i < maxLengths.length; i++) {
+			int columnIndex = columnStartIndex + i;
+			int width = Math.min(MAX_COLUMN_WIDTH, (maxLengths[i] + 2) * 256 + EXTRA_WIDTH);
+			currentSheet.setColumnWidth(columnIndex, Math.max(currentSheet.getColumnWidth(columnIndex), width));
+		}
+		event.setColumnCount(maxLengths.length);
+		event.setFittingNanos(System.nanoTime() - start);
+		event.commit();
+	}
+
+	private void updateLength(int columnIndex, int length) {
+		if (length > maxLengths[columnIndex]) {
+			maxLengths[columnIndex] = length;
+		}
+	}
+
+	private static int numberLength(double value) {
+		if (value == Math.rint(value) && Math.abs(value) < MAX_PLAIN_INTEGRAL) {
+			long integral = (long) value;
+			int length = integral < 0 ? 2 : 1;
+			for (long rest = Math.abs(integral); rest >= 10; rest /= 10) {
+				length++;
+			}
+			return length;
+		}
+		return MAX_NUMBER_LENGTH;
+	}
+
+}
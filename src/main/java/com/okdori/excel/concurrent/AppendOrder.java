@@ -0,0 +1,20 @@
+package com.okdori.excel.concurrent;
+
+/**
+ * AppendOrder
+ *
+ * Order of rows appended by producers of {@link ConcurrentExcelAppender}
+ */
+public enum AppendOrder {
+
+	/**
+	 * Rows of one append call are contiguous, and calls are rendered in order they are accepted
+	 */
+	ARRIVAL,
+
+	/**
+	 * Rows of a producer are buffered and rendered as contiguous blocks of blockSize rows
+	 */
+	PRODUCER_BLOCKS
+
+}
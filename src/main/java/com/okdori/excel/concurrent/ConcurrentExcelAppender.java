@@ -0,0 +1,208 @@
+package com.okdori.excel.concurrent;
+
+import com.okdori.excel.ExcelFile;
+import com.okdori.exception.ExcelInternalException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * ConcurrentExcelAppender
+ *
+ * - lets several threads append rows into one {@link ExcelFile}
+ * - rows are handed off through a lock-free queue, and one thread at a time drains it into the file,
+ *   so sheet rollover of {@link com.okdori.excel.multiplesheet.MultiSheetExcelFile} is done by a single writer
+ * - the drain is done by an appending thread, no thread is owned by the appender
+ * - producers wait for the writer when more than maxPendingRows rows are queued
+ *
+ * Appended lists are not copied, and must not be modified after they are appended
+ */
+public final class ConcurrentExcelAppender<T> {
+
+	private static final int DEFAULT_BLOCK_SIZE = 256;
+	private static final int DEFAULT_MAX_PENDING_ROWS = 100_000;
+
+	private final ExcelFile<T> excelFile;
+	private final AppendOrder order;
+	private final int blockSize;
+	private final int maxPendingRows;
+	private final Queue<List<T>> queue = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger pendingRows = new AtomicInteger();
+	private final ReentrantLock writerLock = new ReentrantLock();
+	// appends hold read lock while rows are queued, write holds write lock while it closes the appender
+	private final ReentrantReadWriteLock closeLock = new ReentrantReadWriteLock();
+	private volatile RuntimeException failure;
+	private boolean closed;
+
+	public ConcurrentExcelAppender(ExcelFile<T> excelFile) {
+		this(excelFile, AppendOrder.ARRIVAL, DEFAULT_BLOCK_SIZE, DEFAULT_MAX_PENDING_ROWS);
+	}
+
+	/**
+	 * @param order Order of rows appended by producers
+	 * @param blockSize Rows of a block of producer, used by {@link AppendOrder#PRODUCER_BLOCKS}
+	 * @param maxPendingRows Rows queued before producers wait for the writer
+	 */
+	public ConcurrentExcelAppender(ExcelFile<T> excelFile, AppendOrder order, int blockSize, int maxPendingRows) {
+		if (blockSize < 1 || maxPendingRows < 1) {
+			throw new IllegalArgumentException(String.format(
+					"blockSize and maxPendingRows must be positive, but %s and %s", blockSize, maxPendingRows));
+		}
+		this.excelFile = excelFile;
+		this.order = order;
+		this.blockSize = blockSize;
+		this.maxPendingRows = maxPendingRows;
+	}
+
+	/**
+	 * Producer of one thread. Producers are not thread-safe, create one per producing thread
+	 */
+	public Producer newProducer() {
+		return new Producer();
+	}
+
+	/**
+	 * Appends rows in arrival order, rows of the list are rendered contiguously
+	 * @throws IllegalStateException if writing the file has started
+	 */
+	public void append(List<T> rows) {
+		if (rows.isEmpty()) {
+			return;
+		}
+		int pending;
+		closeLock.readLock().lock();
+		try {
+			checkOpen();
+			queue.add(rows);
+			pending = pendingRows.addAndGet(rows.size());
+		} finally {
+			closeLock.readLock().unlock();
+		}
+		drain(pending > maxPendingRows);
+	}
+
+	/**
+	 * Renders all appended rows and writes the file. Producers must be flushed before,
+	 * rows appended after writing starts are rejected
+	 */
+	public void write(OutputStream stream) throws IOException {
+		closeLock.writeLock().lock();
+		try {
+			checkOpen();
+			closed = true;
+		} finally {
+			closeLock.writeLock().unlock();
+		}
+		drain(true);
+		checkFailure();
+		excelFile.write(stream);
+	}
+
+	/**
+	 * Rows appended but not rendered yet
+	 */
+	public int getPendingRows() {
+		return pendingRows.get();
+	}
+
+	/**
+	 * Drains queue into the file. Whoever fails to take the lock leaves rows to the current writer,
+	 * and the writer checks queue again after unlock, so no rows are left behind
+	 */
+	private void drain(boolean wait) {
+		do {
+			if (wait) {
+				writerLock.lock();
+			} else if (!writerLock.tryLock()) {
+				return;
+			}
+			try {
+				checkFailure();
+				List<T> rows;
+				while ((rows = queue.poll()) != null) {
+					pendingRows.addAndGet(-rows.size());
+					excelFile.addRows(rows);
+				}
+			} catch (RuntimeException e) {
+				failure = e;
+				throw e;
+			} finally {
+				writerLock.unlock();
+			}
+			wait = false;
+		} while (!queue.isEmpty());
+	}
+
+	private void checkOpen() {
+		checkFailure();
+		if (closed) {
+			throw new IllegalStateException("Rows can not be appended after the file is written");
+		}
+	}
+
+	private void checkFailure() {
+		if (failure != null) {
+			throw new ExcelInternalException("Rows can not be appended after rendering failed", failure);
+		}
+	}
+
+	/**
+	 * Appends rows of one producing thread
+	 */
+	public final class Producer implements AutoCloseable {
+
+		private List<T> block = new ArrayList<>();
+
+		private Producer() {
+
+		}
+
+		public void append(T row) {
+			if (order == AppendOrder.ARRIVAL) {
+				ConcurrentExcelAppender.this.append(Collections.singletonList(row));
+				return;
+			}
+			block.add(row);
+			if (block.size() == blockSize) {
+				flush();
+			}
+		}
+
+		public void append(List<T> rows) {
+			if (order == AppendOrder.ARRIVAL) {
+				ConcurrentExcelAppender.this.append(rows);
+				return;
+			}
+			for (T row : rows) {
+				append(row);
+			}
+		}
+
+		/**
+		 * Hands off buffered rows as a block, even if the block is not full
+		 */
+		public void flush() {
+			if (block.isEmpty()) {
+				return;
+			}
+			List<T> rows = block;
+			block = new ArrayList<>(blockSize);
+			ConcurrentExcelAppender.this.append(rows);
+		}
+
+		@Override
+		public void close() {
+			flush();
+		}
+
+	}
+
+}
@@ -0,0 +1,172 @@
+package com.okdori.excel.concurrent;
+
+import com.okdori.excel.estimate.ExportMemoryEstimator;
+import com.okdori.resource.schema.ExcelSchema;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ExcelExportCoordinator
+ *
+ * - shared by concurrent exports, keeps estimated heap bytes of exports in flight under max bytes
+ * - an export which does not fit shrinks its row access window down to min window size first,
+ *   and waits in arrival order if it still does not fit
+ * - an export larger than max bytes by itself is admitted alone, so it is never blocked forever
+ *
+ * See {@link ExportMemoryEstimator} for estimation
+ */
+public final class ExcelExportCoordinator {
+
+	private static final int DEFAULT_MIN_WINDOW_SIZE = 10;
+
+	private final long maxBytes;
+	private final int minWindowSize;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition released = lock.newCondition();
+	private final Deque<Object> waiting = new ArrayDeque<>();
+	private long reservedBytes;
+	private int inFlightCount;
+
+	public ExcelExportCoordinator(long maxBytes) {
+		this(maxBytes, DEFAULT_MIN_WINDOW_SIZE);
+	}
+
+	/**
+	 * @param maxBytes Max estimated heap bytes of exports in flight
+	 * @param minWindowSize Row access window size is not shrunk under this
+	 */
+	public ExcelExportCoordinator(long maxBytes, int minWindowSize) {
+		if (maxBytes <= 0 || minWindowSize < 1) {
+			throw new IllegalArgumentException(String.format(
+					"maxBytes and minWindowSize must be positive, but %s and %s", maxBytes, minWindowSize));
+		}
+		this.maxBytes = maxBytes;
+		this.minWindowSize = minWindowSize;
+	}
+
+	/**
+	 * Waits until estimated bytes of export fit in the budget
+	 * @param windowSize Preferred row access window size, can be shrunk
+	 */
+	public <T> Admission admit(ExcelSchema<T> schema, List<T> data, int windowSize) throws InterruptedException {
+		long fixedBytes = ExportMemoryEstimator.estimateFixedBytes(schema, data);
+		long windowRowBytes = ExportMemoryEstimator.estimateWindowRowBytes(schema, data);
+		int minWindow = Math.min(minWindowSize, windowSize);
+
+		Object ticket = new Object();
+		lock.lock();
+		try {
+			waiting.addLast(ticket);
+			try {
+				while (true) {
+					if (waiting.peekFirst() == ticket) {
+						long available = maxBytes - reservedBytes;
+						long windowBytes = available - fixedBytes;
+						if (windowBytes >= windowRowBytes * minWindow || inFlightCount == 0) {
+							int admittedWindow = (int) Math.max(minWindow, Math.min(windowSize, windowBytes / windowRowBytes));
+							long bytes = fixedBytes + windowRowBytes * admittedWindow;
+							reservedBytes += bytes;
+							inFlightCount++;
+							return new Admission(bytes, admittedWindow);
+						}
+					}
+					released.await();
+				}
+			} finally {
+				waiting.remove(ticket);
+				released.signalAll();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void release(long bytes) {
+		lock.lock();
+		try {
+			reservedBytes -= bytes;
+			inFlightCount--;
+			released.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	/**
+	 * Estimated bytes of exports in flight
+	 */
+	public long getReservedBytes() {
+		lock.lock();
+		try {
+			return reservedBytes;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int getInFlightCount() {
+		lock.lock();
+		try {
+			return inFlightCount;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Exports waiting for admission
+	 */
+	public int getQueueDepth() {
+		lock.lock();
+		try {
+			return waiting.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Admitted export. Reserved bytes are released when it is closed
+	 */
+	public final class Admission implements AutoCloseable {
+
+		private final long reservedBytes;
+		private final int windowSize;
+		private boolean closed;
+
+		private Admission(long reservedBytes, int windowSize) {
+			this.reservedBytes = reservedBytes;
+			this.windowSize = windowSize;
+		}
+
+		public long getReservedBytes() {
+			return reservedBytes;
+		}
+
+		/**
+		 * Row access window size the export should use
+		 */
+		public int getWindowSize() {
+			return windowSize;
+		}
+
+		@Override
+		public synchronized void close() {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			release(reservedBytes);
+		}
+
+	}
+
+}
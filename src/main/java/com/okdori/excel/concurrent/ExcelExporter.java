@@ -0,0 +1,85 @@
+package com.okdori.excel.concurrent;
+
+import com.okdori.excel.control.ExcelExportControl;
+import com.okdori.excel.multiplesheet.MultiSheetExcelFile;
+import com.okdori.excel.storage.ExcelTempStorage;
+import com.okdori.resource.DataFormatDecider;
+import com.okdori.resource.DefaultDataFormatDecider;
+import com.okdori.resource.schema.ExcelSchema;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * ExcelExporter
+ *
+ * - stateless and immutable, one instance can be shared by every request
+ * - every export is admitted by {@link ExcelExportCoordinator} before its workbook is created
+ * - rows over max rows of a sheet continue on next sheets, like {@link MultiSheetExcelFile}
+ */
+public final class ExcelExporter {
+
+	private final ExcelExportCoordinator coordinator;
+	private final ExcelTempStorage tempStorage;
+	private final DataFormatDecider dataFormatDecider;
+	private final int windowSize;
+
+	public ExcelExporter(ExcelExportCoordinator coordinator) {
+		this(coordinator, ExcelTempStorage.defaultStorage(), new DefaultDataFormatDecider(),
+				SXSSFWorkbook.DEFAULT_WINDOW_SIZE);
+	}
+
+	/**
+	 * @param windowSize Preferred row access window size, shrunk by coordinator under memory pressure
+	 */
+	public ExcelExporter(ExcelExportCoordinator coordinator, ExcelTempStorage tempStorage,
+						 DataFormatDecider dataFormatDecider, int windowSize) {
+		if (windowSize < 1) {
+			throw new IllegalArgumentException(String.format("Wrong windowSize %s", windowSize));
+		}
+		this.coordinator = coordinator;
+		this.tempStorage = tempStorage;
+		this.dataFormatDecider = dataFormatDecider;
+		this.windowSize = windowSize;
+	}
+
+	public <T> void export(List<T> data, Class<T> type, OutputStream stream) throws IOException {
+		export(data, ExcelSchema.of(type), stream);
+	}
+
+	/**
+	 * Waits for admission, renders data and writes it to stream. Stream is closed after written
+	 */
+	public <T> void export(List<T> data, ExcelSchema<T> schema, OutputStream stream) throws IOException {
+		export(data, schema, stream, ExcelExportControl.none());
+	}
+
+	/**
+	 * Waits for admission, renders data under control and writes it to stream. Stream is closed after written
+	 */
+	public <T> void export(List<T> data, ExcelSchema<T> schema, OutputStream stream, ExcelExportControl exportControl)
+			throws IOException {
+		try (ExcelExportCoordinator.Admission admission = admit(schema, data);
+			 MultiSheetExcelFile<T> excelFile = new MultiSheetExcelFile<>(data, schema, dataFormatDecider,
+					 tempStorage, admission.getWindowSize(), exportControl)) {
+			excelFile.write(stream);
+		}
+	}
+
+	private <T> ExcelExportCoordinator.Admission admit(ExcelSchema<T> schema, List<T> data) throws IOException {
+		try {
+			return coordinator.admit(schema, data, windowSize);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for admission of export");
+		}
+	}
+
+	public ExcelExportCoordinator getCoordinator() {
+		return coordinator;
+	}
+
+}
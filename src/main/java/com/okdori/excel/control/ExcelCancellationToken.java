@@ -0,0 +1,20 @@
+package com.okdori.excel.control;
+
+/**
+ * ExcelCancellationToken
+ *
+ * Cancels an export from any thread. Export stops at the next batch of rows or block of written bytes
+ */
+public final class ExcelCancellationToken {
+
+	private volatile boolean cancelled;
+
+	public void cancel() {
+		cancelled = true;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+}
@@ -0,0 +1,257 @@
+package com.okdori.excel.control;
+
+import com.okdori.exception.ExcelExportCancelledException;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ExcelExportControl
+ *
+ * Cancellation, deadline and progress of one export. Engines render rows in batches of {@link #BATCH_SIZE},
+ * checking cancellation and deadline before each batch, and check them again every {@link #CHECK_BYTES} bytes
+ * while the file is written. A cancelled export throws {@link ExcelExportCancelledException} after its temp files
+ * are deleted.
+ *
+ * Progress is reported at most once per progress interval, and once more when the file is written,
+ * so a listener costs a clock read per batch. Listener is called without a lock of control.
+ *
+ * A control can be shared by workbooks rendered in parallel for one export, such as parts of split files.
+ * Its listener is then called by their threads
+ */
+public final class ExcelExportControl {
+
+	public static final int BATCH_SIZE = 1000;
+	public static final int CHECK_BYTES = 64 * 1024;
+	private static final long DEFAULT_PROGRESS_INTERVAL_MILLIS = 500;
+	private static final ExcelExportControl NONE = new ExcelExportControl(new Builder(), false);
+
+	private final boolean enabled;
+	private final ExcelCancellationToken token;
+	private final long deadlineMillis;
+	private final ExcelProgressListener progressListener;
+	private final long progressIntervalNanos;
+	private final long estimatedTotalRows;
+
+	private final AtomicLong rowsDone = new AtomicLong();
+	private final AtomicLong bytesWritten = new AtomicLong();
+	private final AtomicLong bytesChecked = new AtomicLong();
+	private long lastReportNanos;
+
+	private ExcelExportControl(Builder builder, boolean enabled) {
+		this.enabled = enabled;
+		this.token = builder.token;
+		this.deadlineMillis = builder.deadlineMillis;
+		this.progressListener = builder.progressListener;
+		this.progressIntervalNanos = TimeUnit.MILLISECONDS.toNanos(builder.progressIntervalMillis);
+		this.estimatedTotalRows = builder.estimatedTotalRows;
+		this.lastReportNanos = System.nanoTime();
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * Control never cancelling and reporting nothing. Rows are rendered without batches
+	 */
+	public static ExcelExportControl none() {
+		return NONE;
+	}
+
+	/**
+	 * Throws if export is cancelled or its deadline has passed
+	 */
+	public void check() {
+		if (!enabled) {
+			return;
+		}
+		if (token != null && token.isCancelled()) {
+			throw new ExcelExportCancelledException(String.format("Export is cancelled after %s rows", rowsDone.get()));
+		}
+		if (deadlineMillis != Long.MAX_VALUE && System.currentTimeMillis() > deadlineMillis) {
+			throw new ExcelExportCancelledException(String.format("Export passed its deadline after %s rows", rowsDone.get()));
+		}
+	}
+
+	/**
+	 * Renders rows in batches, checking before each batch and counting rows after it
+	 * @return index of the row after rendered rows
+	 */
+	public <T> int render(List<T> rows, int rowIndex, BatchRenderer<T> renderer) {
+		if (!enabled) {
+			return renderer.render(rows, rowIndex);
+		}
+		for (int i = 0; i < rows.size(); i += BATCH_SIZE) {
+			check();
+			List<T> batch = rows.subList(i, Math.min(rows.size(), i + BATCH_SIZE));
+			rowIndex = renderer.render(batch, rowIndex);
+			onRows(batch.size());
+		}
+		return rowIndex;
+	}
+
+	/**
+	 * Counts rows rendered without {@link #render(List, int, BatchRenderer)}
+	 */
+	public void onRows(int count) {
+		if (!enabled) {
+			return;
+		}
+		rowsDone.addAndGet(count);
+		report(false);
+	}
+
+	/**
+	 * Stream counting written bytes, checking cancellation every {@link #CHECK_BYTES} bytes.
+	 * Closing it closes stream
+	 */
+	public OutputStream wrap(OutputStream stream) {
+		if (!enabled) {
+			return stream;
+		}
+		return new FilterOutputStream(stream) {
+			@Override
+			public void write(int b) throws IOException {
+				out.write(b);
+				onBytes(1);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				out.write(b, off, len);
+				onBytes(len);
+			}
+		};
+	}
+
+	/**
+	 * Reports final progress, called once the file is written
+	 */
+	public void finish() {
+		if (enabled) {
+			report(true);
+		}
+	}
+
+	public long getRowsDone() {
+		return rowsDone.get();
+	}
+
+	public long getBytesWritten() {
+		return bytesWritten.get();
+	}
+
+	private void onBytes(int count) {
+		long written = bytesWritten.addAndGet(count);
+		long checked = bytesChecked.get();
+		// only the write crossing the threshold checks, others only count
+		if (written - checked >= CHECK_BYTES && bytesChecked.compareAndSet(checked, written)) {
+			check();
+			report(false);
+		}
+	}
+
+	/**
+	 * Decides whether to report under lock, and calls listener after releasing it
+	 */
+	private void report(boolean force) {
+		if (progressListener == null) {
+			return;
+		}
+		ExcelProgress progress;
+		synchronized (this) {
+			long now = System.nanoTime();
+			if (!force && now - lastReportNanos < progressIntervalNanos) {
+				return;
+			}
+			lastReportNanos = now;
+			progress = new ExcelProgress(rowsDone.get(), estimatedTotalRows, bytesWritten.get());
+		}
+		progressListener.onProgress(progress);
+	}
+
+	/**
+	 * Renders a batch of rows from rowIndex, returning index of the row after them
+	 */
+	@FunctionalInterface
+	public interface BatchRenderer<T> {
+
+		int render(List<T> rows, int rowIndex);
+
+	}
+
+	/**
+	 * Builder of {@link ExcelExportControl}. Build one control for each export
+	 */
+	public static final class Builder {
+
+		private ExcelCancellationToken token;
+		private long deadlineMillis = Long.MAX_VALUE;
+		private ExcelProgressListener progressListener;
+		private long progressIntervalMillis = DEFAULT_PROGRESS_INTERVAL_MILLIS;
+		private long estimatedTotalRows = -1;
+
+		private Builder() {
+
+		}
+
+		public Builder token(ExcelCancellationToken token) {
+			this.token = token;
+			return this;
+		}
+
+		/**
+		 * @param deadlineMillis epoch millis after which export is cancelled
+		 */
+		public Builder deadline(long deadlineMillis) {
+			this.deadlineMillis = deadlineMillis;
+			return this;
+		}
+
+		/**
+		 * Deadline of timeout from now
+		 */
+		public Builder timeout(long timeout, TimeUnit unit) {
+			if (timeout < 0) {
+				throw new IllegalArgumentException(String.format("Wrong timeout %s", timeout));
+			}
+			this.deadlineMillis = System.currentTimeMillis() + unit.toMillis(timeout);
+			return this;
+		}
+
+		public Builder progressListener(ExcelProgressListener progressListener) {
+			this.progressListener = progressListener;
+			return this;
+		}
+
+		/**
+		 * Minimum interval between progress reports. Default is 500 millis
+		 */
+		public Builder progressInterval(long interval, TimeUnit unit) {
+			if (interval < 0) {
+				throw new IllegalArgumentException(String.format("Wrong progress interval %s", interval));
+			}
+			this.progressIntervalMillis = unit.toMillis(interval);
+			return this;
+		}
+
+		/**
+		 * Count of rows reported with progress, such as size of data. Default is -1, unknown
+		 */
+		public Builder estimatedTotalRows(long estimatedTotalRows) {
+			this.estimatedTotalRows = estimatedTotalRows;
+			return this;
+		}
+
+		public ExcelExportControl build() {
+			return new ExcelExportControl(this, true);
+		}
+
+	}
+
+}
@@ -0,0 +1,47 @@
+package com.okdori.excel.control;
+
+/**
+ * ExcelProgress
+ *
+ * Snapshot of an export reported to {@link ExcelProgressListener}
+ */
+public final class ExcelProgress {
+
+	private final long rowsDone;
+	private final long estimatedTotalRows;
+	private final long bytesWritten;
+
+	ExcelProgress(long rowsDone, long estimatedTotalRows, long bytesWritten) {
+		this.rowsDone = rowsDone;
+		this.estimatedTotalRows = estimatedTotalRows;
+		this.bytesWritten = bytesWritten;
+	}
+
+	/**
+	 * Count of body rows rendered so far
+	 */
+	public long getRowsDone() {
+		return rowsDone;
+	}
+
+	/**
+	 * Count of rows given to {@link ExcelExportControl.Builder#estimatedTotalRows(long)}, -1 if it is unknown
+	 */
+	public long getEstimatedTotalRows() {
+		return estimatedTotalRows;
+	}
+
+	/**
+	 * Bytes of the file written to output stream so far
+	 */
+	public long getBytesWritten() {
+		return bytesWritten;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("ExcelProgress(rowsDone=%s, estimatedTotalRows=%s, bytesWritten=%s)",
+				rowsDone, estimatedTotalRows, bytesWritten);
+	}
+
+}
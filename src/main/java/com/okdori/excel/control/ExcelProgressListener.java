@@ -0,0 +1,13 @@
+package com.okdori.excel.control;
+
+/**
+ * ExcelProgressListener
+ *
+ * Called on the exporting thread, so it should return quickly
+ */
+@FunctionalInterface
+public interface ExcelProgressListener {
+
+	void onProgress(ExcelProgress progress);
+
+}
@@ -0,0 +1,357 @@
+package com.okdori.excel.encrypt;
+
+import org.apache.poi.poifs.filesystem.DirectoryNode;
+import org.apache.poi.poifs.filesystem.DocumentInputStream;
+import org.apache.poi.poifs.filesystem.DocumentNode;
+import org.apache.poi.poifs.filesystem.Entry;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.util.LittleEndianOutputStream;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * CompoundFileWriter
+ *
+ * Writes OLE2 compound file (version 3, 512 bytes sectors) to a stream in one pass.
+ * Sizes of every stream are known before writing, so allocation tables are computed and written first,
+ * and contents of large streams are copied from their files after them, without holding them in memory.
+ *
+ * Sectors are written in order of header, FAT, DIFAT, directory, mini FAT, mini stream and large streams,
+ * and every stream is contiguous
+ */
+final class CompoundFileWriter {
+
+	private static final byte[] SIGNATURE = {(byte) 0xD0, (byte) 0xCF, 0x11, (byte) 0xE0, (byte) 0xA1, (byte) 0xB1, 0x1A, (byte) 0xE1};
+	private static final int SECTOR_SIZE = 512;
+	private static final int MINI_SECTOR_SIZE = 64;
+	private static final int MINI_STREAM_CUTOFF = 4096;
+	private static final int ENTRY_SIZE = 128;
+	private static final int ENTRIES_PER_SECTOR = SECTOR_SIZE / ENTRY_SIZE;
+	private static final int IDS_PER_SECTOR = SECTOR_SIZE / 4;
+	private static final int HEADER_DIFAT_SIZE = 109;
+	private static final int MAX_NAME_LENGTH = 31;
+	private static final int FREE_SECTOR = 0xFFFFFFFF;
+	private static final int END_OF_CHAIN = 0xFFFFFFFE;
+	private static final int FAT_SECTOR = 0xFFFFFFFD;
+	private static final int DIFAT_SECTOR = 0xFFFFFFFC;
+	private static final int NO_STREAM = 0xFFFFFFFF;
+	private static final byte TYPE_STORAGE = 1;
+	private static final byte TYPE_STREAM = 2;
+	private static final byte TYPE_ROOT = 5;
+	private static final byte COLOR_BLACK = 1;
+	private static final Comparator<Node> NAME_ORDER = Comparator.<Node>comparingInt(node -> node.name.length())
+			.thenComparing(node -> node.name.toUpperCase());
+
+	private final Node root = new Node("Root Entry", TYPE_ROOT);
+
+	/**
+	 * Adds storages and streams under directory of POIFS to root, such as entries of data spaces
+	 */
+	void addEntries(DirectoryNode directory) throws IOException {
+		addEntries(root, directory);
+	}
+
+	/**
+	 * Adds stream to root, of which content is prefix followed by content of file
+	 */
+	void addStream(String name, byte[] prefix, File file) {
+		root.children.add(Node.stream(name, prefix, file));
+	}
+
+	void write(OutputStream stream) throws IOException {
+		List<Node> nodes = new ArrayList<>();
+		index(root, nodes);
+		link(root);
+
+		List<Node> miniStreams = new ArrayList<>();
+		List<Node> largeStreams = new ArrayList<>();
+		long miniSectors = 0;
+		long largeSectors = 0;
+		for (Node node : nodes) {
+			if (node.type != TYPE_STREAM) {
+				continue;
+			}
+			if (node.size < MINI_STREAM_CUTOFF) {
+				node.startSector = (int) miniSectors;
+				miniSectors += sectors(node.size, MINI_SECTOR_SIZE);
+				miniStreams.add(node);
+			} else {
+				largeSectors += sectors(node.size, SECTOR_SIZE);
+				largeStreams.add(node);
+			}
+		}
+
+		Layout layout = new Layout(sectors(nodes.size(), ENTRIES_PER_SECTOR), sectors(miniSectors, IDS_PER_SECTOR),
+				sectors(miniSectors * MINI_SECTOR_SIZE, SECTOR_SIZE), largeSectors);
+		long sector = layout.largeStreamStart;
+		for (Node node : largeStreams) {
+			node.startSector = (int) sector;
+			sector += sectors(node.size, SECTOR_SIZE);
+		}
+		root.size = miniSectors * MINI_SECTOR_SIZE;
+		root.startSector = root.size == 0 ? END_OF_CHAIN : (int) layout.miniStreamStart;
+
+		LittleEndianOutputStream out = new LittleEndianOutputStream(new BufferedOutputStream(stream, 64 * 1024));
+		writeHeader(out, layout);
+		writeAllocationTables(out, layout, largeStreams);
+		for (Node node : nodes) {
+			writeEntry(out, node);
+		}
+		for (long i = nodes.size(); i < layout.directorySectors * ENTRIES_PER_SECTOR; i++) {
+			writeEmptyEntry(out);
+		}
+		for (Node node : miniStreams) {
+			writeChain(out, node.startSector, sectors(node.size, MINI_SECTOR_SIZE));
+		}
+		fill(out, layout.miniFatSectors * IDS_PER_SECTOR - miniSectors, FREE_SECTOR);
+		for (Node node : miniStreams) {
+			writeContent(out, node, MINI_SECTOR_SIZE);
+		}
+		pad(out, root.size, SECTOR_SIZE);
+		for (Node node : largeStreams) {
+			writeContent(out, node, SECTOR_SIZE);
+		}
+		out.flush();
+	}
+
+	private void writeHeader(LittleEndianOutputStream out, Layout layout) throws IOException {
+		out.write(SIGNATURE);
+		out.write(new byte[16]);
+		out.writeShort(0x003E);
+		out.writeShort(0x0003);
+		out.writeShort(0xFFFE);
+		out.writeShort(9);
+		out.writeShort(6);
+		out.write(new byte[6]);
+		out.writeInt(0);
+		out.writeInt((int) layout.fatSectors);
+		out.writeInt((int) layout.directoryStart);
+		out.writeInt(0);
+		out.writeInt(MINI_STREAM_CUTOFF);
+		out.writeInt(layout.miniFatSectors == 0 ? END_OF_CHAIN : (int) layout.miniFatStart);
+		out.writeInt((int) layout.miniFatSectors);
+		out.writeInt(layout.difatSectors == 0 ? END_OF_CHAIN : (int) layout.difatStart);
+		out.writeInt((int) layout.difatSectors);
+		for (int i = 0; i < HEADER_DIFAT_SIZE; i++) {
+			out.writeInt(i < layout.fatSectors ? i : FREE_SECTOR);
+		}
+	}
+
+	/**
+	 * Writes FAT, then DIFAT listing FAT sectors not listed by header
+	 */
+	private void writeAllocationTables(LittleEndianOutputStream out, Layout layout, List<Node> largeStreams) throws IOException {
+		fill(out, layout.fatSectors, FAT_SECTOR);
+		fill(out, layout.difatSectors, DIFAT_SECTOR);
+		writeChain(out, layout.directoryStart, layout.directorySectors);
+		writeChain(out, layout.miniFatStart, layout.miniFatSectors);
+		writeChain(out, layout.miniStreamStart, layout.miniStreamSectors);
+		for (Node node : largeStreams) {
+			writeChain(out, node.startSector, sectors(node.size, SECTOR_SIZE));
+		}
+		fill(out, layout.fatSectors * IDS_PER_SECTOR - layout.usedSectors, FREE_SECTOR);
+
+		for (long i = 0; i < layout.difatSectors; i++) {
+			for (int j = 0; j < IDS_PER_SECTOR - 1; j++) {
+				long fatSector = HEADER_DIFAT_SIZE + i * (IDS_PER_SECTOR - 1) + j;
+				out.writeInt(fatSector < layout.fatSectors ? (int) fatSector : FREE_SECTOR);
+			}
+			out.writeInt(i == layout.difatSectors - 1 ? END_OF_CHAIN : (int) (layout.difatStart + i + 1));
+		}
+	}
+
+	private static void writeEntry(LittleEndianOutputStream out, Node node) throws IOException {
+		byte[] name = new byte[64];
+		byte[] chars = node.name.getBytes(StandardCharsets.UTF_16LE);
+		System.arraycopy(chars, 0, name, 0, chars.length);
+		out.write(name);
+		out.writeShort(chars.length + 2);
+		out.writeByte(node.type);
+		out.writeByte(COLOR_BLACK);
+		out.writeInt(node.left);
+		out.writeInt(node.right);
+		out.writeInt(node.child);
+		out.write(new byte[16]);
+		out.writeInt(0);
+		out.writeLong(0);
+		out.writeLong(0);
+		out.writeInt(node.type == TYPE_STORAGE ? 0 : node.startSector);
+		out.writeLong(node.size);
+	}
+
+	private static void writeEmptyEntry(LittleEndianOutputStream out) throws IOException {
+		out.write(new byte[64]);
+		out.writeShort(0);
+		out.writeByte(0);
+		out.writeByte(0);
+		out.writeInt(NO_STREAM);
+		out.writeInt(NO_STREAM);
+		out.writeInt(NO_STREAM);
+		out.write(new byte[40]);
+		out.writeLong(0);
+	}
+
+	private static void writeContent(LittleEndianOutputStream out, Node node, int sectorSize) throws IOException {
+		out.write(node.prefix);
+		if (node.file != null) {
+			try (InputStream file = new FileInputStream(node.file)) {
+				IOUtils.copy(file, out);
+			}
+		}
+		pad(out, node.size, sectorSize);
+	}
+
+	private static void writeChain(LittleEndianOutputStream out, long start, long count) {
+		for (long i = 1; i <= count; i++) {
+			out.writeInt(i == count ? END_OF_CHAIN : (int) (start + i));
+		}
+	}
+
+	private static void fill(LittleEndianOutputStream out, long count, int value) {
+		for (long i = 0; i < count; i++) {
+			out.writeInt(value);
+		}
+	}
+
+	private static void pad(OutputStream out, long size, int sectorSize) throws IOException {
+		long padding = sectors(size, sectorSize) * sectorSize - size;
+		for (long i = 0; i < padding; i++) {
+			out.write(0);
+		}
+	}
+
+	private static long sectors(long size, int sectorSize) {
+		return (size + sectorSize - 1) / sectorSize;
+	}
+
+	private static void addEntries(Node storage, DirectoryNode directory) throws IOException {
+		for (Entry entry : directory) {
+			if (entry instanceof DirectoryNode) {
+				Node child = new Node(entry.getName(), TYPE_STORAGE);
+				addEntries(child, (DirectoryNode) entry);
+				storage.children.add(child);
+			} else if (entry instanceof DocumentNode) {
+				try (DocumentInputStream stream = directory.createDocumentInputStream(entry)) {
+					storage.children.add(Node.stream(entry.getName(), IOUtils.toByteArray(stream), null));
+				}
+			}
+		}
+	}
+
+	private static void index(Node node, List<Node> nodes) {
+		node.index = nodes.size();
+		nodes.add(node);
+		for (Node child : node.children) {
+			index(child, nodes);
+		}
+	}
+
+	/**
+	 * Links children of each storage as a balanced tree in order of name
+	 */
+	private static void link(Node storage) {
+		List<Node> children = new ArrayList<>(storage.children);
+		children.sort(NAME_ORDER);
+		storage.child = link(children, 0, children.size());
+		for (Node child : children) {
+			link(child);
+		}
+	}
+
+	private static int link(List<Node> children, int from, int to) {
+		if (from >= to) {
+			return NO_STREAM;
+		}
+		int middle = (from + to) >>> 1;
+		Node node = children.get(middle);
+		node.left = link(children, from, middle);
+		node.right = link(children, middle + 1, to);
+		return node.index;
+	}
+
+	/**
+	 * Count and first sector of each part of file
+	 */
+	private static final class Layout {
+
+		private final long fatSectors;
+		private final long difatSectors;
+		private final long difatStart;
+		private final long directorySectors;
+		private final long directoryStart;
+		private final long miniFatSectors;
+		private final long miniFatStart;
+		private final long miniStreamSectors;
+		private final long miniStreamStart;
+		private final long largeStreamStart;
+		private final long usedSectors;
+
+		private Layout(long directorySectors, long miniFatSectors, long miniStreamSectors, long largeSectors) {
+			long contentSectors = directorySectors + miniFatSectors + miniStreamSectors + largeSectors;
+			long fat = sectors(contentSectors, IDS_PER_SECTOR);
+			long difat;
+			// FAT also allocates sectors of FAT and DIFAT themselves
+			while (true) {
+				difat = fat <= HEADER_DIFAT_SIZE ? 0 : sectors(fat - HEADER_DIFAT_SIZE, IDS_PER_SECTOR - 1);
+				if (fat * IDS_PER_SECTOR >= contentSectors + fat + difat) {
+					break;
+				}
+				fat++;
+			}
+			this.fatSectors = fat;
+			this.difatSectors = difat;
+			this.difatStart = fat;
+			this.directorySectors = directorySectors;
+			this.directoryStart = difatStart + difat;
+			this.miniFatSectors = miniFatSectors;
+			this.miniFatStart = directoryStart + directorySectors;
+			this.miniStreamSectors = miniStreamSectors;
+			this.miniStreamStart = miniFatStart + miniFatSectors;
+			this.largeStreamStart = miniStreamStart + miniStreamSectors;
+			this.usedSectors = largeStreamStart + largeSectors;
+		}
+
+	}
+
+	private static final class Node {
+
+		private final String name;
+		private final byte type;
+		private final List<Node> children = new ArrayList<>();
+		private byte[] prefix = new byte[0];
+		private File file;
+		private long size;
+		private int index;
+		private int left = NO_STREAM;
+		private int right = NO_STREAM;
+		private int child = NO_STREAM;
+		private int startSector;
+
+		private Node(String name, byte type) {
+			if (name.length() > MAX_NAME_LENGTH) {
+				throw new IllegalArgumentException(String.format("Name of entry %s is over %s characters", name, MAX_NAME_LENGTH));
+			}
+			this.name = name;
+			this.type = type;
+		}
+
+		private static Node stream(String name, byte[] prefix, File file) {
+			Node node = new Node(name, TYPE_STREAM);
+			node.prefix = prefix;
+			node.file = file;
+			node.size = prefix.length + (file == null ? 0 : file.length());
+			return node;
+		}
+
+	}
+
+}
@@ -0,0 +1,131 @@
+package com.okdori.excel.encrypt;
+
+import com.okdori.excel.ExcelFile;
+import com.okdori.excel.cache.ExcelRenderer;
+import com.okdori.excel.storage.ExcelTempFile;
+import com.okdori.excel.storage.ExcelTempStorage;
+import com.okdori.exception.ExcelInternalException;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.util.LittleEndian;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.GeneralSecurityException;
+
+/**
+ * ExcelEncryptor
+ *
+ * Writes password protected xlsx with agile encryption, without holding the workbook in memory.
+ * - workbook is encrypted by segments of 4096 bytes while it is written, into one temp file of storage,
+ *   charged to limits of storage like temp files of sheets
+ * - integrity of encrypted package is calculated from the temp file
+ * - compound file is written to stream in one pass, copying encrypted package from the temp file
+ *
+ * Encrypting with POI directly writes the workbook to memory or a temp file and copies it into a POIFS in memory,
+ * so memory grows with the file. Encrypted package should be under 2GB, like POI
+ */
+public final class ExcelEncryptor {
+
+	private final String password;
+	private final ExcelTempStorage storage;
+
+	public ExcelEncryptor(String password) {
+		this(password, ExcelTempStorage.defaultStorage());
+	}
+
+	/**
+	 * @param storage Directory and limits of storage are used for temp file of encrypted package
+	 */
+	public ExcelEncryptor(String password, ExcelTempStorage storage) {
+		if (password == null || password.isEmpty()) {
+			throw new IllegalArgumentException("Password of encryption is empty");
+		}
+		this.password = password;
+		this.storage = storage;
+	}
+
+	/**
+	 * Writes file encrypted to stream. Stream is closed after written
+	 */
+	public void write(ExcelFile<?> excelFile, OutputStream stream) throws IOException {
+		write((ExcelRenderer) excelFile::write, stream);
+	}
+
+	/**
+	 * Writes workbook, such as one generated by ExcelGenerator, encrypted to stream. Stream is closed after written
+	 */
+	public void write(Workbook workbook, OutputStream stream) throws IOException {
+		write((ExcelRenderer) workbook::write, stream);
+	}
+
+	/**
+	 * Writes workbook rendered by renderer encrypted to stream. Stream is closed after written
+	 */
+	public void write(ExcelRenderer renderer, OutputStream stream) throws IOException {
+		try (ExcelTempFile segments = ExcelTempFile.create(storage, "excel-encrypted")) {
+			StreamingAgileEncryptor encryptor = StreamingAgileEncryptor.create(password);
+			CountingOutputStream packageStream = new CountingOutputStream(
+					encryptor.getDataStream(segments.openStream(), 0));
+			try {
+				renderer.render(packageStream);
+			} finally {
+				packageStream.close();
+			}
+			if (packageStream.count > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException(String.format("Workbook of %s bytes is over 2GB, can not be encrypted",
+						packageStream.count));
+			}
+
+			try (POIFSFileSystem entries = new POIFSFileSystem()) {
+				encryptor.writeEntries(entries.getRoot(), segments.getFile(), (int) packageStream.count);
+				byte[] packageSize = new byte[8];
+				LittleEndian.putLong(packageSize, 0, packageStream.count);
+				CompoundFileWriter writer = new CompoundFileWriter();
+				writer.addEntries(entries.getRoot());
+				writer.addStream(StreamingAgileEncryptor.ENCRYPTED_PACKAGE_ENTRY, packageSize, segments.getFile());
+				writer.write(stream);
+			}
+		} catch (GeneralSecurityException e) {
+			throw new ExcelInternalException(e.getMessage(), e);
+		} finally {
+			stream.close();
+		}
+	}
+
+	/**
+	 * Counts bytes of package. Closing it twice closes encrypting stream once, as files close their stream
+	 */
+	private static final class CountingOutputStream extends FilterOutputStream {
+
+		private long count;
+		private boolean closed;
+
+		private CountingOutputStream(OutputStream stream) {
+			super(stream);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (!closed) {
+				closed = true;
+				out.close();
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,112 @@
+package com.okdori.excel.encrypt;
+
+import org.apache.poi.poifs.crypt.ChunkedCipherOutputStream;
+import org.apache.poi.poifs.crypt.CryptoFunctions;
+import org.apache.poi.poifs.crypt.DataSpaceMapUtils;
+import org.apache.poi.poifs.crypt.EncryptionHeader;
+import org.apache.poi.poifs.crypt.EncryptionInfo;
+import org.apache.poi.poifs.crypt.EncryptionMode;
+import org.apache.poi.poifs.crypt.agile.AgileEncryptor;
+import org.apache.poi.poifs.filesystem.DirectoryNode;
+import org.apache.poi.util.LittleEndian;
+import org.apache.poi.util.LittleEndianByteArrayOutputStream;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.GeneralSecurityException;
+
+/**
+ * StreamingAgileEncryptor
+ *
+ * Agile encryptor writing encrypted segments of package straight to a stream, instead of a POIFS document.
+ * Integrity of the package is calculated from the written segments afterwards, as POI does from its temp file
+ */
+final class StreamingAgileEncryptor extends AgileEncryptor {
+
+	static final String ENCRYPTION_INFO_ENTRY = "EncryptionInfo";
+	static final String ENCRYPTED_PACKAGE_ENTRY = DEFAULT_POIFS_ENTRY;
+	private static final int SEGMENT_SIZE = 4096;
+
+	private StreamingAgileEncryptor() {
+
+	}
+
+	static StreamingAgileEncryptor create(String password) {
+		EncryptionInfo info = new EncryptionInfo(EncryptionMode.agile);
+		StreamingAgileEncryptor encryptor = new StreamingAgileEncryptor();
+		encryptor.setEncryptionInfo(info);
+		info.setEncryptor(encryptor);
+		encryptor.confirmPassword(password);
+		return encryptor;
+	}
+
+	/**
+	 * Stream encrypting package to stream by segments of 4096 bytes, without size of package before them
+	 */
+	@Override
+	public ChunkedCipherOutputStream getDataStream(OutputStream stream, int initialOffset)
+			throws IOException, GeneralSecurityException {
+		return new SegmentOutputStream(stream);
+	}
+
+	/**
+	 * Calculates integrity of encrypted segments, and adds EncryptionInfo and data spaces entries to directory
+	 * @param segments encrypted segments written by {@link #getDataStream(OutputStream, int)}
+	 * @param packageSize bytes of package before it was encrypted
+	 */
+	void writeEntries(DirectoryNode directory, File segments, int packageSize) throws IOException, GeneralSecurityException {
+		updateIntegrityHMAC(segments, packageSize);
+		DataSpaceMapUtils.addDefaultDataSpace(directory);
+		DataSpaceMapUtils.createEncryptionEntry(directory, ENCRYPTION_INFO_ENTRY, this::writeEncryptionInfo);
+	}
+
+	private void writeEncryptionInfo(LittleEndianByteArrayOutputStream stream) {
+		EncryptionInfo info = getEncryptionInfo();
+		stream.writeShort(info.getVersionMajor());
+		stream.writeShort(info.getVersionMinor());
+		stream.writeInt(info.getEncryptionFlags());
+		marshallEncryptionDocument(createEncryptionDocument(), stream);
+	}
+
+	private final class SegmentOutputStream extends ChunkedCipherOutputStream {
+
+		private SegmentOutputStream(OutputStream stream) throws IOException, GeneralSecurityException {
+			super(stream, SEGMENT_SIZE);
+		}
+
+		/**
+		 * Cipher of segment, initialized by salt of key and index of segment like AgileDecryptor does
+		 */
+		@Override
+		protected Cipher initCipherForBlock(Cipher existing, int block, boolean lastChunk) throws GeneralSecurityException {
+			EncryptionHeader header = getEncryptionInfo().getHeader();
+			String padding = lastChunk ? "PKCS5Padding" : "NoPadding";
+			Cipher cipher = existing;
+			if (cipher == null || !cipher.getAlgorithm().endsWith(padding)) {
+				cipher = CryptoFunctions.getCipher(getSecretKey(), header.getCipherAlgorithm(), header.getChainingMode(),
+						header.getKeySalt(), Cipher.ENCRYPT_MODE, padding);
+			}
+			byte[] blockKey = new byte[4];
+			LittleEndian.putInt(blockKey, 0, block);
+			byte[] iv = CryptoFunctions.generateIv(header.getHashAlgorithm(), header.getKeySalt(), blockKey,
+					header.getBlockSize());
+			cipher.init(Cipher.ENCRYPT_MODE, getSecretKey(), new IvParameterSpec(iv));
+			return cipher;
+		}
+
+		@Override
+		protected void calculateChecksum(File fileOut, int oleStreamSize) {
+			// calculated by writeEntries, after the package is written
+		}
+
+		@Override
+		protected void createEncryptionInfoEntry(DirectoryNode dir, File tmpFile) {
+			// created by writeEntries, after the package is written
+		}
+
+	}
+
+}
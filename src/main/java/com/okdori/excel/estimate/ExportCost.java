@@ -0,0 +1,62 @@
+package com.okdori.excel.estimate;
+
+/**
+ * ExportCost
+ *
+ * Predicted cost of one export by {@link ExportCostEstimator}
+ */
+public final class ExportCost {
+
+	private final long rowCount;
+	private final long sheetXmlBytes;
+	private final long fileBytes;
+	private final long peakMemoryBytes;
+	private final long renderMillis;
+
+	ExportCost(long rowCount, long sheetXmlBytes, long fileBytes, long peakMemoryBytes, long renderMillis) {
+		this.rowCount = rowCount;
+		this.sheetXmlBytes = sheetXmlBytes;
+		this.fileBytes = fileBytes;
+		this.peakMemoryBytes = peakMemoryBytes;
+		this.renderMillis = renderMillis;
+	}
+
+	public long getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * Uncompressed bytes of sheet xml, also bytes of temp files when they are not compressed
+	 */
+	public long getSheetXmlBytes() {
+		return sheetXmlBytes;
+	}
+
+	/**
+	 * Bytes of written xlsx file
+	 */
+	public long getFileBytes() {
+		return fileBytes;
+	}
+
+	/**
+	 * Heap bytes held until the file is written, see {@link ExportMemoryEstimator}
+	 */
+	public long getPeakMemoryBytes() {
+		return peakMemoryBytes;
+	}
+
+	/**
+	 * Time of rendering and writing the file on this host
+	 */
+	public long getRenderMillis() {
+		return renderMillis;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("ExportCost(rowCount=%s, sheetXmlBytes=%s, fileBytes=%s, peakMemoryBytes=%s, renderMillis=%s)",
+				rowCount, sheetXmlBytes, fileBytes, peakMemoryBytes, renderMillis);
+	}
+
+}
@@ -0,0 +1,237 @@
+package com.okdori.excel.estimate;
+
+import com.okdori.excel.ExcelFile;
+import com.okdori.excel.auto.ExcelEngine;
+import com.okdori.excel.compact.CompactOneSheetExcelFile;
+import com.okdori.excel.multiplesheet.MultiSheetExcelFile;
+import com.okdori.excel.onesheet.OneSheetExcelFile;
+import com.okdori.excel.storage.ExcelTempStorage;
+import com.okdori.exception.ExcelInternalException;
+import com.okdori.resource.DefaultDataFormatDecider;
+import com.okdori.resource.schema.ExcelSchema;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ExportCostEstimator
+ *
+ * Predicts output size, peak memory and render time of an export from its schema, expected row count
+ * and a sample of rows.
+ * - sheet xml bytes : {@link SheetXmlSizeEstimator} of sample, times row count
+ * - file bytes : sheet xml bytes, times compression ratio of the host benchmark
+ * - peak memory : {@link ExportMemoryEstimator} of row count and window size
+ * - render time : nanos of a workbook without rows, plus sheet xml bytes times nanos per xml byte of the engine
+ *
+ * {@link #calibrated()} renders a small file once by each engine to measure this host, so render time follows
+ * the host and the JIT state at calibration. Time of a workbook without rows is measured apart and subtracted,
+ * so nanos per xml byte does not include creating and writing the workbook
+ */
+public final class ExportCostEstimator {
+
+	private static final int CALIBRATION_ROWS = 1000;
+	private static final int CALIBRATION_WARM_UP_ROWS = 200;
+	// workbook without rows is rendered this many times, and the fastest is taken
+	private static final int CALIBRATION_EMPTY_RUNS = 3;
+	// content types, styles, workbook and other parts of any xlsx file
+	private static final long FILE_OVERHEAD_BYTES = 8 * 1024;
+
+	private final Map<ExcelEngine, Double> nanosPerXmlByte;
+	private final long fileNanos;
+	private final double compressionRatio;
+
+	/**
+	 * @param nanosPerXmlByte Nanos of rendering and writing one byte of sheet xml, by every engine
+	 * @param compressionRatio Bytes of written file per byte of sheet xml
+	 */
+	public ExportCostEstimator(double nanosPerXmlByte, double compressionRatio) {
+		this(sameForEveryEngine(nanosPerXmlByte), 0, compressionRatio);
+	}
+
+	/**
+	 * @param nanosPerXmlByte Nanos of rendering and writing one byte of sheet xml, by engine
+	 * @param fileNanos Nanos of creating and writing a workbook without rows
+	 * @param compressionRatio Bytes of written file per byte of sheet xml
+	 */
+	public ExportCostEstimator(Map<ExcelEngine, Double> nanosPerXmlByte, long fileNanos, double compressionRatio) {
+		for (ExcelEngine engine : ExcelEngine.values()) {
+			Double nanos = nanosPerXmlByte.get(engine);
+			if (nanos == null || !(nanos > 0)) {
+				throw new IllegalArgumentException(String.format(
+						"nanosPerXmlByte of %s must be positive, but %s", engine, nanos));
+			}
+		}
+		if (fileNanos < 0 || !(compressionRatio > 0)) {
+			throw new IllegalArgumentException(String.format(
+					"fileNanos must not be negative and compressionRatio must be positive, but %s and %s",
+					fileNanos, compressionRatio));
+		}
+		this.nanosPerXmlByte = Collections.unmodifiableMap(new EnumMap<>(nanosPerXmlByte));
+		this.fileNanos = fileNanos;
+		this.compressionRatio = compressionRatio;
+	}
+
+	/**
+	 * Estimator calibrated by {@link #calibrate()} on first call, shared afterwards
+	 */
+	public static ExportCostEstimator calibrated() {
+		return CalibratedHolder.ESTIMATOR;
+	}
+
+	/**
+	 * Renders rows of strings and numbers in memory by each engine, and measures time and compression of them.
+	 * Time and size of a workbook without rows are subtracted from them
+	 */
+	public static ExportCostEstimator calibrate() {
+		ExcelSchema<Object[]> schema = ExcelSchema.builder()
+				.column("name", "Name", String.class)
+				.column("count", "Count", Integer.class)
+				.column("amount", "Amount", Double.class)
+				.column("description", "Description", String.class)
+				.forArrays();
+		List<Object[]> warmUpRows = calibrationRows(CALIBRATION_WARM_UP_ROWS);
+		List<Object[]> rows = calibrationRows(CALIBRATION_ROWS);
+		long xmlBytes = SheetXmlSizeEstimator.estimateRowBytes(schema, rows) * rows.size();
+
+		Map<ExcelEngine, Double> nanosPerXmlByte = new EnumMap<>(ExcelEngine.class);
+		long fileNanos = Long.MAX_VALUE;
+		double compressionRatio = 0;
+		for (ExcelEngine engine : ExcelEngine.values()) {
+			render(engine, schema, warmUpRows);
+			long emptyNanos = Long.MAX_VALUE;
+			long emptyBytes = 0;
+			for (int i = 0; i < CALIBRATION_EMPTY_RUNS; i++) {
+				long start = System.nanoTime();
+				emptyBytes = render(engine, schema, Collections.emptyList());
+				emptyNanos = Math.min(emptyNanos, System.nanoTime() - start);
+			}
+
+			long start = System.nanoTime();
+			long fileBytes = render(engine, schema, rows);
+			long nanos = System.nanoTime() - start;
+			nanosPerXmlByte.put(engine, (double) Math.max(1, nanos - emptyNanos) / xmlBytes);
+			fileNanos = Math.min(fileNanos, emptyNanos);
+			if (engine == ExcelEngine.ONE_SHEET) {
+				compressionRatio = (double) Math.max(1, fileBytes - emptyBytes) / xmlBytes;
+			}
+		}
+		return new ExportCostEstimator(nanosPerXmlByte, fileNanos, compressionRatio);
+	}
+
+	/**
+	 * Cost of export by {@link ExcelEngine#ONE_SHEET}
+	 * @param sample Rows like the exported rows, such as first page of them
+	 * @param rowCount Expected count of exported rows
+	 * @param rowAccessWindowSize Rows kept in memory by SXSSF
+	 */
+	public <T> ExportCost estimate(ExcelSchema<T> schema, List<T> sample, long rowCount, int rowAccessWindowSize) {
+		return estimate(ExcelEngine.ONE_SHEET, schema, sample, rowCount, rowAccessWindowSize);
+	}
+
+	/**
+	 * @param engine Engine rendering the export, each engine has its own nanos per xml byte
+	 * @param sample Rows like the exported rows, such as first page of them
+	 * @param rowCount Expected count of exported rows
+	 * @param rowAccessWindowSize Rows kept in memory by SXSSF
+	 */
+	public <T> ExportCost estimate(ExcelEngine engine, ExcelSchema<T> schema, List<T> sample, long rowCount,
+								   int rowAccessWindowSize) {
+		if (rowCount < 0 || rowAccessWindowSize < 1) {
+			throw new IllegalArgumentException(String.format("Wrong rowCount %s or rowAccessWindowSize %s",
+					rowCount, rowAccessWindowSize));
+		}
+		long sheetXmlBytes = SheetXmlSizeEstimator.estimateRowBytes(schema, sample) * rowCount;
+		long fileBytes = FILE_OVERHEAD_BYTES + (long) Math.ceil(sheetXmlBytes * compressionRatio);
+		long peakMemoryBytes = ExportMemoryEstimator.estimateFixedBytes(schema, rowCount)
+				+ ExportMemoryEstimator.estimateWindowRowBytes(schema, sample) * rowAccessWindowSize;
+		long renderMillis = (long) Math.ceil((fileNanos + sheetXmlBytes * nanosPerXmlByte.get(engine)) / 1_000_000);
+		return new ExportCost(rowCount, sheetXmlBytes, fileBytes, peakMemoryBytes, renderMillis);
+	}
+
+	/**
+	 * Nanos per xml byte of {@link ExcelEngine#ONE_SHEET}
+	 */
+	public double getNanosPerXmlByte() {
+		return getNanosPerXmlByte(ExcelEngine.ONE_SHEET);
+	}
+
+	public double getNanosPerXmlByte(ExcelEngine engine) {
+		return nanosPerXmlByte.get(engine);
+	}
+
+	/**
+	 * Nanos of creating and writing a workbook without rows
+	 */
+	public long getFileNanos() {
+		return fileNanos;
+	}
+
+	public double getCompressionRatio() {
+		return compressionRatio;
+	}
+
+	private static long render(ExcelEngine engine, ExcelSchema<Object[]> schema, List<Object[]> rows) {
+		CountingOutputStream stream = new CountingOutputStream();
+		try (ExcelFile<Object[]> excelFile = create(engine, schema, rows)) {
+			excelFile.write(stream);
+		} catch (IOException e) {
+			throw new ExcelInternalException(e.getMessage(), e);
+		}
+		return stream.count;
+	}
+
+	private static ExcelFile<Object[]> create(ExcelEngine engine, ExcelSchema<Object[]> schema, List<Object[]> rows) {
+		switch (engine) {
+			case COMPACT:
+				return new CompactOneSheetExcelFile<>(rows, schema, new DefaultDataFormatDecider(), ExcelTempStorage.memory());
+			case MULTI_SHEET:
+				return new MultiSheetExcelFile<>(rows, schema, new DefaultDataFormatDecider(), ExcelTempStorage.memory());
+			default:
+				return new OneSheetExcelFile<>(rows, schema, new DefaultDataFormatDecider(), ExcelTempStorage.memory());
+		}
+	}
+
+	private static Map<ExcelEngine, Double> sameForEveryEngine(double nanosPerXmlByte) {
+		Map<ExcelEngine, Double> nanos = new EnumMap<>(ExcelEngine.class);
+		for (ExcelEngine engine : ExcelEngine.values()) {
+			nanos.put(engine, nanosPerXmlByte);
+		}
+		return nanos;
+	}
+
+	private static List<Object[]> calibrationRows(int count) {
+		List<Object[]> rows = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			rows.add(new Object[]{"name" + i, i, i * 1.25, "description of row " + (i % 100)});
+		}
+		return rows;
+	}
+
+	private static final class CalibratedHolder {
+
+		private static final ExportCostEstimator ESTIMATOR = calibrate();
+
+	}
+
+	private static final class CountingOutputStream extends OutputStream {
+
+		private long count;
+
+		@Override
+		public void write(int b) {
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			count += len;
+		}
+
+	}
+
+}
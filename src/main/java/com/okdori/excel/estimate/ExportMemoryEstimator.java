@@ -0,0 +1,56 @@
+package com.okdori.excel.estimate;
+
+import com.okdori.resource.schema.ExcelSchema;
+
+import java.util.List;
+
+/**
+ * ExportMemoryEstimator
+ *
+ * Estimates heap bytes held by one export until it is written.
+ * - fixed : input rows, styles and data formats of columns, and workbook itself
+ * - window : SXSSF rows kept in memory, proportional to row access window size
+ */
+public final class ExportMemoryEstimator {
+
+	private static final long WORKBOOK_BYTES = 512 * 1024;
+	private static final int STYLE_BYTES_PER_COLUMN = 2 * 1024;
+	private static final int INPUT_BYTES_PER_CELL = 32;
+	private static final int INPUT_BYTES_PER_ROW = 32;
+	private static final int SXSSF_BYTES_PER_CELL = 64;
+	private static final int SXSSF_BYTES_PER_ROW = 96;
+	// characters of xml are kept as java strings of cells, 2 bytes per character
+	private static final int HEAP_BYTES_PER_XML_BYTE = 2;
+
+	private ExportMemoryEstimator() {
+
+	}
+
+	/**
+	 * Bytes held regardless of window size
+	 */
+	public static <T> long estimateFixedBytes(ExcelSchema<T> schema, List<T> data) {
+		return estimateFixedBytes(schema, data.size());
+	}
+
+	/**
+	 * Bytes held regardless of window size, when rowCount rows are given at once
+	 */
+	public static <T> long estimateFixedBytes(ExcelSchema<T> schema, long rowCount) {
+		long inputBytes = rowCount * (INPUT_BYTES_PER_ROW + (long) schema.size() * INPUT_BYTES_PER_CELL);
+		return WORKBOOK_BYTES + (long) schema.size() * STYLE_BYTES_PER_COLUMN + inputBytes;
+	}
+
+	/**
+	 * Bytes of one row kept in row access window
+	 */
+	public static <T> long estimateWindowRowBytes(ExcelSchema<T> schema, List<T> data) {
+		return SXSSF_BYTES_PER_ROW + (long) schema.size() * SXSSF_BYTES_PER_CELL
+				+ SheetXmlSizeEstimator.estimateRowBytes(schema, data) * HEAP_BYTES_PER_XML_BYTE;
+	}
+
+	public static <T> long estimateBytes(ExcelSchema<T> schema, List<T> data, int rowAccessWindowSize) {
+		return estimateFixedBytes(schema, data) + estimateWindowRowBytes(schema, data) * rowAccessWindowSize;
+	}
+
+}
@@ -0,0 +1,72 @@
+package com.okdori.excel.estimate;
+
+import com.okdori.resource.schema.CellValueWriter;
+import com.okdori.resource.schema.ExcelSchema;
+
+import java.util.List;
+
+/**
+ * SheetXmlSizeEstimator
+ *
+ * Estimates uncompressed sheet xml bytes of rows from a sample of data.
+ * Strings are counted as inline strings, like SXSSF writes them
+ */
+public final class SheetXmlSizeEstimator {
+
+	private static final int MAX_SAMPLE_SIZE = 1000;
+	private static final int ROW_OVERHEAD = 24;
+	private static final int NUMBER_CELL_OVERHEAD = 36;
+	private static final int STRING_CELL_OVERHEAD = 56;
+	private static final int MAX_NUMBER_LENGTH = 24;
+
+	private SheetXmlSizeEstimator() {
+
+	}
+
+	/**
+	 * @return average estimated bytes of one row, estimated from evenly picked sample rows
+	 */
+	public static <T> long estimateRowBytes(ExcelSchema<T> schema, List<T> data) {
+		if (data.isEmpty()) {
+			return ROW_OVERHEAD + (long) schema.size() * STRING_CELL_OVERHEAD;
+		}
+
+		int sampleSize = Math.min(MAX_SAMPLE_SIZE, data.size());
+		int step = data.size() / sampleSize;
+		CountingCellValueWriter writer = new CountingCellValueWriter();
+		for (int i = 0; i < sampleSize; i++) {
+			schema.getRowWriter().write(data.get(i * step), writer);
+		}
+		return ROW_OVERHEAD + (long) Math.ceil((double) writer.bytes / sampleSize);
+	}
+
+	private static final class CountingCellValueWriter implements CellValueWriter {
+
+		private long bytes;
+
+		@Override
+		public void writeNumber(int columnIndex, double value) {
+			bytes += NUMBER_CELL_OVERHEAD + Math.min(MAX_NUMBER_LENGTH, String.valueOf(value).length());
+		}
+
+		@Override
+		public void writeValue(int columnIndex, Object value) {
+			if (value instanceof Number) {
+				writeNumber(columnIndex, ((Number) value).doubleValue());
+				return;
+			}
+			bytes += STRING_CELL_OVERHEAD + (value == null ? 0 : utf8Length(value.toString()));
+		}
+
+		private static int utf8Length(String value) {
+			int length = 0;
+			for (int i = 0; i < value.length(); i++) {
+				char c = value.charAt(i);
+				length += c < 0x80 ? 1 : c < 0x800 ? 2 : 3;
+			}
+			return length;
+		}
+
+	}
+
+}
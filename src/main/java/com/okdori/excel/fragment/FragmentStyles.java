@@ -0,0 +1,180 @@
+package com.okdori.excel.fragment;
+
+import com.okdori.excel.xlsx.XlsxXml;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * FragmentStyles
+ *
+ * Styles of xl/styles.xml a sheet can refer to. Fonts, fills, borders and children of cell formats are kept as xml,
+ * and ids of cell formats are rewritten when they are appended to another workbook
+ */
+final class FragmentStyles {
+
+	static final int FIRST_CUSTOM_NUMBER_FORMAT_ID = 164;
+	private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+	private final Map<Integer, String> numberFormats = new LinkedHashMap<>();
+	private final List<String> fonts = new ArrayList<>();
+	private final List<String> fills = new ArrayList<>();
+	private final List<String> borders = new ArrayList<>();
+	private final List<CellFormat> cellFormats = new ArrayList<>();
+	private boolean numberFormatsElement;
+
+	private FragmentStyles() {
+
+	}
+
+	static FragmentStyles read(InputStream stream) throws XMLStreamException {
+		FragmentStyles styles = new FragmentStyles();
+		XMLStreamReader reader = XlsxXml.read(stream);
+		String container = null;
+		int depth = 0;
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+				if (depth == 2) {
+					container = reader.getLocalName();
+					styles.numberFormatsElement |= container.equals("numFmts");
+				} else if (depth == 3) {
+					styles.readChild(reader, container);
+					depth--;
+				}
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			}
+		}
+		reader.close();
+		return styles;
+	}
+
+	private void readChild(XMLStreamReader reader, String container) throws XMLStreamException {
+		switch (container) {
+			case "numFmts":
+				numberFormats.put(Integer.parseInt(XlsxXml.attribute(reader, "numFmtId")),
+						XlsxXml.attribute(reader, "formatCode"));
+				XlsxXml.skipElement(reader);
+				break;
+			case "fonts":
+				fonts.add(toXml(reader, true));
+				break;
+			case "fills":
+				fills.add(toXml(reader, true));
+				break;
+			case "borders":
+				borders.add(toXml(reader, true));
+				break;
+			case "cellXfs":
+				Map<String, String> attributes = new LinkedHashMap<>();
+				for (int i = 0; i < reader.getAttributeCount(); i++) {
+					attributes.put(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+				}
+				cellFormats.add(new CellFormat(attributes, toXml(reader, false)));
+				break;
+			default:
+				XlsxXml.skipElement(reader);
+				break;
+		}
+	}
+
+	/**
+	 * Copies current element, or only its children, to xml. Reader is left on its end element
+	 */
+	private static String toXml(XMLStreamReader reader, boolean withElement) throws XMLStreamException {
+		StringWriter xml = new StringWriter();
+		XMLStreamWriter writer = OUTPUT_FACTORY.createXMLStreamWriter(xml);
+		if (withElement) {
+			XlsxXml.copyStartElement(reader, writer, XlsxXml.AttributeRewriter.NONE);
+		}
+		int depth = 1;
+		while (true) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+				XlsxXml.copyStartElement(reader, writer, XlsxXml.AttributeRewriter.NONE);
+				continue;
+			}
+			if (event == XMLStreamConstants.END_ELEMENT && --depth == 0) {
+				break;
+			}
+			XlsxXml.copyEvent(reader, writer);
+		}
+		if (withElement) {
+			writer.writeEndElement();
+		}
+		writer.flush();
+		return xml.toString();
+	}
+
+	/**
+	 * Whether styles have numFmts element, which can be empty
+	 */
+	boolean hasNumberFormats() {
+		return numberFormatsElement;
+	}
+
+	Map<Integer, String> getNumberFormats() {
+		return Collections.unmodifiableMap(numberFormats);
+	}
+
+	int getMaxNumberFormatId() {
+		int max = FIRST_CUSTOM_NUMBER_FORMAT_ID - 1;
+		for (int id : numberFormats.keySet()) {
+			max = Math.max(max, id);
+		}
+		return max;
+	}
+
+	List<String> getFonts() {
+		return Collections.unmodifiableList(fonts);
+	}
+
+	List<String> getFills() {
+		return Collections.unmodifiableList(fills);
+	}
+
+	List<String> getBorders() {
+		return Collections.unmodifiableList(borders);
+	}
+
+	List<CellFormat> getCellFormats() {
+		return Collections.unmodifiableList(cellFormats);
+	}
+
+	/**
+	 * xf of cellXfs
+	 */
+	static final class CellFormat {
+
+		private final Map<String, String> attributes;
+		private final String children;
+
+		private CellFormat(Map<String, String> attributes, String children) {
+			this.attributes = attributes;
+			this.children = children;
+		}
+
+		Map<String, String> getAttributes() {
+			return Collections.unmodifiableMap(attributes);
+		}
+
+		String getChildren() {
+			return children;
+		}
+
+	}
+
+}
@@ -0,0 +1,210 @@
+package com.okdori.excel.fragment;
+
+import com.okdori.excel.ExcelGenerator;
+import com.okdori.excel.xlsx.XlsxXml;
+import com.okdori.exception.ExcelInternalException;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+import org.apache.poi.ss.usermodel.Workbook;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * SheetFragment
+ *
+ * Sheet rendered and compressed once, to be added to other workbooks by {@link SheetFragmentWriter}.
+ * Styles of the sheet are appended to styles of each workbook, so style indices of the sheet are shifted by
+ * count of cell formats the workbook already has. Compressed sheet is kept for each shift,
+ * so adding the fragment to workbooks having the same styles is a copy of bytes
+ *
+ * Sheet should not have shared strings, drawings or comments, as sheets rendered by {@link ExcelGenerator}
+ */
+public final class SheetFragment {
+
+	private static final String SHEET_ENTRY = "xl/worksheets/sheet1.xml";
+	private static final String SHEET_RELATIONSHIPS_ENTRY = "xl/worksheets/_rels/sheet1.xml.rels";
+	private static final String STYLES_ENTRY = "xl/styles.xml";
+	private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n";
+	private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+	// count of different style shifts kept compressed, others are compressed every time
+	private static final int MAX_CACHED_STYLE_SHIFTS = 8;
+
+	private final String sheetName;
+	private final FragmentStyles styles;
+	private final CompressedSheet sheet;
+	private final ConcurrentMap<Integer, CompressedSheet> shiftedSheets = new ConcurrentHashMap<>();
+
+	private SheetFragment(String sheetName, FragmentStyles styles, CompressedSheet sheet) {
+		this.sheetName = sheetName;
+		this.styles = styles;
+		this.sheet = sheet;
+	}
+
+	/**
+	 * Renders sheet by {@link ExcelGenerator#generateMultiSheetExcel(java.util.List)}
+	 */
+	public static <T> SheetFragment render(ExcelGenerator.SheetInfo<T> sheetInfo) throws IllegalAccessException, IOException {
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		ExcelGenerator generator = new ExcelGenerator();
+		Workbook workbook = generator.generateMultiSheetExcel(Collections.singletonList(sheetInfo));
+		try {
+			workbook.write(stream);
+		} finally {
+			generator.getWorkbook().dispose();
+		}
+		return read(sheetInfo.getSheetName(), stream.toByteArray());
+	}
+
+	/**
+	 * @param workbook workbook having only one sheet
+	 */
+	static SheetFragment read(String sheetName, byte[] workbook) throws IOException {
+		try (ZipFile zip = new ZipFile(new SeekableInMemoryByteChannel(workbook))) {
+			ZipArchiveEntry sheetEntry = zip.getEntry(SHEET_ENTRY);
+			ZipArchiveEntry stylesEntry = zip.getEntry(STYLES_ENTRY);
+			if (sheetEntry == null || stylesEntry == null) {
+				throw new IllegalArgumentException(String.format("Workbook of sheet %s does not have %s or %s",
+						sheetName, SHEET_ENTRY, STYLES_ENTRY));
+			}
+			if (zip.getEntry(SHEET_RELATIONSHIPS_ENTRY) != null) {
+				throw new IllegalArgumentException(
+						String.format("Sheet %s has relationships, so it can not be a fragment", sheetName));
+			}
+
+			FragmentStyles styles;
+			try (InputStream stream = zip.getInputStream(stylesEntry)) {
+				styles = FragmentStyles.read(stream);
+			}
+			try (InputStream stream = zip.getInputStream(sheetEntry)) {
+				return new SheetFragment(sheetName, styles, compress(stream, 0));
+			}
+		} catch (XMLStreamException e) {
+			throw new ExcelInternalException(e.getMessage(), e);
+		}
+	}
+
+	public String getSheetName() {
+		return sheetName;
+	}
+
+	FragmentStyles getStyles() {
+		return styles;
+	}
+
+	/**
+	 * Compressed sheet of which style indices are shifted by styleShift
+	 */
+	CompressedSheet getSheet(int styleShift) throws IOException {
+		if (styleShift == 0) {
+			return sheet;
+		}
+		CompressedSheet shifted = shiftedSheets.get(styleShift);
+		if (shifted != null) {
+			return shifted;
+		}
+		try (InputStream stream = new InflaterInputStream(new ByteArrayInputStream(sheet.getBytes()), new Inflater(true))) {
+			shifted = compress(stream, styleShift);
+		} catch (XMLStreamException e) {
+			throw new ExcelInternalException(e.getMessage(), e);
+		}
+		if (shiftedSheets.size() < MAX_CACHED_STYLE_SHIFTS) {
+			shiftedSheets.putIfAbsent(styleShift, shifted);
+		}
+		return shifted;
+	}
+
+	/**
+	 * Copies sheet with style indices shifted and tab unselected, and deflates it without zip header
+	 */
+	private static CompressedSheet compress(InputStream sheet, int styleShift) throws IOException, XMLStreamException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		CRC32 crc = new CRC32();
+		try (DeflaterOutputStream stream = new DeflaterOutputStream(bytes, deflater) {
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				crc.update(b, off, len);
+				super.write(b, off, len);
+			}
+		}) {
+			stream.write(XML_DECLARATION.getBytes(StandardCharsets.UTF_8));
+			XMLStreamReader reader = XlsxXml.read(sheet);
+			XMLStreamWriter writer = OUTPUT_FACTORY.createXMLStreamWriter(stream, StandardCharsets.UTF_8.name());
+			while (reader.hasNext()) {
+				int event = reader.next();
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					String localName = reader.getLocalName();
+					if (localName.equals("c") && "s".equals(XlsxXml.attribute(reader, "t"))) {
+						throw new IllegalArgumentException("Sheet of fragment should not have shared strings");
+					}
+					XlsxXml.copyStartElement(reader, writer, (attribute, value) -> {
+						if (attribute.equals("s") && (localName.equals("c") || localName.equals("row"))
+								|| attribute.equals("style") && localName.equals("col")) {
+							return String.valueOf(Integer.parseInt(value) + styleShift);
+						}
+						if (attribute.equals("tabSelected") && localName.equals("sheetView")) {
+							return "false";
+						}
+						return value;
+					});
+				} else {
+					XlsxXml.copyEvent(reader, writer);
+				}
+			}
+			writer.flush();
+			reader.close();
+			stream.finish();
+			return new CompressedSheet(bytes.toByteArray(), crc.getValue(), deflater.getBytesRead());
+		} finally {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * Deflated sheet, as raw data of zip entry
+	 */
+	static final class CompressedSheet {
+
+		private final byte[] bytes;
+		private final long crc;
+		private final long size;
+
+		private CompressedSheet(byte[] bytes, long crc, long size) {
+			this.bytes = bytes;
+			this.crc = crc;
+			this.size = size;
+		}
+
+		byte[] getBytes() {
+			return bytes;
+		}
+
+		long getCrc() {
+			return crc;
+		}
+
+		long getSize() {
+			return size;
+		}
+
+	}
+
+}
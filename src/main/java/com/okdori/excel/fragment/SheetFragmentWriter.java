@@ -0,0 +1,446 @@
+package com.okdori.excel.fragment;
+
+import com.okdori.excel.ExcelGenerator;
+import com.okdori.excel.storage.ExcelTempFile;
+import com.okdori.excel.storage.ExcelTempStorage;
+import com.okdori.excel.xlsx.XlsxXml;
+import com.okdori.exception.ExcelInternalException;
+import com.okdori.exception.ExcelTempStorageQuotaException;
+import org.apache.commons.compress.archivers.zip.Zip64Mode;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JRuntimeException;
+import org.apache.poi.ss.usermodel.Workbook;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SheetFragmentWriter
+ *
+ * Writes workbook rendered by {@link ExcelGenerator} with {@link SheetFragment}s added after its sheets.
+ * Entries of workbook are copied as raw compressed bytes, except
+ * - workbook, workbook relationships and content types : sheets of fragments are added
+ * - styles : styles of fragments are appended, with ids of number formats, fonts, fills and borders shifted
+ */
+public final class SheetFragmentWriter {
+
+	private static final String CONTENT_TYPES_ENTRY = "[Content_Types].xml";
+	private static final String WORKBOOK_ENTRY = "xl/workbook.xml";
+	private static final String WORKBOOK_RELATIONSHIPS_ENTRY = "xl/_rels/workbook.xml.rels";
+	private static final String STYLES_ENTRY = "xl/styles.xml";
+	private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
+	private static final String RELATIONSHIPS_NAMESPACE = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+	private static final String WORKSHEET_CONTENT_TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml";
+	private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+	private final ZipFile workbook;
+	private final List<SheetFragment> fragments;
+	private final List<Placement> placements = new ArrayList<>();
+	private FragmentStyles workbookStyles;
+
+	private SheetFragmentWriter(ZipFile workbook, List<SheetFragment> fragments) {
+		this.workbook = workbook;
+		this.fragments = fragments;
+	}
+
+	public static void write(Workbook workbook, List<SheetFragment> fragments, OutputStream stream) throws IOException {
+		write(workbook, fragments, ExcelTempStorage.defaultStorage(), stream);
+	}
+
+	/**
+	 * write
+	 * @param storage Storage workbook is written to before fragments are added, charged to its limits
+	 * @param stream stream workbook is written to. It is not closed
+	 */
+	public static void write(Workbook workbook, List<SheetFragment> fragments, ExcelTempStorage storage,
+							 OutputStream stream) throws IOException {
+		for (SheetFragment fragment : fragments) {
+			if (workbook.getSheet(fragment.getSheetName()) != null) {
+				throw new IllegalArgumentException(
+						String.format("Workbook already has sheet %s of fragment", fragment.getSheetName()));
+			}
+		}
+		if (fragments.isEmpty()) {
+			workbook.write(stream);
+			return;
+		}
+
+		try (ExcelTempFile file = ExcelTempFile.create(storage, "excel-fragment")) {
+			try (OutputStream fileStream = file.openStream()) {
+				workbook.write(fileStream);
+			} catch (OpenXML4JRuntimeException e) {
+				throw quotaExceptionOr(e);
+			}
+			try (ZipFile zip = new ZipFile(file.getFile())) {
+				new SheetFragmentWriter(zip, fragments).write(stream);
+			}
+		} catch (XMLStreamException e) {
+			throw new ExcelInternalException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * POI wraps exceptions of stream while it saves workbook, quota exception of temp file is thrown as it is
+	 */
+	private static RuntimeException quotaExceptionOr(RuntimeException exception) {
+		for (Throwable cause = exception.getCause(); cause != null; cause = cause.getCause()) {
+			if (cause instanceof ExcelTempStorageQuotaException) {
+				return (ExcelTempStorageQuotaException) cause;
+			}
+		}
+		return exception;
+	}
+
+	private void write(OutputStream stream) throws IOException, XMLStreamException {
+		place();
+
+		ZipArchiveOutputStream zip = new ZipArchiveOutputStream(stream);
+		zip.setUseZip64(Zip64Mode.AsNeeded);
+		for (Enumeration<ZipArchiveEntry> entries = workbook.getEntriesInPhysicalOrder(); entries.hasMoreElements(); ) {
+			ZipArchiveEntry entry = entries.nextElement();
+			switch (entry.getName()) {
+				case CONTENT_TYPES_ENTRY:
+					putEntry(zip, entry, this::copyContentTypes);
+					break;
+				case WORKBOOK_ENTRY:
+					putEntry(zip, entry, this::copyWorkbook);
+					break;
+				case WORKBOOK_RELATIONSHIPS_ENTRY:
+					putEntry(zip, entry, this::copyWorkbookRelationships);
+					break;
+				case STYLES_ENTRY:
+					putEntry(zip, entry, this::copyStyles);
+					break;
+				default:
+					try (InputStream raw = workbook.getRawInputStream(entry)) {
+						zip.addRawArchiveEntry(new ZipArchiveEntry(entry), raw);
+					}
+					break;
+			}
+		}
+		for (Placement placement : placements) {
+			SheetFragment.CompressedSheet sheet = placement.fragment.getSheet(placement.cellFormatShift);
+			ZipArchiveEntry entry = new ZipArchiveEntry(placement.entryName);
+			entry.setMethod(ZipArchiveEntry.DEFLATED);
+			entry.setCrc(sheet.getCrc());
+			entry.setSize(sheet.getSize());
+			entry.setCompressedSize(sheet.getBytes().length);
+			zip.addRawArchiveEntry(entry, new ByteArrayInputStream(sheet.getBytes()));
+		}
+		zip.finish();
+		zip.flush();
+	}
+
+	/**
+	 * Decides entry, relationship and style ids of each fragment
+	 */
+	private void place() throws IOException, XMLStreamException {
+		try (InputStream stream = XlsxXml.open(workbook, STYLES_ENTRY)) {
+			workbookStyles = FragmentStyles.read(stream);
+		}
+		int maxSheetId = 0;
+		try (InputStream stream = XlsxXml.open(workbook, WORKBOOK_ENTRY)) {
+			XMLStreamReader reader = XlsxXml.read(stream);
+			while (reader.hasNext()) {
+				if (reader.next() == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals("sheet")) {
+					maxSheetId = Math.max(maxSheetId, Integer.parseInt(XlsxXml.attribute(reader, "sheetId")));
+				}
+			}
+			reader.close();
+		}
+
+		int cellFormatCount = workbookStyles.getCellFormats().size();
+		int fontCount = workbookStyles.getFonts().size();
+		int fillCount = workbookStyles.getFills().size();
+		int borderCount = workbookStyles.getBorders().size();
+		int numberFormatId = workbookStyles.getMaxNumberFormatId();
+		int sheetNumber = 1;
+		for (int i = 0; i < fragments.size(); i++) {
+			SheetFragment fragment = fragments.get(i);
+			FragmentStyles styles = fragment.getStyles();
+			while (workbook.getEntry(sheetEntryName(sheetNumber)) != null) {
+				sheetNumber++;
+			}
+
+			Placement placement = new Placement(fragment, sheetEntryName(sheetNumber++), maxSheetId + i + 1,
+					"rIdFragment" + (i + 1), cellFormatCount, fontCount, fillCount, borderCount);
+			for (int id : styles.getNumberFormats().keySet()) {
+				if (id >= FragmentStyles.FIRST_CUSTOM_NUMBER_FORMAT_ID) {
+					placement.numberFormatIds.put(id, ++numberFormatId);
+				}
+			}
+			placements.add(placement);
+
+			cellFormatCount += styles.getCellFormats().size();
+			fontCount += styles.getFonts().size();
+			fillCount += styles.getFills().size();
+			borderCount += styles.getBorders().size();
+		}
+	}
+
+	private static String sheetEntryName(int sheetNumber) {
+		return String.format("xl/worksheets/sheet%d.xml", sheetNumber);
+	}
+
+	private void putEntry(ZipArchiveOutputStream zip, ZipArchiveEntry source, PartCopier copier)
+			throws IOException, XMLStreamException {
+		ZipArchiveEntry entry = new ZipArchiveEntry(source.getName());
+		entry.setTime(source.getTime());
+		zip.putArchiveEntry(entry);
+		zip.write(XML_DECLARATION.getBytes(StandardCharsets.UTF_8));
+		try (InputStream stream = workbook.getInputStream(source)) {
+			XMLStreamReader reader = XlsxXml.read(stream);
+			XMLStreamWriter writer = OUTPUT_FACTORY.createXMLStreamWriter(zip, StandardCharsets.UTF_8.name());
+			copier.copy(reader, writer, zip);
+			writer.flush();
+			reader.close();
+		}
+		zip.closeArchiveEntry();
+	}
+
+	private void copyContentTypes(XMLStreamReader reader, XMLStreamWriter writer, OutputStream zip)
+			throws XMLStreamException {
+		copyAppending(reader, writer, 1, (localName, namespace) -> {
+			for (Placement placement : placements) {
+				writer.writeEmptyElement("", "Override", namespace);
+				writer.writeAttribute("ContentType", WORKSHEET_CONTENT_TYPE);
+				writer.writeAttribute("PartName", "/" + placement.entryName);
+			}
+		});
+	}
+
+	private void copyWorkbookRelationships(XMLStreamReader reader, XMLStreamWriter writer, OutputStream zip)
+			throws XMLStreamException {
+		copyAppending(reader, writer, 1, (localName, namespace) -> {
+			for (Placement placement : placements) {
+				writer.writeEmptyElement("", "Relationship", namespace);
+				writer.writeAttribute("Id", placement.relationshipId);
+				writer.writeAttribute("Target", placement.entryName.substring("xl/".length()));
+				writer.writeAttribute("Type", RELATIONSHIPS_NAMESPACE + "/worksheet");
+			}
+		});
+	}
+
+	private void copyWorkbook(XMLStreamReader reader, XMLStreamWriter writer, OutputStream zip)
+			throws XMLStreamException {
+		copyAppending(reader, writer, 2, (localName, namespace) -> {
+			if (!localName.equals("sheets")) {
+				return;
+			}
+			String prefix = reader.getNamespaceContext().getPrefix(RELATIONSHIPS_NAMESPACE);
+			for (Placement placement : placements) {
+				writer.writeEmptyElement("", "sheet", namespace);
+				if (prefix == null) {
+					writer.writeNamespace("r", RELATIONSHIPS_NAMESPACE);
+				}
+				writer.writeAttribute("name", placement.fragment.getSheetName());
+				writer.writeAttribute("sheetId", String.valueOf(placement.sheetId));
+				writer.writeAttribute(prefix == null ? "r" : prefix, RELATIONSHIPS_NAMESPACE, "id",
+						placement.relationshipId);
+			}
+		});
+	}
+
+	/**
+	 * Appends styles of fragments to containers of styles, and sets their counts
+	 */
+	private void copyStyles(XMLStreamReader reader, XMLStreamWriter writer, OutputStream zip)
+			throws XMLStreamException, IOException {
+		Map<String, Integer> appendedCounts = new HashMap<>();
+		for (Placement placement : placements) {
+			FragmentStyles styles = placement.fragment.getStyles();
+			appendedCounts.merge("numFmts", placement.numberFormatIds.size(), Integer::sum);
+			appendedCounts.merge("fonts", styles.getFonts().size(), Integer::sum);
+			appendedCounts.merge("fills", styles.getFills().size(), Integer::sum);
+			appendedCounts.merge("borders", styles.getBorders().size(), Integer::sum);
+			appendedCounts.merge("cellXfs", styles.getCellFormats().size(), Integer::sum);
+		}
+		boolean numberFormatsWritten = workbookStyles.hasNumberFormats() || appendedCounts.get("numFmts") == 0;
+
+		int depth = 0;
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+				String localName = reader.getLocalName();
+				if (depth == 2 && !numberFormatsWritten) {
+					// numFmts is the first child of styleSheet
+					numberFormatsWritten = true;
+					writer.writeStartElement("", "numFmts", reader.getNamespaceURI());
+					writer.writeAttribute("count", String.valueOf(appendedCounts.get("numFmts")));
+					writeRaw(writer, zip, appendedStyles("numFmts"));
+					writer.writeEndElement();
+				}
+				Integer appendedCount = depth == 2 ? appendedCounts.get(localName) : null;
+				XlsxXml.copyStartElement(reader, writer, (attribute, value) ->
+						appendedCount != null && attribute.equals("count")
+								? String.valueOf(Integer.parseInt(value) + appendedCount)
+								: value);
+			} else {
+				if (event == XMLStreamConstants.END_ELEMENT && depth-- == 2
+						&& appendedCounts.containsKey(reader.getLocalName())) {
+					writeRaw(writer, zip, appendedStyles(reader.getLocalName()));
+				}
+				XlsxXml.copyEvent(reader, writer);
+			}
+		}
+	}
+
+	private String appendedStyles(String container) {
+		StringBuilder xml = new StringBuilder();
+		for (Placement placement : placements) {
+			FragmentStyles styles = placement.fragment.getStyles();
+			switch (container) {
+				case "numFmts":
+					for (Map.Entry<Integer, Integer> id : placement.numberFormatIds.entrySet()) {
+						xml.append("<numFmt numFmtId=\"").append(id.getValue()).append("\" formatCode=\"")
+								.append(escape(styles.getNumberFormats().get(id.getKey()))).append("\"/>");
+					}
+					break;
+				case "fonts":
+					styles.getFonts().forEach(xml::append);
+					break;
+				case "fills":
+					styles.getFills().forEach(xml::append);
+					break;
+				case "borders":
+					styles.getBorders().forEach(xml::append);
+					break;
+				case "cellXfs":
+					for (FragmentStyles.CellFormat cellFormat : styles.getCellFormats()) {
+						appendCellFormat(xml, cellFormat, placement);
+					}
+					break;
+				default:
+					break;
+			}
+		}
+		return xml.toString();
+	}
+
+	private static void appendCellFormat(StringBuilder xml, FragmentStyles.CellFormat cellFormat, Placement placement) {
+		xml.append("<xf");
+		for (Map.Entry<String, String> attribute : cellFormat.getAttributes().entrySet()) {
+			String value = attribute.getValue();
+			switch (attribute.getKey()) {
+				case "numFmtId":
+					value = String.valueOf(placement.numberFormatIds.getOrDefault(Integer.parseInt(value),
+							Integer.parseInt(value)));
+					break;
+				case "fontId":
+					value = String.valueOf(Integer.parseInt(value) + placement.fontShift);
+					break;
+				case "fillId":
+					value = String.valueOf(Integer.parseInt(value) + placement.fillShift);
+					break;
+				case "borderId":
+					value = String.valueOf(Integer.parseInt(value) + placement.borderShift);
+					break;
+				case "xfId":
+					// named styles are not appended, cell formats are based on the default one
+					value = "0";
+					break;
+				default:
+					break;
+			}
+			xml.append(' ').append(attribute.getKey()).append("=\"").append(escape(value)).append('"');
+		}
+		xml.append('>').append(cellFormat.getChildren()).append("</xf>");
+	}
+
+	/**
+	 * Writes xml as it is, after what writer has written
+	 */
+	private static void writeRaw(XMLStreamWriter writer, OutputStream stream, String xml)
+			throws XMLStreamException {
+		// closes start tag writer may have left open
+		writer.writeCharacters("");
+		writer.flush();
+		try {
+			stream.write(xml.getBytes(StandardCharsets.UTF_8));
+		} catch (IOException e) {
+			throw new XMLStreamException(e);
+		}
+	}
+
+	private static String escape(String value) {
+		return value.replace("&", "&amp;").replace("\"", "&quot;").replace("<", "&lt;").replace(">", "&gt;");
+	}
+
+	/**
+	 * Copies part, and calls appender before end element of each element at depth
+	 */
+	private static void copyAppending(XMLStreamReader reader, XMLStreamWriter writer, int appendDepth,
+									  Appender appender) throws XMLStreamException {
+		int depth = 0;
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+				XlsxXml.copyStartElement(reader, writer, XlsxXml.AttributeRewriter.NONE);
+			} else {
+				if (event == XMLStreamConstants.END_ELEMENT && depth-- == appendDepth) {
+					appender.append(reader.getLocalName(), reader.getNamespaceURI());
+				}
+				XlsxXml.copyEvent(reader, writer);
+			}
+		}
+	}
+
+	private static final class Placement {
+
+		private final SheetFragment fragment;
+		private final String entryName;
+		private final int sheetId;
+		private final String relationshipId;
+		private final int cellFormatShift;
+		private final int fontShift;
+		private final int fillShift;
+		private final int borderShift;
+		private final Map<Integer, Integer> numberFormatIds = new LinkedHashMap<>();
+
+		private Placement(SheetFragment fragment, String entryName, int sheetId, String relationshipId,
+						  int cellFormatShift, int fontShift, int fillShift, int borderShift) {
+			this.fragment = fragment;
+			this.entryName = entryName;
+			this.sheetId = sheetId;
+			this.relationshipId = relationshipId;
+			this.cellFormatShift = cellFormatShift;
+			this.fontShift = fontShift;
+			this.fillShift = fillShift;
+			this.borderShift = borderShift;
+		}
+
+	}
+
+	@FunctionalInterface
+	private interface PartCopier {
+
+		void copy(XMLStreamReader reader, XMLStreamWriter writer, OutputStream zip) throws IOException, XMLStreamException;
+
+	}
+
+	@FunctionalInterface
+	private interface Appender {
+
+		void append(String localName, String namespace) throws XMLStreamException;
+
+	}
+
+}
@@ -0,0 +1,45 @@
+package com.okdori.excel.jfr;
+
+import java.io.OutputStream;
+
+/**
+ * ExcelEvent
+ *
+ * Phase of an export recorded by Java Flight Recorder, begun by {@link ExcelEvents} and ended by {@link #commit()}.
+ * Fields not known to a phase are left empty
+ */
+public interface ExcelEvent {
+
+	void setType(Class<?> type);
+
+	void setSheetName(String sheetName);
+
+	void setColumnCount(int columnCount);
+
+	void setRowCount(long rowCount);
+
+	void setBytes(long bytes);
+
+	/**
+	 * Time spent writing, for flush events spanning rendering of other rows
+	 */
+	void setWriteNanos(long writeNanos);
+
+	/**
+	 * Time spent fitting column widths, for width fitting events spanning rendering of rows
+	 */
+	void setFittingNanos(long fittingNanos);
+
+	/**
+	 * Stream adding bytes written to it to the event, or stream itself when the event is not recorded
+	 */
+	OutputStream countBytes(OutputStream stream);
+
+	/**
+	 * Whether the event is recorded, so fields costing time to compute can be skipped
+	 */
+	boolean isEnabled();
+
+	void commit();
+
+}
@@ -0,0 +1,106 @@
+package com.okdori.excel.jfr;
+
+import java.io.OutputStream;
+
+/**
+ * ExcelEvents
+ *
+ * Begins events of export phases. Java 8 has no Flight Recorder API, so events of this class are not recorded.
+ * On Java 11 and later, the class of META-INF/versions/11 in the jar begins events of jdk.jfr instead,
+ * named com.okdori.excel.* and enabled in recordings without settings
+ */
+public final class ExcelEvents {
+
+	private static final ExcelEvent NONE = new NoneEvent();
+
+	private ExcelEvents() {
+
+	}
+
+	/**
+	 * Creation of cell styles and header names of columns
+	 */
+	public static ExcelEvent resourcePreparation(Class<?> type) {
+		return NONE;
+	}
+
+	public static ExcelEvent sheetCreation(String sheetName) {
+		return NONE;
+	}
+
+	/**
+	 * Rows of sheet flushed from memory to temp storage, committed in batches
+	 */
+	public static ExcelEvent flush(String sheetName) {
+		return NONE;
+	}
+
+	/**
+	 * Column widths fitted to contents, committed in batches of rows or when sheet is finished
+	 */
+	public static ExcelEvent widthFitting(String sheetName) {
+		return NONE;
+	}
+
+	/**
+	 * Workbook written to stream of caller
+	 */
+	public static ExcelEvent write(Class<?> type) {
+		return NONE;
+	}
+
+	private static final class NoneEvent implements ExcelEvent {
+
+		@Override
+		public void setType(Class<?> type) {
+
+		}
+
+		@Override
+		public void setSheetName(String sheetName) {
+
+		}
+
+		@Override
+		public void setColumnCount(int columnCount) {
+
+		}
+
+		@Override
+		public void setRowCount(long rowCount) {
+
+		}
+
+		@Override
+		public void setBytes(long bytes) {
+
+		}
+
+		@Override
+		public void setWriteNanos(long writeNanos) {
+
+		}
+
+		@Override
+		public void setFittingNanos(long fittingNanos) {
+
+		}
+
+		@Override
+		public OutputStream countBytes(OutputStream stream) {
+			return stream;
+		}
+
+		@Override
+		public boolean isEnabled() {
+			return false;
+		}
+
+		@Override
+		public void commit() {
+
+		}
+
+	}
+
+}
@@ -1,7 +1,11 @@
 package com.okdori.excel.multiplesheet;
 
 import com.okdori.excel.SXSSFExcelFile;
+import com.okdori.excel.control.ExcelExportControl;
+import com.okdori.excel.storage.ExcelTempStorage;
 import com.okdori.resource.DataFormatDecider;
+import com.okdori.resource.DefaultDataFormatDecider;
+import com.okdori.resource.schema.ExcelSchema;
 import org.apache.commons.compress.archivers.zip.Zip64Mode;
 import org.apache.poi.xssf.streaming.SXSSFSheet;
 
@@ -20,7 +24,8 @@ public class MultiSheetExcelFile<T> extends SXSSFExcelFile<T> {
 	private static final int maxRowCanBeRendered = supplyExcelVersion.getMaxRows() - 1;
 	private static final int ROW_START_INDEX = 0;
 	private static final int COLUMN_START_INDEX = 0;
-	private int currentRowIndex = ROW_START_INDEX;
+	// not initialized here, because renderExcel is called by super constructor before field initializers
+	private int currentRowIndex;
 
 	public MultiSheetExcelFile(Class<T> type) {
 		super(type);
@@ -41,6 +46,33 @@ public class MultiSheetExcelFile<T> extends SXSSFExcelFile<T> {
 		wb.setZip64Mode(Zip64Mode.Always);
 	}
 
+	public MultiSheetExcelFile(List<T> data, ExcelSchema<T> schema) {
+		this(data, schema, new DefaultDataFormatDecider());
+	}
+
+	public MultiSheetExcelFile(List<T> data, ExcelSchema<T> schema, DataFormatDecider dataFormatDecider) {
+		super(data, schema, dataFormatDecider);
+		wb.setZip64Mode(Zip64Mode.Always);
+	}
+
+	public MultiSheetExcelFile(List<T> data, ExcelSchema<T> schema, DataFormatDecider dataFormatDecider,
+							   ExcelTempStorage storage) {
+		super(data, schema, dataFormatDecider, storage);
+		wb.setZip64Mode(Zip64Mode.Always);
+	}
+
+	public MultiSheetExcelFile(List<T> data, ExcelSchema<T> schema, DataFormatDecider dataFormatDecider,
+							   ExcelTempStorage storage, int rowAccessWindowSize) {
+		super(data, schema, dataFormatDecider, storage, rowAccessWindowSize);
+		wb.setZip64Mode(Zip64Mode.Always);
+	}
+
+	public MultiSheetExcelFile(List<T> data, ExcelSchema<T> schema, DataFormatDecider dataFormatDecider,
+							   ExcelTempStorage storage, int rowAccessWindowSize, ExcelExportControl exportControl) {
+		super(data, schema, dataFormatDecider, storage, rowAccessWindowSize, exportControl);
+		wb.setZip64Mode(Zip64Mode.Always);
+	}
+
 	@Override
 	protected void renderExcel(List<T> data) {
 		// 1. Create header and return if data is empty
@@ -56,15 +88,52 @@ public class MultiSheetExcelFile<T> extends SXSSFExcelFile<T> {
 
 	@Override
 	public void addRows(List<T> data) {
-		for (Object renderedData : data) {
-			renderBody(renderedData, currentRowIndex++, COLUMN_START_INDEX);
-			if (currentRowIndex == maxRowCanBeRendered) {
-				currentRowIndex = 1;
+		int lastRowIndex = getMaxRowIndexPerSheet() - getFooterRowCount();
+		int fromIndex = 0;
+		while (fromIndex < data.size()) {
+			int toIndex = Math.min(data.size(), fromIndex + lastRowIndex - currentRowIndex);
+			currentRowIndex = renderBody(data.subList(fromIndex, toIndex), currentRowIndex);
+			fromIndex = toIndex;
+			if (currentRowIndex == lastRowIndex) {
+				renderSheetFooter();
+				currentRowIndex = ROW_START_INDEX;
 				createNewSheetWithHeader();
 			}
 		}
 	}
 
+	/**
+	 * Rows are rendered to next sheet when this row index is reached, footer rows are reserved before it.
+	 * Default is max rows of Excel 2007. Called by constructor, so overriding method should not use fields
+	 */
+	protected int getMaxRowIndexPerSheet() {
+		return maxRowCanBeRendered;
+	}
+
+	/**
+	 * Every sheet has footer of its own rows, and the last sheet also has grand totals of all sheets
+	 */
+	@Override
+	protected void renderFooter() {
+		renderSheetFooter();
+		if (aggregator != null && aggregator.getCompletedSheetCount() > 1) {
+			currentRowIndex += renderAggregateRows(currentRowIndex, COLUMN_START_INDEX, ROW_START_INDEX + 1, true);
+		}
+	}
+
+	private void renderSheetFooter() {
+		currentRowIndex += renderAggregateRows(currentRowIndex, COLUMN_START_INDEX, ROW_START_INDEX + 1, false);
+		if (aggregator != null) {
+			aggregator.completeSheet();
+		}
+	}
+
+	@Override
+	protected int getFooterRowCount() {
+		// sheet footer and grand total footer
+		return aggregator == null ? 0 : aggregator.getFooterAggregates().size() * 2;
+	}
+
 	private void createNewSheetWithHeader() {
 		sheet = wb.createSheet();
 		((SXSSFSheet)sheet).trackAllColumnsForAutoSizing();
@@ -1,7 +1,11 @@
 package com.okdori.excel.onesheet;
 
 import com.okdori.excel.SXSSFExcelFile;
+import com.okdori.excel.control.ExcelExportControl;
+import com.okdori.excel.storage.ExcelTempStorage;
 import com.okdori.resource.DataFormatDecider;
+import com.okdori.resource.DefaultDataFormatDecider;
+import com.okdori.resource.schema.ExcelSchema;
 import org.apache.poi.xssf.streaming.SXSSFSheet;
 
 import java.util.List;
@@ -18,7 +22,8 @@ public final class OneSheetExcelFile<T> extends SXSSFExcelFile<T> {
 
 	private static final int ROW_START_INDEX = 0;
 	private static final int COLUMN_START_INDEX = 0;
-	private int currentRowIndex = ROW_START_INDEX;
+	// not initialized here, because renderExcel is called by super constructor before field initializers
+	private int currentRowIndex;
 
 	public OneSheetExcelFile(Class<T> type) {
 		super(type);
@@ -32,13 +37,32 @@ public final class OneSheetExcelFile<T> extends SXSSFExcelFile<T> {
 		super(data, type, dataFormatDecider);
 	}
 
+	public OneSheetExcelFile(List<T> data, ExcelSchema<T> schema) {
+		this(data, schema, new DefaultDataFormatDecider());
+	}
+
+	public OneSheetExcelFile(List<T> data, ExcelSchema<T> schema, DataFormatDecider dataFormatDecider) {
+		super(data, schema, dataFormatDecider);
+	}
+
+	public OneSheetExcelFile(List<T> data, ExcelSchema<T> schema, DataFormatDecider dataFormatDecider,
+							 ExcelTempStorage storage) {
+		super(data, schema, dataFormatDecider, storage);
+	}
+
+	public OneSheetExcelFile(List<T> data, ExcelSchema<T> schema, DataFormatDecider dataFormatDecider,
+							 ExcelTempStorage storage, int rowAccessWindowSize) {
+		super(data, schema, dataFormatDecider, storage, rowAccessWindowSize);
+	}
+
+	public OneSheetExcelFile(List<T> data, ExcelSchema<T> schema, DataFormatDecider dataFormatDecider,
+							 ExcelTempStorage storage, int rowAccessWindowSize, ExcelExportControl exportControl) {
+		super(data, schema, dataFormatDecider, storage, rowAccessWindowSize, exportControl);
+	}
+
 	@Override
 	protected void validateData(List<T> data) {
-		int maxRows = supplyExcelVersion.getMaxRows();
-		if (data.size() > maxRows) {
-			throw new IllegalArgumentException(
-					String.format("This concrete ExcelFile does not support over %s rows", maxRows));
-		}
+		validateSheetRows(ROW_START_INDEX + 1, data.size());
 	}
 
 	@Override
@@ -53,14 +77,18 @@ public final class OneSheetExcelFile<T> extends SXSSFExcelFile<T> {
 		}
 
 		// 2. Render Body
-		for (Object renderedData : data) {
-			renderBody(renderedData, currentRowIndex++, COLUMN_START_INDEX);
-		}
+		addRows(data);
 	}
 
 	@Override
 	public void addRows(List<T> data) {
-		renderBody(data, currentRowIndex++, COLUMN_START_INDEX);
+		validateSheetRows(currentRowIndex, data.size());
+		currentRowIndex = renderBody(data, currentRowIndex);
+	}
+
+	@Override
+	protected void renderFooter() {
+		currentRowIndex += renderAggregateRows(currentRowIndex, COLUMN_START_INDEX, ROW_START_INDEX + 1, false);
 	}
 
 }
@@ -0,0 +1,81 @@
+package com.okdori.excel.pipeline;
+
+import com.okdori.excel.jfr.ExcelEvent;
+import com.okdori.excel.jfr.ExcelEvents;
+import org.apache.poi.ss.usermodel.Sheet;
+
+import java.util.function.Supplier;
+
+/**
+ * AutoSizeSheetFinalizer
+ *
+ * Auto sizes columns of current sheet after every row, with extra width of 1024.
+ * Width fitting event spans FITTING_EVENT_ROWS rows, or rows until the sheet changes or is finished,
+ * and has time spent fitting them
+ */
+public final class AutoSizeSheetFinalizer implements SheetFinalizer {
+
+	private static final int EXTRA_WIDTH = 1024;
+	private static final int FITTING_EVENT_ROWS = 1000;
+
+	private final Supplier<Sheet> sheet;
+	private final int columnStartIndex;
+	private final int columnCount;
+	private Sheet eventSheet;
+	private ExcelEvent event;
+	private int fittedRows;
+	private long fittingNanos;
+
+	public AutoSizeSheetFinalizer(Supplier<Sheet> sheet, int columnStartIndex, int columnCount) {
+		this.sheet = sheet;
+		this.columnStartIndex = columnStartIndex;
+		this.columnCount = columnCount;
+	}
+
+	@Override
+	public void afterRow() {
+		Sheet currentSheet = sheet.get();
+		if (currentSheet != eventSheet) {
+			commitEvent();
+			eventSheet = currentSheet;
+			event = ExcelEvents.widthFitting(currentSheet.getSheetName());
+		}
+		if (event.isEnabled()) {
+			long start = System.nanoTime();
+			fitColumns(currentSheet);
+			fittingNanos += System.nanoTime() - start;
+		} else {
+			fitColumns(currentSheet);
+		}
+		if (++fittedRows == FITTING_EVENT_ROWS) {
+			commitEvent();
+		}
+	}
+
+	@Override
+	public void finish() {
+		commitEvent();
+	}
+
+	private void fitColumns(Sheet currentSheet) {
+		for (int columnIndex = columnStartIndex; columnIndex < columnStartIndex + columnCount; columnIndex++) {
+			currentSheet.autoSizeColumn(columnIndex);
+			currentSheet.setColumnWidth(columnIndex, currentSheet.getColumnWidth(columnIndex) + EXTRA_WIDTH);
+		}
+	}
+
+	private void commitEvent() {
+		if (event == null) {
+			return;
+		}
+		event.setColumnCount(columnCount);
+		event.setRowCount(fittedRows);
+		event.setFittingNanos(fittingNanos);
+		event.commit();
+		eventSheet = null;
+		event = null;
+		fittedRows = 0;
+		fittingNanos = 0;
+	}
+
+}
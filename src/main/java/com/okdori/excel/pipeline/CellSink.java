@@ -0,0 +1,14 @@
+package com.okdori.excel.pipeline;
+
+/**
+ * CellSink
+ *
+ * Receives converted cell values of a row by column index
+ */
+public interface CellSink {
+
+	void writeNumber(int columnIndex, double value);
+
+	void writeString(int columnIndex, String value);
+
+}
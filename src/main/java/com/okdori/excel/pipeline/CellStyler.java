@@ -0,0 +1,31 @@
+package com.okdori.excel.pipeline;
+
+import com.okdori.resource.ExcelRenderLocation;
+import com.okdori.resource.ExcelRenderResource;
+import org.apache.poi.ss.usermodel.CellStyle;
+
+import java.util.List;
+
+/**
+ * CellStyler
+ *
+ * Style stage of {@link ExcelPipeline}, decides style of body cell by column index
+ */
+@FunctionalInterface
+public interface CellStyler {
+
+	CellStyle getStyle(int columnIndex);
+
+	/**
+	 * Body styles of resource, looked up once
+	 * @param styleNames data field name of style of each column
+	 */
+	static CellStyler of(ExcelRenderResource resource, List<String> styleNames) {
+		CellStyle[] styles = new CellStyle[styleNames.size()];
+		for (int i = 0; i < styles.length; i++) {
+			styles[i] = resource.getCellStyle(styleNames.get(i), ExcelRenderLocation.BODY);
+		}
+		return columnIndex -> styles[columnIndex];
+	}
+
+}
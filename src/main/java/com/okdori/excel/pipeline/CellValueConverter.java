@@ -0,0 +1,50 @@
+package com.okdori.excel.pipeline;
+
+/**
+ * CellValueConverter
+ *
+ * Convert stage of {@link ExcelPipeline}, converts extracted value to number or string cell
+ */
+@FunctionalInterface
+public interface CellValueConverter {
+
+	void convert(int columnIndex, Object value, CellSink sink);
+
+	/**
+	 * Converts number of extract stage written as double
+	 */
+	default void convertNumber(int columnIndex, double value, CellSink sink) {
+		sink.writeNumber(columnIndex, value);
+	}
+
+	/**
+	 * Numbers as number cells, others as string of toString. null is empty string
+	 */
+	static CellValueConverter typed() {
+		return (columnIndex, value, sink) -> {
+			if (value instanceof Number) {
+				sink.writeNumber(columnIndex, ((Number) value).doubleValue());
+				return;
+			}
+			sink.writeString(columnIndex, value == null ? "" : value.toString());
+		};
+	}
+
+	/**
+	 * Every value as string of toString. null is empty string
+	 */
+	static CellValueConverter text() {
+		return new CellValueConverter() {
+			@Override
+			public void convert(int columnIndex, Object value, CellSink sink) {
+				sink.writeString(columnIndex, value == null ? "" : value.toString());
+			}
+
+			@Override
+			public void convertNumber(int columnIndex, double value, CellSink sink) {
+				sink.writeString(columnIndex, String.valueOf(value));
+			}
+		};
+	}
+
+}
@@ -0,0 +1,288 @@
+package com.okdori.excel.pipeline;
+
+import com.okdori.ExcelException;
+import com.okdori.excel.aggregate.ExcelAggregator;
+import com.okdori.exception.ExcelInternalException;
+import com.okdori.resource.schema.CellValueWriter;
+import com.okdori.resource.schema.RowWriter;
+
+import java.util.List;
+
+/**
+ * ExcelPipeline
+ *
+ * Renders body rows through explicit stages, each of which can be replaced.
+ * - source : rows given to {@link #render(List, int)}
+ * - extract : {@link RowWriter} writes values of row by column index
+ * - convert : {@link CellValueConverter} converts values to number or string cells
+ * - style : {@link CellStyler} decides style of cell
+ * - write : {@link SheetRowWriter} writes styled cells to sheet
+ * - finalize : {@link SheetFinalizer} observes cells and finishes sheet
+ *
+ * Extracted values are also accumulated by {@link ExcelAggregator} if given
+ */
+public final class ExcelPipeline<T> {
+
+	private final RowWriter<T> extractor;
+	private final CellValueConverter converter;
+	private final CellStyler styler;
+	private final SheetRowWriter writer;
+	private final SheetFinalizer finalizer;
+	private final ExcelAggregator aggregator;
+	private final ExtractedValueWriter extractedValueWriter = new ExtractedValueWriter();
+	private final StyledCellSink styledCellSink = new StyledCellSink();
+
+	private ExcelPipeline(Builder<T> builder) {
+		this.extractor = builder.extractor;
+		this.converter = builder.converter;
+		this.styler = builder.styler;
+		this.writer = builder.writer;
+		this.finalizer = builder.finalizer;
+		this.aggregator = builder.aggregator;
+	}
+
+	public static <T> Builder<T> builder() {
+		return new Builder<>();
+	}
+
+	/**
+	 * Renders rows from rowIndex
+	 * @return index of the row after rendered rows
+	 */
+	public int render(List<? extends T> rows, int rowIndex) {
+		for (T row : rows) {
+			render(row, rowIndex++);
+		}
+		return rowIndex;
+	}
+
+	public void render(T row, int rowIndex) {
+		writer.beginRow(rowIndex);
+		extract(row, extractedValueWriter);
+		writer.endRow();
+		finalizer.afterRow();
+	}
+
+	/**
+	 * Runs extract and convert stages of rows without touching sheet, can be called from any thread.
+	 * See {@link ParallelRowPreparer}
+	 */
+	PreparedRows prepare(List<? extends T> rows) {
+		PreparedRows preparedRows = new PreparedRows(rows.size(), aggregator == null ? 1 : 2);
+		PreparingValueWriter preparingValueWriter = new PreparingValueWriter(preparedRows);
+		for (T row : rows) {
+			extract(row, preparingValueWriter);
+			preparedRows.endRow();
+		}
+		return preparedRows;
+	}
+
+	/**
+	 * Runs aggregator, style, write and finalize stages of prepared rows from rowIndex
+	 * @return index of the row after written rows
+	 */
+	int write(PreparedRows preparedRows, int rowIndex) {
+		int entry = 0;
+		for (int row = 0; row < preparedRows.getRowCount(); row++) {
+			writer.beginRow(rowIndex++);
+			for (int rowEnd = preparedRows.getRowEnd(row); entry < rowEnd; entry++) {
+				int columnIndex = preparedRows.getColumn(entry);
+				switch (preparedRows.getKind(entry)) {
+					case PreparedRows.AGGREGATE_NUMBER:
+						aggregator.addNumber(columnIndex, preparedRows.getNumber(entry));
+						break;
+					case PreparedRows.AGGREGATE_VALUE:
+						aggregator.addValue(columnIndex, preparedRows.getValue(entry));
+						break;
+					case PreparedRows.CELL_NUMBER:
+						styledCellSink.writeNumber(columnIndex, preparedRows.getNumber(entry));
+						break;
+					default:
+						styledCellSink.writeString(columnIndex, (String) preparedRows.getValue(entry));
+				}
+			}
+			writer.endRow();
+			finalizer.afterRow();
+		}
+		return rowIndex;
+	}
+
+	private void extract(T row, CellValueWriter valueWriter) {
+		try {
+			extractor.write(row, valueWriter);
+		} catch (ExcelException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new ExcelInternalException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Finishes write and finalize stages, once after the last row
+	 */
+	public void finish() {
+		writer.finish();
+		finalizer.finish();
+	}
+
+	public RowWriter<T> getExtractor() {
+		return extractor;
+	}
+
+	public CellValueConverter getConverter() {
+		return converter;
+	}
+
+	public CellStyler getStyler() {
+		return styler;
+	}
+
+	public SheetRowWriter getWriter() {
+		return writer;
+	}
+
+	public SheetFinalizer getFinalizer() {
+		return finalizer;
+	}
+
+	/**
+	 * Output of extract stage, input of convert stage
+	 */
+	private final class ExtractedValueWriter implements CellValueWriter {
+
+		@Override
+		public void writeNumber(int columnIndex, double value) {
+			if (aggregator != null) {
+				aggregator.addNumber(columnIndex, value);
+			}
+			converter.convertNumber(columnIndex, value, styledCellSink);
+		}
+
+		@Override
+		public void writeValue(int columnIndex, Object value) {
+			if (aggregator != null) {
+				aggregator.addValue(columnIndex, value);
+			}
+			converter.convert(columnIndex, value, styledCellSink);
+		}
+
+	}
+
+	/**
+	 * Records output of extract and convert stages into {@link PreparedRows}
+	 */
+	private final class PreparingValueWriter implements CellValueWriter {
+
+		private final PreparedRows preparedRows;
+		private final CellSink convertedCellSink = new CellSink() {
+			@Override
+			public void writeNumber(int columnIndex, double value) {
+				preparedRows.add(PreparedRows.CELL_NUMBER, columnIndex, value, null);
+			}
+
+			@Override
+			public void writeString(int columnIndex, String value) {
+				preparedRows.add(PreparedRows.CELL_STRING, columnIndex, 0, value);
+			}
+		};
+
+		private PreparingValueWriter(PreparedRows preparedRows) {
+			this.preparedRows = preparedRows;
+		}
+
+		@Override
+		public void writeNumber(int columnIndex, double value) {
+			if (aggregator != null) {
+				preparedRows.add(PreparedRows.AGGREGATE_NUMBER, columnIndex, value, null);
+			}
+			converter.convertNumber(columnIndex, value, convertedCellSink);
+		}
+
+		@Override
+		public void writeValue(int columnIndex, Object value) {
+			if (aggregator != null) {
+				preparedRows.add(PreparedRows.AGGREGATE_VALUE, columnIndex, 0, value);
+			}
+			converter.convert(columnIndex, value, convertedCellSink);
+		}
+
+	}
+
+	/**
+	 * Output of convert stage, input of style, write and finalize stages
+	 */
+	private final class StyledCellSink implements CellSink {
+
+		@Override
+		public void writeNumber(int columnIndex, double value) {
+			writer.writeNumber(columnIndex, value, styler.getStyle(columnIndex));
+			finalizer.onNumber(columnIndex, value);
+		}
+
+		@Override
+		public void writeString(int columnIndex, String value) {
+			writer.writeString(columnIndex, value, styler.getStyle(columnIndex));
+			finalizer.onString(columnIndex, value);
+		}
+
+	}
+
+	/**
+	 * Builder of {@link ExcelPipeline}. Extract, style and write stages are required
+	 */
+	public static final class Builder<T> {
+
+		private RowWriter<T> extractor;
+		private CellValueConverter converter = CellValueConverter.typed();
+		private CellStyler styler;
+		private SheetRowWriter writer;
+		private SheetFinalizer finalizer = SheetFinalizer.NONE;
+		private ExcelAggregator aggregator;
+
+		private Builder() {
+
+		}
+
+		public Builder<T> extractor(RowWriter<T> extractor) {
+			this.extractor = extractor;
+			return this;
+		}
+
+		/**
+		 * Default is {@link CellValueConverter#typed()}
+		 */
+		public Builder<T> converter(CellValueConverter converter) {
+			this.converter = converter;
+			return this;
+		}
+
+		public Builder<T> styler(CellStyler styler) {
+			this.styler = styler;
+			return this;
+		}
+
+		public Builder<T> writer(SheetRowWriter writer) {
+			this.writer = writer;
+			return this;
+		}
+
+		public Builder<T> finalizer(SheetFinalizer finalizer) {
+			this.finalizer = finalizer;
+			return this;
+		}
+
+		public Builder<T> aggregator(ExcelAggregator aggregator) {
+			this.aggregator = aggregator;
+			return this;
+		}
+
+		public ExcelPipeline<T> build() {
+			if (extractor == null || styler == null || writer == null) {
+				throw new IllegalArgumentException("Extract, style and write stages of pipeline are required");
+			}
+			return new ExcelPipeline<>(this);
+		}
+
+	}
+
+}
@@ -0,0 +1,99 @@
+package com.okdori.excel.pipeline;
+
+import com.okdori.ExcelException;
+import com.okdori.exception.ExcelInternalException;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * ParallelRowPreparer
+ *
+ * Runs extract and convert stages of {@link ExcelPipeline} for chunks of rows on executor,
+ * while the calling thread writes prepared chunks to sheet in order of rows.
+ * At most maxPendingChunks chunks are prepared or waiting to be written at the same time.
+ *
+ * Extract and convert stages must be stateless, as {@link com.okdori.resource.schema.RowWriter} of schema
+ * and converters of {@link CellValueConverter} are. Style, write and finalize stages and aggregator
+ * are used only by the calling thread
+ */
+public final class ParallelRowPreparer {
+
+	private static final int DEFAULT_CHUNK_SIZE = 512;
+
+	private final ExecutorService executor;
+	private final int chunkSize;
+	private final int maxPendingChunks;
+
+	/**
+	 * @param executor Executor preparing chunks, not shut down by this
+	 * @param chunkSize count of rows prepared by one task
+	 * @param maxPendingChunks count of chunks prepared ahead of the writer
+	 */
+	public ParallelRowPreparer(ExecutorService executor, int chunkSize, int maxPendingChunks) {
+		if (chunkSize < 1 || maxPendingChunks < 1) {
+			throw new IllegalArgumentException(String.format(
+					"chunkSize and maxPendingChunks must be positive, but %s and %s", chunkSize, maxPendingChunks));
+		}
+		this.executor = executor;
+		this.chunkSize = chunkSize;
+		this.maxPendingChunks = maxPendingChunks;
+	}
+
+	/**
+	 * Prepares chunks of 512 rows on common ForkJoinPool, two chunks ahead per core
+	 */
+	public static ParallelRowPreparer commonPool() {
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		return new ParallelRowPreparer(pool, DEFAULT_CHUNK_SIZE, pool.getParallelism() * 2);
+	}
+
+	/**
+	 * Renders rows from rowIndex, same as {@link ExcelPipeline#render(List, int)}
+	 * @return index of the row after rendered rows
+	 */
+	public <T> int render(ExcelPipeline<T> pipeline, List<? extends T> rows, int rowIndex) {
+		if (rows.size() <= chunkSize) {
+			return pipeline.render(rows, rowIndex);
+		}
+
+		Deque<Future<PreparedRows>> futures = new ArrayDeque<>();
+		try {
+			int submitted = 0;
+			while (submitted < rows.size() || !futures.isEmpty()) {
+				while (submitted < rows.size() && futures.size() < maxPendingChunks) {
+					List<? extends T> chunk = rows.subList(submitted, Math.min(rows.size(), submitted + chunkSize));
+					futures.addLast(executor.submit(() -> pipeline.prepare(chunk)));
+					submitted += chunk.size();
+				}
+				rowIndex = pipeline.write(await(futures.removeFirst()), rowIndex);
+			}
+		} finally {
+			for (Future<PreparedRows> future : futures) {
+				future.cancel(false);
+			}
+		}
+		return rowIndex;
+	}
+
+	private static PreparedRows await(Future<PreparedRows> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ExcelInternalException("Interrupted while preparing rows", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof ExcelException) {
+				throw (ExcelException) cause;
+			}
+			throw new ExcelInternalException(cause.getMessage(), cause);
+		}
+	}
+
+}
@@ -0,0 +1,55 @@
+package com.okdori.excel.pipeline;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+
+import java.util.function.Supplier;
+
+/**
+ * PoiSheetRowWriter
+ *
+ * Creates Row and Cell of current sheet
+ */
+public final class PoiSheetRowWriter implements SheetRowWriter {
+
+	private final Supplier<Sheet> sheet;
+	private final int columnStartIndex;
+	private Row row;
+
+	/**
+	 * @param sheet current sheet, which can change between rows
+	 */
+	public PoiSheetRowWriter(Supplier<Sheet> sheet, int columnStartIndex) {
+		this.sheet = sheet;
+		this.columnStartIndex = columnStartIndex;
+	}
+
+	@Override
+	public void beginRow(int rowIndex) {
+		row = sheet.get().createRow(rowIndex);
+	}
+
+	@Override
+	public void writeNumber(int columnIndex, double value, CellStyle style) {
+		createCell(columnIndex, style).setCellValue(value);
+	}
+
+	@Override
+	public void writeString(int columnIndex, String value, CellStyle style) {
+		createCell(columnIndex, style).setCellValue(value);
+	}
+
+	@Override
+	public void endRow() {
+		row = null;
+	}
+
+	private Cell createCell(int columnIndex, CellStyle style) {
+		Cell cell = row.createCell(columnStartIndex + columnIndex);
+		cell.setCellStyle(style);
+		return cell;
+	}
+
+}
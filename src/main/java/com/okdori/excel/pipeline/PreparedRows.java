@@ -0,0 +1,83 @@
+package com.okdori.excel.pipeline;
+
+import java.util.Arrays;
+
+/**
+ * PreparedRows
+ *
+ * Output of extract and convert stages of a chunk of rows, prepared by {@link ExcelPipeline#prepare(java.util.List)}
+ * and replayed in order by {@link ExcelPipeline#write(PreparedRows, int)}.
+ * Values extracted for aggregator are kept as well, so aggregation is done by the writer thread
+ */
+final class PreparedRows {
+
+	static final byte AGGREGATE_NUMBER = 0;
+	static final byte AGGREGATE_VALUE = 1;
+	static final byte CELL_NUMBER = 2;
+	static final byte CELL_STRING = 3;
+
+	private byte[] kinds;
+	private int[] columns;
+	private double[] numbers;
+	private Object[] values;
+	private int size;
+
+	private final int[] rowEnds;
+	private int rowCount;
+
+	PreparedRows(int rowCount, int expectedEntriesPerRow) {
+		int capacity = Math.max(16, rowCount * expectedEntriesPerRow);
+		this.kinds = new byte[capacity];
+		this.columns = new int[capacity];
+		this.numbers = new double[capacity];
+		this.values = new Object[capacity];
+		this.rowEnds = new int[rowCount];
+	}
+
+	void add(byte kind, int columnIndex, double number, Object value) {
+		if (size == kinds.length) {
+			int capacity = size * 2;
+			kinds = Arrays.copyOf(kinds, capacity);
+			columns = Arrays.copyOf(columns, capacity);
+			numbers = Arrays.copyOf(numbers, capacity);
+			values = Arrays.copyOf(values, capacity);
+		}
+		kinds[size] = kind;
+		columns[size] = columnIndex;
+		numbers[size] = number;
+		values[size] = value;
+		size++;
+	}
+
+	void endRow() {
+		rowEnds[rowCount++] = size;
+	}
+
+	int getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * Index after the last entry of row
+	 */
+	int getRowEnd(int row) {
+		return rowEnds[row];
+	}
+
+	byte getKind(int entry) {
+		return kinds[entry];
+	}
+
+	int getColumn(int entry) {
+		return columns[entry];
+	}
+
+	double getNumber(int entry) {
+		return numbers[entry];
+	}
+
+	Object getValue(int entry) {
+		return values[entry];
+	}
+
+}
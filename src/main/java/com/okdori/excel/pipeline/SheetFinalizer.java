@@ -0,0 +1,55 @@
+package com.okdori.excel.pipeline;
+
+/**
+ * SheetFinalizer
+ *
+ * Finalize stage of {@link ExcelPipeline}, observes written cells and finishes sheet such as column widths
+ */
+public interface SheetFinalizer {
+
+	SheetFinalizer NONE = new SheetFinalizer() { };
+
+	default void onNumber(int columnIndex, double value) { }
+
+	default void onString(int columnIndex, String value) { }
+
+	default void afterRow() { }
+
+	default void finish() { }
+
+	/**
+	 * Finalizer calling finalizers in order
+	 */
+	static SheetFinalizer of(SheetFinalizer... finalizers) {
+		return new SheetFinalizer() {
+			@Override
+			public void onNumber(int columnIndex, double value) {
+				for (SheetFinalizer finalizer : finalizers) {
+					finalizer.onNumber(columnIndex, value);
+				}
+			}
+
+			@Override
+			public void onString(int columnIndex, String value) {
+				for (SheetFinalizer finalizer : finalizers) {
+					finalizer.onString(columnIndex, value);
+				}
+			}
+
+			@Override
+			public void afterRow() {
+				for (SheetFinalizer finalizer : finalizers) {
+					finalizer.afterRow();
+				}
+			}
+
+			@Override
+			public void finish() {
+				for (SheetFinalizer finalizer : finalizers) {
+					finalizer.finish();
+				}
+			}
+		};
+	}
+
+}
@@ -0,0 +1,28 @@
+package com.okdori.excel.pipeline;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+
+/**
+ * SheetRowWriter
+ *
+ * Write stage of {@link ExcelPipeline}, writes styled cells of rows to sheet
+ */
+public interface SheetRowWriter {
+
+	/**
+	 * @param rowIndex zero based index of row in sheet
+	 */
+	void beginRow(int rowIndex);
+
+	void writeNumber(int columnIndex, double value, CellStyle style);
+
+	void writeString(int columnIndex, String value, CellStyle style);
+
+	void endRow();
+
+	/**
+	 * Called once after the last row, before rows are rendered by others such as footer
+	 */
+	default void finish() { }
+
+}
@@ -0,0 +1,79 @@
+package com.okdori.excel.pivot;
+
+import java.util.Arrays;
+
+/**
+ * LongDoubleHashMap
+ *
+ * Open addressing map of non-negative long keys to double sums, without boxing.
+ * Linear probing, resized at load factor 0.5
+ */
+final class LongDoubleHashMap {
+
+	private static final long EMPTY = -1L;
+	private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+
+	private long[] keys;
+	private double[] values;
+	private int size;
+	private int shift;
+
+	LongDoubleHashMap() {
+		allocate(16);
+	}
+
+	void add(long key, double value) {
+		int index = indexOf(key);
+		if (keys[index] == EMPTY) {
+			keys[index] = key;
+			values[index] = value;
+			if (++size * 2 > keys.length) {
+				resize();
+			}
+			return;
+		}
+		values[index] += value;
+	}
+
+	/**
+	 * @return sum of key, NaN if key was not added
+	 */
+	double get(long key) {
+		int index = indexOf(key);
+		return keys[index] == EMPTY ? Double.NaN : values[index];
+	}
+
+	int size() {
+		return size;
+	}
+
+	private int indexOf(long key) {
+		int mask = keys.length - 1;
+		int index = (int) ((key * GOLDEN_RATIO) >>> shift);
+		while (keys[index] != EMPTY && keys[index] != key) {
+			index = (index + 1) & mask;
+		}
+		return index;
+	}
+
+	private void resize() {
+		long[] oldKeys = keys;
+		double[] oldValues = values;
+		allocate(oldKeys.length * 2);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != EMPTY) {
+				int index = indexOf(oldKeys[i]);
+				keys[index] = oldKeys[i];
+				values[index] = oldValues[i];
+			}
+		}
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		Arrays.fill(keys, EMPTY);
+		values = new double[capacity];
+		shift = Long.numberOfLeadingZeros(capacity - 1);
+	}
+
+}
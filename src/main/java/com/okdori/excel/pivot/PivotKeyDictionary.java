@@ -0,0 +1,158 @@
+package com.okdori.excel.pivot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * PivotKeyDictionary
+ *
+ * Gives dense ids to distinct keys of a pivot axis, with open addressing tables of string keys and number keys.
+ * Number keys are looked up by their bits, so they are not boxed
+ */
+final class PivotKeyDictionary {
+
+	private static final int EMPTY = -1;
+	private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+
+	private String[] stringKeys = new String[16];
+	private int[] stringIds = emptyIds(16);
+	private long[] numberKeys = new long[16];
+	private int[] numberIds = emptyIds(16);
+	private int stringCount;
+	private int numberCount;
+
+	private final List<String> labels = new ArrayList<>();
+	private double[] numbers = new double[16];
+
+	int idOf(String key) {
+		int mask = stringKeys.length - 1;
+		int index = mix(key.hashCode()) & mask;
+		while (stringIds[index] != EMPTY) {
+			if (stringKeys[index].equals(key)) {
+				return stringIds[index];
+			}
+			index = (index + 1) & mask;
+		}
+		int id = register(key, Double.NaN);
+		stringKeys[index] = key;
+		stringIds[index] = id;
+		if (++stringCount * 2 > stringKeys.length) {
+			resizeStrings();
+		}
+		return id;
+	}
+
+	int idOf(double key) {
+		// -0.0 is the same key as 0.0, like Excel shows both as 0
+		if (key == 0.0) {
+			key = 0.0;
+		}
+		long bits = Double.doubleToLongBits(key);
+		int mask = numberKeys.length - 1;
+		int index = mix(Long.hashCode(bits)) & mask;
+		while (numberIds[index] != EMPTY) {
+			if (numberKeys[index] == bits) {
+				return numberIds[index];
+			}
+			index = (index + 1) & mask;
+		}
+		int id = register(label(key), key);
+		numberKeys[index] = bits;
+		numberIds[index] = id;
+		if (++numberCount * 2 > numberKeys.length) {
+			resizeNumbers();
+		}
+		return id;
+	}
+
+	int size() {
+		return labels.size();
+	}
+
+	String getLabel(int id) {
+		return labels.get(id);
+	}
+
+	/**
+	 * Number keys first in numeric order, then string keys in string order
+	 */
+	Integer[] sortedIds() {
+		Integer[] ids = new Integer[labels.size()];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = i;
+		}
+		Arrays.sort(ids, Comparator.<Integer>comparingInt(id -> Double.isNaN(numbers[id]) ? 1 : 0)
+				.thenComparingDouble(id -> Double.isNaN(numbers[id]) ? 0 : numbers[id])
+				.thenComparing(labels::get));
+		return ids;
+	}
+
+	private int register(String label, double number) {
+		int id = labels.size();
+		labels.add(label);
+		if (id == numbers.length) {
+			numbers = Arrays.copyOf(numbers, id * 2);
+		}
+		numbers[id] = number;
+		return id;
+	}
+
+	private void resizeStrings() {
+		String[] oldKeys = stringKeys;
+		int[] oldIds = stringIds;
+		stringKeys = new String[oldKeys.length * 2];
+		stringIds = emptyIds(oldKeys.length * 2);
+		int mask = stringKeys.length - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldIds[i] != EMPTY) {
+				int index = mix(oldKeys[i].hashCode()) & mask;
+				while (stringIds[index] != EMPTY) {
+					index = (index + 1) & mask;
+				}
+				stringKeys[index] = oldKeys[i];
+				stringIds[index] = oldIds[i];
+			}
+		}
+	}
+
+	private void resizeNumbers() {
+		long[] oldKeys = numberKeys;
+		int[] oldIds = numberIds;
+		numberKeys = new long[oldKeys.length * 2];
+		numberIds = emptyIds(oldKeys.length * 2);
+		int mask = numberKeys.length - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldIds[i] != EMPTY) {
+				int index = mix(Long.hashCode(oldKeys[i])) & mask;
+				while (numberIds[index] != EMPTY) {
+					index = (index + 1) & mask;
+				}
+				numberKeys[index] = oldKeys[i];
+				numberIds[index] = oldIds[i];
+			}
+		}
+	}
+
+	private static int mix(int hash) {
+		return (int) ((hash * GOLDEN_RATIO) >>> 32);
+	}
+
+	private static int[] emptyIds(int capacity) {
+		int[] ids = new int[capacity];
+		Arrays.fill(ids, EMPTY);
+		return ids;
+	}
+
+	/**
+	 * Integral numbers are labeled without fraction, like 2024 instead of 2024.0
+	 */
+	private static String label(double key) {
+		if (key == Math.rint(key) && Math.abs(key) < 1e15) {
+			return Long.toString((long) key);
+		}
+		return Double.toString(key);
+	}
+
+}
@@ -0,0 +1,201 @@
+package com.okdori.excel.pivot;
+
+import com.okdori.ExcelPivotSummary;
+import com.okdori.excel.pipeline.SheetFinalizer;
+import com.okdori.resource.ExcelRenderLocation;
+import com.okdori.resource.ExcelRenderResource;
+import com.okdori.resource.schema.ExcelSchema;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+
+import static com.okdori.utils.SuperClassReflectionUtils.getAnnotation;
+
+/**
+ * PivotSummary
+ *
+ * Sums measure column by keys of row column and column column while body rows are written,
+ * and renders them as a summary sheet after the last row.
+ * Keys are given dense ids by {@link PivotKeyDictionary}, and sums are kept in {@link LongDoubleHashMap},
+ * so accumulating a row does not box values
+ */
+public final class PivotSummary implements SheetFinalizer {
+
+	private static final int MAX_COLUMN_WIDTH = 50 * 256;
+	private static final String TOTAL_LABEL = "Total";
+
+	private final String sheetName;
+	private final String rowColumnName;
+	private final String columnColumnName;
+	private final String measureColumnName;
+	private final int rowColumn;
+	private final int columnColumn;
+	private final int measureColumn;
+
+	private final PivotKeyDictionary rowKeys = new PivotKeyDictionary();
+	private final PivotKeyDictionary columnKeys = new PivotKeyDictionary();
+	private final LongDoubleHashMap sums = new LongDoubleHashMap();
+
+	private int currentRowKey = -1;
+	private int currentColumnKey = -1;
+	private double currentMeasure = Double.NaN;
+
+	/**
+	 * @param rowColumnName column whose values become rows of summary
+	 * @param columnColumnName column whose values become columns of summary
+	 * @param measureColumnName column whose numbers are summed
+	 */
+	public PivotSummary(ExcelSchema<?> schema, String sheetName, String rowColumnName, String columnColumnName,
+						String measureColumnName) {
+		this.sheetName = sheetName;
+		this.rowColumnName = rowColumnName;
+		this.columnColumnName = columnColumnName;
+		this.measureColumnName = measureColumnName;
+		this.rowColumn = indexOf(schema, rowColumnName);
+		this.columnColumn = indexOf(schema, columnColumnName);
+		this.measureColumn = indexOf(schema, measureColumnName);
+	}
+
+	/**
+	 * Summary of @ExcelPivotSummary of schema class, null if it is not declared
+	 */
+	public static PivotSummary of(ExcelSchema<?> schema) {
+		if (schema.getType() == null) {
+			return null;
+		}
+		ExcelPivotSummary annotation = (ExcelPivotSummary) getAnnotation(schema.getType(), ExcelPivotSummary.class);
+		if (annotation == null) {
+			return null;
+		}
+		return new PivotSummary(schema, annotation.sheetName(), annotation.rows(), annotation.columns(),
+				annotation.measure());
+	}
+
+	private static int indexOf(ExcelSchema<?> schema, String columnName) {
+		int index = schema.getColumnNames().indexOf(columnName);
+		if (index < 0) {
+			throw new IllegalArgumentException(String.format("Pivot column %s is not rendered by schema", columnName));
+		}
+		return index;
+	}
+
+	@Override
+	public void onNumber(int columnIndex, double value) {
+		if (columnIndex == rowColumn) {
+			currentRowKey = rowKeys.idOf(value);
+		}
+		if (columnIndex == columnColumn) {
+			currentColumnKey = columnKeys.idOf(value);
+		}
+		if (columnIndex == measureColumn) {
+			currentMeasure = value;
+		}
+	}
+
+	@Override
+	public void onString(int columnIndex, String value) {
+		if (columnIndex == rowColumn) {
+			currentRowKey = rowKeys.idOf(value);
+		}
+		if (columnIndex == columnColumn) {
+			currentColumnKey = columnKeys.idOf(value);
+		}
+	}
+
+	@Override
+	public void afterRow() {
+		if (currentRowKey >= 0 && currentColumnKey >= 0 && !Double.isNaN(currentMeasure)) {
+			sums.add(((long) currentRowKey << 32) | currentColumnKey, currentMeasure);
+		}
+		currentRowKey = -1;
+		currentColumnKey = -1;
+		currentMeasure = Double.NaN;
+	}
+
+	/**
+	 * Renders summary sheet. Rows and columns are sorted by key, numbers first
+	 */
+	public void render(Workbook workbook, ExcelRenderResource resource) {
+		Integer[] rowIds = rowKeys.sortedIds();
+		Integer[] columnIds = columnKeys.sortedIds();
+		if (columnIds.length + 2 > SpreadsheetVersion.EXCEL2007.getMaxColumns()) {
+			throw new IllegalStateException(String.format("Pivot summary can not have %s columns of %s",
+					columnIds.length, columnColumnName));
+		}
+		// header and total rows are added to rows of keys
+		if (rowIds.length + 2 > SpreadsheetVersion.EXCEL2007.getMaxRows()) {
+			throw new IllegalStateException(String.format(
+					"Pivot summary can not have %s rows of %s, a sheet has at most %s rows",
+					rowIds.length, rowColumnName, SpreadsheetVersion.EXCEL2007.getMaxRows()));
+		}
+
+		CellStyle rowHeaderStyle = resource.getCellStyle(rowColumnName, ExcelRenderLocation.HEADER);
+		CellStyle columnHeaderStyle = resource.getCellStyle(columnColumnName, ExcelRenderLocation.HEADER);
+		CellStyle rowKeyStyle = resource.getCellStyle(rowColumnName, ExcelRenderLocation.BODY);
+		CellStyle measureStyle = resource.getCellStyle(measureColumnName, ExcelRenderLocation.BODY);
+		int[] maxLengths = new int[columnIds.length + 2];
+
+		Sheet sheet = workbook.createSheet(sheetName);
+		Row header = sheet.createRow(0);
+		setString(header, 0, resource.getExcelHeaderName(rowColumnName), rowHeaderStyle, maxLengths);
+		for (int i = 0; i < columnIds.length; i++) {
+			setString(header, i + 1, columnKeys.getLabel(columnIds[i]), columnHeaderStyle, maxLengths);
+		}
+		setString(header, columnIds.length + 1, TOTAL_LABEL, columnHeaderStyle, maxLengths);
+
+		double[] columnTotals = new double[columnIds.length];
+		double grandTotal = 0;
+		for (int r = 0; r < rowIds.length; r++) {
+			Row row = sheet.createRow(r + 1);
+			setString(row, 0, rowKeys.getLabel(rowIds[r]), rowKeyStyle, maxLengths);
+			double rowTotal = 0;
+			for (int c = 0; c < columnIds.length; c++) {
+				double sum = sums.get(((long) rowIds[r] << 32) | columnIds[c]);
+				Cell cell = row.createCell(c + 1);
+				cell.setCellStyle(measureStyle);
+				if (!Double.isNaN(sum)) {
+					setNumber(cell, c + 1, sum, maxLengths);
+					rowTotal += sum;
+					columnTotals[c] += sum;
+				}
+			}
+			setNumber(styledCell(row, columnIds.length + 1, measureStyle), columnIds.length + 1, rowTotal, maxLengths);
+			grandTotal += rowTotal;
+		}
+
+		Row total = sheet.createRow(rowIds.length + 1);
+		setString(total, 0, TOTAL_LABEL, rowHeaderStyle, maxLengths);
+		for (int c = 0; c < columnIds.length; c++) {
+			setNumber(styledCell(total, c + 1, measureStyle), c + 1, columnTotals[c], maxLengths);
+		}
+		setNumber(styledCell(total, columnIds.length + 1, measureStyle), columnIds.length + 1, grandTotal, maxLengths);
+
+		for (int i = 0; i < maxLengths.length; i++) {
+			sheet.setColumnWidth(i, Math.min(MAX_COLUMN_WIDTH, (maxLengths[i] + 2) * 256));
+		}
+	}
+
+	public String getSheetName() {
+		return sheetName;
+	}
+
+	private static Cell styledCell(Row row, int columnIndex, CellStyle style) {
+		Cell cell = row.createCell(columnIndex);
+		cell.setCellStyle(style);
+		return cell;
+	}
+
+	private static void setString(Row row, int columnIndex, String value, CellStyle style, int[] maxLengths) {
+		styledCell(row, columnIndex, style).setCellValue(value);
+		maxLengths[columnIndex] = Math.max(maxLengths[columnIndex], value.length());
+	}
+
+	private static void setNumber(Cell cell, int columnIndex, double value, int[] maxLengths) {
+		cell.setCellValue(value);
+		maxLengths[columnIndex] = Math.max(maxLengths[columnIndex], Double.toString(value).length());
+	}
+
+}
@@ -0,0 +1,136 @@
+package com.okdori.excel.resume;
+
+import com.okdori.exception.ExcelCheckpointException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+
+/**
+ * ExcelCheckpoint
+ *
+ * Completed sheet parts and cursor of the next page, saved in checkpoint directory.
+ * Files are written to temp file, forced to disk and moved, so a checkpoint never refers to a partial file
+ */
+final class ExcelCheckpoint {
+
+	private static final String CHECKPOINT_FILE = "checkpoint.properties";
+
+	private final Path directory;
+	private final String fingerprint;
+	private int completedParts;
+	private String cursor;
+	private boolean finished;
+
+	private ExcelCheckpoint(Path directory, String fingerprint) {
+		this.directory = directory;
+		this.fingerprint = fingerprint;
+	}
+
+	static ExcelCheckpoint load(Path directory, String fingerprint) throws IOException {
+		Files.createDirectories(directory);
+		ExcelCheckpoint checkpoint = new ExcelCheckpoint(directory, fingerprint);
+		Path file = directory.resolve(CHECKPOINT_FILE);
+		if (!Files.exists(file)) {
+			return checkpoint;
+		}
+
+		Properties properties = new Properties();
+		try (InputStream stream = Files.newInputStream(file)) {
+			properties.load(stream);
+		}
+		if (!fingerprint.equals(properties.getProperty("fingerprint"))) {
+			throw new ExcelCheckpointException(
+					String.format("Checkpoint in %s was saved by another export", directory));
+		}
+		checkpoint.completedParts = Integer.parseInt(properties.getProperty("parts"));
+		checkpoint.cursor = properties.getProperty("cursor");
+		checkpoint.finished = Boolean.parseBoolean(properties.getProperty("finished"));
+		for (int i = 0; i < checkpoint.completedParts; i++) {
+			if (!Files.exists(checkpoint.partFile(i))) {
+				throw new ExcelCheckpointException(
+						String.format("Checkpoint in %s lost completed part %s", directory, checkpoint.partFile(i)));
+			}
+		}
+		return checkpoint;
+	}
+
+	Path partFile(int partIndex) {
+		return directory.resolve(String.format("part-%05d.xlsx", partIndex));
+	}
+
+	Path tempFile(Path file) {
+		return file.resolveSibling(file.getFileName() + ".tmp");
+	}
+
+	/**
+	 * Moves rendered temp file of the next part, and saves cursor to continue from
+	 */
+	void complete(String cursor, boolean finished) throws IOException {
+		Path partFile = partFile(completedParts);
+		commit(tempFile(partFile), partFile);
+		completedParts++;
+		this.cursor = cursor;
+		this.finished = finished;
+		save();
+	}
+
+	/**
+	 * Finishes without another part, when the last page is fetched after a full part
+	 */
+	void finish() throws IOException {
+		this.cursor = null;
+		this.finished = true;
+		save();
+	}
+
+	void delete() throws IOException {
+		for (int i = 0; i < completedParts; i++) {
+			Files.deleteIfExists(partFile(i));
+		}
+		Files.deleteIfExists(directory.resolve(CHECKPOINT_FILE));
+	}
+
+	int getCompletedParts() {
+		return completedParts;
+	}
+
+	String getCursor() {
+		return cursor;
+	}
+
+	boolean isFinished() {
+		return finished;
+	}
+
+	private void save() throws IOException {
+		Properties properties = new Properties();
+		properties.setProperty("fingerprint", fingerprint);
+		properties.setProperty("parts", String.valueOf(completedParts));
+		properties.setProperty("finished", String.valueOf(finished));
+		if (cursor != null) {
+			properties.setProperty("cursor", cursor);
+		}
+
+		Path file = directory.resolve(CHECKPOINT_FILE);
+		Path tempFile = tempFile(file);
+		try (OutputStream stream = Files.newOutputStream(tempFile)) {
+			properties.store(stream, null);
+		}
+		commit(tempFile, file);
+	}
+
+	private static void commit(Path tempFile, Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+			channel.force(true);
+		}
+		Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+}
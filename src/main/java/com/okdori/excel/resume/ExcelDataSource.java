@@ -0,0 +1,19 @@
+package com.okdori.excel.resume;
+
+/**
+ * ExcelDataSource
+ *
+ * Source of rows read page by page from a cursor.
+ * Cursor is stored in checkpoint, so the same cursor should always return the same rows
+ */
+@FunctionalInterface
+public interface ExcelDataSource<T> {
+
+	/**
+	 * fetch
+	 * @param cursor cursor returned by previous page, null for the first page
+	 * @param limit max rows of returned page
+	 */
+	ExcelPage<T> fetch(String cursor, int limit);
+
+}
@@ -0,0 +1,46 @@
+package com.okdori.excel.resume;
+
+import java.util.List;
+
+/**
+ * ExcelPage
+ *
+ * Rows fetched by {@link ExcelDataSource}, and cursor of the next page
+ */
+public final class ExcelPage<T> {
+
+	private final List<T> rows;
+	private final String nextCursor;
+
+	private ExcelPage(List<T> rows, String nextCursor) {
+		this.rows = rows;
+		this.nextCursor = nextCursor;
+	}
+
+	public static <T> ExcelPage<T> of(List<T> rows, String nextCursor) {
+		if (nextCursor == null) {
+			throw new IllegalArgumentException("nextCursor must not be null, use ExcelPage.last for the last page");
+		}
+		return new ExcelPage<>(rows, nextCursor);
+	}
+
+	public static <T> ExcelPage<T> last(List<T> rows) {
+		return new ExcelPage<>(rows, null);
+	}
+
+	public List<T> getRows() {
+		return rows;
+	}
+
+	/**
+	 * Cursor of the next page, null if this is the last page
+	 */
+	public String getNextCursor() {
+		return nextCursor;
+	}
+
+	public boolean isLast() {
+		return nextCursor == null;
+	}
+
+}
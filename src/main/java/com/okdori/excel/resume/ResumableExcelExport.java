@@ -0,0 +1,174 @@
+package com.okdori.excel.resume;
+
+import com.okdori.excel.aggregate.ExcelAggregator;
+import com.okdori.excel.control.ExcelExportControl;
+import com.okdori.excel.xlsx.XlsxSheetAssembler;
+import com.okdori.resource.DataFormatDecider;
+import com.okdori.resource.DefaultDataFormatDecider;
+import com.okdori.resource.schema.ExcelColumnSchema;
+import com.okdori.resource.schema.ExcelSchema;
+import org.apache.poi.ss.SpreadsheetVersion;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ResumableExcelExport
+ *
+ * - render rows of {@link ExcelDataSource} sheet by sheet
+ * - save every completed sheet and cursor of the next page to checkpoint directory
+ * - restarted export with the same checkpoint directory reuses completed sheets and continues from saved cursor,
+ *   if its schema, rowsPerSheet and sourceId are the same
+ * - resumed export writes the same bytes as export never stopped
+ *
+ * Every sheet has footer of its own rows, grand totals of all sheets are not rendered
+ */
+public final class ResumableExcelExport<T> {
+
+	private static final int MAX_BODY_ROWS = SpreadsheetVersion.EXCEL2007.getMaxRows() - 1;
+
+	private final ExcelSchema<T> schema;
+	private final ExcelDataSource<T> dataSource;
+	private final Path checkpointDirectory;
+	private int rowsPerSheet;
+	private int fetchSize = 1_000;
+	private DataFormatDecider dataFormatDecider = new DefaultDataFormatDecider();
+	private ExcelExportControl exportControl = ExcelExportControl.none();
+	private String sourceId = "";
+
+	public ResumableExcelExport(ExcelSchema<T> schema, ExcelDataSource<T> dataSource, File checkpointDirectory) {
+		this.schema = schema;
+		this.dataSource = dataSource;
+		this.checkpointDirectory = checkpointDirectory.toPath();
+		this.rowsPerSheet = MAX_BODY_ROWS - footerRowCount();
+	}
+
+	/**
+	 * Body rows of one sheet, which is also the interval of checkpoints. Default is max rows of one sheet
+	 */
+	public ResumableExcelExport<T> rowsPerSheet(int rowsPerSheet) {
+		if (rowsPerSheet <= 0 || rowsPerSheet > MAX_BODY_ROWS - footerRowCount()) {
+			throw new IllegalArgumentException(String.format("Wrong rowsPerSheet %s", rowsPerSheet));
+		}
+		this.rowsPerSheet = rowsPerSheet;
+		return this;
+	}
+
+	/**
+	 * Max rows fetched from data source at once. Default is 1000
+	 */
+	public ResumableExcelExport<T> fetchSize(int fetchSize) {
+		if (fetchSize <= 0) {
+			throw new IllegalArgumentException(String.format("Wrong fetchSize %s", fetchSize));
+		}
+		this.fetchSize = fetchSize;
+		return this;
+	}
+
+	public ResumableExcelExport<T> dataFormatDecider(DataFormatDecider dataFormatDecider) {
+		this.dataFormatDecider = dataFormatDecider;
+		return this;
+	}
+
+	/**
+	 * Control checked before each fetch and while each sheet is rendered and saved.
+	 * Cancelled export keeps its checkpoint, so it can be resumed. Default is {@link ExcelExportControl#none()}
+	 */
+	public ResumableExcelExport<T> exportControl(ExcelExportControl exportControl) {
+		this.exportControl = exportControl;
+		return this;
+	}
+
+	/**
+	 * Identity of rows of data source, such as id of query or export, saved with checkpoint
+	 * so checkpoint of another source is not resumed. Default is empty
+	 */
+	public ResumableExcelExport<T> sourceId(String sourceId) {
+		if (sourceId == null) {
+			throw new IllegalArgumentException("sourceId should not be null");
+		}
+		this.sourceId = sourceId;
+		return this;
+	}
+
+	/**
+	 * Renders remaining sheets and writes the assembled workbook.
+	 * Checkpoint is deleted after the workbook is written, and kept if anything fails
+	 */
+	public void write(OutputStream stream) throws IOException {
+		ExcelCheckpoint checkpoint = ExcelCheckpoint.load(checkpointDirectory, fingerprint());
+		while (!checkpoint.isFinished()) {
+			renderNextPart(checkpoint);
+		}
+
+		List<File> parts = new ArrayList<>();
+		for (int i = 0; i < checkpoint.getCompletedParts(); i++) {
+			parts.add(checkpoint.partFile(i).toFile());
+		}
+		try {
+			XlsxSheetAssembler.assemble(parts, stream);
+		} finally {
+			stream.close();
+		}
+		checkpoint.delete();
+	}
+
+	private void renderNextPart(ExcelCheckpoint checkpoint) throws IOException {
+		int partIndex = checkpoint.getCompletedParts();
+		String cursor = checkpoint.getCursor();
+		ExcelPage<T> page = fetch(cursor, rowsPerSheet);
+		if (page.getRows().isEmpty() && page.isLast() && partIndex > 0) {
+			checkpoint.finish();
+			return;
+		}
+
+		SheetPartExcelFile<T> part = new SheetPartExcelFile<>(schema, dataFormatDecider, partIndex == 0);
+		part.setExportControl(exportControl);
+		int rows = 0;
+		while (true) {
+			part.addRows(page.getRows());
+			rows += page.getRows().size();
+			cursor = page.getNextCursor();
+			if (page.isLast() || rows == rowsPerSheet) {
+				break;
+			}
+			page = fetch(cursor, rowsPerSheet - rows);
+		}
+
+		part.write(Files.newOutputStream(checkpoint.tempFile(checkpoint.partFile(partIndex))));
+		checkpoint.complete(cursor, page.isLast());
+	}
+
+	private ExcelPage<T> fetch(String cursor, int remainingRows) {
+		exportControl.check();
+		int limit = Math.min(fetchSize, remainingRows);
+		ExcelPage<T> page = dataSource.fetch(cursor, limit);
+		if (page.getRows().size() > limit) {
+			throw new IllegalStateException(
+					String.format("ExcelDataSource returned %s rows over limit %s", page.getRows().size(), limit));
+		}
+		return page;
+	}
+
+	private int footerRowCount() {
+		ExcelAggregator aggregator = ExcelAggregator.of(schema);
+		return aggregator == null ? 0 : aggregator.getFooterAggregates().size();
+	}
+
+	/**
+	 * Type and columns of schema, rowsPerSheet and sourceId
+	 */
+	private String fingerprint() {
+		StringBuilder fingerprint = new StringBuilder(schema.getType() == null ? "" : schema.getType().getName());
+		for (ExcelColumnSchema column : schema.getColumns()) {
+			fingerprint.append(';').append(column.getName()).append(':').append(column.getType().getName());
+		}
+		return fingerprint.append(';').append(rowsPerSheet).append(';').append(sourceId).toString();
+	}
+
+}
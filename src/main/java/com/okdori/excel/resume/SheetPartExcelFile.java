@@ -0,0 +1,47 @@
+package com.okdori.excel.resume;
+
+import com.okdori.excel.SXSSFExcelFile;
+import com.okdori.resource.DataFormatDecider;
+import com.okdori.resource.schema.ExcelSchema;
+import org.apache.commons.compress.archivers.zip.Zip64Mode;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * SheetPartExcelFile
+ *
+ * Workbook of one sheet to be assembled with other parts, only the first part has selected tab
+ */
+final class SheetPartExcelFile<T> extends SXSSFExcelFile<T> {
+
+	private static final int ROW_START_INDEX = 0;
+	private static final int COLUMN_START_INDEX = 0;
+	// not initialized here, because renderExcel is called by super constructor before field initializers
+	private int currentRowIndex;
+
+	SheetPartExcelFile(ExcelSchema<T> schema, DataFormatDecider dataFormatDecider, boolean selected) {
+		super(Collections.emptyList(), schema, dataFormatDecider);
+		sheet.setSelected(selected);
+		wb.setZip64Mode(Zip64Mode.Always);
+	}
+
+	@Override
+	protected void renderExcel(List<T> data) {
+		sheet = wb.createSheet();
+		((SXSSFSheet) sheet).trackAllColumnsForAutoSizing();
+		renderHeadersWithNewSheet(sheet, currentRowIndex++, COLUMN_START_INDEX);
+	}
+
+	@Override
+	public void addRows(List<T> data) {
+		currentRowIndex = renderBody(data, currentRowIndex);
+	}
+
+	@Override
+	protected void renderFooter() {
+		currentRowIndex += renderAggregateRows(currentRowIndex, COLUMN_START_INDEX, ROW_START_INDEX + 1, false);
+	}
+
+}
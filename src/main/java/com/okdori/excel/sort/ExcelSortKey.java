@@ -0,0 +1,39 @@
+package com.okdori.excel.sort;
+
+/**
+ * ExcelSortKey
+ *
+ * Column rows are sorted by, and its direction.
+ * Numbers are compared as numbers and come before other values, which are compared as strings.
+ * Empty values come last in both directions
+ */
+public final class ExcelSortKey {
+
+	private final String columnName;
+	private final boolean descending;
+
+	private ExcelSortKey(String columnName, boolean descending) {
+		this.columnName = columnName;
+		this.descending = descending;
+	}
+
+	public static ExcelSortKey asc(String columnName) {
+		return new ExcelSortKey(columnName, false);
+	}
+
+	public static ExcelSortKey desc(String columnName) {
+		return new ExcelSortKey(columnName, true);
+	}
+
+	/**
+	 * Data field name of @ExcelColumn or column name of schema
+	 */
+	public String getColumnName() {
+		return columnName;
+	}
+
+	public boolean isDescending() {
+		return descending;
+	}
+
+}
@@ -0,0 +1,144 @@
+package com.okdori.excel.sort;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * SortRun
+ *
+ * Sorted rows spilled to file. Each value is a tag byte followed by
+ * nothing for empty value, 8 bytes for number, or length and UTF-8 bytes for string
+ */
+final class SortRun {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final byte EMPTY = 0;
+	private static final byte NUMBER = 1;
+	private static final byte STRING = 2;
+
+	private SortRun() {
+
+	}
+
+	/**
+	 * Numbers become Double, and values other than numbers become String, so rows compare the same after spilled
+	 */
+	static Object normalize(Object value) {
+		if (value == null || value instanceof Double || value instanceof String) {
+			return value;
+		}
+		if (value instanceof Number) {
+			return ((Number) value).doubleValue();
+		}
+		return value.toString();
+	}
+
+	static void write(OutputStream stream, List<Object[]> rows, int columnCount) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, BUFFER_SIZE))) {
+			for (Object[] row : rows) {
+				writeRow(out, row, columnCount);
+			}
+		}
+	}
+
+	static Writer writer(OutputStream stream, int columnCount) {
+		return new Writer(stream, columnCount);
+	}
+
+	static Reader reader(File file, int columnCount) throws IOException {
+		return new Reader(file, columnCount);
+	}
+
+	private static void writeRow(DataOutputStream out, Object[] row, int columnCount) throws IOException {
+		for (int i = 0; i < columnCount; i++) {
+			Object value = row[i];
+			if (value == null) {
+				out.writeByte(EMPTY);
+			} else if (value instanceof Double) {
+				out.writeByte(NUMBER);
+				out.writeDouble((Double) value);
+			} else {
+				byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+				out.writeByte(STRING);
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			}
+		}
+	}
+
+	static final class Writer implements Closeable {
+
+		private final DataOutputStream out;
+		private final int columnCount;
+
+		private Writer(OutputStream stream, int columnCount) {
+			this.out = new DataOutputStream(new BufferedOutputStream(stream, BUFFER_SIZE));
+			this.columnCount = columnCount;
+		}
+
+		void write(Object[] row) throws IOException {
+			writeRow(out, row, columnCount);
+		}
+
+		@Override
+		public void close() throws IOException {
+			out.close();
+		}
+
+	}
+
+	static final class Reader implements Closeable {
+
+		private final DataInputStream in;
+		private final int columnCount;
+
+		private Reader(File file, int columnCount) throws IOException {
+			this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+			this.columnCount = columnCount;
+		}
+
+		/**
+		 * @return next row, null at the end of run
+		 */
+		Object[] read() throws IOException {
+			int tag = in.read();
+			if (tag < 0) {
+				return null;
+			}
+			Object[] row = new Object[columnCount];
+			for (int i = 0; i < columnCount; i++) {
+				if (i > 0) {
+					tag = in.read();
+					if (tag < 0) {
+						throw new EOFException("Run ended in the middle of row");
+					}
+				}
+				if (tag == NUMBER) {
+					row[i] = in.readDouble();
+				} else if (tag == STRING) {
+					byte[] bytes = new byte[in.readInt()];
+					in.readFully(bytes);
+					row[i] = new String(bytes, StandardCharsets.UTF_8);
+				}
+			}
+			return row;
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+
+	}
+
+}
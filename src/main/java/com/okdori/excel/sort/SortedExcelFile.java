@@ -0,0 +1,290 @@
+package com.okdori.excel.sort;
+
+import com.okdori.excel.ExcelFile;
+import com.okdori.excel.control.ExcelExportControl;
+import com.okdori.excel.multiplesheet.MultiSheetExcelFile;
+import com.okdori.excel.storage.ExcelTempFile;
+import com.okdori.excel.storage.ExcelTempStorage;
+import com.okdori.exception.ExcelExportCancelledException;
+import com.okdori.exception.ExcelInternalException;
+import com.okdori.resource.DataFormatDecider;
+import com.okdori.resource.DefaultDataFormatDecider;
+import com.okdori.resource.schema.CellValueWriter;
+import com.okdori.resource.schema.ExcelSchema;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * SortedExcelFile
+ *
+ * - renders rows sorted by {@link ExcelSortKey}s, on as many sheets as needed like {@link MultiSheetExcelFile}
+ * - values of added rows are kept in memory up to maxBytesInMemory, then sorted and spilled to a run file
+ * - runs are merged into the file when it is written, at most {@link #MAX_MERGE_WIDTH} runs at a time
+ *
+ * Sort is stable, rows having equal keys keep the order they are added
+ */
+public final class SortedExcelFile<T> implements ExcelFile<T> {
+
+	static final int MAX_MERGE_WIDTH = 64;
+	private static final long DEFAULT_MAX_BYTES_IN_MEMORY = 64L * 1024 * 1024;
+	private static final int RENDER_BATCH_SIZE = 1000;
+	private static final int ROW_BYTES = 16;
+	private static final int VALUE_BYTES = 24;
+	private static final int STRING_BYTES = 40;
+
+	private final ExcelSchema<T> schema;
+	private final SortedRowComparator comparator;
+	private final DataFormatDecider dataFormatDecider;
+	private final ExcelTempStorage storage;
+	private final long maxBytesInMemory;
+	private final List<Object[]> buffer = new ArrayList<>();
+	private final List<ExcelTempFile> runs = new ArrayList<>();
+	private final ValueCollector valueCollector = new ValueCollector();
+	private long bufferedBytes;
+	private ExcelExportControl exportControl = ExcelExportControl.none();
+
+	public SortedExcelFile(Class<T> type, List<ExcelSortKey> sortKeys) {
+		this(ExcelSchema.of(type), sortKeys);
+	}
+
+	public SortedExcelFile(ExcelSchema<T> schema, List<ExcelSortKey> sortKeys) {
+		this(schema, sortKeys, new DefaultDataFormatDecider(), ExcelTempStorage.defaultStorage(),
+				DEFAULT_MAX_BYTES_IN_MEMORY);
+	}
+
+	/**
+	 * SortedExcelFile
+	 * @param schema Schema to be rendered
+	 * @param sortKeys Columns rows are sorted by, in priority order
+	 * @param dataFormatDecider Custom DataFormatDecider
+	 * @param storage Storage of rendered rows. Runs are spilled to its directory, and charged to its limits
+	 * @param maxBytesInMemory Estimated bytes of values kept in memory before they are spilled
+	 */
+	public SortedExcelFile(ExcelSchema<T> schema, List<ExcelSortKey> sortKeys, DataFormatDecider dataFormatDecider,
+						   ExcelTempStorage storage, long maxBytesInMemory) {
+		if (maxBytesInMemory <= 0) {
+			throw new IllegalArgumentException(String.format("Wrong maxBytesInMemory %s", maxBytesInMemory));
+		}
+		this.schema = schema;
+		this.comparator = new SortedRowComparator(schema, sortKeys);
+		this.dataFormatDecider = dataFormatDecider;
+		this.storage = storage;
+		this.maxBytesInMemory = maxBytesInMemory;
+	}
+
+	/**
+	 * Checks cancellation and deadline of control while rows are added and spilled, and while sorted rows are written.
+	 * Rows are reported as done when they are written. A cancelled file deletes its runs
+	 */
+	public void setExportControl(ExcelExportControl exportControl) {
+		this.exportControl = exportControl;
+	}
+
+	@Override
+	public void addRows(List<T> data) {
+		try {
+			exportControl.check();
+			bufferRows(data);
+		} catch (ExcelExportCancelledException e) {
+			close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Count of runs spilled so far
+	 */
+	public int getRunCount() {
+		return runs.size();
+	}
+
+	@Override
+	public void write(OutputStream stream) throws IOException {
+		try (MultiSheetExcelFile<Object[]> excelFile = new MultiSheetExcelFile<>(Collections.emptyList(),
+				schema.toValueArraySchema(), dataFormatDecider, storage)) {
+			excelFile.setExportControl(exportControl);
+			if (runs.isEmpty()) {
+				buffer.sort(comparator);
+				for (int i = 0; i < buffer.size(); i += RENDER_BATCH_SIZE) {
+					excelFile.addRows(buffer.subList(i, Math.min(buffer.size(), i + RENDER_BATCH_SIZE)));
+				}
+			} else {
+				spill();
+				while (runs.size() > MAX_MERGE_WIDTH) {
+					mergeRuns();
+				}
+				merge(new ArrayList<>(runs), excelFile::addRows);
+			}
+			excelFile.write(stream);
+		} finally {
+			close();
+			stream.close();
+		}
+	}
+
+	/**
+	 * Deletes run files
+	 */
+	@Override
+	public void close() {
+		buffer.clear();
+		for (ExcelTempFile run : runs) {
+			try {
+				run.close();
+			} catch (IOException e) {
+				// run left undeleted is not read again
+			}
+		}
+		runs.clear();
+	}
+
+	private void bufferRows(List<T> data) {
+		for (T row : data) {
+			valueCollector.values = new Object[schema.size()];
+			valueCollector.bytes = ROW_BYTES;
+			schema.getRowWriter().write(row, valueCollector);
+			buffer.add(valueCollector.values);
+			bufferedBytes += valueCollector.bytes;
+			if (bufferedBytes > maxBytesInMemory) {
+				spill();
+				exportControl.check();
+			}
+		}
+	}
+
+	private void spill() {
+		if (buffer.isEmpty()) {
+			return;
+		}
+		buffer.sort(comparator);
+		try {
+			ExcelTempFile run = createRunFile();
+			runs.add(run);
+			SortRun.write(run.openStream(), buffer, schema.size());
+		} catch (IOException e) {
+			throw new ExcelInternalException(e.getMessage(), e);
+		}
+		buffer.clear();
+		bufferedBytes = 0;
+	}
+
+	/**
+	 * Merges the oldest runs into one run at the start, so runs stay in the order rows are added
+	 */
+	private void mergeRuns() throws IOException {
+		List<ExcelTempFile> merged = new ArrayList<>(runs.subList(0, MAX_MERGE_WIDTH));
+		ExcelTempFile run = createRunFile();
+		runs.add(0, run);
+		try (SortRun.Writer writer = SortRun.writer(run.openStream(), schema.size())) {
+			merge(merged, rows -> {
+				try {
+					for (Object[] row : rows) {
+						writer.write(row);
+					}
+				} catch (IOException e) {
+					throw new ExcelInternalException(e.getMessage(), e);
+				}
+			});
+		}
+		runs.removeAll(merged);
+		for (ExcelTempFile mergedRun : merged) {
+			mergedRun.close();
+		}
+	}
+
+	/**
+	 * K-way merge of runs in batches. Equal rows come from the earlier run first
+	 */
+	private void merge(List<ExcelTempFile> mergedRuns, RowsConsumer consumer) throws IOException {
+		PriorityQueue<RunHead> heads = new PriorityQueue<>((left, right) -> {
+			int result = comparator.compare(left.row, right.row);
+			return result != 0 ? result : Integer.compare(left.runIndex, right.runIndex);
+		});
+		List<SortRun.Reader> readers = new ArrayList<>();
+		try {
+			for (int i = 0; i < mergedRuns.size(); i++) {
+				SortRun.Reader reader = SortRun.reader(mergedRuns.get(i).getFile(), schema.size());
+				readers.add(reader);
+				Object[] row = reader.read();
+				if (row != null) {
+					heads.add(new RunHead(reader, i, row));
+				}
+			}
+
+			List<Object[]> batch = new ArrayList<>(RENDER_BATCH_SIZE);
+			while (!heads.isEmpty()) {
+				RunHead head = heads.poll();
+				batch.add(head.row);
+				if (batch.size() == RENDER_BATCH_SIZE) {
+					consumer.accept(batch);
+					batch = new ArrayList<>(RENDER_BATCH_SIZE);
+				}
+				head.row = head.reader.read();
+				if (head.row != null) {
+					heads.add(head);
+				}
+			}
+			if (!batch.isEmpty()) {
+				consumer.accept(batch);
+			}
+		} finally {
+			for (SortRun.Reader reader : readers) {
+				reader.close();
+			}
+		}
+	}
+
+	private ExcelTempFile createRunFile() throws IOException {
+		return ExcelTempFile.create(storage, "excel-sort");
+	}
+
+	@FunctionalInterface
+	private interface RowsConsumer {
+
+		void accept(List<Object[]> rows);
+
+	}
+
+	private static final class RunHead {
+
+		private final SortRun.Reader reader;
+		private final int runIndex;
+		private Object[] row;
+
+		private RunHead(SortRun.Reader reader, int runIndex, Object[] row) {
+			this.reader = reader;
+			this.runIndex = runIndex;
+			this.row = row;
+		}
+
+	}
+
+	/**
+	 * Collects normalized values of row, and estimates their bytes in memory
+	 */
+	private static final class ValueCollector implements CellValueWriter {
+
+		private Object[] values;
+		private long bytes;
+
+		@Override
+		public void writeNumber(int columnIndex, double value) {
+			values[columnIndex] = value;
+			bytes += VALUE_BYTES;
+		}
+
+		@Override
+		public void writeValue(int columnIndex, Object value) {
+			Object normalized = SortRun.normalize(value);
+			values[columnIndex] = normalized;
+			bytes += normalized instanceof String ? STRING_BYTES + 2L * ((String) normalized).length() : VALUE_BYTES;
+		}
+
+	}
+
+}
@@ -0,0 +1,65 @@
+package com.okdori.excel.sort;
+
+import com.okdori.resource.schema.ExcelSchema;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * SortedRowComparator
+ *
+ * Compares rows of values normalized by {@link SortRun#normalize(Object)}
+ */
+final class SortedRowComparator implements Comparator<Object[]> {
+
+	private final int[] columnIndexes;
+	private final boolean[] descending;
+
+	SortedRowComparator(ExcelSchema<?> schema, List<ExcelSortKey> sortKeys) {
+		if (sortKeys.isEmpty()) {
+			throw new IllegalArgumentException("At least one sort key should be given");
+		}
+		this.columnIndexes = new int[sortKeys.size()];
+		this.descending = new boolean[sortKeys.size()];
+		for (int i = 0; i < columnIndexes.length; i++) {
+			ExcelSortKey sortKey = sortKeys.get(i);
+			columnIndexes[i] = schema.getColumnNames().indexOf(sortKey.getColumnName());
+			if (columnIndexes[i] < 0) {
+				throw new IllegalArgumentException(String.format("Column %s is not defined in schema", sortKey.getColumnName()));
+			}
+			descending[i] = sortKey.isDescending();
+		}
+	}
+
+	@Override
+	public int compare(Object[] left, Object[] right) {
+		for (int i = 0; i < columnIndexes.length; i++) {
+			Object leftValue = left[columnIndexes[i]];
+			Object rightValue = right[columnIndexes[i]];
+			if (leftValue == null || rightValue == null) {
+				if (leftValue != rightValue) {
+					return leftValue == null ? 1 : -1;
+				}
+				continue;
+			}
+			int result = compareValues(leftValue, rightValue);
+			if (result != 0) {
+				return descending[i] ? -result : result;
+			}
+		}
+		return 0;
+	}
+
+	private static int compareValues(Object left, Object right) {
+		boolean leftNumber = left instanceof Double;
+		boolean rightNumber = right instanceof Double;
+		if (leftNumber && rightNumber) {
+			return Double.compare((Double) left, (Double) right);
+		}
+		if (leftNumber || rightNumber) {
+			return leftNumber ? -1 : 1;
+		}
+		return ((String) left).compareTo((String) right);
+	}
+
+}
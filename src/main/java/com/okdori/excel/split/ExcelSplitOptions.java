@@ -0,0 +1,122 @@
+package com.okdori.excel.split;
+
+import com.okdori.excel.control.ExcelExportControl;
+import com.okdori.excel.storage.ExcelTempStorage;
+import com.okdori.resource.DataFormatDecider;
+import com.okdori.resource.DefaultDataFormatDecider;
+
+/**
+ * ExcelSplitOptions
+ *
+ * Decides how many rows each workbook of {@link SplitExcelFile} has
+ */
+public final class ExcelSplitOptions {
+
+	private int maxRowsPerFile = Integer.MAX_VALUE;
+	private long maxBytesPerFile = Long.MAX_VALUE;
+	private int parallelism = 1;
+	private String fileNamePrefix = "excel";
+	private DataFormatDecider dataFormatDecider = new DefaultDataFormatDecider();
+	private ExcelTempStorage tempStorage = ExcelTempStorage.defaultStorage();
+	private ExcelExportControl exportControl = ExcelExportControl.none();
+
+	public ExcelSplitOptions() {
+
+	}
+
+	/**
+	 * Max body rows of one workbook. Limited by max rows of one sheet
+	 */
+	public ExcelSplitOptions maxRowsPerFile(int maxRowsPerFile) {
+		if (maxRowsPerFile <= 0) {
+			throw new IllegalArgumentException(String.format("Wrong maxRowsPerFile %s", maxRowsPerFile));
+		}
+		this.maxRowsPerFile = maxRowsPerFile;
+		return this;
+	}
+
+	/**
+	 * Max estimated uncompressed sheet size of one workbook
+	 */
+	public ExcelSplitOptions maxBytesPerFile(long maxBytesPerFile) {
+		if (maxBytesPerFile <= 0) {
+			throw new IllegalArgumentException(String.format("Wrong maxBytesPerFile %s", maxBytesPerFile));
+		}
+		this.maxBytesPerFile = maxBytesPerFile;
+		return this;
+	}
+
+	/**
+	 * Count of workbooks rendered at the same time. Default is 1
+	 */
+	public ExcelSplitOptions parallelism(int parallelism) {
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException(String.format("Wrong parallelism %s", parallelism));
+		}
+		this.parallelism = parallelism;
+		return this;
+	}
+
+	/**
+	 * Workbooks are named prefix-001.xlsx, prefix-002.xlsx ...
+	 */
+	public ExcelSplitOptions fileNamePrefix(String fileNamePrefix) {
+		this.fileNamePrefix = fileNamePrefix;
+		return this;
+	}
+
+	public ExcelSplitOptions dataFormatDecider(DataFormatDecider dataFormatDecider) {
+		this.dataFormatDecider = dataFormatDecider;
+		return this;
+	}
+
+	/**
+	 * Storage of rows flushed by each workbook, and directory of workbooks rendered in parallel
+	 */
+	public ExcelSplitOptions tempStorage(ExcelTempStorage tempStorage) {
+		this.tempStorage = tempStorage;
+		return this;
+	}
+
+	/**
+	 * Control shared by every workbook, checked while each workbook is rendered and written.
+	 * Progress counts rows and bytes of all workbooks. Default is {@link ExcelExportControl#none()}
+	 */
+	public ExcelSplitOptions exportControl(ExcelExportControl exportControl) {
+		this.exportControl = exportControl;
+		return this;
+	}
+
+	public int getMaxRowsPerFile() {
+		return maxRowsPerFile;
+	}
+
+	public long getMaxBytesPerFile() {
+		return maxBytesPerFile;
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	public String getFileNamePrefix() {
+		return fileNamePrefix;
+	}
+
+	public DataFormatDecider getDataFormatDecider() {
+		return dataFormatDecider;
+	}
+
+	public ExcelTempStorage getTempStorage() {
+		return tempStorage;
+	}
+
+	public ExcelExportControl getExportControl() {
+		return exportControl;
+	}
+
+	String fileName(int partIndex) {
+		return String.format("%s-%03d.xlsx", fileNamePrefix, partIndex + 1);
+	}
+
+}
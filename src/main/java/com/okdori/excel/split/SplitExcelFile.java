@@ -0,0 +1,352 @@
+package com.okdori.excel.split;
+
+import com.okdori.ExcelException;
+import com.okdori.excel.ExcelFile;
+import com.okdori.excel.aggregate.ExcelAggregator;
+import com.okdori.excel.estimate.SheetXmlSizeEstimator;
+import com.okdori.excel.onesheet.OneSheetExcelFile;
+import com.okdori.excel.storage.ExcelTempFile;
+import com.okdori.exception.ExcelInternalException;
+import com.okdori.resource.schema.ExcelSchema;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * SplitExcelFile
+ *
+ * - split rows into multiple workbooks by row count or estimated size
+ * - every workbook has its own header and footer
+ * - write workbooks into one zip stream, or into files of directory
+ * - render workbooks in parallel, see {@link ExcelSplitOptions#parallelism(int)}
+ * - cancel every workbook and report progress of all of them, see {@link ExcelSplitOptions#exportControl}
+ */
+public final class SplitExcelFile<T> implements ExcelFile<T> {
+
+	private static final int MAX_BODY_ROWS = SpreadsheetVersion.EXCEL2007.getMaxRows() - 1;
+
+	private final ExcelSchema<T> schema;
+	private final ExcelSplitOptions options;
+	private final ConcatenatedList<T> data = new ConcatenatedList<>();
+
+	public SplitExcelFile(List<T> data, Class<T> type, ExcelSplitOptions options) {
+		this(data, ExcelSchema.of(type), options);
+	}
+
+	public SplitExcelFile(List<T> data, ExcelSchema<T> schema, ExcelSplitOptions options) {
+		this.schema = schema;
+		this.options = options;
+		addRows(data);
+	}
+
+	/**
+	 * Rows are kept by reference and rendered when written
+	 */
+	@Override
+	public void addRows(List<T> data) {
+		this.data.add(data);
+	}
+
+	/**
+	 * @return body rows of one workbook
+	 */
+	public int getRowsPerFile() {
+		ExcelAggregator aggregator = ExcelAggregator.of(schema);
+		int footerRows = aggregator == null ? 0 : aggregator.getFooterAggregates().size();
+		long rowsPerFile = Math.min(options.getMaxRowsPerFile(), MAX_BODY_ROWS - footerRows);
+		if (options.getMaxBytesPerFile() != Long.MAX_VALUE) {
+			long rowBytes = SheetXmlSizeEstimator.estimateRowBytes(schema, data);
+			rowsPerFile = Math.min(rowsPerFile, Math.max(1, options.getMaxBytesPerFile() / rowBytes));
+		}
+		return (int) rowsPerFile;
+	}
+
+	public int getFileCount() {
+		return Math.max(1, (data.size() + getRowsPerFile() - 1) / getRowsPerFile());
+	}
+
+	/**
+	 * Writes workbooks as entries of one zip. If a workbook fails, zip is aborted without central directory,
+	 * so partial output can not be read as a complete zip
+	 */
+	@Override
+	public void write(OutputStream stream) throws IOException {
+		int rowsPerFile = getRowsPerFile();
+		int fileCount = getFileCount();
+		AbortableOutputStream output = new AbortableOutputStream(stream);
+		try (ZipOutputStream zip = new ZipOutputStream(output)) {
+			// workbooks are already deflated, entries are not compressed again
+			zip.setLevel(Deflater.NO_COMPRESSION);
+			try {
+				if (options.getParallelism() == 1) {
+					for (int part = 0; part < fileCount; part++) {
+						zip.putNextEntry(new ZipEntry(options.fileName(part)));
+						renderPart(part, rowsPerFile, new NonClosingOutputStream(zip));
+						zip.closeEntry();
+					}
+				} else {
+					writeParallel(zip, rowsPerFile, fileCount);
+				}
+			} catch (IOException | RuntimeException | Error e) {
+				output.abort();
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * Writes workbooks as files of directory. If a workbook fails, files written so far are deleted
+	 * @return written files in order of rows
+	 */
+	public List<File> writeFiles(File directory) throws IOException {
+		int rowsPerFile = getRowsPerFile();
+		int fileCount = getFileCount();
+		Files.createDirectories(directory.toPath());
+
+		List<File> files = new ArrayList<>();
+		for (int part = 0; part < fileCount; part++) {
+			files.add(new File(directory, options.fileName(part)));
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(options.getParallelism(), fileCount));
+		try {
+			List<Future<File>> futures = new ArrayList<>();
+			for (File file : files) {
+				int renderedPart = futures.size();
+				futures.add(executor.submit(() -> {
+					renderPart(renderedPart, rowsPerFile, new FileOutputStream(file));
+					return file;
+				}));
+			}
+			for (Future<File> future : futures) {
+				await(future);
+			}
+		} catch (IOException | RuntimeException | Error e) {
+			stopQuietly(executor);
+			for (File file : files) {
+				Files.deleteIfExists(file.toPath());
+			}
+			throw e;
+		} finally {
+			executor.shutdownNow();
+		}
+		return files;
+	}
+
+	/**
+	 * Workbooks are rendered and released in write, rows are only referenced
+	 */
+	@Override
+	public void close() {
+
+	}
+
+	/**
+	 * Parts are rendered into temp files of storage in parallel and copied into zip in order.
+	 * At most parallelism parts are rendered or waiting to be copied at the same time
+	 */
+	private void writeParallel(ZipOutputStream zip, int rowsPerFile, int fileCount) throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(options.getParallelism(), fileCount));
+		Deque<Future<ExcelTempFile>> futures = new ArrayDeque<>();
+		try {
+			int submitted = 0;
+			for (int part = 0; part < fileCount; part++) {
+				while (submitted < fileCount && submitted < part + options.getParallelism()) {
+					int renderedPart = submitted++;
+					futures.addLast(executor.submit(() -> {
+						ExcelTempFile file = ExcelTempFile.create(options.getTempStorage(), "excel-split");
+						try {
+							renderPart(renderedPart, rowsPerFile, file.openStream());
+						} catch (IOException | RuntimeException e) {
+							file.close();
+							throw e;
+						}
+						return file;
+					}));
+				}
+
+				try (ExcelTempFile file = await(futures.removeFirst())) {
+					zip.putNextEntry(new ZipEntry(options.fileName(part)));
+					Files.copy(file.getFile().toPath(), zip);
+					zip.closeEntry();
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+			for (Future<ExcelTempFile> future : futures) {
+				deleteQuietly(future);
+			}
+		}
+	}
+
+	private void renderPart(int part, int rowsPerFile, OutputStream stream) throws IOException {
+		int fromIndex = part * rowsPerFile;
+		int toIndex = Math.min(data.size(), fromIndex + rowsPerFile);
+		try (OutputStream partStream = stream) {
+			new OneSheetExcelFile<>(data.subList(fromIndex, toIndex), schema, options.getDataFormatDecider(),
+					options.getTempStorage(), SXSSFWorkbook.DEFAULT_WINDOW_SIZE, options.getExportControl())
+					.write(partStream);
+		}
+	}
+
+	private static <V> V await(Future<V> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while rendering split excel files");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof ExcelException) {
+				throw (ExcelException) cause;
+			}
+			throw new ExcelInternalException(cause.getMessage(), cause);
+		}
+	}
+
+	/**
+	 * Waits until parts being rendered stop, so their files are not written after they are deleted
+	 */
+	private static void stopQuietly(ExecutorService executor) {
+		executor.shutdownNow();
+		try {
+			executor.awaitTermination(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void deleteQuietly(Future<ExcelTempFile> future) {
+		try {
+			future.get().close();
+		} catch (Exception ignored) {
+			// part was not rendered
+		}
+	}
+
+	/**
+	 * List view of rows added by {@link #addRows(List)}, without copying them
+	 */
+	private static final class ConcatenatedList<T> extends AbstractList<T> implements RandomAccess {
+
+		private final List<List<T>> chunks = new ArrayList<>();
+		private final List<Integer> offsets = new ArrayList<>();
+		private int size;
+
+		private void add(List<T> chunk) {
+			if (chunk.isEmpty()) {
+				return;
+			}
+			chunks.add(chunk);
+			offsets.add(size);
+			size += chunk.size();
+		}
+
+		@Override
+		public T get(int index) {
+			if (index < 0 || index >= size) {
+				throw new IndexOutOfBoundsException(String.valueOf(index));
+			}
+			int low = 0;
+			int high = offsets.size() - 1;
+			while (low < high) {
+				int middle = (low + high + 1) >>> 1;
+				if (offsets.get(middle) <= index) {
+					low = middle;
+				} else {
+					high = middle - 1;
+				}
+			}
+			return chunks.get(low).get(index - offsets.get(low));
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+	}
+
+	/**
+	 * Discards bytes written after {@link #abort()}, such as central directory written when zip is closed
+	 */
+	private static final class AbortableOutputStream extends FilterOutputStream {
+
+		private boolean aborted;
+
+		private AbortableOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		private void abort() {
+			aborted = true;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			if (!aborted) {
+				out.write(b);
+			}
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (!aborted) {
+				out.write(b, off, len);
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			if (!aborted) {
+				out.flush();
+			}
+		}
+
+	}
+
+	/**
+	 * Keeps zip open when each workbook closes its stream
+	 */
+	private static final class NonClosingOutputStream extends FilterOutputStream {
+
+		private NonClosingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+		}
+
+		@Override
+		public void close() throws IOException {
+			flush();
+		}
+
+	}
+
+}
@@ -0,0 +1,120 @@
+package com.okdori.excel.storage;
+
+import com.okdori.exception.ExcelTempStorageQuotaException;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+
+/**
+ * ExcelTempFile
+ *
+ * Temp file in directory of storage, other than temp files of sheets, such as encrypted package of a workbook.
+ * Bytes written to it are charged to limit per export of storage and to global limit,
+ * and are seen by {@link ExcelTempStorageMetrics} until the file is closed
+ */
+public final class ExcelTempFile implements Closeable {
+
+	private final ExcelTempStorage storage;
+	private final File file;
+	private OutputStream stream;
+	private long diskBytes;
+	private boolean closed;
+
+	private ExcelTempFile(ExcelTempStorage storage, File file) {
+		this.storage = storage;
+		this.file = file;
+	}
+
+	/**
+	 * Creates empty temp file in directory of storage
+	 */
+	public static ExcelTempFile create(ExcelTempStorage storage, String prefix) throws IOException {
+		return new ExcelTempFile(storage, File.createTempFile(prefix, ".tmp", storage.getDirectory()));
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Bytes written to the file, and not released yet
+	 */
+	public long getDiskBytes() {
+		return diskBytes;
+	}
+
+	/**
+	 * Buffered stream writing the file from its start, failing as soon as a limit of storage is exceeded
+	 */
+	public OutputStream openStream() throws IOException {
+		if (closed) {
+			throw new IOException("Temp file is already deleted");
+		}
+		closeStream();
+		release();
+		stream = new FilterOutputStream(new BufferedOutputStream(new FileOutputStream(file))) {
+
+			@Override
+			public void write(int b) throws IOException {
+				reserve(1);
+				out.write(b);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				reserve(len);
+				out.write(b, off, len);
+			}
+
+		};
+		return stream;
+	}
+
+	/**
+	 * Closes stream left open by a failed write, deletes the file and releases its bytes. Can be called more than once
+	 */
+	@Override
+	public void close() throws IOException {
+		if (!closed) {
+			closed = true;
+			try {
+				closeStream();
+				Files.deleteIfExists(file.toPath());
+			} finally {
+				release();
+			}
+		}
+	}
+
+	private void closeStream() {
+		if (stream != null) {
+			try {
+				stream.close();
+			} catch (IOException | RuntimeException e) {
+				// buffered bytes of a failed write are discarded with the file
+			}
+			stream = null;
+		}
+	}
+
+	private void reserve(long bytes) {
+		if (diskBytes + bytes > storage.getMaxBytesPerExport()) {
+			throw new ExcelTempStorageQuotaException(String.format(
+					"Temp files of export exceed %s bytes", storage.getMaxBytesPerExport()));
+		}
+		ExcelTempStorageMetrics.reserveDisk(bytes);
+		diskBytes += bytes;
+	}
+
+	private void release() {
+		ExcelTempStorageMetrics.releaseDisk(diskBytes);
+		diskBytes = 0;
+	}
+
+}
@@ -0,0 +1,110 @@
+package com.okdori.excel.storage;
+
+import java.io.File;
+
+/**
+ * ExcelTempStorage
+ *
+ * Decides where SXSSF keeps rows flushed out of its window until the workbook is written.
+ * - directory : temp files in directory, like POI does in java.io.tmpdir
+ * - memory : heap buffers, for small exports or when temp directory is not writable
+ * - auto : heap buffer of each sheet until threshold, and temp file after it
+ *
+ * Disk usage can be limited per export by {@link #withMaxBytesPerExport(long)},
+ * and for all exports of the JVM by {@link #setGlobalMaxDiskBytes(long)}.
+ * Export fails as soon as a limit is exceeded, instead of filling the disk
+ */
+public final class ExcelTempStorage {
+
+	private static volatile ExcelTempStorage defaultStorage = directory(new File(System.getProperty("java.io.tmpdir")));
+	private static volatile long globalMaxDiskBytes = Long.MAX_VALUE;
+
+	private final File directory;
+	private final long memoryThreshold;
+	private final long maxBytesPerExport;
+
+	private ExcelTempStorage(File directory, long memoryThreshold, long maxBytesPerExport) {
+		this.directory = directory;
+		this.memoryThreshold = memoryThreshold;
+		this.maxBytesPerExport = maxBytesPerExport;
+	}
+
+	/**
+	 * Temp files in directory
+	 */
+	public static ExcelTempStorage directory(File directory) {
+		return new ExcelTempStorage(directory, 0, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Heap buffers only, nothing is written to disk
+	 */
+	public static ExcelTempStorage memory() {
+		return new ExcelTempStorage(new File(System.getProperty("java.io.tmpdir")), Long.MAX_VALUE, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Heap buffer of each sheet until memoryThreshold bytes, and temp file in directory after it
+	 */
+	public static ExcelTempStorage auto(File directory, long memoryThreshold) {
+		if (memoryThreshold < 0) {
+			throw new IllegalArgumentException(String.format("Wrong memoryThreshold %s", memoryThreshold));
+		}
+		return new ExcelTempStorage(directory, memoryThreshold, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Storage used when storage is not given, temp files in java.io.tmpdir by default
+	 */
+	public static ExcelTempStorage defaultStorage() {
+		return defaultStorage;
+	}
+
+	public static void setDefaultStorage(ExcelTempStorage storage) {
+		defaultStorage = storage;
+	}
+
+	public static long getGlobalMaxDiskBytes() {
+		return globalMaxDiskBytes;
+	}
+
+	/**
+	 * Max temp file bytes of all exports of the JVM at the same time
+	 */
+	public static void setGlobalMaxDiskBytes(long maxDiskBytes) {
+		if (maxDiskBytes <= 0) {
+			throw new IllegalArgumentException(String.format("Wrong maxDiskBytes %s", maxDiskBytes));
+		}
+		globalMaxDiskBytes = maxDiskBytes;
+	}
+
+	/**
+	 * Same storage limiting temp file bytes of one export
+	 */
+	public ExcelTempStorage withMaxBytesPerExport(long maxBytesPerExport) {
+		if (maxBytesPerExport <= 0) {
+			throw new IllegalArgumentException(String.format("Wrong maxBytesPerExport %s", maxBytesPerExport));
+		}
+		return new ExcelTempStorage(directory, memoryThreshold, maxBytesPerExport);
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	public long getMemoryThreshold() {
+		return memoryThreshold;
+	}
+
+	public long getMaxBytesPerExport() {
+		return maxBytesPerExport;
+	}
+
+	/**
+	 * @return bytes written to temp files of one sheet having sheetBytes
+	 */
+	public long estimateDiskBytes(long sheetBytes) {
+		return sheetBytes <= memoryThreshold ? 0 : sheetBytes;
+	}
+
+}
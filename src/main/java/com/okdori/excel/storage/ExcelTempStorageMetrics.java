@@ -0,0 +1,96 @@
+package com.okdori.excel.storage;
+
+import com.okdori.exception.ExcelTempStorageQuotaException;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ExcelTempStorageMetrics
+ *
+ * Temp storage usage of all exports of the JVM
+ */
+public final class ExcelTempStorageMetrics {
+
+	private static final AtomicLong DISK_BYTES_IN_USE = new AtomicLong();
+	private static final AtomicLong MEMORY_BYTES_IN_USE = new AtomicLong();
+	private static final AtomicLong SPILLED_BYTES = new AtomicLong();
+	private static final AtomicLong PEAK_DISK_BYTES = new AtomicLong();
+	private static final AtomicLong PEAK_MEMORY_BYTES = new AtomicLong();
+
+	private ExcelTempStorageMetrics() {
+
+	}
+
+	/**
+	 * Bytes of temp files not deleted yet
+	 */
+	public static long getDiskBytesInUse() {
+		return DISK_BYTES_IN_USE.get();
+	}
+
+	/**
+	 * Bytes of heap buffers not released yet
+	 */
+	public static long getMemoryBytesInUse() {
+		return MEMORY_BYTES_IN_USE.get();
+	}
+
+	/**
+	 * Bytes ever written to temp files
+	 */
+	public static long getSpilledBytes() {
+		return SPILLED_BYTES.get();
+	}
+
+	/**
+	 * Highest bytes of temp files in use at the same time, since JVM start or {@link #resetPeakBytes()}
+	 */
+	public static long getPeakDiskBytes() {
+		return PEAK_DISK_BYTES.get();
+	}
+
+	/**
+	 * Highest bytes of heap buffers in use at the same time, since JVM start or {@link #resetPeakBytes()}
+	 */
+	public static long getPeakMemoryBytes() {
+		return PEAK_MEMORY_BYTES.get();
+	}
+
+	/**
+	 * Starts peaks again from bytes in use now, such as at the start of a monitoring interval
+	 */
+	public static void resetPeakBytes() {
+		PEAK_DISK_BYTES.set(DISK_BYTES_IN_USE.get());
+		PEAK_MEMORY_BYTES.set(MEMORY_BYTES_IN_USE.get());
+	}
+
+	static void reserveDisk(long bytes) {
+		long inUse = DISK_BYTES_IN_USE.addAndGet(bytes);
+		if (inUse > ExcelTempStorage.getGlobalMaxDiskBytes()) {
+			DISK_BYTES_IN_USE.addAndGet(-bytes);
+			throw new ExcelTempStorageQuotaException(String.format(
+					"Temp files of all exports exceed %s bytes", ExcelTempStorage.getGlobalMaxDiskBytes()));
+		}
+		SPILLED_BYTES.addAndGet(bytes);
+		updatePeak(PEAK_DISK_BYTES, inUse);
+	}
+
+	static void releaseDisk(long bytes) {
+		DISK_BYTES_IN_USE.addAndGet(-bytes);
+	}
+
+	static void addMemory(long bytes) {
+		long inUse = MEMORY_BYTES_IN_USE.addAndGet(bytes);
+		if (bytes > 0) {
+			updatePeak(PEAK_MEMORY_BYTES, inUse);
+		}
+	}
+
+	private static void updatePeak(AtomicLong peak, long inUse) {
+		long current = peak.get();
+		while (inUse > current && !peak.compareAndSet(current, inUse)) {
+			current = peak.get();
+		}
+	}
+
+}
@@ -0,0 +1,376 @@
+package com.okdori.excel.storage;
+
+import com.okdori.excel.jfr.ExcelEvent;
+import com.okdori.excel.jfr.ExcelEvents;
+import com.okdori.exception.ExcelTempStorageQuotaException;
+import org.apache.poi.xssf.streaming.SXSSFRow;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.streaming.SheetDataWriter;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * TempStorageWorkbook
+ *
+ * SXSSFWorkbook keeping flushed rows of each sheet in {@link ExcelTempStorage}.
+ * Temp files are counted against disk quotas while they are written, and released by {@link #dispose()}
+ */
+public class TempStorageWorkbook extends SXSSFWorkbook {
+
+	private static final int FLUSH_EVENT_ROWS = 1000;
+
+	private final ExcelTempStorage storage;
+	private final List<StorageSheetDataWriter> writers = new CopyOnWriteArrayList<>();
+	private final Map<SXSSFSheet, StorageSheetDataWriter> writersBySheet = new IdentityHashMap<>();
+	private final AtomicLong diskBytesInUse = new AtomicLong();
+	private final AtomicLong spilledBytes = new AtomicLong();
+
+	public TempStorageWorkbook(ExcelTempStorage storage) {
+		this(storage, DEFAULT_WINDOW_SIZE);
+	}
+
+	public TempStorageWorkbook(ExcelTempStorage storage, int rowAccessWindowSize) {
+		super(rowAccessWindowSize);
+		this.storage = storage;
+	}
+
+	public ExcelTempStorage getStorage() {
+		return storage;
+	}
+
+	/**
+	 * Bytes written to temp files by this workbook
+	 */
+	public long getSpilledBytes() {
+		return spilledBytes.get();
+	}
+
+	@Override
+	public SXSSFSheet createSheet() {
+		ExcelEvent event = ExcelEvents.sheetCreation(null);
+		SXSSFSheet sheet = super.createSheet();
+		registerWriter(sheet);
+		event.setSheetName(sheet.getSheetName());
+		event.commit();
+		return sheet;
+	}
+
+	@Override
+	public SXSSFSheet createSheet(String sheetname) {
+		ExcelEvent event = ExcelEvents.sheetCreation(sheetname);
+		SXSSFSheet sheet = super.createSheet(sheetname);
+		registerWriter(sheet);
+		event.commit();
+		return sheet;
+	}
+
+	/**
+	 * Stream of sheet data xml following rows already created, for rows serialized without SXSSFRow.
+	 * SXSSF does not know rows written to it, so rows created after them should have greater index.
+	 * Stream is not closed by closing it
+	 */
+	public OutputStream getSheetDataStream(SXSSFSheet sheet) throws IOException {
+		StorageSheetDataWriter writer = writersBySheet.get(sheet);
+		if (writer == null) {
+			throw new IllegalArgumentException(String.format("Sheet %s is not created by this workbook", sheet.getSheetName()));
+		}
+		sheet.flushRows();
+		return writer.openRawStream();
+	}
+
+	private void registerWriter(SXSSFSheet sheet) {
+		if (!writersBySheet.containsKey(sheet)) {
+			StorageSheetDataWriter writer = writers.get(writers.size() - 1);
+			writer.sheetName = sheet.getSheetName();
+			writersBySheet.put(sheet, writer);
+		}
+	}
+
+	@Override
+	protected SheetDataWriter createSheetDataWriter() throws IOException {
+		StorageSheetDataWriter writer = new StorageSheetDataWriter();
+		writers.add(writer);
+		return writer;
+	}
+
+	/**
+	 * Deletes temp files and releases heap buffers. Can be called more than once
+	 */
+	@Override
+	public boolean dispose() {
+		// rows still buffered by writers are discarded, not written while closing them
+		for (StorageSheetDataWriter writer : writers) {
+			writer.spillStream.discard();
+		}
+		boolean disposed = super.dispose();
+		for (StorageSheetDataWriter writer : writers) {
+			disposed = writer.release() && disposed;
+		}
+		writers.clear();
+		writersBySheet.clear();
+		return disposed;
+	}
+
+	private void reserveDisk(long bytes) {
+		long inUse = diskBytesInUse.addAndGet(bytes);
+		if (inUse > storage.getMaxBytesPerExport()) {
+			diskBytesInUse.addAndGet(-bytes);
+			throw new ExcelTempStorageQuotaException(String.format(
+					"Temp files of export exceed %s bytes", storage.getMaxBytesPerExport()));
+		}
+		try {
+			ExcelTempStorageMetrics.reserveDisk(bytes);
+		} catch (ExcelTempStorageQuotaException e) {
+			diskBytesInUse.addAndGet(-bytes);
+			throw e;
+		}
+		spilledBytes.addAndGet(bytes);
+	}
+
+	private void releaseDisk(long bytes) {
+		diskBytesInUse.addAndGet(-bytes);
+		ExcelTempStorageMetrics.releaseDisk(bytes);
+	}
+
+	/**
+	 * StorageSheetDataWriter
+	 *
+	 * createTempFile and createWriter are called by super constructor,
+	 * so they use only the outer workbook and fields without initializer.
+	 * Rows flushed by SXSSFSheet are written one by one while others are rendered, so a flush event spans
+	 * FLUSH_EVENT_ROWS rows, or rows until the sheet is closed, and has time spent writing them
+	 */
+	private final class StorageSheetDataWriter extends SheetDataWriter {
+
+		private SpillOutputStream spillStream;
+		private OutputStream rawStream;
+		private String sheetName;
+		private ExcelEvent flushEvent;
+		private int flushedRows;
+		private long flushStartBytes;
+		private long flushNanos;
+
+		private StorageSheetDataWriter() throws IOException {
+			super();
+		}
+
+		/**
+		 * Path of temp file, created only when rows are spilled
+		 */
+		@Override
+		public File createTempFile() {
+			return new File(storage.getDirectory(), String.format("poi-sxssf-sheet-%s.xml", UUID.randomUUID()));
+		}
+
+		@Override
+		public Writer createWriter(File file) throws IOException {
+			spillStream = new SpillOutputStream(file);
+			rawStream = isCompressTempFiles() ? new GZIPOutputStream(spillStream) : spillStream;
+			return new BufferedWriter(new OutputStreamWriter(rawStream, StandardCharsets.UTF_8));
+		}
+
+		@Override
+		public void writeRow(int rownum, SXSSFRow row) throws IOException {
+			if (flushEvent == null) {
+				flushEvent = ExcelEvents.flush(sheetName);
+				flushStartBytes = spillStream.getWrittenBytes();
+			}
+			if (flushEvent.isEnabled()) {
+				long start = System.nanoTime();
+				super.writeRow(rownum, row);
+				flushNanos += System.nanoTime() - start;
+			} else {
+				super.writeRow(rownum, row);
+			}
+			if (++flushedRows == FLUSH_EVENT_ROWS) {
+				commitFlushEvent();
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			super.close();
+			commitFlushEvent();
+		}
+
+		private void commitFlushEvent() {
+			if (flushEvent == null) {
+				return;
+			}
+			flushEvent.setRowCount(flushedRows);
+			flushEvent.setBytes(spillStream.getWrittenBytes() - flushStartBytes);
+			flushEvent.setWriteNanos(flushNanos);
+			flushEvent.commit();
+			flushEvent = null;
+			flushedRows = 0;
+			flushNanos = 0;
+		}
+
+		@Override
+		public InputStream getWorksheetXMLInputStream() throws IOException {
+			InputStream stream = spillStream.openInputStream();
+			return isCompressTempFiles() ? new GZIPInputStream(stream) : stream;
+		}
+
+		private OutputStream openRawStream() throws IOException {
+			_out.flush();
+			return new FilterOutputStream(rawStream) {
+				@Override
+				public void write(byte[] b, int off, int len) throws IOException {
+					out.write(b, off, len);
+				}
+
+				@Override
+				public void close() throws IOException {
+					flush();
+				}
+			};
+		}
+
+		private boolean release() {
+			try {
+				close();
+			} catch (IOException ignored) {
+				// released anyway
+			}
+			return spillStream.release();
+		}
+
+	}
+
+	/**
+	 * SpillOutputStream
+	 *
+	 * Heap buffer until memory threshold of storage, and temp file after it
+	 */
+	private final class SpillOutputStream extends OutputStream {
+
+		private final File file;
+		private MemoryBuffer memory = new MemoryBuffer();
+		private OutputStream fileStream;
+		private long diskBytes;
+		private long writtenBytes;
+		private boolean discarded;
+		private boolean released;
+
+		private SpillOutputStream(File file) {
+			this.file = file;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[]{(byte) b}, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (released) {
+				throw new IOException("Temp storage of sheet is already released");
+			}
+			if (discarded) {
+				return;
+			}
+			writtenBytes += len;
+			if (fileStream == null && memory.size() + (long) len > storage.getMemoryThreshold()) {
+				spill();
+			}
+			if (fileStream == null) {
+				memory.write(b, off, len);
+				ExcelTempStorageMetrics.addMemory(len);
+				return;
+			}
+			reserveDisk(len);
+			diskBytes += len;
+			fileStream.write(b, off, len);
+		}
+
+		@Override
+		public void flush() throws IOException {
+			if (fileStream != null) {
+				fileStream.flush();
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (fileStream != null) {
+				fileStream.close();
+			}
+		}
+
+		private void spill() throws IOException {
+			int memoryBytes = memory.size();
+			reserveDisk(memoryBytes);
+			diskBytes += memoryBytes;
+			fileStream = Files.newOutputStream(Files.createFile(file.toPath()));
+			memory.writeTo(fileStream);
+			memory = null;
+			ExcelTempStorageMetrics.addMemory(-memoryBytes);
+		}
+
+		/**
+		 * Bytes written to memory or temp file, including bytes spilled from memory only once
+		 */
+		private long getWrittenBytes() {
+			return writtenBytes;
+		}
+
+		private void discard() {
+			discarded = true;
+		}
+
+		private InputStream openInputStream() throws IOException {
+			if (fileStream == null) {
+				return memory.toInputStream();
+			}
+			return Files.newInputStream(file.toPath());
+		}
+
+		private boolean release() {
+			if (released) {
+				return true;
+			}
+			released = true;
+			if (memory != null) {
+				ExcelTempStorageMetrics.addMemory(-memory.size());
+				memory = null;
+			}
+			releaseDisk(diskBytes);
+			diskBytes = 0;
+			return !file.exists() || file.delete();
+		}
+
+	}
+
+	/**
+	 * Buffer read without copying its bytes
+	 */
+	private static final class MemoryBuffer extends ByteArrayOutputStream {
+
+		private InputStream toInputStream() {
+			return new ByteArrayInputStream(buf, 0, count);
+		}
+
+	}
+
+}
@@ -0,0 +1,173 @@
+package com.okdori.excel.template;
+
+import com.okdori.excel.ExcelFile;
+import com.okdori.excel.control.ExcelExportControl;
+import com.okdori.excel.jfr.ExcelEvent;
+import com.okdori.excel.jfr.ExcelEvents;
+import com.okdori.excel.pipeline.CellValueConverter;
+import com.okdori.excel.pipeline.ExcelPipeline;
+import com.okdori.excel.storage.ExcelTempFile;
+import com.okdori.excel.storage.ExcelTempStorage;
+import com.okdori.exception.ExcelExportCancelledException;
+import com.okdori.exception.ExcelInternalException;
+import com.okdori.resource.schema.ExcelSchema;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * TemplateExcelFile
+ *
+ * - fills rows into a sheet of xlsx template, without loading the template workbook
+ * - rows replace the whole row having marker cell, starting at column of the marker cell.
+ *   Other cells of the marker row are dropped too
+ * - rows below the marker row are moved down, with formulas, merged cells, auto filter, defined names,
+ *   tables and drawings referring them, as {@link TemplateWorkbookWriter} describes
+ * - styles of marker row cells are used by default, or named cell styles of template
+ * - every other part of template is copied untouched
+ *
+ * Rows are streamed into temp file of storage as they are added, so memory does not grow with rows
+ */
+public final class TemplateExcelFile<T> implements ExcelFile<T> {
+
+	private final ZipFile template;
+	private final TemplateLayout layout;
+	private final ExcelSchema<T> schema;
+	private final Integer[] styles;
+	private final ExcelTempFile rows;
+	private Writer rowsWriter;
+	private ExcelPipeline<T> pipeline;
+	private TemplateRowWriter rowWriter;
+	private int currentRowIndex;
+	private ExcelExportControl exportControl = ExcelExportControl.none();
+
+	public TemplateExcelFile(File template, String sheetName, String marker, Class<T> type) throws IOException {
+		this(template, sheetName, marker, ExcelSchema.of(type));
+	}
+
+	public TemplateExcelFile(File template, String sheetName, String marker, ExcelSchema<T> schema) throws IOException {
+		this(template, sheetName, marker, schema, ExcelTempStorage.defaultStorage());
+	}
+
+	/**
+	 * TemplateExcelFile
+	 * @param template xlsx template file
+	 * @param sheetName name of sheet rows are filled into
+	 * @param marker string value of the cell rows start at
+	 * @param schema Schema of rows, headers are not rendered
+	 * @param storage Storage of temp file of rows, charged to its limits
+	 */
+	public TemplateExcelFile(File template, String sheetName, String marker, ExcelSchema<T> schema,
+							 ExcelTempStorage storage) throws IOException {
+		this.template = new ZipFile(template);
+		try {
+			this.layout = TemplateLayout.read(this.template, sheetName, marker);
+			this.schema = schema;
+			this.styles = new Integer[schema.size()];
+			for (int i = 0; i < styles.length; i++) {
+				styles[i] = layout.getMarkerStyle(layout.getMarkerColumn() + i);
+			}
+			this.rows = ExcelTempFile.create(storage, "excel-template");
+		} catch (IOException | RuntimeException e) {
+			this.template.close();
+			throw e;
+		}
+		this.currentRowIndex = layout.getMarkerRow() - 1;
+	}
+
+	/**
+	 * Uses named cell style of template for column, instead of style of marker row cell.
+	 * Should be set before rows are added
+	 */
+	public void setColumnStyle(String columnName, String styleName) {
+		if (pipeline != null) {
+			throw new IllegalStateException("Column style can not be changed after rows are added");
+		}
+		int columnIndex = schema.getColumnNames().indexOf(columnName);
+		if (columnIndex < 0) {
+			throw new IllegalArgumentException(String.format("Schema does not have column %s", columnName));
+		}
+		styles[columnIndex] = layout.getNamedStyle(styleName);
+	}
+
+	/**
+	 * Checks cancellation and deadline of control between batches of added rows and while the file is written,
+	 * and reports progress to its listener. A cancelled file deletes its temp file
+	 */
+	public void setExportControl(ExcelExportControl exportControl) {
+		this.exportControl = exportControl;
+	}
+
+	@Override
+	public void addRows(List<T> data) {
+		ExcelPipeline<T> pipeline = getPipeline();
+		try {
+			currentRowIndex = exportControl.render(data, currentRowIndex, pipeline::render);
+		} catch (ExcelExportCancelledException e) {
+			close();
+			throw e;
+		}
+	}
+
+	@Override
+	public void write(OutputStream stream) throws IOException {
+		try {
+			exportControl.check();
+			getPipeline().finish();
+			rowsWriter.close();
+			ExcelEvent event = ExcelEvents.write(schema.getType());
+			event.setColumnCount(schema.size());
+			event.setRowCount(rowWriter.getRowCount());
+			new TemplateWorkbookWriter(template, layout)
+					.write(rows.getFile(), rowWriter.getRowCount(), event.countBytes(exportControl.wrap(stream)));
+			event.commit();
+			exportControl.finish();
+		} finally {
+			close();
+			stream.close();
+		}
+	}
+
+	/**
+	 * Deletes temp file of rows
+	 */
+	@Override
+	public void close() {
+		try {
+			// stream of rows writer is closed with the temp file
+			try {
+				template.close();
+			} finally {
+				rows.close();
+			}
+		} catch (IOException e) {
+			throw new ExcelInternalException(e.getMessage(), e);
+		}
+	}
+
+	private ExcelPipeline<T> getPipeline() {
+		if (pipeline == null) {
+			try {
+				rowsWriter = new BufferedWriter(new OutputStreamWriter(rows.openStream(), StandardCharsets.UTF_8));
+			} catch (IOException e) {
+				throw new ExcelInternalException(e.getMessage(), e);
+			}
+			rowWriter = new TemplateRowWriter(rowsWriter, layout.getMarkerColumn(), styles);
+			pipeline = ExcelPipeline.<T>builder()
+					.extractor(schema.getRowWriter())
+					.converter(CellValueConverter.typed())
+					.styler(columnIndex -> null)
+					.writer(rowWriter)
+					.build();
+		}
+		return pipeline;
+	}
+
+}
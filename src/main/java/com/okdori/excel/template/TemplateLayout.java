@@ -0,0 +1,449 @@
+package com.okdori.excel.template;
+
+import com.okdori.excel.xlsx.XlsxXml;
+import com.okdori.exception.InvalidExcelTemplateException;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.poi.ss.util.CellReference;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * TemplateLayout
+ *
+ * Parts of template found by streaming its xml once, without loading the template workbook:
+ * entry of named sheet, marker row and styles of its cells, parts referring rows of the sheet, and cell styles by name
+ */
+final class TemplateLayout {
+
+	private static final String PACKAGE_RELATIONSHIPS_ENTRY = "_rels/.rels";
+	private static final String OFFICE_DOCUMENT_TYPE = "/officeDocument";
+	private static final String CALC_CHAIN_TYPE = "/calcChain";
+	private static final String SHARED_STRINGS_TYPE = "/sharedStrings";
+	private static final String STYLES_TYPE = "/styles";
+	private static final String WORKSHEET_TYPE = "/worksheet";
+	private static final String TABLE_TYPE = "/table";
+	private static final String DRAWING_TYPE = "/drawing";
+
+	private String workbookEntry;
+	private String workbookRelationshipsEntry;
+	private String sheetName;
+	private String sheetEntry;
+	private String calcChainEntry;
+	private List<String> worksheetEntries = Collections.emptyList();
+	private List<String> tableEntries = Collections.emptyList();
+	private List<String> drawingEntries = Collections.emptyList();
+	private int markerRow;
+	private int markerColumn;
+	private final Map<Integer, Integer> markerStyles = new HashMap<>();
+	private final Map<String, Integer> namedStyles = new HashMap<>();
+
+	private TemplateLayout() {
+
+	}
+
+	static TemplateLayout read(ZipFile template, String sheetName, String marker) throws IOException {
+		TemplateLayout layout = new TemplateLayout();
+		layout.sheetName = sheetName;
+		try {
+			layout.workbookEntry = findRelationshipTargets(template, PACKAGE_RELATIONSHIPS_ENTRY, "")
+					.get(OFFICE_DOCUMENT_TYPE);
+			if (layout.workbookEntry == null) {
+				throw new InvalidExcelTemplateException("Template does not have workbook");
+			}
+			String workbookDirectory = directoryOf(layout.workbookEntry);
+			layout.workbookRelationshipsEntry = workbookDirectory + "_rels/"
+					+ layout.workbookEntry.substring(workbookDirectory.length()) + ".rels";
+
+			Map<String, String> targetsById = new HashMap<>();
+			Map<String, List<String>> entriesByType = new HashMap<>();
+			Map<String, String> targetsByType = findRelationshipTargets(template, layout.workbookRelationshipsEntry,
+					workbookDirectory, targetsById, entriesByType);
+			layout.calcChainEntry = targetsByType.get(CALC_CHAIN_TYPE);
+			String relationshipId = findSheetRelationshipId(template, layout.workbookEntry, sheetName);
+			layout.sheetEntry = targetsById.get(relationshipId);
+			if (layout.sheetEntry == null) {
+				throw new InvalidExcelTemplateException(String.format("Template does not have sheet %s", sheetName));
+			}
+			layout.worksheetEntries = entriesByType.getOrDefault(WORKSHEET_TYPE, Collections.emptyList());
+			layout.readSheetRelationships(template);
+
+			int markerStringIndex = findSharedStringIndex(template, targetsByType.get(SHARED_STRINGS_TYPE), marker);
+			layout.findMarker(template, marker, markerStringIndex);
+			layout.readNamedStyles(template, targetsByType.get(STYLES_TYPE));
+		} catch (XMLStreamException e) {
+			throw new InvalidExcelTemplateException(e.getMessage(), e);
+		}
+		return layout;
+	}
+
+	String getWorkbookEntry() {
+		return workbookEntry;
+	}
+
+	String getWorkbookRelationshipsEntry() {
+		return workbookRelationshipsEntry;
+	}
+
+	String getSheetName() {
+		return sheetName;
+	}
+
+	String getSheetEntry() {
+		return sheetEntry;
+	}
+
+	/**
+	 * Entries of every worksheet of workbook, including the template sheet
+	 */
+	List<String> getWorksheetEntries() {
+		return worksheetEntries;
+	}
+
+	/**
+	 * Entries of tables of the template sheet
+	 */
+	List<String> getTableEntries() {
+		return tableEntries;
+	}
+
+	/**
+	 * Entries of drawings of the template sheet, having anchors of shapes and charts
+	 */
+	List<String> getDrawingEntries() {
+		return drawingEntries;
+	}
+
+	/**
+	 * Entry of calculation chain, null if template does not have it
+	 */
+	String getCalcChainEntry() {
+		return calcChainEntry;
+	}
+
+	/**
+	 * One based number of marker row
+	 */
+	int getMarkerRow() {
+		return markerRow;
+	}
+
+	/**
+	 * Zero based index of column of marker cell
+	 */
+	int getMarkerColumn() {
+		return markerColumn;
+	}
+
+	/**
+	 * Index of cell style of marker row cell, null if the cell has not style
+	 */
+	Integer getMarkerStyle(int columnIndex) {
+		return markerStyles.get(columnIndex);
+	}
+
+	/**
+	 * Index of the first cell format of named cell style
+	 */
+	int getNamedStyle(String styleName) {
+		Integer style = namedStyles.get(styleName);
+		if (style == null) {
+			throw new InvalidExcelTemplateException(String.format("Template does not have cell style %s", styleName));
+		}
+		return style;
+	}
+
+	private static Map<String, String> findRelationshipTargets(ZipFile template, String entryName, String directory)
+			throws IOException, XMLStreamException {
+		return findRelationshipTargets(template, entryName, directory, new HashMap<>(), new HashMap<>());
+	}
+
+	/**
+	 * @param entriesByType filled with every target by suffix of relationship type
+	 * @return targets by suffix of relationship type. Targets are resolved to entry names
+	 */
+	private static Map<String, String> findRelationshipTargets(ZipFile template, String entryName, String directory,
+															   Map<String, String> targetsById,
+															   Map<String, List<String>> entriesByType)
+			throws IOException, XMLStreamException {
+		Map<String, String> targetsByType = new HashMap<>();
+		try (InputStream stream = XlsxXml.open(template, entryName)) {
+			if (stream == null) {
+				throw new InvalidExcelTemplateException(String.format("Template does not have %s", entryName));
+			}
+			XMLStreamReader reader = XlsxXml.read(stream);
+			while (reader.hasNext()) {
+				if (reader.next() == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals("Relationship")
+						&& !"External".equals(XlsxXml.attribute(reader, "TargetMode"))) {
+					String type = XlsxXml.attribute(reader, "Type");
+					String target = resolve(directory, XlsxXml.attribute(reader, "Target"));
+					String typeSuffix = type.substring(type.lastIndexOf('/'));
+					targetsByType.put(typeSuffix, target);
+					targetsById.put(XlsxXml.attribute(reader, "Id"), target);
+					entriesByType.computeIfAbsent(typeSuffix, key -> new ArrayList<>()).add(target);
+				}
+			}
+			reader.close();
+		}
+		return targetsByType;
+	}
+
+	/**
+	 * Finds tables and drawings of the template sheet, sheet does not have relationships if it has none of them
+	 */
+	private void readSheetRelationships(ZipFile template) throws IOException, XMLStreamException {
+		String sheetDirectory = directoryOf(sheetEntry);
+		String relationshipsEntry = sheetDirectory + "_rels/" + sheetEntry.substring(sheetDirectory.length()) + ".rels";
+		if (template.getEntry(relationshipsEntry) == null) {
+			return;
+		}
+		Map<String, List<String>> entriesByType = new HashMap<>();
+		findRelationshipTargets(template, relationshipsEntry, sheetDirectory, new HashMap<>(), entriesByType);
+		tableEntries = entriesByType.getOrDefault(TABLE_TYPE, Collections.emptyList());
+		drawingEntries = entriesByType.getOrDefault(DRAWING_TYPE, Collections.emptyList());
+	}
+
+	private static String findSheetRelationshipId(ZipFile template, String workbookEntry, String sheetName)
+			throws IOException, XMLStreamException {
+		try (InputStream stream = XlsxXml.open(template, workbookEntry)) {
+			XMLStreamReader reader = XlsxXml.read(stream);
+			while (reader.hasNext()) {
+				if (reader.next() == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals("sheet")
+						&& sheetName.equals(XlsxXml.attribute(reader, "name"))) {
+					return XlsxXml.attribute(reader, "id");
+				}
+			}
+			reader.close();
+		}
+		throw new InvalidExcelTemplateException(String.format("Template does not have sheet %s", sheetName));
+	}
+
+	/**
+	 * @return index of shared string equal to marker, -1 if there is not
+	 */
+	private static int findSharedStringIndex(ZipFile template, String sharedStringsEntry, String marker)
+			throws IOException, XMLStreamException {
+		if (sharedStringsEntry == null) {
+			return -1;
+		}
+		try (InputStream stream = XlsxXml.open(template, sharedStringsEntry)) {
+			if (stream == null) {
+				return -1;
+			}
+			XMLStreamReader reader = XlsxXml.read(stream);
+			int index = -1;
+			while (reader.hasNext()) {
+				if (reader.next() == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals("si")) {
+					index++;
+					if (marker.equals(readText(reader))) {
+						return index;
+					}
+				}
+			}
+			reader.close();
+		}
+		return -1;
+	}
+
+	/**
+	 * Finds the first cell of sheet having marker as shared or inline string
+	 */
+	private void findMarker(ZipFile template, String marker, int markerStringIndex) throws IOException, XMLStreamException {
+		try (InputStream stream = XlsxXml.open(template, sheetEntry)) {
+			if (stream == null) {
+				throw new InvalidExcelTemplateException(String.format("Template does not have %s", sheetEntry));
+			}
+			XMLStreamReader reader = XlsxXml.read(stream);
+			int rowNumber = 0;
+			int columnIndex = -1;
+			Map<Integer, Integer> rowStyles = new HashMap<>();
+			while (reader.hasNext()) {
+				if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+					continue;
+				}
+				String localName = reader.getLocalName();
+				if (localName.equals("row")) {
+					String number = XlsxXml.attribute(reader, "r");
+					rowNumber = number == null ? rowNumber + 1 : Integer.parseInt(number);
+					columnIndex = -1;
+					rowStyles.clear();
+				} else if (localName.equals("c")) {
+					String reference = XlsxXml.attribute(reader, "r");
+					columnIndex = reference == null ? columnIndex + 1 : new CellReference(reference).getCol();
+					String style = XlsxXml.attribute(reader, "s");
+					if (style != null) {
+						rowStyles.put(columnIndex, Integer.parseInt(style));
+					}
+					String type = XlsxXml.attribute(reader, "t");
+					if (isMarker(reader, type, marker, markerStringIndex)) {
+						markerRow = rowNumber;
+						markerColumn = columnIndex;
+						readRowStyles(reader, columnIndex, rowStyles);
+						reader.close();
+						return;
+					}
+				}
+			}
+			reader.close();
+		}
+		throw new InvalidExcelTemplateException(String.format("Sheet %s of template does not have marker %s", sheetEntry, marker));
+	}
+
+	/**
+	 * Reads the rest of marker row, reader is on start of marker cell
+	 */
+	private void readRowStyles(XMLStreamReader reader, int columnIndex, Map<Integer, Integer> rowStyles)
+			throws XMLStreamException {
+		markerStyles.putAll(rowStyles);
+		int depth = 2;
+		while (depth > 0) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			} else if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+				if (reader.getLocalName().equals("c")) {
+					String reference = XlsxXml.attribute(reader, "r");
+					columnIndex = reference == null ? columnIndex + 1 : new CellReference(reference).getCol();
+					String style = XlsxXml.attribute(reader, "s");
+					if (style != null) {
+						markerStyles.put(columnIndex, Integer.parseInt(style));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reader is on start of cell, and left in the cell
+	 */
+	private static boolean isMarker(XMLStreamReader reader, String type, String marker, int markerStringIndex)
+			throws XMLStreamException {
+		if ("s".equals(type)) {
+			if (markerStringIndex < 0 || !nextStartElement(reader, "v")) {
+				return false;
+			}
+			return String.valueOf(markerStringIndex).equals(reader.getElementText().trim());
+		}
+		if ("inlineStr".equals(type)) {
+			return nextStartElement(reader, "is") && marker.equals(readText(reader));
+		}
+		return false;
+	}
+
+	/**
+	 * Moves to the next start element in current element
+	 */
+	private static boolean nextStartElement(XMLStreamReader reader, String localName) throws XMLStreamException {
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				return reader.getLocalName().equals(localName);
+			}
+			if (event == XMLStreamConstants.END_ELEMENT) {
+				return false;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Concatenated text of t elements of current string item, except phonetic runs
+	 */
+	private static String readText(XMLStreamReader reader) throws XMLStreamException {
+		StringBuilder text = new StringBuilder();
+		Deque<String> elements = new ArrayDeque<>();
+		elements.push(reader.getLocalName());
+		while (!elements.isEmpty()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				elements.push(reader.getLocalName());
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				elements.pop();
+			} else if ((event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+					|| event == XMLStreamConstants.SPACE)
+					&& "t".equals(elements.peek()) && !elements.contains("rPh")) {
+				text.append(reader.getText());
+			}
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Named cell style refers cell style format, and cells use the first cell format based on it
+	 */
+	private void readNamedStyles(ZipFile template, String stylesEntry) throws IOException, XMLStreamException {
+		if (stylesEntry == null) {
+			return;
+		}
+		try (InputStream stream = XlsxXml.open(template, stylesEntry)) {
+			if (stream == null) {
+				return;
+			}
+			XMLStreamReader reader = XlsxXml.read(stream);
+			Map<Integer, Integer> cellFormatsByStyleFormat = new HashMap<>();
+			Map<String, Integer> styleFormatsByName = new HashMap<>();
+			boolean inCellFormats = false;
+			int cellFormatIndex = -1;
+			while (reader.hasNext()) {
+				int event = reader.next();
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					String localName = reader.getLocalName();
+					if (localName.equals("cellXfs")) {
+						inCellFormats = true;
+					} else if (localName.equals("xf") && inCellFormats) {
+						cellFormatIndex++;
+						String styleFormat = XlsxXml.attribute(reader, "xfId");
+						cellFormatsByStyleFormat.putIfAbsent(styleFormat == null ? 0 : Integer.parseInt(styleFormat),
+								cellFormatIndex);
+					} else if (localName.equals("cellStyle")) {
+						styleFormatsByName.put(XlsxXml.attribute(reader, "name"),
+								Integer.parseInt(XlsxXml.attribute(reader, "xfId")));
+					}
+				} else if (event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals("cellXfs")) {
+					inCellFormats = false;
+				}
+			}
+			reader.close();
+			styleFormatsByName.forEach((name, styleFormat) -> {
+				Integer cellFormat = cellFormatsByStyleFormat.get(styleFormat);
+				if (cellFormat != null) {
+					namedStyles.put(name, cellFormat);
+				}
+			});
+		}
+	}
+
+	static String directoryOf(String entryName) {
+		return entryName.substring(0, entryName.lastIndexOf('/') + 1);
+	}
+
+	/**
+	 * Resolves relationship target relative to directory of source part
+	 */
+	private static String resolve(String directory, String target) {
+		if (target.startsWith("/")) {
+			return target.substring(1);
+		}
+		Deque<String> segments = new ArrayDeque<>();
+		for (String segment : (directory + target).split("/")) {
+			if (segment.equals("..")) {
+				segments.pollLast();
+			} else if (!segment.isEmpty() && !segment.equals(".")) {
+				segments.addLast(segment);
+			}
+		}
+		return String.join("/", segments);
+	}
+
+}
@@ -0,0 +1,199 @@
+package com.okdori.excel.template;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * TemplateReferenceShifter
+ *
+ * Rewrites cell references of formulas and ranges when rows are injected at marker row of template sheet.
+ * - rows below marker row are moved down by shift
+ * - ranges ending at marker row are expanded to the last injected row, so SUM(C2:C2) covers every data row
+ * - references of other sheets, string literals and structured references are kept
+ *
+ * Formula is rewritten token by token without parsing it, so template workbook is not loaded
+ */
+final class TemplateReferenceShifter {
+
+	// cell or cell range like $A$1:B2, or row range like 2:5
+	private static final Pattern REFERENCE = Pattern.compile(
+			"(\\$?[A-Za-z]{1,3})(\\$?)(\\d+)(?::(\\$?[A-Za-z]{1,3})(\\$?)(\\d+))?|(\\$?)(\\d+):(\\$?)(\\d+)");
+
+	private final String sheetName;
+	private final int markerRow;
+	private final int shift;
+
+	/**
+	 * @param sheetName name of template sheet
+	 * @param markerRow one based number of marker row
+	 * @param shift rows below marker row are moved by
+	 */
+	TemplateReferenceShifter(String sheetName, int markerRow, int shift) {
+		this.sheetName = sheetName;
+		this.markerRow = markerRow;
+		this.shift = shift;
+	}
+
+	/**
+	 * @param formula formula without leading '='
+	 * @param onTemplateSheet true if references without sheet name refer template sheet
+	 */
+	String shiftFormula(String formula, boolean onTemplateSheet) {
+		return shift(formula, onTemplateSheet, true);
+	}
+
+	/**
+	 * Shifts space separated ranges of template sheet, like "A1:B3 D5"
+	 * @param expand true to expand ranges ending at marker row
+	 */
+	String shiftRanges(String ranges, boolean expand) {
+		return shift(ranges, true, expand);
+	}
+
+	/**
+	 * @param rowIndex zero based row index of template sheet
+	 */
+	int shiftRowIndex(int rowIndex) {
+		return rowIndex + 1 > markerRow ? rowIndex + shift : rowIndex;
+	}
+
+	private String shift(String text, boolean onTemplateSheet, boolean expand) {
+		StringBuilder shifted = new StringBuilder(text.length() + 8);
+		Matcher matcher = REFERENCE.matcher(text);
+		int length = text.length();
+		int i = 0;
+		while (i < length) {
+			char c = text.charAt(i);
+			if (c == '"') {
+				i = copyQuoted(text, i, '"', shifted);
+			} else if (c == '[') {
+				i = copyBracket(text, i, shifted);
+			} else if (c == '\'') {
+				int end = copyQuoted(text, i, '\'', shifted);
+				if (end < length && text.charAt(end) == '!') {
+					shifted.append('!');
+					String quotedSheet = text.substring(i + 1, end - 1).replace("''", "'");
+					i = appendReference(text, end + 1, matcher, isTemplateSheet(quotedSheet), expand, shifted);
+				} else {
+					i = end;
+				}
+			} else if (isNameChar(c)) {
+				int end = i;
+				while (end < length && isNameChar(text.charAt(end))) {
+					end++;
+				}
+				if (end < length && text.charAt(end) == '!') {
+					shifted.append(text, i, end + 1);
+					i = appendReference(text, end + 1, matcher, isTemplateSheet(text.substring(i, end)), expand, shifted);
+				} else {
+					int next = appendReference(text, i, matcher, onTemplateSheet, expand, shifted);
+					if (next == i) {
+						shifted.append(text, i, end);
+						next = end;
+					}
+					i = next;
+				}
+			} else {
+				shifted.append(c);
+				i++;
+			}
+		}
+		return shifted.toString();
+	}
+
+	/**
+	 * Appends reference starting at index, shifted if it refers template sheet
+	 * @return index after the reference, or index if there is no reference
+	 */
+	private int appendReference(String text, int index, Matcher matcher, boolean templateSheet, boolean expand,
+								StringBuilder shifted) {
+		matcher.region(index, text.length());
+		if (!matcher.lookingAt() || !isReferenceEnd(text, matcher.end())) {
+			return index;
+		}
+		if (!templateSheet) {
+			shifted.append(text, index, matcher.end());
+			return matcher.end();
+		}
+		if (matcher.group(1) != null) {
+			int firstRow = Integer.parseInt(matcher.group(3));
+			shifted.append(matcher.group(1)).append(matcher.group(2)).append(shiftRow(firstRow));
+			if (matcher.group(4) != null) {
+				shifted.append(':').append(matcher.group(4)).append(matcher.group(5))
+						.append(shiftLastRow(firstRow, Integer.parseInt(matcher.group(6)), expand));
+			}
+		} else {
+			int firstRow = Integer.parseInt(matcher.group(8));
+			shifted.append(matcher.group(7)).append(shiftRow(firstRow)).append(':').append(matcher.group(9))
+					.append(shiftLastRow(firstRow, Integer.parseInt(matcher.group(10)), expand));
+		}
+		return matcher.end();
+	}
+
+	private int shiftRow(int row) {
+		return row > markerRow ? row + shift : row;
+	}
+
+	private int shiftLastRow(int firstRow, int lastRow, boolean expand) {
+		if (expand && lastRow == markerRow) {
+			return Math.max(shiftRow(firstRow), markerRow + shift);
+		}
+		return shiftRow(lastRow);
+	}
+
+	private boolean isTemplateSheet(String name) {
+		return sheetName.equalsIgnoreCase(name);
+	}
+
+	/**
+	 * Reference is not followed by name characters, function call or sheet separator, such as LOG10(
+	 */
+	private static boolean isReferenceEnd(String text, int index) {
+		if (index >= text.length()) {
+			return true;
+		}
+		char c = text.charAt(index);
+		return !isNameChar(c) && c != '(' && c != '!' && c != '[';
+	}
+
+	private static boolean isNameChar(char c) {
+		return Character.isLetterOrDigit(c) || c == '_' || c == '.' || c == '\\' || c == '$';
+	}
+
+	/**
+	 * Copies quoted text, quotes are escaped by doubling them
+	 * @return index after closing quote
+	 */
+	private static int copyQuoted(String text, int index, char quote, StringBuilder shifted) {
+		int i = index + 1;
+		while (i < text.length()) {
+			if (text.charAt(i) == quote) {
+				if (i + 1 < text.length() && text.charAt(i + 1) == quote) {
+					i += 2;
+					continue;
+				}
+				i++;
+				break;
+			}
+			i++;
+		}
+		shifted.append(text, index, i);
+		return i;
+	}
+
+	private static int copyBracket(String text, int index, StringBuilder shifted) {
+		int depth = 0;
+		int i = index;
+		while (i < text.length()) {
+			char c = text.charAt(i++);
+			if (c == '[') {
+				depth++;
+			} else if (c == ']' && --depth == 0) {
+				break;
+			}
+		}
+		shifted.append(text, index, i);
+		return i;
+	}
+
+}
@@ -0,0 +1,114 @@
+package com.okdori.excel.template;
+
+import com.okdori.excel.pipeline.SheetRowWriter;
+import com.okdori.exception.ExcelInternalException;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.util.CellReference;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * TemplateRowWriter
+ *
+ * Write stage writing rows as sheet xml fragment, with cell styles of template given by index.
+ * Strings are written as inline strings, so shared strings of template are not changed
+ */
+final class TemplateRowWriter implements SheetRowWriter {
+
+	private final Writer out;
+	private final String[] columnNames;
+	private final String[] styleAttributes;
+	private String rowNumber;
+	private int rowCount;
+
+	/**
+	 * @param styles index of cell style of each column, null for default style
+	 */
+	TemplateRowWriter(Writer out, int columnStartIndex, Integer[] styles) {
+		this.out = out;
+		this.columnNames = new String[styles.length];
+		this.styleAttributes = new String[styles.length];
+		for (int i = 0; i < styles.length; i++) {
+			columnNames[i] = CellReference.convertNumToColString(columnStartIndex + i);
+			styleAttributes[i] = styles[i] == null ? "" : " s=\"" + styles[i] + "\"";
+		}
+	}
+
+	@Override
+	public void beginRow(int rowIndex) {
+		rowNumber = String.valueOf(rowIndex + 1);
+		write("<row r=\"", rowNumber, "\">");
+	}
+
+	@Override
+	public void writeNumber(int columnIndex, double value, CellStyle style) {
+		write("<c r=\"", columnNames[columnIndex] + rowNumber, "\"");
+		write(styleAttributes[columnIndex], "><v>", Double.toString(value));
+		write("</v></c>", "", "");
+	}
+
+	@Override
+	public void writeString(int columnIndex, String value, CellStyle style) {
+		write("<c r=\"", columnNames[columnIndex] + rowNumber, "\"");
+		boolean preserveSpace = !value.isEmpty()
+				&& (Character.isWhitespace(value.charAt(0)) || Character.isWhitespace(value.charAt(value.length() - 1)));
+		write(styleAttributes[columnIndex], " t=\"inlineStr\"><is>", preserveSpace ? "<t xml:space=\"preserve\">" : "<t>");
+		try {
+			escape(value);
+		} catch (IOException e) {
+			throw new ExcelInternalException(e.getMessage(), e);
+		}
+		write("</t></is></c>", "", "");
+	}
+
+	@Override
+	public void endRow() {
+		write("</row>", "", "");
+		rowCount++;
+	}
+
+	int getRowCount() {
+		return rowCount;
+	}
+
+	private void write(String first, String second, String third) {
+		try {
+			out.write(first);
+			out.write(second);
+			out.write(third);
+		} catch (IOException e) {
+			throw new ExcelInternalException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Escapes markup, and drops characters xml 1.0 can not have
+	 */
+	private void escape(String value) throws IOException {
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+				case '<':
+					out.write("&lt;");
+					break;
+				case '>':
+					out.write("&gt;");
+					break;
+				case '&':
+					out.write("&amp;");
+					break;
+				case '\t':
+				case '\n':
+				case '\r':
+					out.write(c);
+					break;
+				default:
+					if (c >= 0x20 && c != 0xFFFE && c != 0xFFFF) {
+						out.write(c);
+					}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,358 @@
+package com.okdori.excel.template;
+
+import com.okdori.excel.xlsx.XlsxXml;
+import com.okdori.exception.InvalidExcelTemplateException;
+import org.apache.commons.compress.archivers.zip.Zip64Mode;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * TemplateWorkbookWriter
+ *
+ * Copies every entry of template as raw compressed bytes, except
+ * - sheet : rows fragment replaces marker row, and rows below it are moved down with their formulas, merged cells,
+ *   conditional formats, data validations and auto filter
+ * - other sheets : formulas referring rows of the sheet are moved
+ * - tables and drawings of the sheet : ranges and anchors are moved
+ * - calculation chain : dropped, because cells having formulas are moved. Excel rebuilds it
+ * - workbook : defined names are moved, and formulas are calculated when workbook is opened
+ * - content types and workbook relationships : calculation chain is removed
+ *
+ * Ranges ending at marker row, like SUM(C2:C2) with marker at C2, are expanded to the last injected row
+ */
+final class TemplateWorkbookWriter {
+
+	private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+	private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
+	private static final String CONTENT_TYPES_ENTRY = "[Content_Types].xml";
+	// elements of workbook which come after calcPr
+	private static final Set<String> ELEMENTS_AFTER_CALC_PR = new HashSet<>(Arrays.asList("oleSize",
+			"customWorkbookViews", "pivotCaches", "smartTagPr", "smartTagTypes", "webPublishing", "fileRecoveryPr",
+			"webPublishObjects", "extLst"));
+	// elements of sheet having references of cell ranges, which are not expanded
+	private static final Set<String> RANGE_ELEMENTS = new HashSet<>(Arrays.asList("mergeCell", "hyperlink",
+			"selection"));
+	// elements of sheet and table having references of cell ranges, which are expanded
+	private static final Set<String> EXPANDED_RANGE_ELEMENTS = new HashSet<>(Arrays.asList("conditionalFormatting",
+			"dataValidation", "autoFilter", "table", "sortState", "sortCondition"));
+	// elements of sheet having formula as text
+	private static final Set<String> FORMULA_ELEMENTS = new HashSet<>(Arrays.asList("f", "formula", "formula1",
+			"formula2"));
+
+	private final ZipFile template;
+	private final TemplateLayout layout;
+	private final Set<String> otherSheetEntries;
+	private final Set<String> tableEntries;
+	private final Set<String> drawingEntries;
+
+	TemplateWorkbookWriter(ZipFile template, TemplateLayout layout) {
+		this.template = template;
+		this.layout = layout;
+		this.otherSheetEntries = new HashSet<>(layout.getWorksheetEntries());
+		this.otherSheetEntries.remove(layout.getSheetEntry());
+		this.tableEntries = new HashSet<>(layout.getTableEntries());
+		this.drawingEntries = new HashSet<>(layout.getDrawingEntries());
+	}
+
+	/**
+	 * @param rows xml fragment of rows starting at marker row
+	 * @param rowCount count of rows in fragment
+	 * @param stream stream workbook is written to. It is not closed
+	 */
+	void write(File rows, int rowCount, OutputStream stream) throws IOException {
+		ZipArchiveOutputStream zip = new ZipArchiveOutputStream(stream);
+		zip.setUseZip64(Zip64Mode.AsNeeded);
+		// marker row is left empty without rows, so ranges over it are kept
+		TemplateReferenceShifter shifter = new TemplateReferenceShifter(layout.getSheetName(), layout.getMarkerRow(),
+				Math.max(rowCount, 1) - 1);
+		try {
+			for (Enumeration<ZipArchiveEntry> entries = template.getEntriesInPhysicalOrder(); entries.hasMoreElements(); ) {
+				ZipArchiveEntry entry = entries.nextElement();
+				String name = entry.getName();
+				if (name.equals(layout.getCalcChainEntry())) {
+					continue;
+				}
+				if (name.equals(layout.getSheetEntry())) {
+					putEntry(zip, entry, copy -> copySheet(copy, zip, rows, shifter));
+				} else if (otherSheetEntries.contains(name)) {
+					putEntry(zip, entry, copy -> copyOtherSheet(copy, shifter));
+				} else if (tableEntries.contains(name)) {
+					putEntry(zip, entry, copy -> copyTable(copy, shifter));
+				} else if (drawingEntries.contains(name)) {
+					putEntry(zip, entry, copy -> copyDrawing(copy, shifter));
+				} else if (name.equals(layout.getWorkbookEntry())) {
+					putEntry(zip, entry, copy -> copyWorkbook(copy, shifter));
+				} else if (layout.getCalcChainEntry() != null && name.equals(CONTENT_TYPES_ENTRY)) {
+					putEntry(zip, entry, this::copyContentTypes);
+				} else if (layout.getCalcChainEntry() != null && name.equals(layout.getWorkbookRelationshipsEntry())) {
+					putEntry(zip, entry, this::copyWorkbookRelationships);
+				} else {
+					ZipArchiveEntry copied = new ZipArchiveEntry(entry);
+					try (InputStream raw = template.getRawInputStream(entry)) {
+						zip.addRawArchiveEntry(copied, raw);
+					}
+				}
+			}
+		} catch (XMLStreamException e) {
+			throw new InvalidExcelTemplateException(e.getMessage(), e);
+		}
+		zip.finish();
+		zip.flush();
+	}
+
+	private void putEntry(ZipArchiveOutputStream zip, ZipArchiveEntry source, PartCopier copier)
+			throws IOException, XMLStreamException {
+		ZipArchiveEntry entry = new ZipArchiveEntry(source.getName());
+		entry.setTime(source.getTime());
+		zip.putArchiveEntry(entry);
+		zip.write(XML_DECLARATION.getBytes(StandardCharsets.UTF_8));
+		try (InputStream stream = template.getInputStream(source)) {
+			XMLStreamReader reader = XlsxXml.read(stream);
+			XMLStreamWriter writer = OUTPUT_FACTORY.createXMLStreamWriter(zip, StandardCharsets.UTF_8.name());
+			copier.copy(new Copy(reader, writer));
+			writer.flush();
+			reader.close();
+		}
+		zip.closeArchiveEntry();
+	}
+
+	private void copySheet(Copy copy, OutputStream zip, File rows, TemplateReferenceShifter shifter)
+			throws IOException, XMLStreamException {
+		int markerRow = layout.getMarkerRow();
+		XMLStreamReader reader = copy.reader;
+		XMLStreamWriter writer = copy.writer;
+		int rowNumber = 0;
+		boolean shifted = false;
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event != XMLStreamConstants.START_ELEMENT) {
+				XlsxXml.copyEvent(reader, writer);
+				continue;
+			}
+
+			String localName = reader.getLocalName();
+			if (localName.equals("dimension")) {
+				XlsxXml.skipElement(reader);
+			} else if (localName.equals("row")) {
+				String number = XlsxXml.attribute(reader, "r");
+				rowNumber = number == null ? rowNumber + 1 : Integer.parseInt(number);
+				if (rowNumber == markerRow) {
+					XlsxXml.skipElement(reader);
+					// closes start tag written before, so fragment is written after it
+					writer.writeCharacters("");
+					writer.flush();
+					Files.copy(rows.toPath(), zip);
+					continue;
+				}
+				shifted = rowNumber > markerRow;
+				int shiftedNumber = shifter.shiftRowIndex(rowNumber - 1) + 1;
+				XlsxXml.copyStartElement(reader, writer,
+						(name, value) -> name.equals("r") ? String.valueOf(shiftedNumber) : value);
+			} else if (localName.equals("c") && shifted) {
+				XlsxXml.copyStartElement(reader, writer,
+						(name, value) -> name.equals("r") ? shifter.shiftRanges(value, false) : value);
+			} else if (FORMULA_ELEMENTS.contains(localName)) {
+				// ref of shared and array formula is range of cells having it
+				XlsxXml.copyStartElement(reader, writer,
+						(name, value) -> name.equals("ref") ? shifter.shiftRanges(value, false) : value);
+				copyFormula(copy, shifter, true);
+			} else if (RANGE_ELEMENTS.contains(localName) || EXPANDED_RANGE_ELEMENTS.contains(localName)) {
+				boolean expand = EXPANDED_RANGE_ELEMENTS.contains(localName);
+				XlsxXml.copyStartElement(reader, writer, (name, value) -> name.equals("ref") || name.equals("sqref")
+						? shifter.shiftRanges(value, expand) : value);
+			} else {
+				XlsxXml.copyStartElement(reader, writer, XlsxXml.AttributeRewriter.NONE);
+			}
+		}
+	}
+
+	/**
+	 * Moves references of formulas referring the template sheet by its name
+	 */
+	private static void copyOtherSheet(Copy copy, TemplateReferenceShifter shifter) throws XMLStreamException {
+		XMLStreamReader reader = copy.reader;
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event != XMLStreamConstants.START_ELEMENT) {
+				XlsxXml.copyEvent(reader, copy.writer);
+			} else {
+				XlsxXml.copyStartElement(reader, copy.writer, XlsxXml.AttributeRewriter.NONE);
+				if (FORMULA_ELEMENTS.contains(reader.getLocalName())) {
+					copyFormula(copy, shifter, false);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Expands table of the template sheet with its auto filter over injected rows
+	 */
+	private static void copyTable(Copy copy, TemplateReferenceShifter shifter) throws XMLStreamException {
+		XMLStreamReader reader = copy.reader;
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event != XMLStreamConstants.START_ELEMENT) {
+				XlsxXml.copyEvent(reader, copy.writer);
+			} else if (EXPANDED_RANGE_ELEMENTS.contains(reader.getLocalName())) {
+				XlsxXml.copyStartElement(reader, copy.writer,
+						(name, value) -> name.equals("ref") ? shifter.shiftRanges(value, true) : value);
+			} else {
+				XlsxXml.copyStartElement(reader, copy.writer, XlsxXml.AttributeRewriter.NONE);
+			}
+		}
+	}
+
+	/**
+	 * Moves anchors of shapes and charts placed below marker row. Anchor rows are zero based
+	 */
+	private static void copyDrawing(Copy copy, TemplateReferenceShifter shifter) throws XMLStreamException {
+		XMLStreamReader reader = copy.reader;
+		XMLStreamWriter writer = copy.writer;
+		boolean inAnchor = false;
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event != XMLStreamConstants.START_ELEMENT) {
+				if (event == XMLStreamConstants.END_ELEMENT
+						&& (reader.getLocalName().equals("from") || reader.getLocalName().equals("to"))) {
+					inAnchor = false;
+				}
+				XlsxXml.copyEvent(reader, writer);
+				continue;
+			}
+			String localName = reader.getLocalName();
+			XlsxXml.copyStartElement(reader, writer, XlsxXml.AttributeRewriter.NONE);
+			if (localName.equals("from") || localName.equals("to")) {
+				inAnchor = true;
+			} else if (inAnchor && localName.equals("row")) {
+				writer.writeCharacters(String.valueOf(shifter.shiftRowIndex(Integer.parseInt(reader.getElementText().trim()))));
+				writer.writeEndElement();
+			}
+		}
+	}
+
+	/**
+	 * Reader is on start of element having formula as text, and left on its end
+	 * @param onTemplateSheet true if references without sheet name refer template sheet
+	 */
+	private static void copyFormula(Copy copy, TemplateReferenceShifter shifter, boolean onTemplateSheet)
+			throws XMLStreamException {
+		String formula = copy.reader.getElementText();
+		copy.writer.writeCharacters(shifter.shiftFormula(formula, onTemplateSheet));
+		copy.writer.writeEndElement();
+	}
+
+	/**
+	 * Moves defined names referring the template sheet, and sets fullCalcOnLoad,
+	 * so formulas over moved and injected rows are calculated
+	 */
+	private void copyWorkbook(Copy copy, TemplateReferenceShifter shifter) throws XMLStreamException {
+		XMLStreamReader reader = copy.reader;
+		XMLStreamWriter writer = copy.writer;
+		boolean calcPrWritten = false;
+		int depth = 0;
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+				String localName = reader.getLocalName();
+				if (depth == 2 && !calcPrWritten && ELEMENTS_AFTER_CALC_PR.contains(localName)) {
+					writeCalcPr(writer, reader.getNamespaceURI());
+					calcPrWritten = true;
+				}
+				if (depth == 2 && localName.equals("calcPr")) {
+					calcPrWritten = true;
+					XlsxXml.copyStartElement(reader, writer, XlsxXml.AttributeRewriter.NONE);
+					if (XlsxXml.attribute(reader, "fullCalcOnLoad") == null) {
+						writer.writeAttribute("fullCalcOnLoad", "1");
+					}
+				} else {
+					XlsxXml.copyStartElement(reader, writer, XlsxXml.AttributeRewriter.NONE);
+					if (localName.equals("definedName")) {
+						copyFormula(copy, shifter, false);
+						depth--;
+					}
+				}
+			} else {
+				if (event == XMLStreamConstants.END_ELEMENT) {
+					if (depth == 1 && !calcPrWritten) {
+						writeCalcPr(writer, reader.getNamespaceURI());
+					}
+					depth--;
+				}
+				XlsxXml.copyEvent(reader, writer);
+			}
+		}
+	}
+
+	private static void writeCalcPr(XMLStreamWriter writer, String namespace) throws XMLStreamException {
+		writer.writeEmptyElement("", "calcPr", namespace);
+		writer.writeAttribute("fullCalcOnLoad", "1");
+	}
+
+	private void copyContentTypes(Copy copy) throws XMLStreamException {
+		String calcChainPart = "/" + layout.getCalcChainEntry();
+		copyWithout(copy, "Override", "PartName", Collections.singleton(calcChainPart));
+	}
+
+	private void copyWorkbookRelationships(Copy copy) throws XMLStreamException {
+		String directory = TemplateLayout.directoryOf(layout.getWorkbookEntry());
+		String calcChainTarget = layout.getCalcChainEntry().substring(directory.length());
+		copyWithout(copy, "Relationship", "Target",
+				new HashSet<>(Arrays.asList(calcChainTarget, "/" + layout.getCalcChainEntry())));
+	}
+
+	private static void copyWithout(Copy copy, String localName, String attribute, Set<String> values)
+			throws XMLStreamException {
+		XMLStreamReader reader = copy.reader;
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				if (reader.getLocalName().equals(localName) && values.contains(XlsxXml.attribute(reader, attribute))) {
+					XlsxXml.skipElement(reader);
+				} else {
+					XlsxXml.copyStartElement(reader, copy.writer, XlsxXml.AttributeRewriter.NONE);
+				}
+			} else {
+				XlsxXml.copyEvent(reader, copy.writer);
+			}
+		}
+	}
+
+	private static final class Copy {
+
+		private final XMLStreamReader reader;
+		private final XMLStreamWriter writer;
+
+		private Copy(XMLStreamReader reader, XMLStreamWriter writer) {
+			this.reader = reader;
+			this.writer = writer;
+		}
+
+	}
+
+	@FunctionalInterface
+	private interface PartCopier {
+
+		void copy(Copy copy) throws IOException, XMLStreamException;
+
+	}
+
+}
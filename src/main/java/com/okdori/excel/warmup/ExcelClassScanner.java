@@ -0,0 +1,126 @@
+package com.okdori.excel.warmup;
+
+import com.okdori.ExcelColumn;
+import com.okdori.exception.ExcelInternalException;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import static com.okdori.utils.SuperClassReflectionUtils.getAllFields;
+
+/**
+ * ExcelClassScanner
+ *
+ * Finds classes having @ExcelColumn on fields in a package and its sub packages, in directories and jars of class loader.
+ * Classes are loaded without being initialized, and classes which can not be loaded are skipped
+ */
+final class ExcelClassScanner {
+
+	private static final String CLASS_SUFFIX = ".class";
+
+	private ExcelClassScanner() {
+
+	}
+
+	static List<Class<?>> scan(String packageName, ClassLoader classLoader) {
+		String path = packageName.replace('.', '/');
+		Set<String> classNames = new TreeSet<>();
+		try {
+			for (Enumeration<URL> resources = classLoader.getResources(path); resources.hasMoreElements(); ) {
+				URL resource = resources.nextElement();
+				if (resource.getProtocol().equals("file")) {
+					findClassNames(toFile(resource), packageName, classNames);
+				} else if (resource.getProtocol().equals("jar")) {
+					findClassNames((JarURLConnection) resource.openConnection(), path, classNames);
+				}
+			}
+		} catch (IOException e) {
+			throw new ExcelInternalException(e.getMessage(), e);
+		}
+
+		List<Class<?>> classes = new ArrayList<>();
+		for (String className : classNames) {
+			Class<?> type = load(className, classLoader);
+			if (type != null && hasExcelColumn(type)) {
+				classes.add(type);
+			}
+		}
+		return classes;
+	}
+
+	/**
+	 * Decodes only escapes of URI, '+' is kept as it is in names of directories
+	 */
+	static File toFile(URL resource) {
+		try {
+			return new File(resource.toURI());
+		} catch (URISyntaxException | IllegalArgumentException e) {
+			// URL of a path not escaped as URI, such as having spaces
+			return new File(resource.getPath());
+		}
+	}
+
+	private static void findClassNames(File directory, String packageName, Set<String> classNames) {
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+		for (File file : files) {
+			String name = file.getName();
+			if (file.isDirectory()) {
+				findClassNames(file, packageName + "." + name, classNames);
+			} else if (name.endsWith(CLASS_SUFFIX)) {
+				classNames.add(packageName + "." + name.substring(0, name.length() - CLASS_SUFFIX.length()));
+			}
+		}
+	}
+
+	private static void findClassNames(JarURLConnection connection, String path, Set<String> classNames)
+			throws IOException {
+		connection.setUseCaches(false);
+		try (JarFile jar = connection.getJarFile()) {
+			for (Enumeration<JarEntry> entries = jar.entries(); entries.hasMoreElements(); ) {
+				String name = entries.nextElement().getName();
+				if (name.startsWith(path + "/") && name.endsWith(CLASS_SUFFIX)) {
+					classNames.add(name.substring(0, name.length() - CLASS_SUFFIX.length()).replace('/', '.'));
+				}
+			}
+		}
+	}
+
+	private static Class<?> load(String className, ClassLoader classLoader) {
+		try {
+			return Class.forName(className, false, classLoader);
+		} catch (ClassNotFoundException | LinkageError e) {
+			return null;
+		}
+	}
+
+	private static boolean hasExcelColumn(Class<?> type) {
+		if (type.isInterface() || type.isAnnotation() || type.isEnum()) {
+			return false;
+		}
+		try {
+			for (Field field : getAllFields(type)) {
+				if (field.isAnnotationPresent(ExcelColumn.class)) {
+					return true;
+				}
+			}
+		} catch (LinkageError e) {
+			return false;
+		}
+		return false;
+	}
+
+}
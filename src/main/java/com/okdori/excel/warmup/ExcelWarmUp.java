@@ -0,0 +1,200 @@
+package com.okdori.excel.warmup;
+
+import com.okdori.ExcelException;
+import com.okdori.excel.ExcelGenerator;
+import com.okdori.excel.onesheet.OneSheetExcelFile;
+import com.okdori.excel.storage.ExcelTempStorage;
+import com.okdori.exception.InvalidExcelClassException;
+import com.okdori.resource.DefaultDataFormatDecider;
+import com.okdori.resource.schema.ExcelColumnSchema;
+import com.okdori.resource.schema.ExcelSchema;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * ExcelWarmUp
+ *
+ * Prepares classes before their first export, such as when application starts
+ * - schemas are created and cached, so invalid annotations like enumName of unknown constant fail here
+ * - fields of classes are analyzed and cached for {@link ExcelGenerator}
+ * - with synthetic export, instances having sample values are rendered in memory by row writer of their schema
+ *   and discarded, so classes of POI are loaded and rendering loop is compiled by JIT.
+ *   Classes without a constructor without parameters are rendered as rows of values
+ */
+public final class ExcelWarmUp {
+
+	private static final String SAMPLE_STRING = "warm-up";
+	private static final OutputStream DISCARDING_STREAM = new OutputStream() {
+		@Override
+		public void write(int b) {
+
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+
+		}
+	};
+
+	private final List<Class<?>> types;
+	private final int syntheticRowCount;
+
+	private ExcelWarmUp(List<Class<?>> types, int syntheticRowCount) {
+		this.types = Collections.unmodifiableList(new ArrayList<>(types));
+		this.syntheticRowCount = syntheticRowCount;
+	}
+
+	public static ExcelWarmUp of(Class<?>... types) {
+		return of(Arrays.asList(types));
+	}
+
+	public static ExcelWarmUp of(List<Class<?>> types) {
+		return new ExcelWarmUp(types, 0);
+	}
+
+	/**
+	 * Warm-up of classes having @ExcelColumn on fields in package and its sub packages
+	 */
+	public static ExcelWarmUp scan(String packageName) {
+		ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+		return of(ExcelClassScanner.scan(packageName,
+				classLoader == null ? ExcelWarmUp.class.getClassLoader() : classLoader));
+	}
+
+	/**
+	 * @param rowCount Count of rows rendered for each class, 0 does not render
+	 */
+	public ExcelWarmUp withSyntheticExport(int rowCount) {
+		if (rowCount < 0) {
+			throw new IllegalArgumentException(String.format("rowCount must not be negative, but %s", rowCount));
+		}
+		return new ExcelWarmUp(types, rowCount);
+	}
+
+	public List<Class<?>> getTypes() {
+		return types;
+	}
+
+	/**
+	 * @throws InvalidExcelClassException if annotations of a class are invalid
+	 */
+	public void run() throws IOException {
+		for (Class<?> type : types) {
+			ExcelSchema<?> schema = validate(type);
+			ExcelGenerator.register(type);
+			if (syntheticRowCount > 0) {
+				exportSamples(type, schema);
+			}
+		}
+	}
+
+	private static ExcelSchema<?> validate(Class<?> type) {
+		try {
+			return ExcelSchema.of(type);
+		} catch (ExcelException e) {
+			throw new InvalidExcelClassException(
+					String.format("Class %s has invalid excel annotations : %s", type.getName(), e.getMessage()), e);
+		}
+	}
+
+	private void exportSamples(Class<?> type, ExcelSchema<?> schema) throws IOException {
+		Object sample = newSample(type, schema);
+		if (sample == null) {
+			exportValues(schema);
+		} else {
+			export(schema, sample);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> void export(ExcelSchema<T> schema, Object sample) throws IOException {
+		new OneSheetExcelFile<>(Collections.nCopies(syntheticRowCount, (T) sample), schema,
+				new DefaultDataFormatDecider(), ExcelTempStorage.memory()).write(DISCARDING_STREAM);
+	}
+
+	private void exportValues(ExcelSchema<?> schema) throws IOException {
+		ExcelSchema<Object[]> valueSchema = schema.toValueArraySchema();
+		Object[] sample = new Object[valueSchema.size()];
+		List<ExcelColumnSchema> columns = valueSchema.getColumns();
+		for (int i = 0; i < sample.length; i++) {
+			sample[i] = sampleValue(columns.get(i).getType());
+		}
+		new OneSheetExcelFile<>(Collections.nCopies(syntheticRowCount, sample), valueSchema,
+				new DefaultDataFormatDecider(), ExcelTempStorage.memory()).write(DISCARDING_STREAM);
+	}
+
+	/**
+	 * Instance created by constructor without parameters, with sample values in its columns.
+	 * Null if class has no such constructor
+	 */
+	private static Object newSample(Class<?> type, ExcelSchema<?> schema) {
+		Object sample;
+		try {
+			Constructor<?> constructor = type.getDeclaredConstructor();
+			constructor.setAccessible(true);
+			sample = constructor.newInstance();
+		} catch (NoSuchMethodException | InstantiationException | IllegalAccessException
+				| InvocationTargetException | RuntimeException e) {
+			return null;
+		}
+		for (ExcelColumnSchema column : schema.getColumns()) {
+			Field field = column.getField();
+			Object value = sampleValue(column.getType());
+			if (field == null || value == null) {
+				continue;
+			}
+			try {
+				field.set(sample, value);
+			} catch (IllegalAccessException | RuntimeException e) {
+				// column keeps value of constructor
+			}
+		}
+		return sample;
+	}
+
+	private static Object sampleValue(Class<?> type) {
+		if (type == String.class) {
+			return SAMPLE_STRING;
+		}
+		if (type == int.class || type == Integer.class) {
+			return 1;
+		}
+		if (type == long.class || type == Long.class) {
+			return 1L;
+		}
+		if (type == double.class || type == Double.class) {
+			return 1.0;
+		}
+		if (type == float.class || type == Float.class) {
+			return 1.0f;
+		}
+		if (type == short.class || type == Short.class) {
+			return (short) 1;
+		}
+		if (type == byte.class || type == Byte.class) {
+			return (byte) 1;
+		}
+		if (type == BigDecimal.class) {
+			return BigDecimal.ONE;
+		}
+		if (type == LocalDate.class) {
+			return LocalDate.of(2000, 1, 1);
+		}
+		if (type == LocalDateTime.class) {
+			return LocalDateTime.of(2000, 1, 1, 0, 0);
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,79 @@
+package com.okdori.excel.xlsx;
+
+import org.apache.commons.compress.archivers.zip.Zip64Mode;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.poi.util.IOUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * DeterministicXlsx
+ *
+ * Rewrites workbook so the same content always makes the same bytes.
+ * Entries are ordered by name and have fixed time, and created and modified dates are removed from core properties.
+ * Entries are copied as raw compressed bytes, which are the same for the same content
+ */
+public final class DeterministicXlsx {
+
+	private static final String CORE_PROPERTIES_ENTRY = "docProps/core.xml";
+	// 1980-01-01, the first time zip can have
+	private static final long ENTRY_TIME = 315532800000L;
+	private static final Pattern DATE_PROPERTIES = Pattern.compile(
+			"<dcterms:(created|modified)[^>]*(/>|>[^<]*</dcterms:\\1>)");
+
+	private DeterministicXlsx() {
+
+	}
+
+	/**
+	 * @param stream stream rewritten workbook is written to. It is not closed
+	 */
+	public static void rewrite(File workbook, OutputStream stream) throws IOException {
+		ZipArchiveOutputStream zip = new ZipArchiveOutputStream(stream);
+		zip.setUseZip64(Zip64Mode.AsNeeded);
+		try (ZipFile source = new ZipFile(workbook)) {
+			List<ZipArchiveEntry> entries = new ArrayList<>();
+			for (Enumeration<ZipArchiveEntry> e = source.getEntries(); e.hasMoreElements(); ) {
+				entries.add(e.nextElement());
+			}
+			// [Content_Types].xml sorts first, as packages usually have it
+			entries.sort((left, right) -> left.getName().compareTo(right.getName()));
+
+			for (ZipArchiveEntry sourceEntry : entries) {
+				if (sourceEntry.getName().equals(CORE_PROPERTIES_ENTRY)) {
+					ZipArchiveEntry entry = new ZipArchiveEntry(CORE_PROPERTIES_ENTRY);
+					entry.setTime(ENTRY_TIME);
+					zip.putArchiveEntry(entry);
+					try (InputStream in = source.getInputStream(sourceEntry)) {
+						String content = new String(IOUtils.toByteArray(in), StandardCharsets.UTF_8);
+						zip.write(DATE_PROPERTIES.matcher(content).replaceAll("").getBytes(StandardCharsets.UTF_8));
+					}
+					zip.closeArchiveEntry();
+					continue;
+				}
+				ZipArchiveEntry entry = new ZipArchiveEntry(sourceEntry.getName());
+				entry.setMethod(sourceEntry.getMethod());
+				entry.setCrc(sourceEntry.getCrc());
+				entry.setSize(sourceEntry.getSize());
+				entry.setCompressedSize(sourceEntry.getCompressedSize());
+				entry.setTime(ENTRY_TIME);
+				try (InputStream raw = source.getRawInputStream(sourceEntry)) {
+					zip.addRawArchiveEntry(entry, raw);
+				}
+			}
+		}
+		zip.finish();
+		zip.flush();
+	}
+
+}
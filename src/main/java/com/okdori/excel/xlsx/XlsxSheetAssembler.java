@@ -0,0 +1,153 @@
+package com.okdori.excel.xlsx;
+
+import org.apache.commons.compress.archivers.zip.Zip64Mode;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.Deflater;
+
+/**
+ * XlsxSheetAssembler
+ *
+ * Assembles one workbook from workbooks having one sheet rendered by the same schema.
+ * Sheets are copied as raw compressed zip entries without inflating them, and styles are taken from the first workbook.
+ * Every other entry is written with fixed content and time, so same sheets always make the same bytes
+ */
+public final class XlsxSheetAssembler {
+
+	private static final String SHEET_ENTRY = "xl/worksheets/sheet1.xml";
+	private static final String SHARED_STRINGS_ENTRY = "xl/sharedStrings.xml";
+	private static final String STYLES_ENTRY = "xl/styles.xml";
+	private static final String PACKAGE_RELATIONSHIPS_ENTRY = "_rels/.rels";
+	private static final String APP_ENTRY = "docProps/app.xml";
+	// 1980-01-01, the first time zip can have
+	private static final long ENTRY_TIME = 315532800000L;
+
+	private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>";
+	private static final String RELATIONSHIP_TYPE = "http://schemas.openxmlformats.org/officeDocument/2006/relationships/";
+	private static final String CONTENT_TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.";
+
+	private XlsxSheetAssembler() {
+
+	}
+
+	/**
+	 * assemble
+	 * @param sheetWorkbooks workbooks having one sheet without selected tab except the first,
+	 *                       and the same styles and inline strings
+	 * @param stream stream assembled workbook is written to. It is not closed
+	 */
+	public static void assemble(List<File> sheetWorkbooks, OutputStream stream) throws IOException {
+		if (sheetWorkbooks.isEmpty()) {
+			throw new IllegalArgumentException("At least one workbook should be assembled");
+		}
+
+		ZipArchiveOutputStream zip = new ZipArchiveOutputStream(stream);
+		zip.setUseZip64(Zip64Mode.AsNeeded);
+		zip.setLevel(Deflater.DEFAULT_COMPRESSION);
+
+		int sheetCount = sheetWorkbooks.size();
+		putEntry(zip, "[Content_Types].xml", contentTypes(sheetCount));
+		try (ZipFile first = new ZipFile(sheetWorkbooks.get(0))) {
+			copyEntry(zip, first, PACKAGE_RELATIONSHIPS_ENTRY);
+			copyEntry(zip, first, APP_ENTRY);
+			putEntry(zip, "docProps/core.xml", XML_DECLARATION
+					+ "<cp:coreProperties xmlns:cp=\"http://schemas.openxmlformats.org/package/2006/metadata/core-properties\""
+					+ " xmlns:dc=\"http://purl.org/dc/elements/1.1/\"><dc:creator>Apache POI</dc:creator></cp:coreProperties>");
+			copyEntry(zip, first, SHARED_STRINGS_ENTRY);
+			copyEntry(zip, first, STYLES_ENTRY);
+		}
+		putEntry(zip, "xl/workbook.xml", workbook(sheetCount));
+		putEntry(zip, "xl/_rels/workbook.xml.rels", workbookRelationships(sheetCount));
+
+		for (int i = 0; i < sheetCount; i++) {
+			try (ZipFile sheetWorkbook = new ZipFile(sheetWorkbooks.get(i))) {
+				copyEntry(zip, sheetWorkbook, SHEET_ENTRY, sheetEntryName(i));
+			}
+		}
+		zip.finish();
+		zip.flush();
+	}
+
+	private static String sheetEntryName(int sheetIndex) {
+		return String.format("xl/worksheets/sheet%d.xml", sheetIndex + 1);
+	}
+
+	private static String contentTypes(int sheetCount) {
+		StringBuilder builder = new StringBuilder(XML_DECLARATION)
+				.append("<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">")
+				.append("<Default ContentType=\"application/vnd.openxmlformats-package.relationships+xml\" Extension=\"rels\"/>")
+				.append("<Default ContentType=\"application/xml\" Extension=\"xml\"/>")
+				.append("<Override ContentType=\"application/vnd.openxmlformats-officedocument.extended-properties+xml\" PartName=\"/docProps/app.xml\"/>")
+				.append("<Override ContentType=\"application/vnd.openxmlformats-package.core-properties+xml\" PartName=\"/docProps/core.xml\"/>")
+				.append("<Override ContentType=\"").append(CONTENT_TYPE).append("sharedStrings+xml\" PartName=\"/xl/sharedStrings.xml\"/>")
+				.append("<Override ContentType=\"").append(CONTENT_TYPE).append("styles+xml\" PartName=\"/xl/styles.xml\"/>")
+				.append("<Override ContentType=\"").append(CONTENT_TYPE).append("sheet.main+xml\" PartName=\"/xl/workbook.xml\"/>");
+		for (int i = 0; i < sheetCount; i++) {
+			builder.append("<Override ContentType=\"").append(CONTENT_TYPE).append("worksheet+xml\" PartName=\"/")
+					.append(sheetEntryName(i)).append("\"/>");
+		}
+		return builder.append("</Types>").toString();
+	}
+
+	private static String workbook(int sheetCount) {
+		StringBuilder builder = new StringBuilder(XML_DECLARATION)
+				.append("<workbook xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"")
+				.append(" xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\">")
+				.append("<workbookPr date1904=\"false\"/><bookViews><workbookView activeTab=\"0\"/></bookViews><sheets>");
+		for (int i = 0; i < sheetCount; i++) {
+			// rId1 and rId2 are shared strings and styles
+			builder.append(String.format("<sheet name=\"Sheet%d\" r:id=\"rId%d\" sheetId=\"%d\"/>", i, i + 3, i + 1));
+		}
+		return builder.append("</sheets></workbook>").toString();
+	}
+
+	private static String workbookRelationships(int sheetCount) {
+		StringBuilder builder = new StringBuilder(XML_DECLARATION)
+				.append("<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">")
+				.append("<Relationship Id=\"rId1\" Target=\"sharedStrings.xml\" Type=\"").append(RELATIONSHIP_TYPE).append("sharedStrings\"/>")
+				.append("<Relationship Id=\"rId2\" Target=\"styles.xml\" Type=\"").append(RELATIONSHIP_TYPE).append("styles\"/>");
+		for (int i = 0; i < sheetCount; i++) {
+			builder.append(String.format("<Relationship Id=\"rId%d\" Target=\"worksheets/sheet%d.xml\" Type=\"%sworksheet\"/>",
+					i + 3, i + 1, RELATIONSHIP_TYPE));
+		}
+		return builder.append("</Relationships>").toString();
+	}
+
+	private static void putEntry(ZipArchiveOutputStream zip, String name, String content) throws IOException {
+		ZipArchiveEntry entry = new ZipArchiveEntry(name);
+		entry.setTime(ENTRY_TIME);
+		zip.putArchiveEntry(entry);
+		zip.write(content.getBytes(StandardCharsets.UTF_8));
+		zip.closeArchiveEntry();
+	}
+
+	private static void copyEntry(ZipArchiveOutputStream zip, ZipFile workbook, String name) throws IOException {
+		copyEntry(zip, workbook, name, name);
+	}
+
+	private static void copyEntry(ZipArchiveOutputStream zip, ZipFile workbook, String name, String copiedName)
+			throws IOException {
+		ZipArchiveEntry source = workbook.getEntry(name);
+		if (source == null) {
+			throw new IllegalArgumentException(String.format("Workbook does not have %s", name));
+		}
+		ZipArchiveEntry entry = new ZipArchiveEntry(copiedName);
+		entry.setMethod(source.getMethod());
+		entry.setCrc(source.getCrc());
+		entry.setSize(source.getSize());
+		entry.setCompressedSize(source.getCompressedSize());
+		entry.setTime(ENTRY_TIME);
+		try (InputStream raw = workbook.getRawInputStream(source)) {
+			zip.addRawArchiveEntry(entry, raw);
+		}
+	}
+
+}
@@ -0,0 +1,129 @@
+package com.okdori.excel.xlsx;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * XlsxXml
+ *
+ * StAX helpers reading parts of workbook and copying them event by event
+ */
+public final class XlsxXml {
+
+	private static final XMLInputFactory INPUT_FACTORY = XMLInputFactory.newInstance();
+
+	static {
+		INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+	}
+
+	private XlsxXml() {
+
+	}
+
+	public static XMLStreamReader read(InputStream stream) throws XMLStreamException {
+		return INPUT_FACTORY.createXMLStreamReader(stream);
+	}
+
+	public static InputStream open(ZipFile workbook, String entryName) throws IOException {
+		ZipArchiveEntry entry = workbook.getEntry(entryName);
+		return entry == null ? null : workbook.getInputStream(entry);
+	}
+
+	public static String attribute(XMLStreamReader reader, String localName) {
+		for (int i = 0; i < reader.getAttributeCount(); i++) {
+			if (reader.getAttributeLocalName(i).equals(localName)) {
+				return reader.getAttributeValue(i);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Skips current element and its children, reader is left on its end element
+	 */
+	public static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+		int depth = 1;
+		while (depth > 0) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			}
+		}
+	}
+
+	/**
+	 * Copies start element with its namespaces, and attributes rewritten by rewriter
+	 */
+	public static void copyStartElement(XMLStreamReader reader, XMLStreamWriter writer, AttributeRewriter rewriter)
+			throws XMLStreamException {
+		writer.writeStartElement(nullToEmpty(reader.getPrefix()), reader.getLocalName(), nullToEmpty(reader.getNamespaceURI()));
+		for (int i = 0; i < reader.getNamespaceCount(); i++) {
+			String prefix = reader.getNamespacePrefix(i);
+			if (prefix == null || prefix.isEmpty()) {
+				writer.writeDefaultNamespace(reader.getNamespaceURI(i));
+			} else {
+				writer.writeNamespace(prefix, reader.getNamespaceURI(i));
+			}
+		}
+		for (int i = 0; i < reader.getAttributeCount(); i++) {
+			String value = rewriter.rewrite(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+			String prefix = reader.getAttributePrefix(i);
+			if (prefix == null || prefix.isEmpty()) {
+				writer.writeAttribute(reader.getAttributeLocalName(i), value);
+			} else {
+				writer.writeAttribute(prefix, reader.getAttributeNamespace(i), reader.getAttributeLocalName(i), value);
+			}
+		}
+	}
+
+	/**
+	 * Copies current event except start element and start document
+	 */
+	public static void copyEvent(XMLStreamReader reader, XMLStreamWriter writer) throws XMLStreamException {
+		switch (reader.getEventType()) {
+			case XMLStreamConstants.END_ELEMENT:
+				writer.writeEndElement();
+				break;
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.SPACE:
+				writer.writeCharacters(reader.getText());
+				break;
+			case XMLStreamConstants.CDATA:
+				writer.writeCData(reader.getText());
+				break;
+			case XMLStreamConstants.COMMENT:
+				writer.writeComment(reader.getText());
+				break;
+			case XMLStreamConstants.PROCESSING_INSTRUCTION:
+				writer.writeProcessingInstruction(reader.getPITarget(), reader.getPIData());
+				break;
+			default:
+				break;
+		}
+	}
+
+	private static String nullToEmpty(String value) {
+		return value == null ? "" : value;
+	}
+
+	@FunctionalInterface
+	public interface AttributeRewriter {
+
+		AttributeRewriter NONE = (localName, value) -> value;
+
+		String rewrite(String localName, String value);
+
+	}
+
+}
@@ -0,0 +1,15 @@
+package com.okdori.exception;
+
+import com.okdori.ExcelException;
+
+public class ExcelCheckpointException extends ExcelException {
+
+	public ExcelCheckpointException(String message) {
+		super(message, null);
+	}
+
+	public ExcelCheckpointException(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+}
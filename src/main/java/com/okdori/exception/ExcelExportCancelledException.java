@@ -0,0 +1,15 @@
+package com.okdori.exception;
+
+import com.okdori.ExcelException;
+
+public class ExcelExportCancelledException extends ExcelException {
+
+	public ExcelExportCancelledException(String message) {
+		super(message, null);
+	}
+
+	public ExcelExportCancelledException(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+}
@@ -0,0 +1,11 @@
+package com.okdori.exception;
+
+import com.okdori.ExcelException;
+
+public class ExcelTempStorageQuotaException extends ExcelException {
+
+	public ExcelTempStorageQuotaException(String message) {
+		super(message, null);
+	}
+
+}
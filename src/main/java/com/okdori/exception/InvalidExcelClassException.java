@@ -0,0 +1,15 @@
+package com.okdori.exception;
+
+import com.okdori.ExcelException;
+
+public class InvalidExcelClassException extends ExcelException {
+
+	public InvalidExcelClassException(String message) {
+		super(message, null);
+	}
+
+	public InvalidExcelClassException(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+}
@@ -0,0 +1,15 @@
+package com.okdori.exception;
+
+import com.okdori.ExcelException;
+
+public class InvalidExcelTemplateException extends ExcelException {
+
+	public InvalidExcelTemplateException(String message) {
+		super(message, null);
+	}
+
+	public InvalidExcelTemplateException(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+}
@@ -28,7 +28,8 @@ public final class ExcelCellKey {
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(dataFieldName, excelRenderLocation);
+		// without varargs array of Objects.hash
+		return 31 * Objects.hashCode(dataFieldName) + excelRenderLocation.hashCode();
 	}
 
 }
@@ -1,26 +1,17 @@
 package com.okdori.resource;
 
-import com.okdori.DefaultBodyStyle;
-import com.okdori.DefaultHeaderStyle;
-import com.okdori.ExcelColumn;
-import com.okdori.ExcelColumnStyle;
-import com.okdori.exception.InvalidExcelCellStyleException;
-import com.okdori.exception.NoExcelColumnAnnotationsException;
+import com.okdori.excel.jfr.ExcelEvent;
+import com.okdori.excel.jfr.ExcelEvents;
 import com.okdori.resource.collection.PreCalculatedCellStyleMap;
-import com.okdori.style.ExcelCellStyle;
-import com.okdori.style.NoExcelCellStyle;
+import com.okdori.resource.schema.ExcelColumnSchema;
+import com.okdori.resource.schema.ExcelSchema;
 import org.apache.poi.ss.usermodel.Workbook;
 
-import java.lang.annotation.Annotation;
-import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
-import static com.okdori.utils.SuperClassReflectionUtils.getAllFields;
-import static com.okdori.utils.SuperClassReflectionUtils.getAnnotation;
-
 /**
  * ExcelRenderResourceFactory
  *
@@ -29,86 +20,37 @@ public final class ExcelRenderResourceFactory {
 
 	public static ExcelRenderResource prepareRenderResource(Class<?> type, Workbook wb,
 															DataFormatDecider dataFormatDecider) {
+		return prepareRenderResource(ExcelSchema.of(type), wb, dataFormatDecider);
+	}
+
+	/**
+	 * prepareRenderResource
+	 * Cell styles are created only for columns of given schema
+	 * @param schema cached or projected schema
+	 */
+	public static ExcelRenderResource prepareRenderResource(ExcelSchema<?> schema, Workbook wb,
+															DataFormatDecider dataFormatDecider) {
+		ExcelEvent event = ExcelEvents.resourcePreparation(schema.getType());
+		event.setColumnCount(schema.size());
 		PreCalculatedCellStyleMap styleMap = new PreCalculatedCellStyleMap(dataFormatDecider);
 		Map<String, String> headerNamesMap = new LinkedHashMap<>();
 		List<String> fieldNames = new ArrayList<>();
 
-		ExcelColumnStyle classDefinedHeaderStyle = getHeaderExcelColumnStyle(type);
-		ExcelColumnStyle classDefinedBodyStyle = getBodyExcelColumnStyle(type);
-
-		for (Field field : getAllFields(type)) {
-			if (field.isAnnotationPresent(ExcelColumn.class)) {
-				ExcelColumn annotation = field.getAnnotation(ExcelColumn.class);
-				styleMap.put(
-						String.class,
-						ExcelCellKey.of(field.getName(), ExcelRenderLocation.HEADER),
-						getCellStyle(decideAppliedStyleAnnotation(classDefinedHeaderStyle, annotation.headerStyle())), wb);
-				Class<?> fieldType = field.getType();
-				styleMap.put(
-						fieldType,
-						ExcelCellKey.of(field.getName(), ExcelRenderLocation.BODY),
-						getCellStyle(decideAppliedStyleAnnotation(classDefinedBodyStyle, annotation.bodyStyle())), wb);
-				fieldNames.add(field.getName());
-				headerNamesMap.put(field.getName(), annotation.headerName());
-			}
+		for (ExcelColumnSchema column : schema.getColumns()) {
+			styleMap.put(
+					String.class,
+					ExcelCellKey.of(column.getName(), ExcelRenderLocation.HEADER),
+					column.getHeaderStyle(), wb);
+			styleMap.put(
+					column.getType(),
+					ExcelCellKey.of(column.getName(), ExcelRenderLocation.BODY),
+					column.getBodyStyle(), wb);
+			fieldNames.add(column.getName());
+			headerNamesMap.put(column.getName(), column.getHeaderName());
 		}
 
-		if (styleMap.isEmpty()) {
-			throw new NoExcelColumnAnnotationsException(String.format("Class %s has not @ExcelColumn at all", type));
-		}
+		event.commit();
 		return new ExcelRenderResource(styleMap, headerNamesMap, fieldNames);
 	}
 
-	private static ExcelColumnStyle getHeaderExcelColumnStyle(Class<?> clazz) {
-		Annotation annotation = getAnnotation(clazz, DefaultHeaderStyle.class);
-		if (annotation == null) {
-			return null;
-		}
-		return ((DefaultHeaderStyle) annotation).style();
-	}
-
-	private static ExcelColumnStyle getBodyExcelColumnStyle(Class<?> clazz) {
-		Annotation annotation = getAnnotation(clazz, DefaultBodyStyle.class);
-		if (annotation == null) {
-			return null;
-		}
-		return ((DefaultBodyStyle) annotation).style();
-	}
-
-	private static ExcelColumnStyle decideAppliedStyleAnnotation(ExcelColumnStyle classAnnotation,
-																 ExcelColumnStyle fieldAnnotation) {
-		if (fieldAnnotation.excelCellStyleClass().equals(NoExcelCellStyle.class) && classAnnotation != null) {
-			return classAnnotation;
-		}
-		return fieldAnnotation;
-	}
-
-	private static ExcelCellStyle getCellStyle(ExcelColumnStyle excelColumnStyle) {
-		Class<? extends ExcelCellStyle> excelCellStyleClass = excelColumnStyle.excelCellStyleClass();
-		// 1. Case of Enum
-		if (excelCellStyleClass.isEnum()) {
-			String enumName = excelColumnStyle.enumName();
-			return findExcelCellStyle(excelCellStyleClass, enumName);
-		}
-
-		// 2. Case of Class
-		try {
-			return excelCellStyleClass.newInstance();
-		} catch (InstantiationException | IllegalAccessException e) {
-			throw new InvalidExcelCellStyleException(e.getMessage(), e);
-		}
-	}
-
-	@SuppressWarnings("unchecked")
-	private static ExcelCellStyle findExcelCellStyle(Class<?> excelCellStyles, String enumName) {
-		try {
-			return (ExcelCellStyle) Enum.valueOf((Class<Enum>) excelCellStyles, enumName);
-		} catch (NullPointerException e) {
-			throw new InvalidExcelCellStyleException("enumName must not be null", e);
-		} catch (IllegalArgumentException e) {
-			throw new InvalidExcelCellStyleException(
-					String.format("Enum %s does not name %s", excelCellStyles.getName(), enumName), e);
-		}
-	}
-
 }
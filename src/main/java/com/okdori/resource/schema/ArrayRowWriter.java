@@ -0,0 +1,29 @@
+package com.okdori.resource.schema;
+
+import java.util.List;
+
+/**
+ * ArrayRowWriter
+ *
+ * Reads Object[] row by index of column in schema the row is built for
+ */
+final class ArrayRowWriter implements RowWriter<Object[]> {
+
+	private final int[] sourceIndexes;
+
+	ArrayRowWriter(List<ExcelColumnSchema> columns) {
+		this.sourceIndexes = new int[columns.size()];
+		for (int i = 0; i < sourceIndexes.length; i++) {
+			sourceIndexes[i] = columns.get(i).getIndex();
+		}
+	}
+
+	@Override
+	public void write(Object[] data, CellValueWriter writer) {
+		for (int i = 0; i < sourceIndexes.length; i++) {
+			int sourceIndex = sourceIndexes[i];
+			writer.writeValue(i, sourceIndex < data.length ? data[sourceIndex] : null);
+		}
+	}
+
+}
@@ -0,0 +1,14 @@
+package com.okdori.resource.schema;
+
+/**
+ * CellValueWriter
+ *
+ * Receives cell values of a row by column index of {@link ExcelSchema}
+ */
+public interface CellValueWriter {
+
+	void writeNumber(int columnIndex, double value);
+
+	void writeValue(int columnIndex, Object value);
+
+}
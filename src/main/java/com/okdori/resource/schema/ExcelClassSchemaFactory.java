@@ -0,0 +1,119 @@
+package com.okdori.resource.schema;
+
+import com.okdori.DefaultBodyStyle;
+import com.okdori.DefaultHeaderStyle;
+import com.okdori.ExcelColumn;
+import com.okdori.ExcelColumnStyle;
+import com.okdori.exception.InvalidExcelCellStyleException;
+import com.okdori.exception.NoExcelColumnAnnotationsException;
+import com.okdori.style.ExcelCellStyle;
+import com.okdori.style.NoExcelCellStyle;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.okdori.utils.SuperClassReflectionUtils.getAllFields;
+import static com.okdori.utils.SuperClassReflectionUtils.getAnnotation;
+
+/**
+ * ExcelClassSchemaFactory
+ *
+ * Reads @ExcelColumn, @DefaultHeaderStyle and @DefaultBodyStyle of class.
+ * If excel-lib-processor generated {@link GeneratedRowWriter} of class, it is used instead of reflection
+ */
+final class ExcelClassSchemaFactory {
+
+	private ExcelClassSchemaFactory() {
+
+	}
+
+	static ExcelSchema<?> create(Class<?> type) {
+		GeneratedRowWriter<?> generatedRowWriter = GeneratedRowWriters.find(type);
+		if (generatedRowWriter != null) {
+			ExcelSchemaBuilder builder = new ExcelSchemaBuilder();
+			generatedRowWriter.defineColumns(builder);
+			return builder.forGenerated(generatedRowWriter);
+		}
+
+		List<ExcelColumnSchema> columns = new ArrayList<>();
+
+		ExcelColumnStyle classDefinedHeaderStyle = getHeaderExcelColumnStyle(type);
+		ExcelColumnStyle classDefinedBodyStyle = getBodyExcelColumnStyle(type);
+
+		for (Field field : getAllFields(type)) {
+			if (field.isAnnotationPresent(ExcelColumn.class)) {
+				ExcelColumn annotation = field.getAnnotation(ExcelColumn.class);
+				field.setAccessible(true);
+				columns.add(new ExcelColumnSchema(
+						columns.size(),
+						field.getName(),
+						annotation.headerName(),
+						field.getType(),
+						getCellStyle(decideAppliedStyleAnnotation(classDefinedHeaderStyle, annotation.headerStyle())),
+						getCellStyle(decideAppliedStyleAnnotation(classDefinedBodyStyle, annotation.bodyStyle())),
+						annotation.aggregates(),
+						field));
+			}
+		}
+
+		if (columns.isEmpty()) {
+			throw new NoExcelColumnAnnotationsException(String.format("Class %s has not @ExcelColumn at all", type));
+		}
+		return new ExcelSchema<>(type, columns, FieldRowWriter::new);
+	}
+
+	private static ExcelColumnStyle getHeaderExcelColumnStyle(Class<?> clazz) {
+		Annotation annotation = getAnnotation(clazz, DefaultHeaderStyle.class);
+		if (annotation == null) {
+			return null;
+		}
+		return ((DefaultHeaderStyle) annotation).style();
+	}
+
+	private static ExcelColumnStyle getBodyExcelColumnStyle(Class<?> clazz) {
+		Annotation annotation = getAnnotation(clazz, DefaultBodyStyle.class);
+		if (annotation == null) {
+			return null;
+		}
+		return ((DefaultBodyStyle) annotation).style();
+	}
+
+	private static ExcelColumnStyle decideAppliedStyleAnnotation(ExcelColumnStyle classAnnotation,
+																 ExcelColumnStyle fieldAnnotation) {
+		if (fieldAnnotation.excelCellStyleClass().equals(NoExcelCellStyle.class) && classAnnotation != null) {
+			return classAnnotation;
+		}
+		return fieldAnnotation;
+	}
+
+	private static ExcelCellStyle getCellStyle(ExcelColumnStyle excelColumnStyle) {
+		Class<? extends ExcelCellStyle> excelCellStyleClass = excelColumnStyle.excelCellStyleClass();
+		// 1. Case of Enum
+		if (excelCellStyleClass.isEnum()) {
+			String enumName = excelColumnStyle.enumName();
+			return findExcelCellStyle(excelCellStyleClass, enumName);
+		}
+
+		// 2. Case of Class
+		try {
+			return excelCellStyleClass.newInstance();
+		} catch (InstantiationException | IllegalAccessException e) {
+			throw new InvalidExcelCellStyleException(e.getMessage(), e);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static ExcelCellStyle findExcelCellStyle(Class<?> excelCellStyles, String enumName) {
+		try {
+			return (ExcelCellStyle) Enum.valueOf((Class<Enum>) excelCellStyles, enumName);
+		} catch (NullPointerException e) {
+			throw new InvalidExcelCellStyleException("enumName must not be null", e);
+		} catch (IllegalArgumentException e) {
+			throw new InvalidExcelCellStyleException(
+					String.format("Enum %s does not name %s", excelCellStyles.getName(), enumName), e);
+		}
+	}
+
+}
@@ -0,0 +1,79 @@
+package com.okdori.resource.schema;
+
+import com.okdori.ExcelAggregate;
+import com.okdori.style.ExcelCellStyle;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * ExcelColumnSchema
+ *
+ * Immutable description of one rendered column.
+ * Styles are kept as {@link ExcelCellStyle} so one schema can be shared by every workbook
+ */
+public final class ExcelColumnSchema {
+
+	private final int index;
+	private final String name;
+	private final String headerName;
+	private final Class<?> type;
+	private final ExcelCellStyle headerStyle;
+	private final ExcelCellStyle bodyStyle;
+	private final List<ExcelAggregate> aggregates;
+	private final Field field;
+
+	ExcelColumnSchema(int index, String name, String headerName, Class<?> type,
+					  ExcelCellStyle headerStyle, ExcelCellStyle bodyStyle,
+					  ExcelAggregate[] aggregates, Field field) {
+		this.index = index;
+		this.name = name;
+		this.headerName = headerName;
+		this.type = type;
+		this.headerStyle = headerStyle;
+		this.bodyStyle = bodyStyle;
+		this.aggregates = Collections.unmodifiableList(Arrays.asList(aggregates.clone()));
+		this.field = field;
+	}
+
+	/**
+	 * Index of column in schema column is defined in. Projection does not change it
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getHeaderName() {
+		return headerName;
+	}
+
+	public Class<?> getType() {
+		return type;
+	}
+
+	public ExcelCellStyle getHeaderStyle() {
+		return headerStyle;
+	}
+
+	public ExcelCellStyle getBodyStyle() {
+		return bodyStyle;
+	}
+
+	public List<ExcelAggregate> getAggregates() {
+		return aggregates;
+	}
+
+	/**
+	 * Accessible field of the column, null if column is not defined by @ExcelColumn
+	 */
+	public Field getField() {
+		return field;
+	}
+
+}
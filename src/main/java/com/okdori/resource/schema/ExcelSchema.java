@@ -0,0 +1,153 @@
+package com.okdori.resource.schema;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * ExcelSchema
+ *
+ * Ordered columns to be rendered for type T.
+ * Schema of a class is calculated once from @ExcelColumn and cached,
+ * and projections of a schema are cached by selected column names.
+ * Schema of Object[] or Map rows can be defined with {@link #builder()}
+ */
+public final class ExcelSchema<T> {
+
+	// kept by each class itself, so classes of unloaded class loaders are not pinned
+	private static final ClassValue<ExcelSchema<?>> CLASS_SCHEMAS = new ClassValue<ExcelSchema<?>>() {
+		@Override
+		protected ExcelSchema<?> computeValue(Class<?> type) {
+			return ExcelClassSchemaFactory.create(type);
+		}
+	};
+	// count of different projections kept for a schema, least recently used one is dropped over it
+	private static final int MAX_CACHED_PROJECTIONS = 32;
+
+	private final Class<?> type;
+	private final List<ExcelColumnSchema> columns;
+	private final List<String> columnNames;
+	private final Map<String, ExcelColumnSchema> columnsByName;
+	private final Function<List<ExcelColumnSchema>, RowWriter<T>> rowWriterFactory;
+	private final RowWriter<T> rowWriter;
+	private final Map<List<String>, ExcelSchema<T>> projections = Collections.synchronizedMap(
+			new LinkedHashMap<List<String>, ExcelSchema<T>>(16, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<List<String>, ExcelSchema<T>> eldest) {
+					return size() > MAX_CACHED_PROJECTIONS;
+				}
+			});
+
+	ExcelSchema(Class<?> type, List<ExcelColumnSchema> columns,
+				Function<List<ExcelColumnSchema>, RowWriter<T>> rowWriterFactory) {
+		this.type = type;
+		this.columns = Collections.unmodifiableList(new ArrayList<>(columns));
+		this.columnsByName = new LinkedHashMap<>();
+		for (ExcelColumnSchema column : columns) {
+			columnsByName.put(column.getName(), column);
+		}
+		this.columnNames = Collections.unmodifiableList(new ArrayList<>(columnsByName.keySet()));
+		this.rowWriterFactory = rowWriterFactory;
+		this.rowWriter = rowWriterFactory.apply(this.columns);
+	}
+
+	/**
+	 * Schema of class having @ExcelColumn on fields
+	 * @param type Class type to be rendered
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> ExcelSchema<T> of(Class<T> type) {
+		return (ExcelSchema<T>) CLASS_SCHEMAS.get(type);
+	}
+
+	/**
+	 * Builder of schema for rows without @ExcelColumn, such as Object[] or Map
+	 */
+	public static ExcelSchemaBuilder builder() {
+		return new ExcelSchemaBuilder();
+	}
+
+	/**
+	 * project
+	 * @param columnNames data field names to be rendered, in rendered order
+	 * @return schema having only selected columns, cached for the {@value #MAX_CACHED_PROJECTIONS} recently used projections
+	 */
+	public ExcelSchema<T> project(List<String> columnNames) {
+		if (columnNames == null) {
+			throw new IllegalArgumentException("Column names should not be null");
+		}
+		if (this.columnNames.equals(columnNames)) {
+			return this;
+		}
+		ExcelSchema<T> projection = projections.get(columnNames);
+		if (projection != null) {
+			return projection;
+		}
+		List<String> key = Collections.unmodifiableList(new ArrayList<>(columnNames));
+		projection = createProjection(key);
+		ExcelSchema<T> cached = projections.putIfAbsent(key, projection);
+		return cached == null ? projection : cached;
+	}
+
+	private ExcelSchema<T> createProjection(List<String> columnNames) {
+		if (columnNames.isEmpty()) {
+			throw new IllegalArgumentException("At least one column should be selected");
+		}
+		List<ExcelColumnSchema> projectedColumns = new ArrayList<>();
+		for (String columnName : columnNames) {
+			ExcelColumnSchema column = columnsByName.get(columnName);
+			if (column == null) {
+				throw new IllegalArgumentException(
+						String.format("Column %s is not defined in %s", columnName, describe()));
+			}
+			if (projectedColumns.contains(column)) {
+				throw new IllegalArgumentException(String.format("Column %s is selected more than once", columnName));
+			}
+			projectedColumns.add(column);
+		}
+		return new ExcelSchema<>(type, projectedColumns, rowWriterFactory);
+	}
+
+	/**
+	 * Schema of the same columns, headers and styles, rendering Object[] rows of values in column order of this schema,
+	 * such as values written by {@link #getRowWriter()}
+	 */
+	public ExcelSchema<Object[]> toValueArraySchema() {
+		return new ExcelSchema<>(type, columns, ValueArrayRowWriter::new);
+	}
+
+	public Class<?> getType() {
+		return type;
+	}
+
+	public List<ExcelColumnSchema> getColumns() {
+		return columns;
+	}
+
+	public ExcelColumnSchema getColumn(String columnName) {
+		return columnsByName.get(columnName);
+	}
+
+	public List<String> getColumnNames() {
+		return columnNames;
+	}
+
+	/**
+	 * Writer of row values in column order of this schema
+	 */
+	public RowWriter<T> getRowWriter() {
+		return rowWriter;
+	}
+
+	public int size() {
+		return columns.size();
+	}
+
+	private String describe() {
+		return type == null ? "schema" : String.format("class %s", type.getName());
+	}
+
+}
@@ -0,0 +1,152 @@
+package com.okdori.resource.schema;
+
+import com.okdori.ExcelAggregate;
+import com.okdori.style.ExcelCellStyle;
+import com.okdori.style.NoExcelCellStyle;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * ExcelSchemaBuilder
+ *
+ * Defines columns at runtime. Column key is the key of Map row,
+ * and column order is the index of Object[] row
+ *
+ * <pre>
+ * ExcelSchema&lt;Object[]&gt; schema = ExcelSchema.builder()
+ *     .column("name", "User Name", String.class)
+ *     .column("age", "User Age", Integer.class, DefaultExcelCellStyle.BLUE_HEADER, DefaultExcelCellStyle.BODY)
+ *     .forArrays();
+ * </pre>
+ */
+public final class ExcelSchemaBuilder {
+
+	private static final ExcelCellStyle NO_STYLE = new NoExcelCellStyle();
+
+	private final List<ColumnDefinition> definitions = new ArrayList<>();
+	private ExcelCellStyle defaultHeaderStyle = NO_STYLE;
+	private ExcelCellStyle defaultBodyStyle = NO_STYLE;
+
+	ExcelSchemaBuilder() {
+
+	}
+
+	/**
+	 * Style applied to columns defined without header style
+	 */
+	public ExcelSchemaBuilder defaultHeaderStyle(ExcelCellStyle headerStyle) {
+		this.defaultHeaderStyle = headerStyle;
+		return this;
+	}
+
+	/**
+	 * Style applied to columns defined without body style
+	 */
+	public ExcelSchemaBuilder defaultBodyStyle(ExcelCellStyle bodyStyle) {
+		this.defaultBodyStyle = bodyStyle;
+		return this;
+	}
+
+	public ExcelSchemaBuilder column(String key, String headerName, Class<?> type) {
+		return column(key, headerName, type, null, null);
+	}
+
+	/**
+	 * column
+	 * @param key key of Map row, also used as column name of {@link ExcelSchema#project(List)}
+	 * @param headerName rendered header name
+	 * @param type value type deciding DataFormat, see {@link com.okdori.resource.DataFormatDecider}
+	 * @param headerStyle header style, default header style if null
+	 * @param bodyStyle body style, default body style if null
+	 */
+	public ExcelSchemaBuilder column(String key, String headerName, Class<?> type,
+									 ExcelCellStyle headerStyle, ExcelCellStyle bodyStyle) {
+		definitions.add(new ColumnDefinition(key, headerName, type, headerStyle, bodyStyle));
+		return this;
+	}
+
+	/**
+	 * Aggregates of the last defined column, rendered as footer rows
+	 */
+	public ExcelSchemaBuilder aggregates(ExcelAggregate... aggregates) {
+		if (definitions.isEmpty()) {
+			throw new IllegalStateException("Column should be defined before aggregates");
+		}
+		definitions.get(definitions.size() - 1).aggregates = aggregates;
+		return this;
+	}
+
+	public ExcelSchema<Object[]> forArrays() {
+		return new ExcelSchema<>(null, buildColumns(), ArrayRowWriter::new);
+	}
+
+	public ExcelSchema<Map<String, Object>> forMaps() {
+		return new ExcelSchema<>(null, buildColumns(), MapRowWriter::new);
+	}
+
+	/**
+	 * Schema of rows written by writers of rowWriterFactory, such as rows not kept as objects.
+	 * Factory is called with columns of the schema and of each projection of it,
+	 * {@link ExcelColumnSchema#getIndex()} of a column is its order of definition
+	 */
+	public <T> ExcelSchema<T> forRowWriter(Function<List<ExcelColumnSchema>, RowWriter<T>> rowWriterFactory) {
+		return new ExcelSchema<>(null, buildColumns(), rowWriterFactory);
+	}
+
+	<T> ExcelSchema<T> forGenerated(GeneratedRowWriter<T> generatedRowWriter) {
+		List<ExcelColumnSchema> columns = buildColumns();
+		return new ExcelSchema<>(generatedRowWriter.getType(), columns, projectedColumns ->
+				projectedColumns.equals(columns) ? generatedRowWriter
+						: new ProjectedRowWriter<>(generatedRowWriter, projectedColumns));
+	}
+
+	private List<ExcelColumnSchema> buildColumns() {
+		if (definitions.isEmpty()) {
+			throw new IllegalArgumentException("At least one column should be defined");
+		}
+
+		Set<String> keys = new HashSet<>();
+		List<ExcelColumnSchema> columns = new ArrayList<>();
+		for (ColumnDefinition definition : definitions) {
+			if (definition.key == null || !keys.add(definition.key)) {
+				throw new IllegalArgumentException(String.format("Column key %s is null or duplicated", definition.key));
+			}
+			columns.add(new ExcelColumnSchema(
+					columns.size(),
+					definition.key,
+					definition.headerName,
+					definition.type == null ? Object.class : definition.type,
+					definition.headerStyle == null ? defaultHeaderStyle : definition.headerStyle,
+					definition.bodyStyle == null ? defaultBodyStyle : definition.bodyStyle,
+					definition.aggregates,
+					null));
+		}
+		return columns;
+	}
+
+	private static final class ColumnDefinition {
+
+		private final String key;
+		private final String headerName;
+		private final Class<?> type;
+		private final ExcelCellStyle headerStyle;
+		private final ExcelCellStyle bodyStyle;
+		private ExcelAggregate[] aggregates = new ExcelAggregate[0];
+
+		private ColumnDefinition(String key, String headerName, Class<?> type,
+								 ExcelCellStyle headerStyle, ExcelCellStyle bodyStyle) {
+			this.key = key;
+			this.headerName = headerName;
+			this.type = type;
+			this.headerStyle = headerStyle;
+			this.bodyStyle = bodyStyle;
+		}
+
+	}
+
+}
@@ -0,0 +1,48 @@
+package com.okdori.resource.schema;
+
+import com.okdori.exception.ExcelInternalException;
+
+import java.lang.reflect.Field;
+import java.util.List;
+
+/**
+ * FieldRowWriter
+ *
+ * Reads @ExcelColumn fields with reflection.
+ * Numeric primitive fields are read by {@link Field#getDouble(Object)} and written as number without boxing,
+ * as generated row writers do
+ */
+final class FieldRowWriter<T> implements RowWriter<T> {
+
+	private final Field[] fields;
+	private final boolean[] numericPrimitives;
+
+	FieldRowWriter(List<ExcelColumnSchema> columns) {
+		this.fields = new Field[columns.size()];
+		this.numericPrimitives = new boolean[columns.size()];
+		for (int i = 0; i < fields.length; i++) {
+			fields[i] = columns.get(i).getField();
+			numericPrimitives[i] = isNumericPrimitive(fields[i].getType());
+		}
+	}
+
+	@Override
+	public void write(T data, CellValueWriter writer) {
+		try {
+			for (int i = 0; i < fields.length; i++) {
+				if (numericPrimitives[i]) {
+					writer.writeNumber(i, fields[i].getDouble(data));
+				} else {
+					writer.writeValue(i, fields[i].get(data));
+				}
+			}
+		} catch (IllegalAccessException e) {
+			throw new ExcelInternalException(e.getMessage(), e);
+		}
+	}
+
+	private static boolean isNumericPrimitive(Class<?> type) {
+		return type.isPrimitive() && type != boolean.class && type != char.class && type != void.class;
+	}
+
+}
@@ -0,0 +1,26 @@
+package com.okdori.resource.schema;
+
+/**
+ * GeneratedRowWriter
+ *
+ * Implemented by classes generated from @ExcelColumn at compile time by excel-lib-processor.
+ * Generated classes are registered with {@link java.util.ServiceLoader},
+ * and are preferred to reflection by {@link ExcelSchema#of(Class)}
+ */
+public interface GeneratedRowWriter<T> extends RowWriter<T> {
+
+	Class<T> getType();
+
+	/**
+	 * Defines columns in the same order as @ExcelColumn fields, with styles resolved at compile time
+	 */
+	void defineColumns(ExcelSchemaBuilder builder);
+
+	/**
+	 * Writes one column, used by projected schemas
+	 * @param sourceIndex index of column in the schema of type
+	 * @param columnIndex index of column written to writer
+	 */
+	void writeColumn(T data, int sourceIndex, int columnIndex, CellValueWriter writer);
+
+}
@@ -0,0 +1,78 @@
+package com.okdori.resource.schema;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.WeakHashMap;
+
+/**
+ * GeneratedRowWriters
+ *
+ * Finds {@link GeneratedRowWriter} registered in META-INF/services by class loader of the rendered type.
+ * Providers are loaded once per class loader, and a provider failing to load is skipped, so its type is rendered with reflection.
+ * Found writer is kept by the type itself and only class names are kept per class loader, so class loaders are not pinned
+ */
+final class GeneratedRowWriters {
+
+	private static final ClassValue<GeneratedRowWriter<?>> WRITERS = new ClassValue<GeneratedRowWriter<?>>() {
+		@Override
+		protected GeneratedRowWriter<?> computeValue(Class<?> type) {
+			return load(type);
+		}
+	};
+
+	private static final Map<ClassLoader, Map<String, String>> WRITER_NAMES =
+			Collections.synchronizedMap(new WeakHashMap<>());
+
+	private GeneratedRowWriters() {
+
+	}
+
+	@SuppressWarnings("unchecked")
+	static <T> GeneratedRowWriter<T> find(Class<T> type) {
+		if (type.getClassLoader() == null) {
+			return null;
+		}
+		return (GeneratedRowWriter<T>) WRITERS.get(type);
+	}
+
+	private static GeneratedRowWriter<?> load(Class<?> type) {
+		ClassLoader classLoader = type.getClassLoader();
+		String writerName = WRITER_NAMES.computeIfAbsent(classLoader, GeneratedRowWriters::loadNames).get(type.getName());
+		if (writerName == null) {
+			return null;
+		}
+		try {
+			GeneratedRowWriter<?> writer = (GeneratedRowWriter<?>) Class.forName(writerName, true, classLoader)
+					.getDeclaredConstructor().newInstance();
+			return writer.getType() == type ? writer : null;
+		} catch (ReflectiveOperationException | LinkageError | ClassCastException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Names of rendered types and their writers registered to class loader
+	 */
+	@SuppressWarnings("rawtypes")
+	static Map<String, String> loadNames(ClassLoader classLoader) {
+		Map<String, String> names = new HashMap<>();
+		Iterator<GeneratedRowWriter> iterator = ServiceLoader.load(GeneratedRowWriter.class, classLoader).iterator();
+		while (true) {
+			try {
+				if (!iterator.hasNext()) {
+					break;
+				}
+				GeneratedRowWriter writer = iterator.next();
+				names.putIfAbsent(writer.getType().getName(), writer.getClass().getName());
+			} catch (ServiceConfigurationError | LinkageError e) {
+				// stale entry in META-INF/services, the iterator goes on with the next provider
+			}
+		}
+		return names;
+	}
+
+}
@@ -0,0 +1,42 @@
+package com.okdori.resource.schema;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MapRowWriter
+ *
+ * Rows of dynamic queries mostly keep the same key order (ex. LinkedHashMap per result row),
+ * so entries are matched to columns by position while keys line up,
+ * and only the rest of the row falls back to {@link Map#get(Object)}
+ */
+final class MapRowWriter implements RowWriter<Map<String, Object>> {
+
+	private final String[] keys;
+
+	MapRowWriter(List<ExcelColumnSchema> columns) {
+		this.keys = new String[columns.size()];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = columns.get(i).getName();
+		}
+	}
+
+	@Override
+	public void write(Map<String, Object> data, CellValueWriter writer) {
+		Iterator<Map.Entry<String, Object>> entries = data.entrySet().iterator();
+		for (int i = 0; i < keys.length; i++) {
+			if (entries != null && entries.hasNext()) {
+				Map.Entry<String, Object> entry = entries.next();
+				String key = entry.getKey();
+				if (key == keys[i] || keys[i].equals(key)) {
+					writer.writeValue(i, entry.getValue());
+					continue;
+				}
+				entries = null;
+			}
+			writer.writeValue(i, data.get(keys[i]));
+		}
+	}
+
+}
@@ -0,0 +1,30 @@
+package com.okdori.resource.schema;
+
+import java.util.List;
+
+/**
+ * ProjectedRowWriter
+ *
+ * Writes only selected columns of {@link GeneratedRowWriter}
+ */
+final class ProjectedRowWriter<T> implements RowWriter<T> {
+
+	private final GeneratedRowWriter<T> generatedRowWriter;
+	private final int[] sourceIndexes;
+
+	ProjectedRowWriter(GeneratedRowWriter<T> generatedRowWriter, List<ExcelColumnSchema> columns) {
+		this.generatedRowWriter = generatedRowWriter;
+		this.sourceIndexes = new int[columns.size()];
+		for (int i = 0; i < sourceIndexes.length; i++) {
+			sourceIndexes[i] = columns.get(i).getIndex();
+		}
+	}
+
+	@Override
+	public void write(T data, CellValueWriter writer) {
+		for (int i = 0; i < sourceIndexes.length; i++) {
+			generatedRowWriter.writeColumn(data, sourceIndexes[i], i, writer);
+		}
+	}
+
+}
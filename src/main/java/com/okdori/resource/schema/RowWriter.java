@@ -0,0 +1,12 @@
+package com.okdori.resource.schema;
+
+/**
+ * RowWriter
+ *
+ * Writes values of one data row to {@link CellValueWriter} in column order of {@link ExcelSchema}
+ */
+public interface RowWriter<T> {
+
+	void write(T data, CellValueWriter writer);
+
+}
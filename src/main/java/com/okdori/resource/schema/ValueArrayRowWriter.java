@@ -0,0 +1,25 @@
+package com.okdori.resource.schema;
+
+import java.util.List;
+
+/**
+ * ValueArrayRowWriter
+ *
+ * Reads Object[] row of values already in column order of schema
+ */
+final class ValueArrayRowWriter implements RowWriter<Object[]> {
+
+	private final int size;
+
+	ValueArrayRowWriter(List<ExcelColumnSchema> columns) {
+		this.size = columns.size();
+	}
+
+	@Override
+	public void write(Object[] data, CellValueWriter writer) {
+		for (int i = 0; i < size; i++) {
+			writer.writeValue(i, data[i]);
+		}
+	}
+
+}
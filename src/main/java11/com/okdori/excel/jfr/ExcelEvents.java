@@ -0,0 +1,62 @@
+package com.okdori.excel.jfr;
+
+/**
+ * ExcelEvents
+ *
+ * Begins events of export phases, recorded by Java Flight Recorder.
+ * Events are enabled without settings
+ */
+public final class ExcelEvents {
+
+	private ExcelEvents() {
+
+	}
+
+	/**
+	 * Creation of cell styles and header names of columns
+	 */
+	public static ExcelEvent resourcePreparation(Class<?> type) {
+		ResourcePreparationEvent event = new ResourcePreparationEvent();
+		event.setType(type);
+		event.begin();
+		return event;
+	}
+
+	public static ExcelEvent sheetCreation(String sheetName) {
+		SheetCreationEvent event = new SheetCreationEvent();
+		event.setSheetName(sheetName);
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Rows of sheet flushed from memory to temp storage, committed in batches
+	 */
+	public static ExcelEvent flush(String sheetName) {
+		FlushEvent event = new FlushEvent();
+		event.setSheetName(sheetName);
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Column widths fitted to contents, committed in batches of rows or when sheet is finished
+	 */
+	public static ExcelEvent widthFitting(String sheetName) {
+		WidthFittingEvent event = new WidthFittingEvent();
+		event.setSheetName(sheetName);
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Workbook written to stream of caller
+	 */
+	public static ExcelEvent write(Class<?> type) {
+		WriteEvent event = new WriteEvent();
+		event.setType(type);
+		event.begin();
+		return event;
+	}
+
+}
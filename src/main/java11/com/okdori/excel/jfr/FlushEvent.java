@@ -0,0 +1,25 @@
+package com.okdori.excel.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("com.okdori.excel.Flush")
+@Label("Excel Flush")
+@Description("Batch of rows flushed from memory to temp storage. Rows are flushed one by one while others are rendered, "
+		+ "so write time is time spent writing them and bytes are bytes written to temp storage")
+@StackTrace(false)
+final class FlushEvent extends JfrExcelEvent {
+
+	@Label("Write Time")
+	@Timespan
+	long writeNanos;
+
+	@Override
+	public void setWriteNanos(long writeNanos) {
+		this.writeNanos = writeNanos;
+	}
+
+}
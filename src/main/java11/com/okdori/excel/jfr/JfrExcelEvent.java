@@ -0,0 +1,92 @@
+package com.okdori.excel.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * JfrExcelEvent
+ *
+ * Fields of every export phase. Fields not known to a phase are recorded as null or 0.
+ * Times spent on part of an event are fields of the event having them, and setting them on other events is ignored
+ */
+@Category("Excel")
+abstract class JfrExcelEvent extends Event implements ExcelEvent {
+
+	@Label("Type")
+	Class<?> type;
+
+	@Label("Sheet Name")
+	String sheetName;
+
+	@Label("Column Count")
+	int columnCount;
+
+	@Label("Row Count")
+	long rowCount;
+
+	@Label("Bytes")
+	@DataAmount
+	long bytes;
+
+	@Override
+	public void setType(Class<?> type) {
+		this.type = type;
+	}
+
+	@Override
+	public void setSheetName(String sheetName) {
+		this.sheetName = sheetName;
+	}
+
+	@Override
+	public void setColumnCount(int columnCount) {
+		this.columnCount = columnCount;
+	}
+
+	@Override
+	public void setRowCount(long rowCount) {
+		this.rowCount = rowCount;
+	}
+
+	@Override
+	public void setBytes(long bytes) {
+		this.bytes = bytes;
+	}
+
+	@Override
+	public void setWriteNanos(long writeNanos) {
+
+	}
+
+	@Override
+	public void setFittingNanos(long fittingNanos) {
+
+	}
+
+	@Override
+	public OutputStream countBytes(OutputStream stream) {
+		if (!isEnabled()) {
+			return stream;
+		}
+		return new FilterOutputStream(stream) {
+			@Override
+			public void write(int b) throws IOException {
+				out.write(b);
+				bytes++;
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				out.write(b, off, len);
+				bytes += len;
+			}
+		};
+	}
+
+}
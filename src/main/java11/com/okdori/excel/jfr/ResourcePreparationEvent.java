@@ -0,0 +1,12 @@
+package com.okdori.excel.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.okdori.excel.ResourcePreparation")
+@Label("Excel Resource Preparation")
+@Description("Creation of cell styles and header names of columns")
+final class ResourcePreparationEvent extends JfrExcelEvent {
+
+}
@@ -0,0 +1,10 @@
+package com.okdori.excel.jfr;
+
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.okdori.excel.SheetCreation")
+@Label("Excel Sheet Creation")
+final class SheetCreationEvent extends JfrExcelEvent {
+
+}
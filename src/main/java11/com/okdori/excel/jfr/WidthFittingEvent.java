@@ -0,0 +1,30 @@
+package com.okdori.excel.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * WidthFittingEvent
+ *
+ * Auto sized columns are fitted after every row, so an event spans a batch of rows while others are rendered
+ */
+@Name("com.okdori.excel.WidthFitting")
+@Label("Excel Width Fitting")
+@Description("Column widths fitted to contents, for a batch of rows or when sheet is finished. "
+		+ "Fitting time is time spent fitting them")
+@StackTrace(false)
+final class WidthFittingEvent extends JfrExcelEvent {
+
+	@Label("Fitting Time")
+	@Timespan
+	long fittingNanos;
+
+	@Override
+	public void setFittingNanos(long fittingNanos) {
+		this.fittingNanos = fittingNanos;
+	}
+
+}
@@ -0,0 +1,12 @@
+package com.okdori.excel.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.okdori.excel.Write")
+@Label("Excel Write")
+@Description("Workbook written to stream of caller. Bytes are bytes written to the stream")
+final class WriteEvent extends JfrExcelEvent {
+
+}
@@ -0,0 +1,77 @@
+package com.okdori.excel.soak;
+
+import com.okdori.excel.compact.CompactOneSheetExcelFile;
+import com.okdori.excel.storage.ExcelTempStorage;
+import com.okdori.excel.storage.ExcelTempStorageMetrics;
+import com.okdori.resource.DefaultDataFormatDecider;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConcurrentSoakTest {
+
+    private static final int THREAD_COUNT = 8;
+    private static final int EXPORT_COUNT = 32;
+    private static final int ROWS_PER_EXPORT = 100_000;
+    private static final long MAX_TEMP_BYTES = 256L * 1024 * 1024;
+    // far under rows per second measured, so only a regression fails it
+    private static final long MIN_ROWS_PER_SECOND = 50_000;
+
+    @Test
+    public void concurrentExportsTest() throws Exception {
+        // given
+        SoakExports.assertHeapCapped();
+        SoakExports.resetPeaks();
+        File directory = Files.createTempDirectory("soak").toFile();
+        ExcelTempStorage storage = ExcelTempStorage.directory(directory);
+        long globalMaxDiskBytes = ExcelTempStorage.getGlobalMaxDiskBytes();
+        // temp files of exports in flight over it fail the export
+        ExcelTempStorage.setGlobalMaxDiskBytes(MAX_TEMP_BYTES);
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+
+        try {
+            // when
+            long start = System.nanoTime();
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int export = 0; export < EXPORT_COUNT; export++) {
+                long firstRow = (long) export * ROWS_PER_EXPORT;
+                futures.add(executor.submit(() -> {
+                    CompactOneSheetExcelFile<Object[]> excelFile = new CompactOneSheetExcelFile<>(
+                            Collections.emptyList(), SoakExports.SCHEMA, new DefaultDataFormatDecider(), storage);
+                    SoakExports.addRows(excelFile, firstRow, ROWS_PER_EXPORT);
+                    SoakExports.CountingOutputStream stream = new SoakExports.CountingOutputStream();
+                    excelFile.write(stream);
+                    return stream.getCount();
+                }));
+            }
+            for (Future<Long> future : futures) {
+                assertThat(future.get(10, TimeUnit.MINUTES)).isGreaterThan(ROWS_PER_EXPORT);
+            }
+            long elapsedNanos = System.nanoTime() - start;
+
+            // then
+            assertThat(ExcelTempStorageMetrics.getDiskBytesInUse()).isZero();
+            assertThat(SoakExports.isEmpty(directory)).isTrue();
+            // no more exports than threads have temp files at the same time
+            assertThat(ExcelTempStorageMetrics.getPeakDiskBytes()).isPositive()
+                    .isLessThanOrEqualTo(THREAD_COUNT * ROWS_PER_EXPORT * SoakExports.MAX_SHEET_BYTES_PER_ROW);
+            long rowsPerSecond = (long) EXPORT_COUNT * ROWS_PER_EXPORT * 1_000_000_000L / elapsedNanos;
+            assertThat(rowsPerSecond).isGreaterThanOrEqualTo(MIN_ROWS_PER_SECOND);
+        } finally {
+            executor.shutdownNow();
+            ExcelTempStorage.setGlobalMaxDiskBytes(globalMaxDiskBytes);
+            SoakExports.delete(directory);
+        }
+    }
+
+}
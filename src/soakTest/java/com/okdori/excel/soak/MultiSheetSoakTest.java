@@ -0,0 +1,73 @@
+package com.okdori.excel.soak;
+
+import com.okdori.excel.multiplesheet.MultiSheetExcelFile;
+import com.okdori.excel.storage.ExcelTempStorage;
+import com.okdori.excel.storage.ExcelTempStorageMetrics;
+import com.okdori.resource.DefaultDataFormatDecider;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Multi sheet engine auto sizes columns after every row, so it runs far fewer rows than the compact engine
+ */
+public class MultiSheetSoakTest {
+
+    // row index of the next sheet, so a sheet has a header and 499 rows
+    private static final int MAX_ROW_INDEX_PER_SHEET = 500;
+    private static final int SHEET_COUNT = 4;
+    private static final int ROW_COUNT = (MAX_ROW_INDEX_PER_SHEET - 1) * (SHEET_COUNT - 1) + 300;
+    private static final long MAX_TEMP_BYTES_PER_EXPORT = 16L * 1024 * 1024;
+    // far under rows per second measured, so only a regression fails it
+    private static final long MIN_ROWS_PER_SECOND = 50;
+
+    @Test
+    public void multiSheetTest() throws Exception {
+        // given
+        SoakExports.assertHeapCapped();
+        SoakExports.resetPeaks();
+        File directory = Files.createTempDirectory("soak").toFile();
+        ExcelTempStorage storage = ExcelTempStorage.directory(directory).withMaxBytesPerExport(MAX_TEMP_BYTES_PER_EXPORT);
+        MultiSheetExcelFile<Object[]> excelFile = new MultiSheetExcelFile<Object[]>(
+                Collections.emptyList(), SoakExports.SCHEMA, new DefaultDataFormatDecider(), storage) {
+            @Override
+            protected int getMaxRowIndexPerSheet() {
+                return MAX_ROW_INDEX_PER_SHEET;
+            }
+        };
+
+        try {
+            // when
+            long start = System.nanoTime();
+            SoakExports.addRows(excelFile, 0, ROW_COUNT);
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            excelFile.write(stream);
+            long elapsedNanos = System.nanoTime() - start;
+
+            // then
+            try (XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(stream.toByteArray()))) {
+                assertThat(workbook.getNumberOfSheets()).isEqualTo(SHEET_COUNT);
+                Sheet lastSheet = workbook.getSheetAt(SHEET_COUNT - 1);
+                assertThat(lastSheet.getRow(lastSheet.getLastRowNum()).getCell(0).getNumericCellValue())
+                        .isEqualTo(ROW_COUNT - 1);
+            }
+            // temp files of all sheets are kept until the workbook is written
+            assertThat(ExcelTempStorageMetrics.getPeakDiskBytes()).isPositive().isLessThanOrEqualTo(ROW_COUNT * SoakExports.MAX_SHEET_BYTES_PER_ROW);
+            assertThat(ExcelTempStorageMetrics.getDiskBytesInUse()).isZero();
+            assertThat(SoakExports.isEmpty(directory)).isTrue();
+            long rowsPerSecond = ROW_COUNT * 1_000_000_000L / elapsedNanos;
+            assertThat(rowsPerSecond).isGreaterThanOrEqualTo(MIN_ROWS_PER_SECOND);
+        } finally {
+            SoakExports.delete(directory);
+        }
+    }
+
+}
@@ -0,0 +1,114 @@
+package com.okdori.excel.soak;
+
+import com.okdori.excel.ExcelFile;
+import com.okdori.excel.storage.ExcelTempStorageMetrics;
+import com.okdori.resource.schema.ExcelSchema;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * SoakExports
+ *
+ * Synthetic rows and checks shared by soak tests, which are run by the soakTest task of build.gradle
+ */
+final class SoakExports {
+
+    static final long MAX_HEAP_BYTES = 128L * 1024 * 1024;
+    static final int BATCH_SIZE = 10_000;
+    // sheet xml of a row of SCHEMA is about 220 bytes, in temp file or heap buffer
+    static final long MAX_SHEET_BYTES_PER_ROW = 300;
+
+    static final ExcelSchema<Object[]> SCHEMA = ExcelSchema.builder()
+            .column("id", "Id", Long.class)
+            .column("name", "Name", String.class)
+            .column("amount", "Amount", Double.class)
+            .column("count", "Count", Integer.class)
+            .forArrays();
+
+    private SoakExports() {
+
+    }
+
+    /**
+     * Fails when the test does not run in the heap of soakTest task, so limits are not assumed
+     */
+    static void assertHeapCapped() {
+        assertThat(Runtime.getRuntime().maxMemory())
+                .as("soak tests should run with -Xmx128m, see soakTest task of build.gradle")
+                .isLessThanOrEqualTo(MAX_HEAP_BYTES);
+    }
+
+    /**
+     * Adds rows from firstRow in batches, so only one batch is in memory at a time
+     */
+    static void addRows(ExcelFile<Object[]> excelFile, long firstRow, int rowCount) {
+        for (int offset = 0; offset < rowCount; offset += BATCH_SIZE) {
+            excelFile.addRows(rows(firstRow + offset, Math.min(BATCH_SIZE, rowCount - offset)));
+        }
+    }
+
+    static List<Object[]> rows(long firstRow, int rowCount) {
+        List<Object[]> rows = new ArrayList<>(rowCount);
+        for (long id = firstRow; id < firstRow + rowCount; id++) {
+            rows.add(new Object[]{id, "name-" + id, id * 0.25, (int) (id % 1_000)});
+        }
+        return rows;
+    }
+
+    /**
+     * Peaks of temp storage measured from now, so usage of earlier tests of the JVM is not counted
+     */
+    static void resetPeaks() {
+        assertThat(ExcelTempStorageMetrics.getDiskBytesInUse()).isZero();
+        ExcelTempStorageMetrics.resetPeakBytes();
+    }
+
+    /**
+     * Deletes temp directory of a test, with files left by a failed export
+     */
+    static void delete(File directory) throws IOException {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                Files.deleteIfExists(file.toPath());
+            }
+        }
+        Files.deleteIfExists(directory.toPath());
+    }
+
+    static boolean isEmpty(File directory) {
+        String[] files = directory.list();
+        return files != null && files.length == 0;
+    }
+
+    /**
+     * Stream counting bytes of workbook without keeping them
+     */
+    static final class CountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+
+        long getCount() {
+            return count;
+        }
+
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.okdori.excel.soak;
+
+import com.okdori.excel.compact.CompactOneSheetExcelFile;
+import com.okdori.excel.storage.ExcelTempStorage;
+import com.okdori.excel.storage.ExcelTempStorageMetrics;
+import com.okdori.resource.DefaultDataFormatDecider;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StreamingSoakTest {
+
+    private static final int ROWS_PER_EXPORT = SpreadsheetVersion.EXCEL2007.getMaxRows() - 1;
+    private static final int EXPORT_COUNT = 3;
+    private static final long MAX_TEMP_BYTES_PER_EXPORT = 256L * 1024 * 1024;
+    // far under rows per second measured, so only a regression fails it
+    private static final long MIN_ROWS_PER_SECOND = 50_000;
+
+    @Test
+    public void millionsOfRowsTest() throws Exception {
+        // given
+        SoakExports.assertHeapCapped();
+        SoakExports.resetPeaks();
+        File directory = Files.createTempDirectory("soak").toFile();
+        ExcelTempStorage storage = ExcelTempStorage.directory(directory).withMaxBytesPerExport(MAX_TEMP_BYTES_PER_EXPORT);
+
+        try {
+            // when
+            long start = System.nanoTime();
+            for (int export = 0; export < EXPORT_COUNT; export++) {
+                CompactOneSheetExcelFile<Object[]> excelFile = new CompactOneSheetExcelFile<>(
+                        Collections.emptyList(), SoakExports.SCHEMA, new DefaultDataFormatDecider(), storage);
+                SoakExports.addRows(excelFile, (long) export * ROWS_PER_EXPORT, ROWS_PER_EXPORT);
+                SoakExports.CountingOutputStream stream = new SoakExports.CountingOutputStream();
+                excelFile.write(stream);
+
+                // then
+                assertThat(stream.getCount()).isGreaterThan(ROWS_PER_EXPORT);
+                assertThat(ExcelTempStorageMetrics.getDiskBytesInUse()).isZero();
+                assertThat(SoakExports.isEmpty(directory)).isTrue();
+            }
+            long elapsedNanos = System.nanoTime() - start;
+
+            // temp files of an export are deleted before the next one starts
+            assertThat(ExcelTempStorageMetrics.getPeakDiskBytes()).isPositive()
+                    .isLessThanOrEqualTo(ROWS_PER_EXPORT * SoakExports.MAX_SHEET_BYTES_PER_ROW);
+            long rowsPerSecond = (long) EXPORT_COUNT * ROWS_PER_EXPORT * 1_000_000_000L / elapsedNanos;
+            assertThat(rowsPerSecond).isGreaterThanOrEqualTo(MIN_ROWS_PER_SECOND);
+        } finally {
+            SoakExports.delete(directory);
+        }
+    }
+
+}
@@ -0,0 +1,79 @@
+package com.okdori.excel.soak;
+
+import com.okdori.excel.compact.CompactOneSheetExcelFile;
+import com.okdori.excel.onesheet.OneSheetExcelFile;
+import com.okdori.excel.storage.ExcelTempStorage;
+import com.okdori.excel.storage.ExcelTempStorageMetrics;
+import com.okdori.resource.DefaultDataFormatDecider;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Heap buffers of temp storage, spilled to disk after threshold, under the capped heap.
+ * One sheet engine auto sizes columns after every row, so it runs far fewer rows than the compact engine
+ */
+public class TempStorageSoakTest {
+
+    private static final int COMPACT_ROW_COUNT = 200_000;
+    private static final int ONE_SHEET_ROW_COUNT = 1_500;
+    private static final long MEMORY_THRESHOLD = 8L * 1024 * 1024;
+    private static final long MAX_TEMP_BYTES_PER_EXPORT = 256L * 1024 * 1024;
+
+    @Test
+    public void autoStorageTest() throws Exception {
+        // given
+        SoakExports.assertHeapCapped();
+        SoakExports.resetPeaks();
+        File directory = Files.createTempDirectory("soak").toFile();
+        ExcelTempStorage storage = ExcelTempStorage.auto(directory, MEMORY_THRESHOLD)
+                .withMaxBytesPerExport(MAX_TEMP_BYTES_PER_EXPORT);
+        CompactOneSheetExcelFile<Object[]> excelFile = new CompactOneSheetExcelFile<>(
+                Collections.emptyList(), SoakExports.SCHEMA, new DefaultDataFormatDecider(), storage);
+
+        try {
+            // when
+            SoakExports.addRows(excelFile, 0, COMPACT_ROW_COUNT);
+            SoakExports.CountingOutputStream stream = new SoakExports.CountingOutputStream();
+            excelFile.write(stream);
+
+            // then
+            assertThat(stream.getCount()).isGreaterThan(COMPACT_ROW_COUNT);
+            assertThat(excelFile.getSpilledBytes()).isGreaterThan(MEMORY_THRESHOLD);
+            assertThat(ExcelTempStorageMetrics.getPeakMemoryBytes()).isPositive().isLessThanOrEqualTo(MEMORY_THRESHOLD);
+            assertThat(ExcelTempStorageMetrics.getPeakDiskBytes()).isPositive().isLessThanOrEqualTo(COMPACT_ROW_COUNT * SoakExports.MAX_SHEET_BYTES_PER_ROW);
+            assertThat(ExcelTempStorageMetrics.getDiskBytesInUse()).isZero();
+            assertThat(ExcelTempStorageMetrics.getMemoryBytesInUse()).isZero();
+            assertThat(SoakExports.isEmpty(directory)).isTrue();
+        } finally {
+            SoakExports.delete(directory);
+        }
+    }
+
+    @Test
+    public void memoryStorageTest() throws Exception {
+        // given
+        SoakExports.assertHeapCapped();
+        SoakExports.resetPeaks();
+        OneSheetExcelFile<Object[]> excelFile = new OneSheetExcelFile<>(
+                Collections.emptyList(), SoakExports.SCHEMA, new DefaultDataFormatDecider(), ExcelTempStorage.memory());
+
+        // when
+        SoakExports.addRows(excelFile, 0, ONE_SHEET_ROW_COUNT);
+        SoakExports.CountingOutputStream stream = new SoakExports.CountingOutputStream();
+        excelFile.write(stream);
+
+        // then
+        assertThat(stream.getCount()).isGreaterThan(ONE_SHEET_ROW_COUNT);
+        assertThat(excelFile.getSpilledBytes()).isZero();
+        assertThat(ExcelTempStorageMetrics.getPeakDiskBytes()).isZero();
+        assertThat(ExcelTempStorageMetrics.getPeakMemoryBytes()).isPositive()
+                .isLessThanOrEqualTo(ONE_SHEET_ROW_COUNT * SoakExports.MAX_SHEET_BYTES_PER_ROW);
+        assertThat(ExcelTempStorageMetrics.getMemoryBytesInUse()).isZero();
+    }
+
+}
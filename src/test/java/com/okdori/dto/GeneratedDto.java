@@ -0,0 +1,26 @@
+package com.okdori.dto;
+
+import com.okdori.ExcelColumn;
+
+public class GeneratedDto {
+
+    @ExcelColumn(headerName = "name")
+    private String name;
+
+    @ExcelColumn(headerName = "age")
+    private int age;
+
+    public GeneratedDto(String name, int age) {
+        this.name = name;
+        this.age = age;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getAge() {
+        return age;
+    }
+
+}
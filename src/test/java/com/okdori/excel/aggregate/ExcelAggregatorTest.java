@@ -0,0 +1,93 @@
+package com.okdori.excel.aggregate;
+
+import com.okdori.ExcelAggregate;
+import com.okdori.excel.onesheet.OneSheetExcelFile;
+import com.okdori.resource.schema.ExcelSchema;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+public class ExcelAggregatorTest {
+
+    private final ExcelSchema<Object[]> schema = ExcelSchema.builder()
+            .column("name", "User Name", String.class)
+            .aggregates(ExcelAggregate.COUNT, ExcelAggregate.DISTINCT_COUNT)
+            .column("age", "User Age", Integer.class)
+            .aggregates(ExcelAggregate.SUM, ExcelAggregate.AVERAGE)
+            .forArrays();
+
+    @Test
+    public void footerRenderingTest() throws Exception {
+        // given
+        OneSheetExcelFile<Object[]> excelFile = new OneSheetExcelFile<>(Arrays.asList(
+                new Object[]{"kim", 20}, new Object[]{"lee", 30}, new Object[]{"kim", null}), schema);
+        excelFile.setAggregateFormulas(true);
+
+        // when
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        excelFile.write(outputStream);
+        Sheet sheet = new XSSFWorkbook(new ByteArrayInputStream(outputStream.toByteArray())).getSheetAt(0);
+
+        // then
+        Row sum = sheet.getRow(4);
+        Row average = sheet.getRow(5);
+        Row count = sheet.getRow(6);
+        Row distinctCount = sheet.getRow(7);
+        assertThat(sum.getCell(0).getStringCellValue()).isEqualTo("Sum");
+        assertThat(sum.getCell(1).getCellFormula()).isEqualTo("SUM(B2:B4)");
+        assertThat(sum.getCell(1).getNumericCellValue()).isEqualTo(50);
+        assertThat(average.getCell(1).getNumericCellValue()).isEqualTo(25);
+        assertThat(count.getCell(0).getNumericCellValue()).isEqualTo(3);
+        assertThat(count.getCell(1).getStringCellValue()).isEqualTo("Count");
+        assertThat(distinctCount.getCell(0).getNumericCellValue()).isEqualTo(2);
+    }
+
+    @Test
+    public void footerRowsCountInSheetLimitTest() {
+        // given
+        int maxRows = SpreadsheetVersion.EXCEL2007.getMaxRows();
+        Object[] row = {"kim", 20};
+        List<Object[]> fullSheetWithoutFooter = Collections.nCopies(maxRows - 1, row);
+        OneSheetExcelFile<Object[]> excelFile = new OneSheetExcelFile<>(Collections.singletonList(row), schema);
+
+        // when & then
+        assertThatThrownBy(() -> new OneSheetExcelFile<>(fullSheetWithoutFooter, schema))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("4 footer rows");
+        assertThatThrownBy(() -> excelFile.addRows(Collections.nCopies(maxRows - 1 - 4, row)))
+                .isInstanceOf(IllegalArgumentException.class);
+        excelFile.close();
+    }
+
+    @Test
+    public void distinctCountApproximationTest() {
+        // given
+        ExcelAggregator aggregator = ExcelAggregator.of(schema);
+
+        // when
+        for (int i = 0; i < 200_000; i++) {
+            aggregator.addValue(0, "user" + (i % 100_000));
+            if (i == 100_000) {
+                aggregator.completeSheet();
+            }
+        }
+        aggregator.completeSheet();
+
+        // then
+        assertThat(aggregator.getTotalValue(0, ExcelAggregate.COUNT)).isEqualTo(200_000);
+        assertThat(aggregator.getTotalValue(0, ExcelAggregate.DISTINCT_COUNT)).isCloseTo(100_000, within(5_000.0));
+    }
+
+}
@@ -0,0 +1,178 @@
+package com.okdori.excel.auto;
+
+import com.okdori.ExcelAggregate;
+import com.okdori.excel.estimate.ExportCost;
+import com.okdori.excel.estimate.ExportCostEstimator;
+import com.okdori.excel.multiplesheet.MultiSheetExcelFile;
+import com.okdori.excel.storage.ExcelTempStorage;
+import com.okdori.resource.DefaultDataFormatDecider;
+import com.okdori.resource.schema.ExcelSchema;
+import com.okdori.resource.schema.ExcelSchemaBuilder;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class AutoExcelExporterTest {
+
+    private final ExcelSchema<Object[]> schema = ExcelSchema.builder()
+            .column("name", "User Name", String.class)
+            .column("age", "User Age", Integer.class)
+            .forArrays();
+
+    @Test
+    public void planTest() {
+        // given
+        AutoExcelExporter exporter = new AutoExcelExporter(new ExportCostEstimator(100, 0.1), Runnable::run,
+                ExcelTempStorage.memory(), new DefaultDataFormatDecider(), 64L * 1024 * 1024, 1000);
+        List<Object[]> sample = rows(100);
+
+        // when
+        ExcelExportPlan small = exporter.plan(schema, sample, 1000);
+        ExcelExportPlan large = exporter.plan(schema, sample, 500_000);
+        ExcelExportPlan huge = exporter.plan(schema, sample, 2_000_000);
+
+        // then
+        assertThat(small.getEngine()).isEqualTo(ExcelEngine.ONE_SHEET);
+        assertThat(small.isAsync()).isFalse();
+        assertThat(large.getEngine()).isEqualTo(ExcelEngine.COMPACT);
+        assertThat(large.isAsync()).isTrue();
+        assertThat(huge.getEngine()).isEqualTo(ExcelEngine.MULTI_SHEET);
+        assertThat(huge.getRowAccessWindowSize()).isLessThan(small.getRowAccessWindowSize());
+        assertThat(huge.getCost().getFileBytes()).isGreaterThan(large.getCost().getFileBytes());
+    }
+
+    @Test
+    public void planThresholdTest() {
+        // given
+        Map<ExcelEngine, Double> nanosPerXmlByte = new EnumMap<>(ExcelEngine.class);
+        nanosPerXmlByte.put(ExcelEngine.ONE_SHEET, 100.0);
+        nanosPerXmlByte.put(ExcelEngine.COMPACT, 10.0);
+        nanosPerXmlByte.put(ExcelEngine.MULTI_SHEET, 100.0);
+        ExportCostEstimator estimator = new ExportCostEstimator(nanosPerXmlByte, 1_000_000, 0.1);
+        AutoExcelExporter exporter = new AutoExcelExporter(estimator, Runnable::run,
+                ExcelTempStorage.memory(), new DefaultDataFormatDecider(), Long.MAX_VALUE, Long.MAX_VALUE);
+        List<Object[]> sample = rows(100);
+        ExcelSchemaBuilder wideBuilder = ExcelSchema.builder();
+        for (int i = 0; i < 50; i++) {
+            wideBuilder.column("column" + i, "Column " + i, String.class);
+        }
+        ExcelSchema<Object[]> wide = wideBuilder.forArrays();
+        ExcelSchema<Object[]> narrower = wide.project(wide.getColumnNames().subList(0, 49));
+        ExcelSchema<Object[]> aggregated = ExcelSchema.builder()
+                .column("name", "User Name", String.class)
+                .column("age", "User Age", Integer.class)
+                .aggregates(ExcelAggregate.SUM, ExcelAggregate.AVERAGE)
+                .forArrays();
+
+        // when
+        ExcelExportPlan belowCompact = exporter.plan(schema, sample, 99_999);
+        ExcelExportPlan compact = exporter.plan(schema, sample, 100_000);
+        ExcelExportPlan fullSheet = exporter.plan(schema, sample, 1_048_575);
+        ExcelExportPlan overSheet = exporter.plan(schema, sample, 1_048_576);
+
+        // then
+        assertThat(belowCompact.getEngine()).isEqualTo(ExcelEngine.ONE_SHEET);
+        assertThat(compact.getEngine()).isEqualTo(ExcelEngine.COMPACT);
+        assertThat(fullSheet.getEngine()).isEqualTo(ExcelEngine.COMPACT);
+        assertThat(overSheet.getEngine()).isEqualTo(ExcelEngine.MULTI_SHEET);
+        assertThat(exporter.plan(narrower, Collections.emptyList(), 10).getEngine()).isEqualTo(ExcelEngine.ONE_SHEET);
+        assertThat(exporter.plan(wide, Collections.emptyList(), 10).getEngine()).isEqualTo(ExcelEngine.COMPACT);
+        // two footer rows of aggregates are left below body rows of one sheet
+        assertThat(exporter.plan(aggregated, sample, 1_048_573).getEngine()).isEqualTo(ExcelEngine.COMPACT);
+        assertThat(exporter.plan(aggregated, sample, 1_048_574).getEngine()).isEqualTo(ExcelEngine.MULTI_SHEET);
+
+        // render time is estimated by nanos of the chosen engine, over fixed time of workbook
+        long xmlBytes = belowCompact.getCost().getSheetXmlBytes();
+        assertThat(belowCompact.getCost().getRenderMillis()).isEqualTo((long) Math.ceil((1_000_000 + xmlBytes * 100.0) / 1_000_000));
+        assertThat(compact.getCost().getRenderMillis())
+                .isLessThan(belowCompact.getCost().getRenderMillis());
+    }
+
+    @Test
+    public void asyncExportCompletesOnErrorTest() throws Exception {
+        // given
+        AutoExcelExporter exporter = new AutoExcelExporter(new ExportCostEstimator(1_000_000, 0.1),
+                command -> new Thread(command).start(), ExcelTempStorage.memory(), new DefaultDataFormatDecider(),
+                64L * 1024 * 1024, 0);
+        OutputStream failingStream = new OutputStream() {
+            @Override
+            public void write(int b) {
+                throw new AssertionError("stream is broken");
+            }
+        };
+
+        // when
+        CompletableFuture<ExcelExportPlan> future = exporter.export(rows(10), schema, failingStream);
+
+        // then
+        assertThatThrownBy(() -> future.get(30, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(AssertionError.class);
+    }
+
+    @Test
+    public void calibratedEstimateTest() throws Exception {
+        // given
+        ExportCostEstimator estimator = ExportCostEstimator.calibrate();
+        List<Object[]> data = rows(1000);
+
+        // when
+        ExportCost cost = estimator.estimate(schema, data.subList(0, 100), data.size(), 100);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        new MultiSheetExcelFile<>(data, schema).write(outputStream);
+
+        // then
+        assertThat(estimator.getNanosPerXmlByte()).isPositive();
+        assertThat(estimator.getNanosPerXmlByte(ExcelEngine.COMPACT)).isPositive();
+        assertThat(estimator.getNanosPerXmlByte(ExcelEngine.MULTI_SHEET)).isPositive();
+        assertThat(estimator.getFileNanos()).isPositive();
+        assertThat(cost.getRenderMillis()).isPositive();
+        assertThat(cost.getFileBytes()).isBetween(outputStream.size() / 2L, outputStream.size() * 2L);
+    }
+
+    @Test
+    public void asyncExportTest() throws Exception {
+        // given
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        AutoExcelExporter exporter = new AutoExcelExporter(new ExportCostEstimator(1_000_000, 0.1), executor,
+                ExcelTempStorage.memory(), new DefaultDataFormatDecider(), 64L * 1024 * 1024, 1000);
+
+        // when
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        CompletableFuture<ExcelExportPlan> future = exporter.export(rows(500), schema, outputStream);
+        ExcelExportPlan plan = future.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        // then
+        assertThat(plan.isAsync()).isTrue();
+        assertThat(plan.getEngine()).isEqualTo(ExcelEngine.ONE_SHEET);
+        Sheet sheet = new XSSFWorkbook(new ByteArrayInputStream(outputStream.toByteArray())).getSheetAt(0);
+        assertThat(sheet.getLastRowNum()).isEqualTo(500);
+    }
+
+    private List<Object[]> rows(int count) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(new Object[]{"name" + i, i});
+        }
+        return rows;
+    }
+
+}
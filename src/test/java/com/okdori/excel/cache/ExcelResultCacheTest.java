@@ -0,0 +1,179 @@
+package com.okdori.excel.cache;
+
+import com.okdori.excel.onesheet.OneSheetExcelFile;
+import com.okdori.resource.schema.ExcelSchema;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ExcelResultCacheTest {
+
+    private final ExcelSchema<Object[]> schema = ExcelSchema.builder()
+            .column("name", "Name", String.class)
+            .column("age", "Age", Integer.class)
+            .forArrays();
+
+    @Test
+    public void deterministicOutputTest() throws Exception {
+        // given
+        List<Object[]> rows = rows(100);
+        ExcelResultCache first = new ExcelResultCache(Files.createTempDirectory("excel-cache").toFile(), 1L << 20);
+        ExcelResultCache second = new ExcelResultCache(Files.createTempDirectory("excel-cache").toFile(), 1L << 20);
+
+        // when
+        CachedExcel rendered = first.get("users", schema, rows);
+        Thread.sleep(1100);
+        CachedExcel renderedAgain = second.get("users", schema, rows);
+        CachedExcel cached = first.get("users", schema, rows);
+        CachedExcel changed = first.get("users", schema, rows(101));
+
+        // then
+        assertThat(renderedAgain.getETag()).isEqualTo(rendered.getETag());
+        assertThat(Files.readAllBytes(renderedAgain.getFile().toPath()))
+                .isEqualTo(Files.readAllBytes(rendered.getFile().toPath()));
+        assertThat(cached.getFile()).isEqualTo(rendered.getFile());
+        assertThat(cached.getETag()).isEqualTo(rendered.getETag());
+        assertThat(changed.getETag()).isNotEqualTo(rendered.getETag());
+        assertThat(first.getRenderCount()).isEqualTo(2);
+        assertThat(first.getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void singleFlightTest() throws Exception {
+        // given
+        ExcelResultCache cache = new ExcelResultCache(Files.createTempDirectory("excel-cache").toFile(), 1L << 20);
+        List<Object[]> rows = rows(10);
+        AtomicInteger renders = new AtomicInteger();
+        CountDownLatch rendering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        // when
+        List<Future<CachedExcel>> results = new ArrayList<>();
+        results.add(executor.submit(() -> cache.get("users", "v1", stream -> {
+            renders.incrementAndGet();
+            rendering.countDown();
+            await(release);
+            new OneSheetExcelFile<>(rows, schema).write(stream);
+        })));
+        rendering.await();
+        for (int i = 0; i < 3; i++) {
+            results.add(executor.submit(() -> cache.get("users", "v1", stream -> renders.incrementAndGet())));
+        }
+        while (cache.getCoalescedCount() < 3) {
+            Thread.sleep(10);
+        }
+        release.countDown();
+        String eTag = results.get(0).get().getETag();
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        // then
+        assertThat(renders.get()).isEqualTo(1);
+        for (Future<CachedExcel> result : results) {
+            assertThat(result.get().getETag()).isEqualTo(eTag);
+        }
+    }
+
+    @Test
+    public void evictionTest() throws Exception {
+        // given
+        File directory = Files.createTempDirectory("excel-cache").toFile();
+        ExcelResultCache sizing = new ExcelResultCache(Files.createTempDirectory("excel-cache").toFile(), 1L << 20);
+        long length = sizing.get("sizing", schema, rows(10)).getLength();
+        ExcelResultCache cache = new ExcelResultCache(directory, length * 2 + length / 2);
+
+        // when
+        CachedExcel first = cache.get("first", schema, rows(10));
+        first.close();
+        CachedExcel second = cache.get("second", schema, rows(10));
+        second.close();
+        cache.get("first", schema, rows(10)).close();
+        CachedExcel third = cache.get("third", schema, rows(10));
+        third.close();
+        ExcelResultCache reloaded = new ExcelResultCache(directory, length * 2 + length / 2);
+
+        // then
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.getTotalBytes()).isLessThanOrEqualTo(length * 2 + length / 2);
+        assertThat(first.getFile()).exists();
+        assertThat(second.getFile()).doesNotExist();
+        assertThat(third.getFile()).exists();
+        assertThat(reloaded.size()).isEqualTo(2);
+        assertThat(reloaded.get("first", schema, rows(10)).getETag()).isEqualTo(first.getETag());
+        assertThat(reloaded.getRenderCount()).isZero();
+    }
+
+    @Test
+    public void pinnedWorkbookIsNotEvictedTest() throws Exception {
+        // given
+        ExcelResultCache sizing = new ExcelResultCache(Files.createTempDirectory("excel-cache").toFile(), 1L << 20);
+        long length = sizing.get("sizing", schema, rows(10)).getLength();
+        ExcelResultCache cache = new ExcelResultCache(
+                Files.createTempDirectory("excel-cache").toFile(), length + length / 2);
+
+        // when
+        CachedExcel first = cache.get("first", schema, rows(10));
+        CachedExcel second = cache.get("second", schema, rows(10));
+        boolean firstKeptWhilePinned = first.getFile().exists();
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        first.writeTo(written);
+
+        // then
+        assertThat(firstKeptWhilePinned).isTrue();
+        assertThat((long) written.size()).isEqualTo(length);
+        assertThat(first.getFile()).doesNotExist();
+        assertThat(second.getFile()).exists();
+        assertThat(cache.size()).isEqualTo(1);
+        assertThatThrownBy(() -> first.writeTo(new ByteArrayOutputStream()))
+                .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void hitTouchesFileTest() throws Exception {
+        // given
+        File directory = Files.createTempDirectory("excel-cache").toFile();
+        ExcelResultCache cache = new ExcelResultCache(directory, 1L << 20);
+        CachedExcel rendered = cache.get("users", schema, rows(10));
+        rendered.close();
+        assertThat(rendered.getFile().setLastModified(1000L)).isTrue();
+
+        // when
+        cache.get("users", schema, rows(10)).close();
+
+        // then
+        assertThat(rendered.getFile().lastModified()).isGreaterThan(1000L);
+    }
+
+    private static void await(CountDownLatch latch) throws InterruptedIOException {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException();
+        }
+    }
+
+    private List<Object[]> rows(int count) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(new Object[]{"name" + i, i});
+        }
+        return rows;
+    }
+
+}
@@ -0,0 +1,282 @@
+package com.okdori.excel.columnar;
+
+import com.okdori.ExcelAggregate;
+import com.okdori.excel.SXSSFExcelFile;
+import com.okdori.excel.compact.CompactOneSheetExcelFile;
+import com.okdori.excel.control.ExcelCancellationToken;
+import com.okdori.excel.control.ExcelExportControl;
+import com.okdori.excel.pipeline.ParallelRowPreparer;
+import com.okdori.excel.storage.ExcelTempStorage;
+import com.okdori.exception.ExcelExportCancelledException;
+import com.okdori.resource.DefaultDataFormatDecider;
+import com.okdori.resource.schema.CellValueWriter;
+import com.okdori.resource.schema.ExcelSchema;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ColumnarExcelFileTest {
+
+    private static final String[] REGIONS = {"Seoul", "<Busan> & \"Jeju\"", "한글"};
+
+    private final ExcelSchema<Object[]> schema = ExcelSchema.builder()
+            .column("id", "Id", Long.class)
+            .column("region", "Region", String.class)
+            .column("count", "Count", Integer.class)
+            .column("amount", "Amount", Double.class)
+            .aggregates(ExcelAggregate.SUM)
+            .forArrays();
+
+    @Test
+    public void sameCellsAsCompactTest() throws Exception {
+        // given
+        int size = 1_050;
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            rows.add(new Object[]{(long) i, i % 4 == 3 ? null : REGIONS[i % 4], i * 3, i / 8.0});
+        }
+
+        // when
+        Sheet expected = render(new CompactOneSheetExcelFile<>(rows, schema));
+        ColumnarExcelFile columnarExcelFile = new ColumnarExcelFile(columns(0, size / 2));
+        columnarExcelFile.addColumns(columns(size / 2, size));
+        Sheet actual = render(columnarExcelFile);
+
+        // then
+        assertThat(actual.getLastRowNum()).isEqualTo(expected.getLastRowNum());
+        for (int rowIndex = 0; rowIndex <= expected.getLastRowNum(); rowIndex++) {
+            Row expectedRow = expected.getRow(rowIndex);
+            Row actualRow = actual.getRow(rowIndex);
+            for (int columnIndex = 0; columnIndex < schema.size(); columnIndex++) {
+                Cell expectedCell = expectedRow.getCell(columnIndex);
+                Cell actualCell = actualRow.getCell(columnIndex);
+                if (expectedCell == null) {
+                    assertThat(actualCell).isNull();
+                    continue;
+                }
+                assertThat(actualCell.getCellType()).isEqualTo(expectedCell.getCellType());
+                assertThat(actualCell.getCellStyle().getIndex()).isEqualTo(expectedCell.getCellStyle().getIndex());
+                if (expectedCell.getCellType() == CellType.NUMERIC) {
+                    assertThat(actualCell.getNumericCellValue()).isEqualTo(expectedCell.getNumericCellValue());
+                } else {
+                    assertThat(actualCell.getStringCellValue()).isEqualTo(expectedCell.getStringCellValue());
+                }
+            }
+        }
+        assertThat(actual.getRow(2).getCell(1).getStringCellValue()).isEqualTo(REGIONS[1]);
+    }
+
+    @Test
+    public void wrongColumnsTest() {
+        // given
+        ExcelColumns.Builder builder = ExcelColumns.builder()
+                .ints("count", "Count", new int[]{1, 2});
+
+        // then
+        assertThatThrownBy(() -> builder.doubles("amount", "Amount", new double[]{1}).build())
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ExcelColumns.builder().strings("region", "Region", new int[]{3}, REGIONS))
+                .isInstanceOf(IllegalArgumentException.class);
+        ColumnarExcelFile excelFile = new ColumnarExcelFile(columns(0, 10));
+        assertThatThrownBy(() -> excelFile.addColumns(builder.build()))
+                .isInstanceOf(IllegalArgumentException.class);
+        excelFile.close();
+    }
+
+    @Test
+    public void parallelRowPreparerTest() throws Exception {
+        // given
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        ColumnarExcelFile sequentialFile = new ColumnarExcelFile(columns(0, 10));
+        sequentialFile.addColumns(columns(10, 2_000));
+        ColumnarExcelFile parallelFile = new ColumnarExcelFile(columns(0, 10));
+        parallelFile.setRowPreparer(new ParallelRowPreparer(executor, 64, 8));
+
+        // when
+        try {
+            parallelFile.addColumns(columns(10, 2_000));
+        } finally {
+            executor.shutdown();
+        }
+        Sheet expected = render(sequentialFile);
+        Sheet actual = render(parallelFile);
+
+        // then
+        assertThat(actual.getLastRowNum()).isEqualTo(expected.getLastRowNum());
+        for (int rowIndex = 1; rowIndex <= 2_000; rowIndex++) {
+            assertThat(actual.getRow(rowIndex).getCell(0).getNumericCellValue()).isEqualTo(rowIndex - 1);
+            assertThat(actual.getRow(rowIndex).getCell(3).getNumericCellValue())
+                    .isEqualTo(expected.getRow(rowIndex).getCell(3).getNumericCellValue());
+        }
+        assertThat(actual.getRow(2_001).getCell(2).getNumericCellValue())
+                .isEqualTo(expected.getRow(2_001).getCell(2).getNumericCellValue());
+    }
+
+    @Test
+    public void footerRowsNearSheetLimitTest() {
+        // given
+        int maxBodyRows = SpreadsheetVersion.EXCEL2007.getMaxRows() - 1 - 1;
+        ColumnarExcelFile excelFile = new ColumnarExcelFile(columns(0, 10));
+
+        // when & then
+        assertThatThrownBy(() -> excelFile.addColumns(columns(10, maxBodyRows + 1)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("1 footer rows");
+        excelFile.addColumns(columns(10, maxBodyRows));
+        assertThatThrownBy(() -> excelFile.addColumns(columns(0, 1)))
+                .isInstanceOf(IllegalArgumentException.class);
+        excelFile.close();
+    }
+
+    @Test
+    public void longsOverExactDoubleTest() {
+        // given
+        long maxExactLong = 1L << 53;
+
+        // when
+        ExcelColumns columns = ExcelColumns.builder()
+                .longs("id", "Id", new long[]{maxExactLong, -maxExactLong})
+                .build();
+
+        // then
+        assertThat(columns.size()).isEqualTo(2);
+        assertThatThrownBy(() -> ExcelColumns.builder().longs("id", "Id", new long[]{1, maxExactLong + 1}))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("row 1 of column id");
+        assertThatThrownBy(() -> ExcelColumns.builder().longs("id", "Id", new long[]{Long.MIN_VALUE}))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void cancelColumnsOfConstructorTest() throws Exception {
+        // given
+        File directory = Files.createTempDirectory("excel-columnar").toFile();
+        ExcelCancellationToken token = new ExcelCancellationToken();
+        ExcelExportControl control = ExcelExportControl.builder()
+                .token(token)
+                .progressInterval(0, TimeUnit.MILLISECONDS)
+                .progressListener(progress -> {
+                    if (progress.getRowsDone() >= 2000) {
+                        token.cancel();
+                    }
+                })
+                .build();
+
+        // when & then
+        assertThatThrownBy(() -> new ColumnarExcelFile(columns(0, 10_000), new DefaultDataFormatDecider(),
+                ExcelTempStorage.directory(directory), control))
+                .isInstanceOf(ExcelExportCancelledException.class)
+                .hasMessageContaining("cancelled after 2000 rows");
+        assertThat(directory.list()).isEmpty();
+    }
+
+    @Test
+    public void allocationPerRowTest() throws Exception {
+        // given
+        new ColumnarExcelFile(columns(0, 1_500)).close();
+        new CompactOneSheetExcelFile<>(arrays(columns(0, 1_500)), schema).close();
+        ExcelColumns small = columns(0, 3_000);
+        ExcelColumns large = columns(0, 6_000);
+
+        // when
+        long compactBytesPerRow = (allocatedBytes(() -> new CompactOneSheetExcelFile<>(arrays(large), schema))
+                - allocatedBytes(() -> new CompactOneSheetExcelFile<>(arrays(small), schema))) / 3_000;
+        long columnarBytesPerRow = (allocatedBytes(() -> new ColumnarExcelFile(large))
+                - allocatedBytes(() -> new ColumnarExcelFile(small))) / 3_000;
+
+        // then
+        assertThat(columnarBytesPerRow).isLessThan(compactBytesPerRow / 3);
+    }
+
+    /**
+     * Object[] rows converted from columns, as rows of other engines are
+     */
+    private List<Object[]> arrays(ExcelColumns columns) {
+        List<Object[]> rows = new ArrayList<>(columns.size());
+        for (ColumnarRow row : columns.rows()) {
+            Object[] values = new Object[schema.size()];
+            columns.getSchema().getRowWriter().write(row, new CellValueWriter() {
+                @Override
+                public void writeNumber(int columnIndex, double value) {
+                    values[columnIndex] = columnIndex == 0 ? (Object) (long) value
+                            : columnIndex == 2 ? (Object) (int) value : (Object) value;
+                }
+
+                @Override
+                public void writeValue(int columnIndex, Object value) {
+                    values[columnIndex] = value;
+                }
+            });
+            rows.add(values);
+        }
+        return rows;
+    }
+
+    /**
+     * Columns of rows from fromIndex to toIndex, the same values as Object[] rows of sameCellsAsCompactTest
+     */
+    private ExcelColumns columns(int fromIndex, int toIndex) {
+        int size = toIndex - fromIndex;
+        long[] ids = new long[size];
+        int[] regions = new int[size];
+        int[] counts = new int[size];
+        double[] amounts = new double[size];
+        for (int i = 0; i < size; i++) {
+            int row = fromIndex + i;
+            ids[i] = row;
+            regions[i] = row % 4 == 3 ? -1 : row % 4;
+            counts[i] = row * 3;
+            amounts[i] = row / 8.0;
+        }
+        return ExcelColumns.builder()
+                .longs("id", "Id", ids)
+                .strings("region", "Region", regions, REGIONS)
+                .ints("count", "Count", counts)
+                .doubles("amount", "Amount", amounts)
+                .aggregates(ExcelAggregate.SUM)
+                .build();
+    }
+
+    private long allocatedBytes(RenderTask task) {
+        com.sun.management.ThreadMXBean threadMXBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long before = threadMXBean.getThreadAllocatedBytes(threadId);
+        SXSSFExcelFile<?> excelFile = task.render();
+        long after = threadMXBean.getThreadAllocatedBytes(threadId);
+        excelFile.close();
+        return after - before;
+    }
+
+    private Sheet render(SXSSFExcelFile<?> excelFile) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        excelFile.write(outputStream);
+        return new XSSFWorkbook(new ByteArrayInputStream(outputStream.toByteArray())).getSheetAt(0);
+    }
+
+    @FunctionalInterface
+    private interface RenderTask {
+
+        SXSSFExcelFile<?> render();
+
+    }
+
+}
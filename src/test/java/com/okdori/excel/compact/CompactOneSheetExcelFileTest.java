@@ -0,0 +1,120 @@
+package com.okdori.excel.compact;
+
+import com.okdori.ExcelAggregate;
+import com.okdori.excel.SXSSFExcelFile;
+import com.okdori.excel.onesheet.OneSheetExcelFile;
+import com.okdori.resource.schema.ExcelSchema;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CompactOneSheetExcelFileTest {
+
+    private final ExcelSchema<Object[]> schema = ExcelSchema.builder()
+            .column("name", "User Name", String.class)
+            .column("age", "User Age", Integer.class)
+            .aggregates(ExcelAggregate.SUM)
+            .column("score", "Score", Double.class)
+            .forArrays();
+
+    @Test
+    public void sameCellsAsOneSheetTest() throws Exception {
+        // given
+        List<Object[]> rows = new ArrayList<>(Arrays.asList(
+                new Object[]{"<kim> & \"lee\"", 20, 1.5},
+                new Object[]{" 한글 \n", -3, 12345678.9},
+                new Object[]{"😀 emoji", 0, null},
+                new Object[]{null, 2_000_000, -0.25},
+                new Object[]{"nan", 1, Double.NaN},
+                new Object[]{"infinity", 2, Double.POSITIVE_INFINITY},
+                new Object[]{"negative infinity", 3, Double.NEGATIVE_INFINITY}));
+        rows.addAll(rows(1_050));
+
+        // when
+        Sheet expected = render(new OneSheetExcelFile<>(rows, schema));
+        Sheet actual = render(new CompactOneSheetExcelFile<>(rows, schema));
+
+        // then
+        assertThat(actual.getLastRowNum()).isEqualTo(expected.getLastRowNum());
+        for (int rowIndex = 0; rowIndex <= expected.getLastRowNum(); rowIndex++) {
+            Row expectedRow = expected.getRow(rowIndex);
+            Row actualRow = actual.getRow(rowIndex);
+            for (int columnIndex = 0; columnIndex < schema.size(); columnIndex++) {
+                Cell expectedCell = expectedRow.getCell(columnIndex);
+                Cell actualCell = actualRow.getCell(columnIndex);
+                assertThat(actualCell.getCellType()).isEqualTo(expectedCell.getCellType());
+                assertThat(actualCell.getCellStyle().getIndex()).isEqualTo(expectedCell.getCellStyle().getIndex());
+                if (expectedCell.getCellType() == CellType.NUMERIC) {
+                    assertThat(actualCell.getNumericCellValue()).isEqualTo(expectedCell.getNumericCellValue());
+                } else if (expectedCell.getCellType() == CellType.ERROR) {
+                    assertThat(actualCell.getErrorCellValue()).isEqualTo(expectedCell.getErrorCellValue());
+                } else {
+                    assertThat(actualCell.getStringCellValue()).isEqualTo(expectedCell.getStringCellValue());
+                }
+            }
+        }
+        assertThat(actual.getRow(1).getCell(0).getStringCellValue()).isEqualTo("<kim> & \"lee\"");
+        assertThat(actual.getRow(2).getCell(0).getStringCellValue()).isEqualTo(" 한글 \n");
+        assertThat(actual.getRow(5).getCell(2).getCellType()).isEqualTo(CellType.ERROR);
+        assertThat(actual.getRow(6).getCell(2).getCellType()).isEqualTo(CellType.ERROR);
+    }
+
+    @Test
+    public void allocationPerRowTest() throws Exception {
+        // given
+        List<Object[]> rows = rows(300);
+        render(new CompactOneSheetExcelFile<>(rows(1_500), schema));
+
+        // when
+        long sxssfBytesPerRow = allocatedBytes(() -> new OneSheetExcelFile<>(rows, schema)) / rows.size();
+        long compactBytesPerRow = allocatedBytes(() -> new CompactOneSheetExcelFile<>(rows, schema)) / rows.size();
+
+        // then
+        assertThat(compactBytesPerRow).isLessThan(sxssfBytesPerRow / 4);
+    }
+
+    private long allocatedBytes(RenderTask task) throws Exception {
+        com.sun.management.ThreadMXBean threadMXBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long before = threadMXBean.getThreadAllocatedBytes(threadId);
+        SXSSFExcelFile<Object[]> excelFile = task.render();
+        long after = threadMXBean.getThreadAllocatedBytes(threadId);
+        excelFile.close();
+        return after - before;
+    }
+
+    private Sheet render(SXSSFExcelFile<Object[]> excelFile) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        excelFile.write(outputStream);
+        return new XSSFWorkbook(new ByteArrayInputStream(outputStream.toByteArray())).getSheetAt(0);
+    }
+
+    private List<Object[]> rows(int size) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            rows.add(new Object[]{"name" + i, i, i / 8.0});
+        }
+        return rows;
+    }
+
+    @FunctionalInterface
+    private interface RenderTask {
+
+        SXSSFExcelFile<Object[]> render();
+
+    }
+
+}
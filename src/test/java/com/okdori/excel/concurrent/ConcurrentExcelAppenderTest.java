@@ -0,0 +1,208 @@
+package com.okdori.excel.concurrent;
+
+import com.okdori.excel.ExcelFile;
+import com.okdori.excel.multiplesheet.MultiSheetExcelFile;
+import com.okdori.excel.onesheet.OneSheetExcelFile;
+import com.okdori.resource.schema.ExcelSchema;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ConcurrentExcelAppenderTest {
+
+    private static final int PRODUCERS = 4;
+    private static final int ROWS_PER_PRODUCER = 1000;
+
+    @Test
+    public void producerBlocksTest() throws Exception {
+        // given
+        RecordingExcelFile excelFile = new RecordingExcelFile();
+        ConcurrentExcelAppender<Object[]> appender
+                = new ConcurrentExcelAppender<>(excelFile, AppendOrder.PRODUCER_BLOCKS, 50, 200);
+
+        // when
+        produce(appender);
+        appender.write(new ByteArrayOutputStream());
+
+        // then
+        List<Object[]> rows = excelFile.rows;
+        assertThat(rows).hasSize(PRODUCERS * ROWS_PER_PRODUCER);
+        assertThat(excelFile.maxConcurrentWriters.get()).isEqualTo(1);
+        for (int i = 0; i < rows.size(); i += 50) {
+            for (int j = 1; j < 50; j++) {
+                assertThat(rows.get(i + j)[0]).isEqualTo(rows.get(i)[0]);
+                assertThat((int) rows.get(i + j)[1]).isEqualTo((int) rows.get(i)[1] + j);
+            }
+        }
+        int[] lastSequences = {-1, -1, -1, -1};
+        for (Object[] row : rows) {
+            int producer = (int) row[0];
+            assertThat((int) row[1]).isGreaterThan(lastSequences[producer]);
+            lastSequences[producer] = (int) row[1];
+        }
+    }
+
+    @Test
+    public void arrivalOrderIntoExcelFileTest() throws Exception {
+        // given
+        ExcelSchema<Object[]> schema = ExcelSchema.builder()
+                .column("producer", "Producer", Integer.class)
+                .column("sequence", "Sequence", Integer.class)
+                .forArrays();
+        OneSheetExcelFile<Object[]> excelFile = new OneSheetExcelFile<>(new ArrayList<>(), schema);
+        ConcurrentExcelAppender<Object[]> appender = new ConcurrentExcelAppender<>(excelFile);
+
+        // when
+        produce(appender);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        appender.write(outputStream);
+
+        // then
+        Sheet sheet = new XSSFWorkbook(new ByteArrayInputStream(outputStream.toByteArray())).getSheetAt(0);
+        Set<String> cells = new HashSet<>();
+        for (int i = 1; i <= sheet.getLastRowNum(); i++) {
+            cells.add((int) sheet.getRow(i).getCell(0).getNumericCellValue() + ":"
+                    + (int) sheet.getRow(i).getCell(1).getNumericCellValue());
+        }
+        assertThat(sheet.getLastRowNum()).isEqualTo(PRODUCERS * ROWS_PER_PRODUCER);
+        assertThat(cells).hasSize(PRODUCERS * ROWS_PER_PRODUCER);
+        assertThat(appender.getPendingRows()).isZero();
+    }
+
+    @Test
+    public void sheetRolloverUnderContentionTest() throws Exception {
+        // given
+        ExcelSchema<Object[]> schema = ExcelSchema.builder()
+                .column("producer", "Producer", Integer.class)
+                .column("sequence", "Sequence", Integer.class)
+                .forArrays();
+        SmallSheetExcelFile excelFile = new SmallSheetExcelFile(schema);
+        ConcurrentExcelAppender<Object[]> appender
+                = new ConcurrentExcelAppender<>(excelFile, AppendOrder.PRODUCER_BLOCKS, 64, 500);
+
+        // when
+        produce(appender);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        appender.write(outputStream);
+
+        // then
+        Workbook workbook = new XSSFWorkbook(new ByteArrayInputStream(outputStream.toByteArray()));
+        int bodyRowsPerSheet = SmallSheetExcelFile.MAX_ROW_INDEX - 1;
+        int rowCount = 0;
+        int[] lastSequences = {-1, -1, -1, -1};
+        for (Sheet sheet : workbook) {
+            assertThat(sheet.getRow(0).getCell(0).getStringCellValue()).isEqualTo("Producer");
+            assertThat(sheet.getLastRowNum()).isLessThanOrEqualTo(bodyRowsPerSheet);
+            for (int i = 1; i <= sheet.getLastRowNum(); i++) {
+                int producer = (int) sheet.getRow(i).getCell(0).getNumericCellValue();
+                int sequence = (int) sheet.getRow(i).getCell(1).getNumericCellValue();
+                assertThat(sequence).isEqualTo(lastSequences[producer] + 1);
+                lastSequences[producer] = sequence;
+                rowCount++;
+            }
+        }
+        assertThat(workbook.getNumberOfSheets()).isEqualTo(PRODUCERS * ROWS_PER_PRODUCER / bodyRowsPerSheet + 1);
+        assertThat(workbook.getSheetAt(0).getLastRowNum()).isEqualTo(bodyRowsPerSheet);
+        assertThat(rowCount).isEqualTo(PRODUCERS * ROWS_PER_PRODUCER);
+        assertThat(lastSequences).containsOnly(ROWS_PER_PRODUCER - 1);
+    }
+
+    @Test
+    public void appendAfterWriteIsRejectedTest() throws Exception {
+        // given
+        RecordingExcelFile excelFile = new RecordingExcelFile();
+        ConcurrentExcelAppender<Object[]> appender = new ConcurrentExcelAppender<>(excelFile);
+        appender.append(Collections.singletonList(new Object[]{0, 0}));
+
+        // when
+        appender.write(new ByteArrayOutputStream());
+
+        // then
+        assertThatThrownBy(() -> appender.append(Collections.singletonList(new Object[]{0, 1})))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(excelFile.rows).hasSize(1);
+    }
+
+    private void produce(ConcurrentExcelAppender<Object[]> appender) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(PRODUCERS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int producer = 0; producer < PRODUCERS; producer++) {
+                int producerId = producer;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try (ConcurrentExcelAppender<Object[]>.Producer handle = appender.newProducer()) {
+                        for (int i = 0; i < ROWS_PER_PRODUCER; i++) {
+                            handle.append(new Object[]{producerId, i});
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Rolls over to next sheet after 1500 body rows, instead of max rows of Excel 2007
+     */
+    private static class SmallSheetExcelFile extends MultiSheetExcelFile<Object[]> {
+        private static final int MAX_ROW_INDEX = 1501;
+
+        SmallSheetExcelFile(ExcelSchema<Object[]> schema) {
+            super(new ArrayList<>(), schema);
+        }
+
+        @Override
+        protected int getMaxRowIndexPerSheet() {
+            return MAX_ROW_INDEX;
+        }
+    }
+
+    private static class RecordingExcelFile implements ExcelFile<Object[]> {
+        private final List<Object[]> rows = new ArrayList<>();
+        private final AtomicInteger writers = new AtomicInteger();
+        private final AtomicInteger maxConcurrentWriters = new AtomicInteger();
+
+        @Override
+        public void addRows(List<Object[]> data) {
+            maxConcurrentWriters.accumulateAndGet(writers.incrementAndGet(), Math::max);
+            rows.addAll(data);
+            Thread.yield();
+            writers.decrementAndGet();
+        }
+
+        @Override
+        public void write(OutputStream stream) {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+}
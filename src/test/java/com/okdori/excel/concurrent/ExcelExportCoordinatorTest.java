@@ -0,0 +1,103 @@
+package com.okdori.excel.concurrent;
+
+import com.okdori.excel.estimate.ExportMemoryEstimator;
+import com.okdori.resource.schema.ExcelSchema;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ExcelExportCoordinatorTest {
+
+    private final ExcelSchema<Object[]> schema = ExcelSchema.builder()
+            .column("name", "Name", String.class)
+            .column("age", "Age", Integer.class)
+            .forArrays();
+
+    @Test
+    public void admissionTest() throws Exception {
+        // given
+        List<Object[]> data = rows(100);
+        long fixedBytes = ExportMemoryEstimator.estimateFixedBytes(schema, data);
+        long windowRowBytes = ExportMemoryEstimator.estimateWindowRowBytes(schema, data);
+        ExcelExportCoordinator coordinator = new ExcelExportCoordinator(fixedBytes * 2 + windowRowBytes * 150);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            // when
+            ExcelExportCoordinator.Admission first = coordinator.admit(schema, data, 100);
+            ExcelExportCoordinator.Admission second = coordinator.admit(schema, data, 100);
+            Future<ExcelExportCoordinator.Admission> third = executor.submit(() -> coordinator.admit(schema, data, 100));
+            while (coordinator.getQueueDepth() == 0) {
+                Thread.sleep(1);
+            }
+
+            // then
+            assertThat(first.getWindowSize()).isEqualTo(100);
+            assertThat(second.getWindowSize()).isEqualTo(50);
+            assertThat(coordinator.getInFlightCount()).isEqualTo(2);
+            assertThat(third.isDone()).isFalse();
+
+            first.close();
+            assertThat(third.get(10, TimeUnit.SECONDS).getWindowSize()).isEqualTo(100);
+            assertThat(coordinator.getQueueDepth()).isZero();
+
+            second.close();
+            third.get().close();
+            assertThat(coordinator.getInFlightCount()).isZero();
+            assertThat(coordinator.getReservedBytes()).isZero();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void sharedExporterTest() throws Exception {
+        // given
+        List<Object[]> data = rows(500);
+        ExcelExporter exporter = new ExcelExporter(new ExcelExportCoordinator(
+                ExportMemoryEstimator.estimateBytes(schema, data, 100) * 2));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+            // when
+            List<Future<byte[]>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                    exporter.export(data, schema, outputStream);
+                    return outputStream.toByteArray();
+                }));
+            }
+
+            // then
+            for (Future<byte[]> future : futures) {
+                Sheet sheet = new XSSFWorkbook(new ByteArrayInputStream(future.get())).getSheetAt(0);
+                assertThat(sheet.getLastRowNum()).isEqualTo(500);
+                assertThat(sheet.getRow(500).getCell(0).getStringCellValue()).isEqualTo("name499");
+            }
+            assertThat(exporter.getCoordinator().getInFlightCount()).isZero();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<Object[]> rows(int size) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            rows.add(new Object[]{"name" + i, i});
+        }
+        return rows;
+    }
+
+}
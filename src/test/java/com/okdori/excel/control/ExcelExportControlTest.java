@@ -0,0 +1,157 @@
+package com.okdori.excel.control;
+
+import com.okdori.excel.onesheet.OneSheetExcelFile;
+import com.okdori.excel.storage.ExcelTempStorage;
+import com.okdori.exception.ExcelExportCancelledException;
+import com.okdori.resource.DefaultDataFormatDecider;
+import com.okdori.resource.schema.ExcelSchema;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ExcelExportControlTest {
+
+    private final ExcelSchema<Object[]> schema = ExcelSchema.builder()
+            .column("name", "User Name", String.class)
+            .column("age", "User Age", Integer.class)
+            .forArrays();
+
+    @Test
+    public void cancelTest() throws Exception {
+        // given
+        File directory = Files.createTempDirectory("excel-control").toFile();
+        ExcelCancellationToken token = new ExcelCancellationToken();
+        List<Long> reportedRows = new ArrayList<>();
+        ExcelExportControl control = ExcelExportControl.builder()
+                .token(token)
+                .progressInterval(0, TimeUnit.MILLISECONDS)
+                .progressListener(progress -> {
+                    reportedRows.add(progress.getRowsDone());
+                    if (progress.getRowsDone() >= 3000) {
+                        token.cancel();
+                    }
+                })
+                .build();
+        OneSheetExcelFile<Object[]> excelFile = new OneSheetExcelFile<>(Collections.emptyList(), schema,
+                new DefaultDataFormatDecider(), ExcelTempStorage.directory(directory));
+        excelFile.setExportControl(control);
+
+        // when & then
+        assertThatThrownBy(() -> excelFile.addRows(rows(10000)))
+                .isInstanceOf(ExcelExportCancelledException.class)
+                .hasMessageContaining("cancelled after 3000 rows");
+        assertThat(reportedRows).containsExactly(1000L, 2000L, 3000L);
+        assertThat(directory.list()).isEmpty();
+    }
+
+    @Test
+    public void cancelRowsOfConstructorTest() throws Exception {
+        // given
+        File directory = Files.createTempDirectory("excel-control").toFile();
+        ExcelCancellationToken token = new ExcelCancellationToken();
+        List<Long> reportedRows = new ArrayList<>();
+        ExcelExportControl control = ExcelExportControl.builder()
+                .token(token)
+                .estimatedTotalRows(10000)
+                .progressInterval(0, TimeUnit.MILLISECONDS)
+                .progressListener(progress -> {
+                    reportedRows.add(progress.getRowsDone());
+                    if (progress.getRowsDone() >= 2000) {
+                        token.cancel();
+                    }
+                })
+                .build();
+
+        // when & then
+        assertThatThrownBy(() -> new OneSheetExcelFile<>(rows(10000), schema, new DefaultDataFormatDecider(),
+                ExcelTempStorage.directory(directory), SXSSFWorkbook.DEFAULT_WINDOW_SIZE, control))
+                .isInstanceOf(ExcelExportCancelledException.class)
+                .hasMessageContaining("cancelled after 2000 rows");
+        assertThat(reportedRows).containsExactly(1000L, 2000L);
+        assertThat(directory.list()).isEmpty();
+    }
+
+    @Test
+    public void deadlineTest() throws Exception {
+        // given
+        ExcelExportControl control = ExcelExportControl.builder()
+                .deadline(System.currentTimeMillis() - 1)
+                .build();
+        OneSheetExcelFile<Object[]> excelFile = new OneSheetExcelFile<>(Collections.emptyList(), schema,
+                new DefaultDataFormatDecider(), ExcelTempStorage.memory());
+        excelFile.setExportControl(control);
+
+        // when & then
+        assertThatThrownBy(() -> excelFile.addRows(rows(10)))
+                .isInstanceOf(ExcelExportCancelledException.class)
+                .hasMessageContaining("deadline");
+        assertThat(control.getRowsDone()).isZero();
+    }
+
+    @Test
+    public void progressTest() throws Exception {
+        // given
+        List<ExcelProgress> reports = new ArrayList<>();
+        ExcelExportControl control = ExcelExportControl.builder()
+                .estimatedTotalRows(5000)
+                .progressInterval(1, TimeUnit.HOURS)
+                .progressListener(reports::add)
+                .build();
+        OneSheetExcelFile<Object[]> excelFile = new OneSheetExcelFile<>(Collections.emptyList(), schema,
+                new DefaultDataFormatDecider(), ExcelTempStorage.memory());
+        excelFile.setExportControl(control);
+
+        // when
+        excelFile.addRows(rows(5000));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        excelFile.write(outputStream);
+
+        // then
+        assertThat(reports).hasSize(1);
+        ExcelProgress progress = reports.get(0);
+        assertThat(progress.getRowsDone()).isEqualTo(5000);
+        assertThat(progress.getEstimatedTotalRows()).isEqualTo(5000);
+        assertThat(progress.getBytesWritten()).isEqualTo(outputStream.size());
+    }
+
+    @Test
+    public void listenerIsCalledWithoutLockTest() throws Exception {
+        // given
+        List<Boolean> locked = new ArrayList<>();
+        ExcelExportControl[] control = new ExcelExportControl[1];
+        control[0] = ExcelExportControl.builder()
+                .progressInterval(0, TimeUnit.MILLISECONDS)
+                .progressListener(progress -> locked.add(Thread.holdsLock(control[0])))
+                .build();
+        OneSheetExcelFile<Object[]> excelFile = new OneSheetExcelFile<>(Collections.emptyList(), schema,
+                new DefaultDataFormatDecider(), ExcelTempStorage.memory());
+        excelFile.setExportControl(control[0]);
+
+        // when
+        excelFile.addRows(rows(20000));
+        excelFile.write(new ByteArrayOutputStream());
+
+        // then
+        assertThat(locked.size()).isGreaterThan(20 + 1);
+        assertThat(locked).containsOnly(false);
+    }
+
+    private List<Object[]> rows(int count) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(new Object[]{"name" + i, i});
+        }
+        return rows;
+    }
+
+}
@@ -0,0 +1,224 @@
+package com.okdori.excel.encrypt;
+
+import com.okdori.excel.cache.ExcelRenderer;
+import com.okdori.excel.onesheet.OneSheetExcelFile;
+import com.okdori.excel.storage.ExcelTempStorage;
+import com.okdori.excel.storage.ExcelTempStorageMetrics;
+import com.okdori.exception.ExcelTempStorageQuotaException;
+import com.okdori.resource.DefaultDataFormatDecider;
+import com.okdori.resource.schema.ExcelSchema;
+import org.apache.poi.poifs.crypt.CryptoFunctions;
+import org.apache.poi.poifs.crypt.Decryptor;
+import org.apache.poi.poifs.crypt.EncryptionInfo;
+import org.apache.poi.poifs.crypt.EncryptionMode;
+import org.apache.poi.poifs.crypt.Encryptor;
+import org.apache.poi.poifs.crypt.HashAlgorithm;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ExcelEncryptorTest {
+
+    private static final String PASSWORD = "secret";
+
+    private final ExcelSchema<Object[]> schema = ExcelSchema.builder()
+            .column("name", "User Name", String.class)
+            .column("age", "User Age", Integer.class)
+            .forArrays();
+
+    @Test
+    public void encryptedWriteTest() throws Exception {
+        // given
+        File directory = Files.createTempDirectory("excel-encrypt").toFile();
+        OneSheetExcelFile<Object[]> excelFile = new OneSheetExcelFile<>(rows(100), schema,
+                new DefaultDataFormatDecider(), ExcelTempStorage.directory(directory));
+
+        // when
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        excelFile.write(outputStream, PASSWORD);
+
+        // then
+        POIFSFileSystem fileSystem = new POIFSFileSystem(new ByteArrayInputStream(outputStream.toByteArray()));
+        Decryptor decryptor = Decryptor.getInstance(new EncryptionInfo(fileSystem));
+        assertThat(decryptor.verifyPassword("wrong")).isFalse();
+        assertThat(decryptor.verifyPassword(PASSWORD)).isTrue();
+        Sheet sheet = new XSSFWorkbook(decryptor.getDataStream(fileSystem)).getSheetAt(0);
+        assertThat(sheet.getLastRowNum()).isEqualTo(100);
+        assertThat(sheet.getRow(100).getCell(0).getStringCellValue()).isEqualTo("name99");
+        assertThat(fileSystem.getRoot().hasEntry("\u0006DataSpaces")).isTrue();
+        assertThat(directory.list()).isEmpty();
+    }
+
+    @Test
+    public void integrityRoundTripTest() throws Exception {
+        // given
+        File directory = Files.createTempDirectory("excel-encrypt").toFile();
+        OneSheetExcelFile<Object[]> excelFile = new OneSheetExcelFile<>(rows(5000), schema,
+                new DefaultDataFormatDecider(), ExcelTempStorage.directory(directory));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // when
+        excelFile.write(outputStream, PASSWORD);
+
+        // then
+        POIFSFileSystem fileSystem = new POIFSFileSystem(new ByteArrayInputStream(outputStream.toByteArray()));
+        Decryptor decryptor = Decryptor.getInstance(new EncryptionInfo(fileSystem));
+        assertThat(decryptor.verifyPassword(PASSWORD)).isTrue();
+        byte[] encryptedPackage;
+        try (InputStream stream = fileSystem.createDocumentInputStream(Decryptor.DEFAULT_POIFS_ENTRY)) {
+            encryptedPackage = IOUtils.toByteArray(stream);
+        }
+        assertThat(integrityHmac(decryptor, encryptedPackage)).isEqualTo(decryptor.getIntegrityHmacValue());
+        encryptedPackage[encryptedPackage.length / 2] ^= 1;
+        assertThat(integrityHmac(decryptor, encryptedPackage)).isNotEqualTo(decryptor.getIntegrityHmacValue());
+
+        try (XSSFWorkbook workbook = new XSSFWorkbook(decryptor.getDataStream(fileSystem))) {
+            Sheet sheet = workbook.getSheetAt(0);
+            assertThat(sheet.getLastRowNum()).isEqualTo(5000);
+            assertThat(sheet.getRow(1).getCell(0).getStringCellValue()).isEqualTo("name0");
+            assertThat(sheet.getRow(5000).getCell(1).getNumericCellValue()).isEqualTo(4999);
+        }
+    }
+
+    @Test
+    public void encryptedPackageIsChargedToStorageTest() throws Exception {
+        // given
+        File directory = Files.createTempDirectory("excel-encrypt").toFile();
+        byte[] workbook = new byte[256 * 1024];
+        new Random(47).nextBytes(workbook);
+        long diskBytesInUse = ExcelTempStorageMetrics.getDiskBytesInUse();
+        long spilledBytes = ExcelTempStorageMetrics.getSpilledBytes();
+        long[] diskBytesWhileRendering = new long[1];
+        ExcelRenderer renderer = stream -> {
+            stream.write(workbook);
+            stream.flush();
+            diskBytesWhileRendering[0] = ExcelTempStorageMetrics.getDiskBytesInUse() - diskBytesInUse;
+            stream.close();
+        };
+
+        // when
+        new ExcelEncryptor(PASSWORD, ExcelTempStorage.directory(directory)).write(renderer, new ByteArrayOutputStream());
+
+        // then
+        assertThat(diskBytesWhileRendering[0]).isGreaterThanOrEqualTo(workbook.length - 4096);
+        assertThat(ExcelTempStorageMetrics.getSpilledBytes() - spilledBytes).isGreaterThanOrEqualTo(workbook.length);
+        assertThat(ExcelTempStorageMetrics.getDiskBytesInUse()).isEqualTo(diskBytesInUse);
+        assertThat(directory.list()).isEmpty();
+    }
+
+    @Test
+    public void encryptedPackageOverQuotaTest() throws Exception {
+        // given
+        File directory = Files.createTempDirectory("excel-encrypt").toFile();
+        ExcelTempStorage storage = ExcelTempStorage.directory(directory).withMaxBytesPerExport(64 * 1024);
+        byte[] workbook = new byte[256 * 1024];
+        ExcelRenderer renderer = stream -> {
+            stream.write(workbook);
+            stream.close();
+        };
+        long diskBytesInUse = ExcelTempStorageMetrics.getDiskBytesInUse();
+
+        // when & then
+        assertThatThrownBy(() -> new ExcelEncryptor(PASSWORD, storage).write(renderer, new ByteArrayOutputStream()))
+                .isInstanceOf(ExcelTempStorageQuotaException.class);
+        assertThat(ExcelTempStorageMetrics.getDiskBytesInUse()).isEqualTo(diskBytesInUse);
+        assertThat(directory.list()).isEmpty();
+    }
+
+    /**
+     * Compares allocation with writing the workbook to memory and encrypting it by POI afterwards
+     */
+    @Test
+    public void streamingVersusTwoPassTest() throws Exception {
+        // given
+        byte[] workbook = new byte[8 * 1024 * 1024];
+        new Random(47).nextBytes(workbook);
+        ExcelRenderer renderer = stream -> {
+            for (int i = 0; i < workbook.length; i += 8192) {
+                stream.write(workbook, i, Math.min(8192, workbook.length - i));
+            }
+            stream.close();
+        };
+        ExcelEncryptor encryptor = new ExcelEncryptor(PASSWORD);
+        ByteArrayOutputStream encrypted = new ByteArrayOutputStream(workbook.length + 1024 * 1024);
+        encryptor.write(renderer, new ByteArrayOutputStream());
+
+        // when
+        long streamingBytes = allocatedBytes(() -> encryptor.write(renderer, encrypted));
+        long twoPassBytes = allocatedBytes(() -> writeTwoPass(renderer, new ByteArrayOutputStream(workbook.length + 1024 * 1024)));
+
+        // then
+        assertThat(streamingBytes).isLessThan(twoPassBytes / 8);
+        POIFSFileSystem fileSystem = new POIFSFileSystem(new ByteArrayInputStream(encrypted.toByteArray()));
+        Decryptor decryptor = Decryptor.getInstance(new EncryptionInfo(fileSystem));
+        assertThat(decryptor.verifyPassword(PASSWORD)).isTrue();
+        try (InputStream stream = decryptor.getDataStream(fileSystem)) {
+            assertThat(IOUtils.toByteArray(stream)).isEqualTo(workbook);
+        }
+    }
+
+    /**
+     * HMAC of whole EncryptedPackage stream, including its size, as MS-OFFCRYPTO defines dataIntegrity
+     */
+    private static byte[] integrityHmac(Decryptor decryptor, byte[] encryptedPackage) throws Exception {
+        HashAlgorithm hashAlgorithm = decryptor.getEncryptionInfo().getHeader().getHashAlgorithm();
+        Mac mac = CryptoFunctions.getMac(hashAlgorithm);
+        mac.init(new SecretKeySpec(decryptor.getIntegrityHmacKey(), hashAlgorithm.jceHmacId));
+        return mac.doFinal(encryptedPackage);
+    }
+
+    private static void writeTwoPass(ExcelRenderer renderer, OutputStream stream) throws Exception {
+        ByteArrayOutputStream workbook = new ByteArrayOutputStream();
+        renderer.render(workbook);
+        try (POIFSFileSystem fileSystem = new POIFSFileSystem()) {
+            Encryptor encryptor = new EncryptionInfo(EncryptionMode.agile).getEncryptor();
+            encryptor.confirmPassword(PASSWORD);
+            try (OutputStream encrypted = encryptor.getDataStream(fileSystem)) {
+                workbook.writeTo(encrypted);
+            }
+            fileSystem.writeFilesystem(stream);
+        }
+    }
+
+    private static long allocatedBytes(Action action) throws Exception {
+        com.sun.management.ThreadMXBean threadMXBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long before = threadMXBean.getThreadAllocatedBytes(threadId);
+        action.run();
+        return threadMXBean.getThreadAllocatedBytes(threadId) - before;
+    }
+
+    private interface Action {
+
+        void run() throws Exception;
+
+    }
+
+    private List<Object[]> rows(int count) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(new Object[]{"name" + i, i});
+        }
+        return rows;
+    }
+
+}
@@ -0,0 +1,119 @@
+package com.okdori.excel.fragment;
+
+import com.okdori.dto.ExcelDto;
+import com.okdori.excel.ExcelGenerator;
+import com.okdori.excel.storage.ExcelTempStorage;
+import com.okdori.exception.ExcelTempStorageQuotaException;
+import org.apache.poi.xssf.usermodel.XSSFCell;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SheetFragmentTest {
+
+    @Test
+    public void fragmentSpliceTest() throws Exception {
+        // given
+        SheetFragment codes = SheetFragment.render(
+                ExcelGenerator.SheetInfo.create("Codes", rows(3), ExcelDto.class));
+        SheetFragment legend = SheetFragment.render(
+                ExcelGenerator.SheetInfo.create("Legend", rows(1), ExcelDto.class, Collections.singletonList("age")));
+        List<ExcelGenerator.SheetInfo<?>> sheetInfos = Collections.singletonList(
+                ExcelGenerator.SheetInfo.create("Data", rows(5), ExcelDto.class));
+
+        // when
+        XSSFWorkbook workbook = write(sheetInfos, Arrays.asList(codes, legend));
+
+        // then
+        assertThat(workbook.getNumberOfSheets()).isEqualTo(3);
+        XSSFSheet data = workbook.getSheetAt(0);
+        XSSFSheet codesSheet = workbook.getSheet("Codes");
+        XSSFSheet legendSheet = workbook.getSheet("Legend");
+        assertThat(workbook.getSheetIndex(codesSheet)).isEqualTo(1);
+        assertThat(codesSheet.isSelected()).isFalse();
+        assertThat(codesSheet.getLastRowNum()).isEqualTo(data.getLastRowNum() - 2);
+        assertThat(legendSheet.getRow(0).getCell(0).getStringCellValue()).isEqualTo("age");
+
+        XSSFCell dataHeader = data.getRow(0).getCell(0);
+        XSSFCell codesHeader = codesSheet.getRow(0).getCell(0);
+        assertThat(codesHeader.getStringCellValue()).isEqualTo("name");
+        assertThat(codesHeader.getCellStyle().getIndex()).isNotEqualTo(dataHeader.getCellStyle().getIndex());
+        assertSameStyle(codesHeader.getCellStyle(), dataHeader.getCellStyle());
+        assertSameStyle(legendSheet.getRow(0).getCell(0).getCellStyle(), data.getRow(0).getCell(1).getCellStyle());
+    }
+
+    @Test
+    public void compressedSheetReuseTest() throws Exception {
+        // given
+        SheetFragment codes = SheetFragment.render(
+                ExcelGenerator.SheetInfo.create("Codes", rows(3), ExcelDto.class));
+        int shift = 5;
+
+        // when
+        SheetFragment.CompressedSheet shifted = codes.getSheet(shift);
+
+        // then
+        assertThat(codes.getSheet(shift)).isSameAs(shifted);
+        assertThat(codes.getSheet(0).getBytes()).isNotEqualTo(shifted.getBytes());
+    }
+
+    @Test
+    public void duplicatedSheetNameTest() throws Exception {
+        // given
+        SheetFragment codes = SheetFragment.render(
+                ExcelGenerator.SheetInfo.create("Data", rows(3), ExcelDto.class));
+
+        // when & then
+        assertThatThrownBy(() -> write(Collections.singletonList(
+                ExcelGenerator.SheetInfo.create("Data", rows(1), ExcelDto.class)), Collections.singletonList(codes)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void workbookIsChargedToStorageTest() throws Exception {
+        // given
+        SheetFragment codes = SheetFragment.render(
+                ExcelGenerator.SheetInfo.create("Codes", rows(3), ExcelDto.class));
+        XSSFWorkbook workbook = new XSSFWorkbook();
+        workbook.createSheet("Data").createRow(0).createCell(0).setCellValue("data");
+        File directory = Files.createTempDirectory("excel-fragment").toFile();
+        ExcelTempStorage storage = ExcelTempStorage.directory(directory).withMaxBytesPerExport(1024);
+
+        // when & then
+        assertThatThrownBy(() -> SheetFragmentWriter.write(workbook, Collections.singletonList(codes), storage,
+                new ByteArrayOutputStream())).isInstanceOf(ExcelTempStorageQuotaException.class);
+        assertThat(directory.list()).isEmpty();
+    }
+
+    private void assertSameStyle(XSSFCellStyle actual, XSSFCellStyle expected) {
+        assertThat(actual.getFillForegroundColorColor().getARGBHex())
+                .isEqualTo(expected.getFillForegroundColorColor().getARGBHex());
+        assertThat(actual.getBorderTop()).isEqualTo(expected.getBorderTop());
+        assertThat(actual.getAlignment()).isEqualTo(expected.getAlignment());
+        assertThat(actual.getDataFormatString()).isEqualTo(expected.getDataFormatString());
+    }
+
+    private XSSFWorkbook write(List<ExcelGenerator.SheetInfo<?>> sheetInfos, List<SheetFragment> fragments)
+            throws Exception {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        new ExcelGenerator().writeMultiSheetExcel(sheetInfos, fragments, stream);
+        return new XSSFWorkbook(new ByteArrayInputStream(stream.toByteArray()));
+    }
+
+    private List<ExcelDto> rows(int count) {
+        return Collections.nCopies(count, new ExcelDto());
+    }
+
+}
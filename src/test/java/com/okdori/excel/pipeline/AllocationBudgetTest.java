@@ -0,0 +1,133 @@
+package com.okdori.excel.pipeline;
+
+import com.okdori.ExcelColumn;
+import com.okdori.dto.GeneratedDto;
+import com.okdori.resource.schema.ExcelSchema;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Bytes allocated per row by extract, convert and style stages, measured by allocation counter of thread.
+ * Sheet writer discards cells, so only allocations of the library are counted
+ */
+public class AllocationBudgetTest {
+
+    private static final int WARM_UP_ROWS = 50_000;
+    private static final int MEASURED_ROWS = 200_000;
+    private static final long BYTES_PER_ROW_BUDGET = 8;
+
+    @Test
+    public void reflectionRowAllocationTest() {
+        // given
+        List<Payment> rows = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            rows.add(new Payment("payment" + i, 1000 + i, 1000L * i, i * 1.5));
+        }
+
+        // when
+        long bytesPerRow = measureBytesPerRow(pipeline(ExcelSchema.of(Payment.class)), rows);
+
+        // then
+        assertThat(bytesPerRow).isLessThanOrEqualTo(BYTES_PER_ROW_BUDGET);
+    }
+
+    @Test
+    public void generatedRowAllocationTest() {
+        // given
+        List<GeneratedDto> rows = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            rows.add(new GeneratedDto("member" + i, 1000 + i));
+        }
+
+        // when
+        long bytesPerRow = measureBytesPerRow(pipeline(ExcelSchema.of(GeneratedDto.class)), rows);
+
+        // then
+        assertThat(bytesPerRow).isLessThanOrEqualTo(BYTES_PER_ROW_BUDGET);
+    }
+
+    private <T> ExcelPipeline<T> pipeline(ExcelSchema<T> schema) {
+        CellStyle[] styles = new CellStyle[schema.size()];
+        return ExcelPipeline.<T>builder()
+                .extractor(schema.getRowWriter())
+                .converter(CellValueConverter.typed())
+                .styler(columnIndex -> styles[columnIndex])
+                .writer(new DiscardingSheetRowWriter())
+                .build();
+    }
+
+    private <T> long measureBytesPerRow(ExcelPipeline<T> pipeline, List<T> rows) {
+        com.sun.management.ThreadMXBean threadMXBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        render(pipeline, rows, WARM_UP_ROWS);
+        long before = threadMXBean.getThreadAllocatedBytes(threadId);
+        render(pipeline, rows, MEASURED_ROWS);
+        long after = threadMXBean.getThreadAllocatedBytes(threadId);
+        return (after - before) / MEASURED_ROWS;
+    }
+
+    private <T> void render(ExcelPipeline<T> pipeline, List<T> rows, int rowCount) {
+        for (int i = 0; i < rowCount; i++) {
+            pipeline.render(rows.get(i % rows.size()), i);
+        }
+    }
+
+    private static class Payment {
+
+        @ExcelColumn(headerName = "Name")
+        private final String name;
+
+        @ExcelColumn(headerName = "Count")
+        private final int count;
+
+        @ExcelColumn(headerName = "Amount")
+        private final long amount;
+
+        @ExcelColumn(headerName = "Rate")
+        private final double rate;
+
+        private Payment(String name, int count, long amount, double rate) {
+            this.name = name;
+            this.count = count;
+            this.amount = amount;
+            this.rate = rate;
+        }
+
+    }
+
+    private static class DiscardingSheetRowWriter implements SheetRowWriter {
+
+        private double numberSum;
+        private int stringCount;
+
+        @Override
+        public void beginRow(int rowIndex) {
+
+        }
+
+        @Override
+        public void writeNumber(int columnIndex, double value, CellStyle style) {
+            numberSum += value;
+        }
+
+        @Override
+        public void writeString(int columnIndex, String value, CellStyle style) {
+            stringCount++;
+        }
+
+        @Override
+        public void endRow() {
+
+        }
+
+    }
+
+}
@@ -0,0 +1,180 @@
+package com.okdori.excel.pipeline;
+
+import com.okdori.ExcelColumn;
+import com.okdori.excel.ExcelGenerator;
+import com.okdori.resource.schema.ExcelSchema;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ExcelPipelineTest {
+
+    private final ExcelSchema<Object[]> schema = ExcelSchema.builder()
+            .column("name", "Name", String.class)
+            .column("age", "Age", Integer.class)
+            .forArrays();
+
+    @Test
+    public void replaceableStagesTest() {
+        // given
+        RecordingSheetRowWriter typedWriter = new RecordingSheetRowWriter();
+        RecordingSheetRowWriter textWriter = new RecordingSheetRowWriter();
+        List<Object[]> rows = Arrays.asList(new Object[]{"kim", 20}, new Object[]{null, 30});
+
+        // when
+        int nextRowIndex = pipeline(CellValueConverter.typed(), typedWriter).render(rows, 1);
+        pipeline(CellValueConverter.text(), textWriter).render(rows, 1);
+
+        // then
+        assertThat(nextRowIndex).isEqualTo(3);
+        assertThat(typedWriter.cells).containsExactly("1:0=s:kim", "1:1=n:20.0", "2:0=s:", "2:1=n:30.0");
+        assertThat(textWriter.cells).containsExactly("1:0=s:kim", "1:1=s:20", "2:0=s:", "2:1=s:30");
+    }
+
+    @Test
+    public void parallelRowPreparationTest() {
+        // given
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            rows.add(new Object[]{"name" + i, i % 7 == 0 ? null : i});
+        }
+        RecordingSheetRowWriter sequentialWriter = new RecordingSheetRowWriter();
+        RecordingSheetRowWriter parallelWriter = new RecordingSheetRowWriter();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        // when
+        int nextRowIndex;
+        try {
+            pipeline(CellValueConverter.typed(), sequentialWriter).render(rows, 1);
+            nextRowIndex = new ParallelRowPreparer(executor, 100, 3)
+                    .render(pipeline(CellValueConverter.typed(), parallelWriter), rows, 1);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // then
+        assertThat(nextRowIndex).isEqualTo(2001);
+        assertThat(parallelWriter.cells).isEqualTo(sequentialWriter.cells);
+        assertThat(parallelWriter.threads).containsOnly(Thread.currentThread());
+    }
+
+    @Test
+    public void excelGeneratorPipelineTest() throws Exception {
+        // given
+        List<Member> members = Arrays.asList(new Member("kim", 20, new Address("seoul", "01234")),
+                new Member("lee", 30, null));
+
+        // when
+        ExcelGenerator generator = new ExcelGenerator();
+        Workbook workbook = generator.generateExcel(members, Member.class);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        workbook.write(outputStream);
+        Sheet sheet = new XSSFWorkbook(new ByteArrayInputStream(outputStream.toByteArray())).getSheetAt(0);
+
+        // then
+        Row first = sheet.getRow(2);
+        Row second = sheet.getRow(3);
+        assertThat(sheet.getRow(1).getCell(2).getStringCellValue()).isEqualTo("city");
+        assertThat(first.getCell(0).getStringCellValue()).isEqualTo("kim");
+        assertThat(first.getCell(1).getStringCellValue()).isEqualTo("20");
+        assertThat(first.getCell(2).getStringCellValue()).isEqualTo("seoul");
+        assertThat(first.getCell(3).getStringCellValue()).isEqualTo("01234");
+        assertThat(second.getCell(2).getStringCellValue()).isEmpty();
+        assertThat(second.getCell(3).getStringCellValue()).isEmpty();
+    }
+
+    @Test
+    public void excelGeneratorUnknownColumnTest() {
+        // given
+        List<Member> members = Collections.singletonList(new Member("kim", 20, null));
+
+        // when & then
+        assertThatThrownBy(() -> new ExcelGenerator().generateExcel(members, Member.class,
+                Arrays.asList("age", "nickname", "email")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("[nickname, email]");
+    }
+
+    private ExcelPipeline<Object[]> pipeline(CellValueConverter converter, SheetRowWriter writer) {
+        return ExcelPipeline.<Object[]>builder()
+                .extractor(schema.getRowWriter())
+                .converter(converter)
+                .styler(columnIndex -> null)
+                .writer(writer)
+                .build();
+    }
+
+    private static class RecordingSheetRowWriter implements SheetRowWriter {
+        private final List<String> cells = new ArrayList<>();
+        private final Set<Thread> threads = new HashSet<>();
+        private int rowIndex;
+
+        @Override
+        public void beginRow(int rowIndex) {
+            this.rowIndex = rowIndex;
+            threads.add(Thread.currentThread());
+        }
+
+        @Override
+        public void writeNumber(int columnIndex, double value, CellStyle style) {
+            cells.add(rowIndex + ":" + columnIndex + "=n:" + value);
+        }
+
+        @Override
+        public void writeString(int columnIndex, String value, CellStyle style) {
+            cells.add(rowIndex + ":" + columnIndex + "=s:" + value);
+        }
+
+        @Override
+        public void endRow() {
+        }
+    }
+
+    public static class Member {
+        @ExcelColumn(headerName = "name")
+        private String name;
+
+        @ExcelColumn(headerName = "age")
+        private int age;
+
+        @ExcelColumn(headerName = "address")
+        private Address address;
+
+        Member(String name, int age, Address address) {
+            this.name = name;
+            this.age = age;
+            this.address = address;
+        }
+    }
+
+    public static class Address {
+        @ExcelColumn(headerName = "city")
+        private String city;
+
+        @ExcelColumn(headerName = "zipCode")
+        private String zipCode;
+
+        Address(String city, String zipCode) {
+            this.city = city;
+            this.zipCode = zipCode;
+        }
+    }
+
+}
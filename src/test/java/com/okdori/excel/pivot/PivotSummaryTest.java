@@ -0,0 +1,149 @@
+package com.okdori.excel.pivot;
+
+import com.okdori.ExcelColumn;
+import com.okdori.ExcelPivotSummary;
+import com.okdori.excel.onesheet.OneSheetExcelFile;
+import com.okdori.resource.DefaultDataFormatDecider;
+import com.okdori.resource.ExcelRenderResource;
+import com.okdori.resource.ExcelRenderResourceFactory;
+import com.okdori.resource.schema.ExcelSchema;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class PivotSummaryTest {
+
+    @Test
+    public void pivotSummarySheetTest() throws Exception {
+        // given
+        List<Sale> sales = Arrays.asList(
+                new Sale("sales", 2024, 10.0),
+                new Sale("dev", 2023, 5.0),
+                new Sale("sales", 2023, 2.5),
+                new Sale("sales", 2024, 1.5),
+                new Sale("dev", 2023, null));
+
+        // when
+        XSSFWorkbook workbook = render(sales);
+
+        // then
+        Sheet summary = workbook.getSheet("By Year");
+        Row header = summary.getRow(0);
+        assertThat(header.getCell(0).getStringCellValue()).isEqualTo("Department");
+        assertThat(header.getCell(1).getStringCellValue()).isEqualTo("2023");
+        assertThat(header.getCell(2).getStringCellValue()).isEqualTo("2024");
+        assertThat(header.getCell(3).getStringCellValue()).isEqualTo("Total");
+
+        Row dev = summary.getRow(1);
+        assertThat(dev.getCell(0).getStringCellValue()).isEqualTo("dev");
+        assertThat(dev.getCell(1).getNumericCellValue()).isEqualTo(5.0);
+        assertThat(dev.getCell(2).getStringCellValue()).isEmpty();
+        assertThat(dev.getCell(3).getNumericCellValue()).isEqualTo(5.0);
+
+        Row salesRow = summary.getRow(2);
+        assertThat(salesRow.getCell(1).getNumericCellValue()).isEqualTo(2.5);
+        assertThat(salesRow.getCell(2).getNumericCellValue()).isEqualTo(11.5);
+
+        Row total = summary.getRow(3);
+        assertThat(total.getCell(0).getStringCellValue()).isEqualTo("Total");
+        assertThat(total.getCell(1).getNumericCellValue()).isEqualTo(7.5);
+        assertThat(total.getCell(3).getNumericCellValue()).isEqualTo(19.0);
+    }
+
+    @Test
+    public void manyKeysTest() throws Exception {
+        // given
+        List<Sale> sales = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            sales.add(new Sale("department" + (i % 100), 2000 + i % 30, 1.0));
+        }
+
+        // when
+        Sheet summary = render(sales).getSheet("By Year");
+
+        // then
+        assertThat(summary.getLastRowNum()).isEqualTo(101);
+        assertThat(summary.getRow(0).getLastCellNum()).isEqualTo((short) 32);
+        assertThat(summary.getRow(101).getCell(31).getNumericCellValue()).isEqualTo(400.0);
+    }
+
+    @Test
+    public void negativeZeroKeyTest() {
+        // given
+        PivotKeyDictionary dictionary = new PivotKeyDictionary();
+
+        // when
+        int zero = dictionary.idOf(0.0);
+        int negativeZero = dictionary.idOf(-0.0);
+
+        // then
+        assertThat(negativeZero).isEqualTo(zero);
+        assertThat(dictionary.size()).isEqualTo(1);
+        assertThat(dictionary.getLabel(zero)).isEqualTo("0");
+    }
+
+    @Test
+    public void tooManyRowKeysTest() {
+        // given
+        ExcelSchema<Object[]> schema = ExcelSchema.builder()
+                .column("department", "Department", Integer.class)
+                .column("year", "Year", Integer.class)
+                .column("amount", "Amount", Double.class)
+                .forArrays();
+        PivotSummary summary = new PivotSummary(schema, "By Year", "department", "year", "amount");
+        int rowKeyCount = SpreadsheetVersion.EXCEL2007.getMaxRows() - 1;
+        for (int i = 0; i < rowKeyCount; i++) {
+            summary.onNumber(0, i);
+            summary.onNumber(1, 2024);
+            summary.onNumber(2, 1.0);
+            summary.afterRow();
+        }
+        SXSSFWorkbook workbook = new SXSSFWorkbook();
+        ExcelRenderResource resource = ExcelRenderResourceFactory.prepareRenderResource(schema, workbook,
+                new DefaultDataFormatDecider());
+
+        // when & then
+        assertThatThrownBy(() -> summary.render(workbook, resource))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining(rowKeyCount + " rows of department");
+        assertThat(workbook.getSheet("By Year")).isNull();
+        workbook.dispose();
+    }
+
+    private XSSFWorkbook render(List<Sale> sales) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        new OneSheetExcelFile<>(sales, Sale.class).write(outputStream);
+        return new XSSFWorkbook(new ByteArrayInputStream(outputStream.toByteArray()));
+    }
+
+    @ExcelPivotSummary(sheetName = "By Year", rows = "department", columns = "year", measure = "amount")
+    public static class Sale {
+        @ExcelColumn(headerName = "Department")
+        private String department;
+
+        @ExcelColumn(headerName = "Year")
+        private int year;
+
+        @ExcelColumn(headerName = "Amount")
+        private Double amount;
+
+        Sale(String department, int year, Double amount) {
+            this.department = department;
+            this.year = year;
+            this.amount = amount;
+        }
+    }
+
+}
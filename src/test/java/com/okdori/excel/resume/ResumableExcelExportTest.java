@@ -0,0 +1,112 @@
+package com.okdori.excel.resume;
+
+import com.okdori.exception.ExcelCheckpointException;
+import com.okdori.resource.schema.ExcelSchema;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ResumableExcelExportTest {
+
+    private static final int TOTAL_ROWS = 25;
+
+    private final ExcelSchema<Object[]> schema = ExcelSchema.builder()
+            .column("name", "User Name", String.class)
+            .column("age", "User Age", Integer.class)
+            .forArrays();
+
+    @Test
+    public void resumedExportTest() throws Exception {
+        // given
+        File checkpointDirectory = Files.createTempDirectory("excel-checkpoint").toFile();
+        ExcelDataSource<Object[]> failingSource = failAfter(5);
+        assertThatThrownBy(() -> export(failingSource, checkpointDirectory))
+                .isInstanceOf(IllegalStateException.class);
+        List<String> fetchedCursors = new ArrayList<>();
+
+        // when
+        byte[] resumed = export((cursor, limit) -> {
+            fetchedCursors.add(cursor);
+            return rows(cursor, limit);
+        }, checkpointDirectory);
+        byte[] uninterrupted = export(this::rows, Files.createTempDirectory("excel-checkpoint").toFile());
+
+        // then
+        assertThat(fetchedCursors.get(0)).isEqualTo("8");
+        assertThat(resumed).isEqualTo(uninterrupted);
+        assertThat(checkpointDirectory.list()).isEmpty();
+
+        Workbook workbook = new XSSFWorkbook(new ByteArrayInputStream(resumed));
+        assertThat(workbook.getNumberOfSheets()).isEqualTo(4);
+        assertThat(workbook.getSheetAt(1).getRow(0).getCell(0).getStringCellValue()).isEqualTo("User Name");
+        assertThat(workbook.getSheetAt(1).getRow(1).getCell(0).getStringCellValue()).isEqualTo("name8");
+        assertThat(workbook.getSheetAt(3).getLastRowNum()).isEqualTo(1);
+        assertThat(workbook.getSheetAt(3).getRow(1).getCell(1).getNumericCellValue()).isEqualTo(24);
+    }
+
+    @Test
+    public void checkpointOfAnotherExportTest() throws Exception {
+        // given
+        File checkpointDirectory = Files.createTempDirectory("excel-checkpoint").toFile();
+        assertThatThrownBy(() -> export(failAfter(5), checkpointDirectory, schema, "users-1"))
+                .isInstanceOf(IllegalStateException.class);
+        ExcelSchema<Object[]> retypedSchema = ExcelSchema.builder()
+                .column("name", "User Name", String.class)
+                .column("age", "User Age", Long.class)
+                .forArrays();
+
+        // when & then
+        assertThatThrownBy(() -> export(this::rows, checkpointDirectory, schema, "users-2"))
+                .isInstanceOf(ExcelCheckpointException.class);
+        assertThatThrownBy(() -> export(this::rows, checkpointDirectory, retypedSchema, "users-1"))
+                .isInstanceOf(ExcelCheckpointException.class);
+        assertThat(export(this::rows, checkpointDirectory, schema, "users-1"))
+                .isEqualTo(export(this::rows, Files.createTempDirectory("excel-checkpoint").toFile()));
+    }
+
+    private byte[] export(ExcelDataSource<Object[]> dataSource, File checkpointDirectory) throws Exception {
+        return export(dataSource, checkpointDirectory, schema, "");
+    }
+
+    private byte[] export(ExcelDataSource<Object[]> dataSource, File checkpointDirectory,
+                          ExcelSchema<Object[]> schema, String sourceId) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        new ResumableExcelExport<>(schema, dataSource, checkpointDirectory)
+                .rowsPerSheet(8)
+                .fetchSize(3)
+                .sourceId(sourceId)
+                .write(outputStream);
+        return outputStream.toByteArray();
+    }
+
+    private ExcelDataSource<Object[]> failAfter(int fetches) {
+        int[] fetched = new int[1];
+        return (cursor, limit) -> {
+            if (fetched[0]++ == fetches) {
+                throw new IllegalStateException("evicted");
+            }
+            return rows(cursor, limit);
+        };
+    }
+
+    private ExcelPage<Object[]> rows(String cursor, int limit) {
+        int from = cursor == null ? 0 : Integer.parseInt(cursor);
+        int to = Math.min(TOTAL_ROWS, from + limit);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            rows.add(new Object[]{"name" + i, i});
+        }
+        return to == TOTAL_ROWS ? ExcelPage.last(rows) : ExcelPage.of(rows, String.valueOf(to));
+    }
+
+}
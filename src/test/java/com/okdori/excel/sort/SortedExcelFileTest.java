@@ -0,0 +1,128 @@
+package com.okdori.excel.sort;
+
+import com.okdori.excel.storage.ExcelTempStorage;
+import com.okdori.exception.ExcelTempStorageQuotaException;
+import com.okdori.resource.DefaultDataFormatDecider;
+import com.okdori.resource.schema.ExcelSchema;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SortedExcelFileTest {
+
+    private final ExcelSchema<Object[]> schema = ExcelSchema.builder()
+            .column("name", "Name", String.class)
+            .column("age", "Age", Integer.class)
+            .column("seq", "Sequence", Integer.class)
+            .forArrays();
+
+    @Test
+    public void externalSortTest() throws Exception {
+        // given
+        List<Object[]> rows = rows(1200);
+        SortedExcelFile<Object[]> excelFile = sortedExcelFile(16 * 1024);
+
+        // when
+        for (int i = 0; i < rows.size(); i += 300) {
+            excelFile.addRows(rows.subList(i, i + 300));
+        }
+        int runCount = excelFile.getRunCount();
+        List<Object[]> rendered = write(excelFile);
+
+        // then
+        assertThat(runCount).isGreaterThan(1);
+        assertThat(rendered).hasSize(rows.size());
+        assertSorted(rendered);
+    }
+
+    @Test
+    public void multiPassMergeTest() throws Exception {
+        // given
+        List<Object[]> rows = rows(SortedExcelFile.MAX_MERGE_WIDTH * 3);
+        SortedExcelFile<Object[]> excelFile = sortedExcelFile(1);
+
+        // when
+        excelFile.addRows(rows);
+        int runCount = excelFile.getRunCount();
+        List<Object[]> rendered = write(excelFile);
+
+        // then
+        assertThat(runCount).isEqualTo(rows.size());
+        assertThat(rendered).hasSize(rows.size());
+        assertSorted(rendered);
+    }
+
+    @Test
+    public void runsAreChargedToStorageTest() throws Exception {
+        // given
+        File directory = Files.createTempDirectory("excel-sort").toFile();
+        SortedExcelFile<Object[]> excelFile = new SortedExcelFile<>(schema,
+                Arrays.asList(ExcelSortKey.desc("age"), ExcelSortKey.asc("name")), new DefaultDataFormatDecider(),
+                ExcelTempStorage.directory(directory).withMaxBytesPerExport(1024), 16 * 1024);
+
+        // when & then
+        assertThatThrownBy(() -> excelFile.addRows(rows(1200)))
+                .isInstanceOf(ExcelTempStorageQuotaException.class);
+        excelFile.close();
+        assertThat(directory.list()).isEmpty();
+    }
+
+    private SortedExcelFile<Object[]> sortedExcelFile(long maxBytesInMemory) {
+        return new SortedExcelFile<>(schema, Arrays.asList(ExcelSortKey.desc("age"), ExcelSortKey.asc("name")),
+                new DefaultDataFormatDecider(), ExcelTempStorage.defaultStorage(), maxBytesInMemory);
+    }
+
+    /**
+     * Ages descending with empty ages last, names ascending, then order of rows added
+     */
+    private void assertSorted(List<Object[]> rendered) {
+        Comparator<Object[]> expected = Comparator
+                .comparing((Object[] row) -> (Double) row[1], Comparator.nullsLast(Comparator.<Double>reverseOrder()))
+                .thenComparing(row -> (String) row[0])
+                .thenComparing(row -> (Double) row[2]);
+        for (int i = 1; i < rendered.size(); i++) {
+            assertThat(expected.compare(rendered.get(i - 1), rendered.get(i))).isNegative();
+        }
+    }
+
+    private List<Object[]> rows(int size) {
+        Random random = new Random(7);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            rows.add(new Object[]{"name" + random.nextInt(20), i % 11 == 0 ? null : random.nextInt(50), i});
+        }
+        return rows;
+    }
+
+    private List<Object[]> write(SortedExcelFile<Object[]> excelFile) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        excelFile.write(outputStream);
+        Sheet sheet = new XSSFWorkbook(new ByteArrayInputStream(outputStream.toByteArray())).getSheetAt(0);
+        List<Object[]> rendered = new ArrayList<>();
+        for (int i = 1; i <= sheet.getLastRowNum(); i++) {
+            Row row = sheet.getRow(i);
+            Cell age = row.getCell(1);
+            rendered.add(new Object[]{row.getCell(0).getStringCellValue(),
+                    age.getCellType() == CellType.NUMERIC ? age.getNumericCellValue() : null,
+                    row.getCell(2).getNumericCellValue()});
+        }
+        return rendered;
+    }
+
+}
@@ -0,0 +1,222 @@
+package com.okdori.excel.split;
+
+import com.okdori.excel.control.ExcelCancellationToken;
+import com.okdori.excel.control.ExcelExportControl;
+import com.okdori.excel.storage.ExcelTempStorage;
+import com.okdori.exception.ExcelExportCancelledException;
+import com.okdori.exception.ExcelTempStorageQuotaException;
+import com.okdori.resource.schema.ExcelSchema;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SplitExcelFileTest {
+
+    private final ExcelSchema<Object[]> schema = ExcelSchema.builder()
+            .column("name", "User Name", String.class)
+            .column("age", "User Age", Integer.class)
+            .forArrays();
+
+    @Test
+    public void splitByRowCountTest() throws Exception {
+        // given
+        SplitExcelFile<Object[]> excelFile = new SplitExcelFile<>(rows(0, 5), schema,
+                new ExcelSplitOptions().maxRowsPerFile(2).parallelism(2).fileNamePrefix("users"));
+        excelFile.addRows(rows(5, 7));
+
+        // when
+        List<String> names = new ArrayList<>();
+        List<Sheet> sheets = new ArrayList<>();
+        readZip(excelFile, names, sheets);
+
+        // then
+        assertThat(names).containsExactly("users-001.xlsx", "users-002.xlsx", "users-003.xlsx", "users-004.xlsx");
+        assertThat(sheets.get(0).getRow(0).getCell(0).getStringCellValue()).isEqualTo("User Name");
+        assertThat(sheets.get(2).getRow(1).getCell(0).getStringCellValue()).isEqualTo("name4");
+        assertThat(sheets.get(2).getRow(2).getCell(0).getStringCellValue()).isEqualTo("name5");
+        assertThat(sheets.get(3).getLastRowNum()).isEqualTo(1);
+        assertThat(sheets.get(3).getRow(1).getCell(1).getNumericCellValue()).isEqualTo(6);
+    }
+
+    @Test
+    public void splitBySizeTest() throws Exception {
+        // given
+        SplitExcelFile<Object[]> excelFile = new SplitExcelFile<>(rows(0, 100), schema,
+                new ExcelSplitOptions().maxBytesPerFile(2_000));
+
+        // when
+        List<String> names = new ArrayList<>();
+        List<Sheet> sheets = new ArrayList<>();
+        readZip(excelFile, names, sheets);
+
+        // then
+        assertThat(excelFile.getRowsPerFile()).isBetween(2, 99);
+        assertThat(sheets).hasSize(excelFile.getFileCount());
+        assertThat(sheets.stream().mapToInt(Sheet::getLastRowNum).sum()).isEqualTo(100);
+    }
+
+    @Test
+    public void failedPartAbortsZipTest() {
+        // given
+        List<Object[]> rows = rows(0, 6);
+        rows.set(4, new Object[]{new FailingValue(), 4});
+        SplitExcelFile<Object[]> excelFile = new SplitExcelFile<>(rows, schema,
+                new ExcelSplitOptions().maxRowsPerFile(2));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // when & then
+        assertThatThrownBy(() -> excelFile.write(outputStream)).hasMessageContaining("value can not be rendered");
+        assertThat(outputStream.size()).isPositive();
+        assertThat(endsWithCentralDirectory(outputStream.toByteArray())).isFalse();
+    }
+
+    @Test
+    public void failedPartDeletesWrittenFilesTest() throws Exception {
+        // given
+        List<Object[]> rows = rows(0, 6);
+        rows.set(4, new Object[]{new FailingValue(), 4});
+        SplitExcelFile<Object[]> excelFile = new SplitExcelFile<>(rows, schema,
+                new ExcelSplitOptions().maxRowsPerFile(2).parallelism(3));
+        Path directory = Files.createTempDirectory("excel-split");
+
+        // when & then
+        try {
+            assertThatThrownBy(() -> excelFile.writeFiles(directory.toFile())).hasMessageContaining("value can not be rendered");
+            assertThat(directory.toFile().list()).isEmpty();
+        } finally {
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    @Test
+    public void cancelSplitTest() throws Exception {
+        // given
+        ExcelCancellationToken token = new ExcelCancellationToken();
+        ExcelExportControl control = ExcelExportControl.builder()
+                .token(token)
+                .progressInterval(0, TimeUnit.MILLISECONDS)
+                .progressListener(progress -> {
+                    if (progress.getRowsDone() >= 3000) {
+                        token.cancel();
+                    }
+                })
+                .build();
+        SplitExcelFile<Object[]> excelFile = new SplitExcelFile<>(rows(0, 10000), schema,
+                new ExcelSplitOptions().maxRowsPerFile(2000).parallelism(2).exportControl(control));
+        Path directory = Files.createTempDirectory("excel-split");
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // when & then
+        try {
+            assertThatThrownBy(() -> excelFile.write(outputStream)).isInstanceOf(ExcelExportCancelledException.class);
+            assertThat(endsWithCentralDirectory(outputStream.toByteArray())).isFalse();
+            assertThatThrownBy(() -> excelFile.writeFiles(directory.toFile()))
+                    .isInstanceOf(ExcelExportCancelledException.class);
+            assertThat(directory.toFile().list()).isEmpty();
+            assertThat(control.getRowsDone()).isLessThan(10000);
+        } finally {
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    @Test
+    public void parallelPartsAreChargedToStorageTest() throws Exception {
+        // given
+        Path directory = Files.createTempDirectory("excel-split");
+        ExcelTempStorage storage = ExcelTempStorage.directory(directory.toFile()).withMaxBytesPerExport(2048);
+        SplitExcelFile<Object[]> streamed = new SplitExcelFile<>(rows(0, 4), schema,
+                new ExcelSplitOptions().maxRowsPerFile(2).tempStorage(storage));
+        SplitExcelFile<Object[]> parallel = new SplitExcelFile<>(rows(0, 4), schema,
+                new ExcelSplitOptions().maxRowsPerFile(2).parallelism(2).tempStorage(storage));
+
+        // when & then
+        try {
+            streamed.write(new ByteArrayOutputStream());
+            assertThatThrownBy(() -> parallel.write(new ByteArrayOutputStream()))
+                    .isInstanceOf(ExcelTempStorageQuotaException.class);
+            assertThat(directory.toFile().list()).isEmpty();
+        } finally {
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    @Test
+    public void workbooksAreStoredWithoutCompressionTest() throws Exception {
+        // given
+        SplitExcelFile<Object[]> excelFile = new SplitExcelFile<>(rows(0, 1_000), schema,
+                new ExcelSplitOptions().maxRowsPerFile(500));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        excelFile.write(outputStream);
+
+        // when
+        long entryBytes = 0;
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            while (zip.getNextEntry() != null) {
+                entryBytes += readEntry(zip).available();
+            }
+        }
+
+        // then
+        assertThat(endsWithCentralDirectory(outputStream.toByteArray())).isTrue();
+        assertThat((long) outputStream.size()).isGreaterThan(entryBytes);
+    }
+
+    private boolean endsWithCentralDirectory(byte[] bytes) {
+        // end of central directory record without comment is the last 22 bytes
+        int index = bytes.length - 22;
+        return index >= 0 && bytes[index] == 'P' && bytes[index + 1] == 'K'
+                && bytes[index + 2] == 5 && bytes[index + 3] == 6;
+    }
+
+    private void readZip(SplitExcelFile<Object[]> excelFile, List<String> names, List<Sheet> sheets) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        excelFile.write(outputStream);
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                names.add(entry.getName());
+                sheets.add(new XSSFWorkbook(readEntry(zip)).getSheetAt(0));
+            }
+        }
+    }
+
+    private InputStream readEntry(ZipInputStream zip) throws Exception {
+        ByteArrayOutputStream entry = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = zip.read(buffer)) != -1) {
+            entry.write(buffer, 0, read);
+        }
+        return new ByteArrayInputStream(entry.toByteArray());
+    }
+
+    private static class FailingValue {
+        @Override
+        public String toString() {
+            throw new IllegalStateException("value can not be rendered");
+        }
+    }
+
+    private List<Object[]> rows(int from, int to) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            rows.add(new Object[]{"name" + i, i});
+        }
+        return rows;
+    }
+
+}
@@ -0,0 +1,98 @@
+package com.okdori.excel.storage;
+
+import com.okdori.excel.onesheet.OneSheetExcelFile;
+import com.okdori.exception.ExcelTempStorageQuotaException;
+import com.okdori.resource.DefaultDataFormatDecider;
+import com.okdori.resource.schema.ExcelSchema;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TempStorageWorkbookTest {
+
+    private final ExcelSchema<Object[]> schema = ExcelSchema.builder()
+            .column("name", "User Name", String.class)
+            .column("age", "User Age", Integer.class)
+            .forArrays();
+
+    @Test
+    public void memoryStorageTest() throws Exception {
+        // given
+        OneSheetExcelFile<Object[]> excelFile = new OneSheetExcelFile<>(rows(500), schema,
+                new DefaultDataFormatDecider(), ExcelTempStorage.memory());
+
+        // when
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        excelFile.write(outputStream);
+
+        // then
+        Sheet sheet = new XSSFWorkbook(new ByteArrayInputStream(outputStream.toByteArray())).getSheetAt(0);
+        assertThat(excelFile.getSpilledBytes()).isZero();
+        assertThat(sheet.getLastRowNum()).isEqualTo(500);
+        assertThat(sheet.getRow(1).getCell(0).getStringCellValue()).isEqualTo("name0");
+    }
+
+    @Test
+    public void autoStorageTest() throws Exception {
+        // given
+        File directory = Files.createTempDirectory("excel-storage").toFile();
+        ExcelTempStorageMetrics.resetPeakBytes();
+        long diskBytesInUse = ExcelTempStorageMetrics.getDiskBytesInUse();
+        long memoryBytesInUse = ExcelTempStorageMetrics.getMemoryBytesInUse();
+        OneSheetExcelFile<Object[]> excelFile = new OneSheetExcelFile<>(rows(500), schema,
+                new DefaultDataFormatDecider(), ExcelTempStorage.auto(directory, 1024));
+
+        // when
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        excelFile.write(outputStream);
+
+        // then
+        Sheet sheet = new XSSFWorkbook(new ByteArrayInputStream(outputStream.toByteArray())).getSheetAt(0);
+        assertThat(excelFile.getSpilledBytes()).isGreaterThan(1024);
+        assertThat(sheet.getRow(500).getCell(1).getNumericCellValue()).isEqualTo(499);
+        assertThat(directory.list()).isEmpty();
+        assertThat(ExcelTempStorageMetrics.getPeakDiskBytes() - diskBytesInUse).isEqualTo(excelFile.getSpilledBytes());
+        assertThat(ExcelTempStorageMetrics.getPeakMemoryBytes() - memoryBytesInUse).isLessThanOrEqualTo(1024);
+        assertThat(ExcelTempStorageMetrics.getDiskBytesInUse()).isEqualTo(diskBytesInUse);
+    }
+
+    @Test
+    public void quotaExceededTest() throws Exception {
+        // given
+        File directory = Files.createTempDirectory("excel-storage").toFile();
+        ExcelTempStorage storage = ExcelTempStorage.directory(directory).withMaxBytesPerExport(4096);
+        long diskBytesInUse = ExcelTempStorageMetrics.getDiskBytesInUse();
+
+        // when & then
+        assertThatThrownBy(() -> new OneSheetExcelFile<>(rows(500), schema, new DefaultDataFormatDecider(), storage))
+                .isInstanceOf(ExcelTempStorageQuotaException.class);
+
+        try (OneSheetExcelFile<Object[]> excelFile = new OneSheetExcelFile<>(Collections.emptyList(), schema,
+                new DefaultDataFormatDecider(), storage)) {
+            assertThatThrownBy(() -> excelFile.addRows(rows(500)))
+                    .isInstanceOf(ExcelTempStorageQuotaException.class);
+        }
+        assertThat(directory.list()).isEmpty();
+        assertThat(ExcelTempStorageMetrics.getDiskBytesInUse()).isEqualTo(diskBytesInUse);
+    }
+
+    private List<Object[]> rows(int size) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            rows.add(new Object[]{"name" + i, i});
+        }
+        return rows;
+    }
+
+}
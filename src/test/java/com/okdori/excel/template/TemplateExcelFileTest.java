@@ -0,0 +1,217 @@
+package com.okdori.excel.template;
+
+import com.okdori.excel.storage.ExcelTempStorage;
+import com.okdori.exception.ExcelTempStorageQuotaException;
+import com.okdori.exception.InvalidExcelTemplateException;
+import com.okdori.resource.schema.ExcelSchema;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.AreaReference;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.usermodel.XSSFClientAnchor;
+import org.apache.poi.xssf.usermodel.XSSFDrawing;
+import org.apache.poi.xssf.usermodel.XSSFName;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFShape;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TemplateExcelFileTest {
+
+    private final ExcelSchema<Object[]> schema = ExcelSchema.builder()
+            .column("name", "Name", String.class)
+            .column("age", "Age", Integer.class)
+            .forArrays();
+
+    @Test
+    public void templateFillingTest() throws Exception {
+        // given
+        File template = createTemplate();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // when
+        try {
+            TemplateExcelFile<Object[]> excelFile = new TemplateExcelFile<>(template, "Data", "${rows}", schema);
+            excelFile.addRows(Arrays.asList(new Object[]{"kim", 20}, new Object[]{" lee & park ", 30}));
+            excelFile.addRows(Arrays.asList(new Object[][]{new Object[]{"choi", null}}));
+            excelFile.write(outputStream);
+        } finally {
+            template.delete();
+        }
+
+        // then
+        XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(outputStream.toByteArray()));
+        assertThat(workbook.getSheet("Cover").getRow(0).getCell(0).getStringCellValue()).isEqualTo("Report");
+
+        XSSFSheet sheet = workbook.getSheet("Data");
+        assertThat(sheet.getRow(0).getCell(1).getStringCellValue()).isEqualTo("Name");
+        XSSFRow first = sheet.getRow(1);
+        assertThat(first.getCell(1).getStringCellValue()).isEqualTo("kim");
+        assertThat(first.getCell(2).getNumericCellValue()).isEqualTo(20);
+        assertThat(first.getCell(1).getCellStyle().getFont().getBold()).isTrue();
+        assertThat(sheet.getRow(2).getCell(1).getStringCellValue()).isEqualTo(" lee & park ");
+        assertThat(sheet.getRow(3).getCell(2).getStringCellValue()).isEmpty();
+
+        Row total = sheet.getRow(4);
+        assertThat(total.getCell(1).getStringCellValue()).isEqualTo("Total");
+        assertThat(total.getCell(2).getCellFormula()).isEqualTo("SUM(C2:C4)");
+        assertThat(sheet.getMergedRegion(0)).isEqualTo(CellRangeAddress.valueOf("B6:C6"));
+        assertThat(workbook.getCTWorkbook().getCalcPr().getFullCalcOnLoad()).isTrue();
+    }
+
+    @Test
+    public void templateReferencesTest() throws Exception {
+        // given
+        File template = createTemplate();
+        addReferences(template);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // when
+        try {
+            TemplateExcelFile<Object[]> excelFile = new TemplateExcelFile<>(template, "Data", "${rows}", schema);
+            excelFile.addRows(Arrays.asList(new Object[]{"kim", 20}, new Object[]{"lee", 30}, new Object[]{"park", 40}));
+            excelFile.write(outputStream);
+        } finally {
+            template.delete();
+        }
+
+        // then
+        XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(outputStream.toByteArray()));
+        XSSFSheet cover = workbook.getSheet("Cover");
+        assertThat(cover.getRow(1).getCell(0).getCellFormula()).isEqualTo("SUM(Data!C2:C4)");
+        assertThat(cover.getRow(2).getCell(0).getCellFormula()).isEqualTo("Data!B6&\" \"&Cover!A4");
+
+        XSSFSheet sheet = workbook.getSheet("Data");
+        assertThat(sheet.getRow(6).getCell(2).getCellFormula()).isEqualTo("C5*2+COUNTA($B$2:$B$4)");
+        XSSFName ages = workbook.getName("Ages");
+        assertThat(ages.getRefersToFormula()).isEqualTo("Data!$C$2:$C$4");
+        assertThat(sheet.getCTWorksheet().getAutoFilter().getRef()).isEqualTo("B1:C4");
+        assertThat(sheet.getTables().get(0).getCTTable().getRef()).isEqualTo("E1:F4");
+
+        XSSFDrawing drawing = sheet.getDrawingPatriarch();
+        assertThat(drawing.getShapes().stream()
+                .map(XSSFShape::getAnchor)
+                .map(anchor -> ((XSSFClientAnchor) anchor).getRow1())
+                .collect(Collectors.toList()))
+                .containsExactly(0, 5);
+    }
+
+    @Test
+    public void templateWithoutMarkerTest() throws Exception {
+        // given
+        File template = createTemplate();
+
+        // when & then
+        try {
+            assertThatThrownBy(() -> new TemplateExcelFile<>(template, "Data", "${unknown}", schema))
+                    .isInstanceOf(InvalidExcelTemplateException.class);
+            assertThatThrownBy(() -> new TemplateExcelFile<>(template, "Unknown", "${rows}", schema))
+                    .isInstanceOf(InvalidExcelTemplateException.class);
+        } finally {
+            template.delete();
+        }
+    }
+
+    @Test
+    public void rowsAreChargedToStorageTest() throws Exception {
+        // given
+        File template = createTemplate();
+        File directory = Files.createTempDirectory("excel-template").toFile();
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            rows.add(new Object[]{"name" + i, i});
+        }
+
+        // when & then
+        try {
+            TemplateExcelFile<Object[]> excelFile = new TemplateExcelFile<>(template, "Data", "${rows}", schema,
+                    ExcelTempStorage.directory(directory).withMaxBytesPerExport(4096));
+            assertThatThrownBy(() -> {
+                excelFile.addRows(rows);
+                excelFile.write(new ByteArrayOutputStream());
+            }).isInstanceOf(ExcelTempStorageQuotaException.class);
+            excelFile.close();
+            assertThat(directory.list()).isEmpty();
+        } finally {
+            template.delete();
+        }
+    }
+
+    private File createTemplate() throws Exception {
+        XSSFWorkbook workbook = new XSSFWorkbook();
+        workbook.createSheet("Cover").createRow(0).createCell(0).setCellValue("Report");
+
+        Sheet sheet = workbook.createSheet("Data");
+        Row header = sheet.createRow(0);
+        header.createCell(1).setCellValue("Name");
+        header.createCell(2).setCellValue("Age");
+
+        CellStyle bold = workbook.createCellStyle();
+        bold.setFont(workbook.createFont());
+        workbook.getFontAt(bold.getFontIndex()).setBold(true);
+        Row marker = sheet.createRow(1);
+        marker.createCell(1).setCellValue("${rows}");
+        marker.getCell(1).setCellStyle(bold);
+
+        Row total = sheet.createRow(2);
+        total.createCell(1).setCellValue("Total");
+        total.createCell(2).setCellFormula("SUM(C2:C2)");
+        sheet.createRow(3).createCell(1).setCellValue("Footnote");
+        sheet.addMergedRegion(CellRangeAddress.valueOf("B4:C4"));
+
+        File file = File.createTempFile("template", ".xlsx");
+        try (OutputStream stream = new FileOutputStream(file)) {
+            workbook.write(stream);
+        }
+        return file;
+    }
+
+    /**
+     * Adds formulas, defined name, auto filter, table and shapes referring rows of data sheet
+     */
+    private void addReferences(File template) throws Exception {
+        XSSFWorkbook workbook;
+        try (ByteArrayInputStream stream = new ByteArrayInputStream(Files.readAllBytes(template.toPath()))) {
+            workbook = new XSSFWorkbook(stream);
+        }
+        XSSFSheet cover = workbook.getSheet("Cover");
+        cover.createRow(1).createCell(0).setCellFormula("SUM(Data!C2:C2)");
+        cover.createRow(2).createCell(0).setCellFormula("Data!B4&\" \"&Cover!A4");
+
+        XSSFSheet sheet = workbook.getSheet("Data");
+        sheet.getRow(0).createCell(4).setCellValue("Key");
+        sheet.getRow(0).createCell(5).setCellValue("Value");
+        sheet.createRow(4).createCell(2).setCellFormula("C3*2+COUNTA($B$2:$B$2)");
+        XSSFName ages = workbook.createName();
+        ages.setNameName("Ages");
+        ages.setRefersToFormula("Data!$C$2:$C$2");
+        sheet.setAutoFilter(CellRangeAddress.valueOf("B1:C2"));
+        sheet.createTable(new AreaReference("E1:F2", SpreadsheetVersion.EXCEL2007));
+
+        XSSFDrawing drawing = sheet.createDrawingPatriarch();
+        drawing.createTextbox(new XSSFClientAnchor(0, 0, 0, 0, 7, 0, 9, 1));
+        drawing.createTextbox(new XSSFClientAnchor(0, 0, 0, 0, 7, 3, 9, 4));
+
+        try (OutputStream stream = new FileOutputStream(template)) {
+            workbook.write(stream);
+        }
+    }
+
+}
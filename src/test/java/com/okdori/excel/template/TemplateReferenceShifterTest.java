@@ -0,0 +1,31 @@
+package com.okdori.excel.template;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TemplateReferenceShifterTest {
+
+    // marker at row 3, replaced by 4 rows
+    private final TemplateReferenceShifter shifter = new TemplateReferenceShifter("Data Sheet", 3, 3);
+
+    @Test
+    public void shiftFormulaTest() {
+        assertThat(shifter.shiftFormula("SUM(C3:C3)+C4-$D$10", true)).isEqualTo("SUM(C3:C6)+C7-$D$13");
+        assertThat(shifter.shiftFormula("SUM(A1:B3)*A2", true)).isEqualTo("SUM(A1:B6)*A2");
+        assertThat(shifter.shiftFormula("SUM(4:5)+SUM(2:3)", true)).isEqualTo("SUM(7:8)+SUM(2:6)");
+        assertThat(shifter.shiftFormula("SUM('Data Sheet'!C3:C3)+Other!C4", false))
+                .isEqualTo("SUM('Data Sheet'!C3:C6)+Other!C4");
+        assertThat(shifter.shiftFormula("C4&\"C4\"&LOG10(C4)", true)).isEqualTo("C7&\"C4\"&LOG10(C7)");
+        assertThat(shifter.shiftFormula("C4+Table1[[#This Row],[C4]]", true)).isEqualTo("C7+Table1[[#This Row],[C4]]");
+    }
+
+    @Test
+    public void shiftRangesTest() {
+        assertThat(shifter.shiftRanges("A1:B3 D4", false)).isEqualTo("A1:B3 D7");
+        assertThat(shifter.shiftRanges("A1:B3 D4", true)).isEqualTo("A1:B6 D7");
+        assertThat(shifter.shiftRowIndex(2)).isEqualTo(2);
+        assertThat(shifter.shiftRowIndex(3)).isEqualTo(6);
+    }
+
+}
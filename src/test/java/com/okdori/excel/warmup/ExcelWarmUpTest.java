@@ -0,0 +1,66 @@
+package com.okdori.excel.warmup;
+
+import com.okdori.ExcelColumn;
+import com.okdori.ExcelColumnStyle;
+import com.okdori.dto.ExcelDto;
+import com.okdori.dto.GeneratedDto;
+import com.okdori.exception.InvalidExcelClassException;
+import com.okdori.style.DefaultExcelCellStyle;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ExcelWarmUpTest {
+
+    @Test
+    public void packageScanTest() throws Exception {
+        // given
+        ExcelWarmUp warmUp = ExcelWarmUp.scan("com.okdori.dto");
+
+        // when
+        warmUp.withSyntheticExport(100).run();
+
+        // then
+        assertThat(warmUp.getTypes()).contains(ExcelDto.class, GeneratedDto.class);
+        assertThat(warmUp.getTypes()).doesNotContainNull();
+    }
+
+    @Test
+    public void directoryWithPlusTest() throws Exception {
+        // given
+        File directory = Files.createTempDirectory("excel+warm up").toFile();
+
+        // when
+        File found = ExcelClassScanner.toFile(directory.toURI().toURL());
+
+        // then
+        assertThat(found).isEqualTo(directory);
+        assertThat(found).isDirectory();
+        directory.delete();
+    }
+
+    @Test
+    public void invalidAnnotationTest() {
+        // given
+        ExcelWarmUp warmUp = ExcelWarmUp.of(ExcelDto.class, InvalidStyleDto.class);
+
+        // when & then
+        assertThatThrownBy(warmUp::run)
+                .isInstanceOf(InvalidExcelClassException.class)
+                .hasMessageContaining(InvalidStyleDto.class.getName())
+                .hasMessageContaining("UNKNOWN");
+    }
+
+    private static class InvalidStyleDto {
+
+        @ExcelColumn(headerName = "name", bodyStyle = @ExcelColumnStyle(
+                excelCellStyleClass = DefaultExcelCellStyle.class, enumName = "UNKNOWN"))
+        private String name;
+
+    }
+
+}
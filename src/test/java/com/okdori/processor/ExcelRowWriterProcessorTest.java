@@ -0,0 +1,90 @@
+package com.okdori.processor;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ExcelRowWriterProcessorTest {
+
+    private static final String SERVICE_FILE = "META-INF/services/com.okdori.resource.schema.GeneratedRowWriter";
+
+    private Path directory;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("excel-processor");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Test
+    public void incrementalCompilationKeepsRegisteredWritersTest() throws IOException {
+        // given
+        Path output = Files.createDirectories(directory.resolve("classes"));
+        Path first = source("First", "public class First {\n"
+                + "    @ExcelColumn(headerName = \"name\")\n"
+                + "    public String name;\n"
+                + "}\n");
+        Path second = source("Second", "public class Second {\n"
+                + "    @ExcelColumn(headerName = \"age\")\n"
+                + "    private int age;\n"
+                + "    public int getAge() {\n"
+                + "        return age;\n"
+                + "    }\n"
+                + "}\n");
+
+        // when
+        boolean firstCompiled = compile(output, first);
+        boolean secondCompiled = compile(output, second);
+
+        // then
+        assertThat(firstCompiled).isTrue();
+        assertThat(secondCompiled).isTrue();
+        assertThat(output.resolve("sample/First_ExcelRowWriter.class")).exists();
+        assertThat(output.resolve("sample/Second_ExcelRowWriter.class")).exists();
+        assertThat(Files.readAllLines(output.resolve(SERVICE_FILE), StandardCharsets.UTF_8))
+                .containsExactly("sample.First_ExcelRowWriter", "sample.Second_ExcelRowWriter");
+    }
+
+    private Path source(String className, String body) throws IOException {
+        Path source = directory.resolve("src/sample/" + className + ".java");
+        Files.createDirectories(source.getParent());
+        Files.write(source, ("package sample;\n\nimport com.okdori.ExcelColumn;\n\n" + body)
+                .getBytes(StandardCharsets.UTF_8));
+        return source;
+    }
+
+    private boolean compile(Path output, Path source) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+            List<String> options = Arrays.asList(
+                    "-d", output.toString(),
+                    "-classpath", System.getProperty("java.class.path") + File.pathSeparator + output,
+                    "-processor", ExcelRowWriterProcessor.class.getName());
+            return compiler.getTask(null, fileManager, null, options, null,
+                    fileManager.getJavaFileObjectsFromFiles(Collections.singletonList(source.toFile()))).call();
+        }
+    }
+
+}
@@ -0,0 +1,73 @@
+package com.okdori.resource.schema;
+
+import com.okdori.excel.onesheet.OneSheetExcelFile;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ExcelSchemaBuilderTest {
+
+    @Test
+    public void arrayRowRenderingTest() throws Exception {
+        // given
+        ExcelSchema<Object[]> schema = ExcelSchema.builder()
+                .column("name", "User Name", String.class)
+                .column("age", "User Age", Integer.class)
+                .forArrays();
+        List<Object[]> rows = Arrays.asList(new Object[]{"kim", 20}, new Object[]{"lee", null});
+
+        // when
+        Sheet sheet = render(new OneSheetExcelFile<>(rows, schema.project(Arrays.asList("age", "name"))));
+
+        // then
+        assertThat(sheet.getRow(0).getCell(0).getStringCellValue()).isEqualTo("User Age");
+        assertThat(sheet.getRow(1).getCell(0).getNumericCellValue()).isEqualTo(20);
+        assertThat(sheet.getRow(1).getCell(1).getStringCellValue()).isEqualTo("kim");
+        assertThat(sheet.getRow(2).getCell(0).getStringCellValue()).isEmpty();
+    }
+
+    @Test
+    public void mapRowRenderingTest() throws Exception {
+        // given
+        ExcelSchema<Map<String, Object>> schema = ExcelSchema.builder()
+                .column("name", "User Name", String.class)
+                .column("age", "User Age", Integer.class)
+                .forMaps();
+        Map<String, Object> orderedRow = new LinkedHashMap<>();
+        orderedRow.put("name", "kim");
+        orderedRow.put("age", 20);
+        Map<String, Object> unorderedRow = new HashMap<>();
+        unorderedRow.put("age", 30);
+        unorderedRow.put("etc", "ignored");
+        unorderedRow.put("name", "lee");
+
+        // when
+        Sheet sheet = render(new OneSheetExcelFile<>(Arrays.asList(orderedRow, unorderedRow), schema));
+
+        // then
+        Row first = sheet.getRow(1);
+        Row second = sheet.getRow(2);
+        assertThat(first.getCell(0).getStringCellValue()).isEqualTo("kim");
+        assertThat(first.getCell(1).getNumericCellValue()).isEqualTo(20);
+        assertThat(second.getCell(0).getStringCellValue()).isEqualTo("lee");
+        assertThat(second.getCell(1).getNumericCellValue()).isEqualTo(30);
+    }
+
+    private Sheet render(OneSheetExcelFile<?> excelFile) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        excelFile.write(outputStream);
+        return new XSSFWorkbook(new ByteArrayInputStream(outputStream.toByteArray())).getSheetAt(0);
+    }
+
+}
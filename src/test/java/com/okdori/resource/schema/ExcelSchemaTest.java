@@ -0,0 +1,148 @@
+package com.okdori.resource.schema;
+
+import com.okdori.dto.ExcelDto;
+import com.okdori.resource.DefaultDataFormatDecider;
+import com.okdori.resource.ExcelRenderLocation;
+import com.okdori.resource.ExcelRenderResource;
+import com.okdori.resource.ExcelRenderResourceFactory;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ExcelSchemaTest {
+
+    @Test
+    public void projectionTest() {
+        // given
+        ExcelSchema<ExcelDto> schema = ExcelSchema.of(ExcelDto.class);
+
+        // when
+        ExcelSchema<ExcelDto> projection = schema.project(Arrays.asList("age", "name"));
+        ExcelRenderResource resource
+                = ExcelRenderResourceFactory.prepareRenderResource(schema.project(Collections.singletonList("age")),
+                new SXSSFWorkbook(), new DefaultDataFormatDecider());
+
+        // then
+        assertThat(ExcelSchema.of(ExcelDto.class)).isSameAs(schema);
+        assertThat(projection.getColumnNames()).isEqualTo(Arrays.asList("age", "name"));
+        assertThat(schema.project(Arrays.asList("age", "name"))).isSameAs(projection);
+        assertThat(schema.project(Arrays.asList("name", "age"))).isSameAs(schema);
+
+        assertThat(resource.getDataFieldNames()).isEqualTo(Collections.singletonList("age"));
+        assertThat(resource.getCellStyle("name", ExcelRenderLocation.BODY)).isNull();
+    }
+
+    @Test
+    public void projectionWithUnknownColumnTest() {
+        // given
+        ExcelSchema<ExcelDto> schema = ExcelSchema.of(ExcelDto.class);
+
+        // when & then
+        assertThatThrownBy(() -> schema.project(Collections.singletonList("hideColumn")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> schema.project(null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void projectionCacheIsBoundedTest() {
+        // given
+        ExcelSchemaBuilder builder = ExcelSchema.builder();
+        for (int i = 0; i < 10; i++) {
+            builder.column("column" + i, "Column " + i, String.class);
+        }
+        ExcelSchema<Object[]> schema = builder.forArrays();
+
+        // when
+        List<ExcelSchema<Object[]>> projections = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            for (int j = 0; j < 10; j++) {
+                if (i != j) {
+                    projections.add(schema.project(Arrays.asList("column" + i, "column" + j)));
+                    schema.project(Arrays.asList("column0", "column1"));
+                }
+            }
+        }
+
+        // then
+        assertThat(schema.project(Arrays.asList("column0", "column1"))).isSameAs(projections.get(0));
+        assertThat(schema.project(Arrays.asList("column9", "column8")))
+                .isSameAs(projections.get(projections.size() - 1));
+        assertThat(schema.project(Arrays.asList("column0", "column2"))).isNotSameAs(projections.get(1));
+        assertThat(schema.project(Arrays.asList("column0", "column2")).getColumnNames())
+                .isEqualTo(Arrays.asList("column0", "column2"));
+    }
+
+    @Test
+    public void classSchemaDoesNotPinClassLoaderTest() throws Exception {
+        // given
+        WeakReference<ClassLoader> loader = loadSchemaInIsolatedLoader();
+
+        // when
+        for (int i = 0; i < 50 && loader.get() != null; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+
+        // then
+        assertThat(loader.get()).isNull();
+    }
+
+    private WeakReference<ClassLoader> loadSchemaInIsolatedLoader() throws Exception {
+        IsolatedClassLoader loader = new IsolatedClassLoader(ExcelDto.class);
+        Class<?> type = loader.loadClass(ExcelDto.class.getName());
+        assertThat(type).isNotSameAs(ExcelDto.class);
+        assertThat(ExcelSchema.of(type).getColumnNames()).isEqualTo(ExcelSchema.of(ExcelDto.class).getColumnNames());
+        return new WeakReference<>(loader);
+    }
+
+    /**
+     * Defines its own copy of a class, and delegates every other class to the test class loader
+     */
+    private static class IsolatedClassLoader extends ClassLoader {
+
+        private final Class<?> isolated;
+
+        private IsolatedClassLoader(Class<?> isolated) {
+            super(IsolatedClassLoader.class.getClassLoader());
+            this.isolated = isolated;
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!name.equals(isolated.getName())) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> loaded = findLoadedClass(name);
+                if (loaded == null) {
+                    String resource = name.replace('.', '/') + ".class";
+                    try (InputStream stream = getParent().getResourceAsStream(resource)) {
+                        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                        byte[] buffer = new byte[4096];
+                        for (int read; (read = stream.read(buffer)) > 0; ) {
+                            bytes.write(buffer, 0, read);
+                        }
+                        loaded = defineClass(name, bytes.toByteArray(), 0, bytes.size());
+                    } catch (IOException e) {
+                        throw new ClassNotFoundException(name, e);
+                    }
+                }
+                return loaded;
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,67 @@
+package com.okdori.resource.schema;
+
+import com.okdori.dto.GeneratedDto;
+import com.okdori.dto.GeneratedDto_ExcelRowWriter;
+import org.junit.jupiter.api.Test;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GeneratedRowWriterTest {
+
+    @Test
+    public void generatedRowWriterIsPreferredTest() {
+        // given & when
+        ExcelSchema<GeneratedDto> schema = ExcelSchema.of(GeneratedDto.class);
+        List<Object> values = new ArrayList<>();
+        schema.project(Collections.singletonList("age")).getRowWriter()
+                .write(new GeneratedDto("kim", 20), new CellValueWriter() {
+                    @Override
+                    public void writeNumber(int columnIndex, double value) {
+                        values.add(value);
+                    }
+
+                    @Override
+                    public void writeValue(int columnIndex, Object value) {
+                        values.add(value);
+                    }
+                });
+
+        // then
+        assertThat(schema.getRowWriter()).isInstanceOf(GeneratedDto_ExcelRowWriter.class);
+        assertThat(schema.getColumnNames()).containsExactly("name", "age");
+        assertThat(values).containsExactly(20.0);
+    }
+
+    @Test
+    public void staleServiceEntryIsSkippedTest() throws Exception {
+        // given
+        Path directory = Files.createTempDirectory("stale-service");
+        Path services = Files.createDirectories(directory.resolve("META-INF/services"));
+        Files.write(services.resolve(GeneratedRowWriter.class.getName()),
+                "com.okdori.dto.Removed_ExcelRowWriter\n".getBytes(StandardCharsets.UTF_8));
+
+        // when
+        Map<String, String> names;
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{directory.toUri().toURL()},
+                getClass().getClassLoader())) {
+            names = GeneratedRowWriters.loadNames(classLoader);
+        } finally {
+            Files.delete(services.resolve(GeneratedRowWriter.class.getName()));
+        }
+
+        // then
+        assertThat(names).containsEntry(GeneratedDto.class.getName(), GeneratedDto_ExcelRowWriter.class.getName());
+        assertThat(names).doesNotContainKey("com.okdori.dto.Removed");
+    }
+
+}
@@ -0,0 +1,90 @@
+package com.okdori.excel.jfr;
+
+import com.okdori.excel.onesheet.OneSheetExcelFile;
+import com.okdori.excel.storage.ExcelTempStorage;
+import com.okdori.resource.DefaultDataFormatDecider;
+import com.okdori.resource.schema.ExcelSchema;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ExcelEventsTest {
+
+    private static final String[] EVENT_NAMES = {
+            "com.okdori.excel.ResourcePreparation",
+            "com.okdori.excel.SheetCreation",
+            "com.okdori.excel.Flush",
+            "com.okdori.excel.WidthFitting",
+            "com.okdori.excel.Write"
+    };
+
+    private final ExcelSchema<Object[]> schema = ExcelSchema.builder()
+            .column("name", "User Name", String.class)
+            .column("age", "User Age", Integer.class)
+            .forArrays();
+
+    @Test
+    public void oneSheetEventsTest() throws Exception {
+        // given
+        File directory = Files.createTempDirectory("excel-jfr").toFile();
+        List<RecordedEvent> events;
+
+        // when
+        try (Recording recording = new Recording()) {
+            for (String eventName : EVENT_NAMES) {
+                recording.enable(eventName);
+            }
+            recording.start();
+            new OneSheetExcelFile<>(rows(3000), schema, new DefaultDataFormatDecider(),
+                    ExcelTempStorage.directory(directory)).write(new ByteArrayOutputStream());
+            recording.stop();
+            Path file = Files.createTempFile(directory.toPath(), "excel", ".jfr");
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+        }
+
+        // then
+        Map<String, List<RecordedEvent>> eventsByName = events.stream()
+                .filter(event -> event.getEventType().getName().startsWith("com.okdori.excel."))
+                .collect(Collectors.groupingBy(event -> event.getEventType().getName()));
+        assertThat(eventsByName.keySet()).containsOnly(EVENT_NAMES);
+        assertThat(eventsByName.get("com.okdori.excel.ResourcePreparation")).hasSize(1);
+
+        List<RecordedEvent> flushes = eventsByName.get("com.okdori.excel.Flush");
+        assertThat(flushes).hasSize(4);
+        assertThat(flushes.stream().mapToLong(event -> event.getLong("rowCount")).sum()).isEqualTo(3001);
+        assertThat(flushes.get(0).getDuration("writeNanos").toNanos()).isPositive();
+
+        List<RecordedEvent> widthFittings = eventsByName.get("com.okdori.excel.WidthFitting");
+        assertThat(widthFittings).hasSize(3);
+        assertThat(widthFittings.stream().mapToLong(event -> event.getLong("rowCount")).sum()).isEqualTo(3000);
+        assertThat(widthFittings.get(0).getDuration("fittingNanos").toNanos()).isPositive();
+
+        List<RecordedEvent> writes = eventsByName.get("com.okdori.excel.Write");
+        assertThat(writes).hasSize(1);
+        assertThat(writes.get(0).getLong("rowCount")).isEqualTo(3001);
+        assertThat(writes.get(0).getLong("bytes")).isPositive();
+        assertThat(writes.get(0).hasField("writeNanos")).isFalse();
+    }
+
+    private List<Object[]> rows(int count) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(new Object[]{"name" + i, i});
+        }
+        return rows;
+    }
+
+}